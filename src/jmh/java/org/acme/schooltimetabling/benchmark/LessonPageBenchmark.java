@@ -0,0 +1,133 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.acme.schooltimetabling.benchmark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.acme.schooltimetabling.persistence.TenantPageStreamer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * The latency of reading a random page of 1000 lessons of a large tenant and writing it as JSON,
+ * seeked by id like TimeTableResource.listLessons() or skipped to with an offset.
+ * Sampled, so the result includes the p0.99 percentile.
+ * Uses an in-memory H2 database with the Lesson columns of the Hibernate schema,
+ * next to a second tenant of the same size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LessonPageBenchmark {
+
+    public enum Paging {
+        KEYSET,
+        OFFSET
+    }
+
+    private static final Long TENANT_ID = 1L;
+    private static final Long OTHER_TENANT_ID = 2L;
+    private static final int PAGE_SIZE = 1000;
+
+    @Param({ "10000", "100000" })
+    int lessonCount;
+    @Param
+    Paging paging;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Random random = new Random(37L);
+    private Connection connection;
+
+    @Setup
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:h2:mem:lesson-page-benchmark");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE Lesson (id BIGINT PRIMARY KEY, tenantId BIGINT,"
+                    + " subject VARCHAR(255), teacher VARCHAR(255), studentGroup VARCHAR(255),"
+                    + " timeslot_id BIGINT, room_id BIGINT, pinned BOOLEAN NOT NULL)");
+        }
+        try (PreparedStatement statement = connection.prepareStatement("INSERT INTO Lesson"
+                + " (id, tenantId, subject, teacher, studentGroup, timeslot_id, room_id, pinned)"
+                + " VALUES (?, ?, ?, ?, ?, ?, ?, ?)")) {
+            for (long id = 1L; id <= 2L * lessonCount; id++) {
+                statement.setLong(1, id);
+                statement.setLong(2, id <= lessonCount ? TENANT_ID : OTHER_TENANT_ID);
+                statement.setString(3, "Subject" + id % 20);
+                statement.setString(4, "Teacher" + id % 400);
+                statement.setString(5, "Group" + id % 250);
+                statement.setLong(6, id % 50);
+                statement.setLong(7, id % 200);
+                statement.setBoolean(8, false);
+                statement.addBatch();
+                if (id % 1000L == 0L) {
+                    statement.executeBatch();
+                }
+            }
+            statement.executeBatch();
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Benchmark
+    public int readRandomPage() throws SQLException, IOException {
+        int page = random.nextInt(lessonCount / PAGE_SIZE);
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(OutputStream.nullOutputStream())) {
+            switch (paging) {
+                case KEYSET:
+                    // The ids of the tenant are 1 to lessonCount, so the previous page ends at this id
+                    return TenantPageStreamer.writePage(connection, generator, TenantPageStreamer.LESSON_PAGE_SQL,
+                            TENANT_ID, (long) page * PAGE_SIZE, PAGE_SIZE, TenantPageStreamer::toLessonSummary);
+                case OFFSET:
+                    // Reads and skips every row of the previous pages
+                    String sql = TenantPageStreamer.LESSON_PAGE_SQL + " OFFSET " + page * PAGE_SIZE;
+                    return TenantPageStreamer.writePage(connection, generator, sql,
+                            TENANT_ID, 0L, PAGE_SIZE, TenantPageStreamer::toLessonSummary);
+                default:
+                    throw new IllegalStateException("The paging (" + paging + ") is not implemented.");
+            }
+        }
+    }
+
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.acme.schooltimetabling.benchmark;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.acme.schooltimetabling.domain.Lesson;
+import org.acme.schooltimetabling.domain.TimeTable;
+import org.acme.schooltimetabling.solver.SolverFactoryProducer;
+import org.acme.schooltimetabling.solver.TimeTableConstraintProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.optaplanner.core.api.solver.Solver;
+import org.optaplanner.core.api.solver.SolverFactory;
+import org.optaplanner.core.config.solver.SolverConfig;
+import org.optaplanner.core.config.solver.termination.TerminationConfig;
+
+/**
+ * Time to feasible from unassigned lessons with the default move selectors
+ * versus the conflict-directed moves of {@link org.acme.schooltimetabling.solver.ConflictDirectedMoveIteratorFactory}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MoveSelectorBenchmark {
+
+    @Param({ "SMALL", "LARGE" })
+    TimeTableDataset dataset;
+    @Param({ "DEFAULT", "CONFLICT_DIRECTED" })
+    MoveSelection moveSelection;
+
+    private SolverFactory<TimeTable> solverFactory;
+    private TimeTable timeTable;
+
+    @Setup(Level.Trial)
+    public void setUpTrial() {
+        SolverConfig solverConfig = new SolverConfig()
+                .withSolutionClass(TimeTable.class)
+                .withEntityClasses(Lesson.class)
+                .withConstraintProviderClass(TimeTableConstraintProvider.class)
+                .withTerminationConfig(new TerminationConfig()
+                        .withBestScoreLimit("0hard/*soft")
+                        .withSpentLimit(Duration.ofMinutes(5)));
+        if (moveSelection == MoveSelection.CONFLICT_DIRECTED) {
+            solverConfig = SolverFactoryProducer.buildConflictDirectedSolverConfig(solverConfig, 0.9);
+        }
+        solverFactory = SolverFactory.create(solverConfig);
+    }
+
+    @Setup(Level.Invocation)
+    public void setUpInvocation() {
+        timeTable = dataset.createTimeTable();
+    }
+
+    @Benchmark
+    public TimeTable solveUntilFeasible() {
+        Solver<TimeTable> solver = solverFactory.buildSolver();
+        TimeTable solution = solver.solve(timeTable);
+        if (!solution.getScore().isFeasible()) {
+            throw new IllegalStateException("The dataset (" + dataset + ") didn't become feasible with the "
+                    + moveSelection + " move selection.");
+        }
+        return solution;
+    }
+
+    public enum MoveSelection {
+        DEFAULT,
+        CONFLICT_DIRECTED
+    }
+
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.acme.schooltimetabling.benchmark;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.acme.schooltimetabling.domain.Lesson;
+import org.acme.schooltimetabling.domain.Room;
+import org.acme.schooltimetabling.domain.TimeTable;
+import org.acme.schooltimetabling.domain.Timeslot;
+import org.acme.schooltimetabling.solver.TimeTableConstraintProvider;
+import org.acme.schooltimetabling.solver.TimeTableIncrementalScoreCalculator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.optaplanner.core.api.solver.SolverFactory;
+import org.optaplanner.core.config.score.director.ScoreDirectorFactoryConfig;
+import org.optaplanner.core.config.solver.SolverConfig;
+import org.optaplanner.core.impl.score.director.InnerScoreDirector;
+import org.optaplanner.core.impl.solver.DefaultSolverFactory;
+
+/**
+ * Score calculation from scratch and the incremental evaluation of a change move and a swap move,
+ * the way a local search step evaluates them: do the move, calculate the score, undo the move.
+ * {@code CONSTRAINT_STREAMS_TIME_GAP} is the baseline of the consecutive timeslot pairs
+ * that {@code CONSTRAINT_STREAMS} joins the gap constraints on, see {@link TimeGapConstraintProvider}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ScoreCalculationBenchmark {
+
+    private static final long SEED = 37L;
+
+    @Param({ "SMALL", "LARGE", "XL" })
+    TimeTableDataset dataset;
+    @Param({ "CONSTRAINT_STREAMS", "CONSTRAINT_STREAMS_TIME_GAP", "INCREMENTAL" })
+    ScoreCalculation scoreCalculation;
+
+    private TimeTable timeTable;
+    private List<Lesson> lessonList;
+    private List<Timeslot> timeslotList;
+    private InnerScoreDirector<TimeTable, ?> scoreDirector;
+    private Random random;
+
+    @Setup
+    public void setUp() {
+        timeTable = dataset.createInitializedTimeTable(SEED);
+        lessonList = timeTable.getLessonList();
+        timeslotList = timeTable.getTimeslotList();
+        SolverConfig solverConfig = new SolverConfig()
+                .withSolutionClass(TimeTable.class)
+                .withEntityClasses(Lesson.class)
+                .withScoreDirectorFactory(scoreCalculation.buildScoreDirectorFactoryConfig());
+        DefaultSolverFactory<TimeTable> solverFactory = (DefaultSolverFactory<TimeTable>) SolverFactory
+                .<TimeTable> create(solverConfig);
+        scoreDirector = solverFactory.getScoreDirectorFactory().buildScoreDirector(false, false);
+        scoreDirector.setWorkingSolution(timeTable);
+        scoreDirector.calculateScore();
+        random = new Random(SEED);
+    }
+
+    @TearDown
+    public void tearDown() {
+        scoreDirector.close();
+    }
+
+    @Benchmark
+    public Object calculateScoreFromScratch() {
+        scoreDirector.setWorkingSolution(timeTable);
+        return scoreDirector.calculateScore();
+    }
+
+    @Benchmark
+    public Object evaluateChangeMove() {
+        Lesson lesson = lessonList.get(random.nextInt(lessonList.size()));
+        Timeslot oldTimeslot = lesson.getTimeslot();
+        changeTimeslot(lesson, timeslotList.get(random.nextInt(timeslotList.size())));
+        Object score = scoreDirector.calculateScore();
+        changeTimeslot(lesson, oldTimeslot);
+        return score;
+    }
+
+    @Benchmark
+    public Object evaluateSwapMove() {
+        Lesson leftLesson = lessonList.get(random.nextInt(lessonList.size()));
+        Lesson rightLesson = lessonList.get(random.nextInt(lessonList.size()));
+        swap(leftLesson, rightLesson);
+        Object score = scoreDirector.calculateScore();
+        swap(leftLesson, rightLesson);
+        return score;
+    }
+
+    private void changeTimeslot(Lesson lesson, Timeslot timeslot) {
+        scoreDirector.beforeVariableChanged(lesson, "timeslot");
+        lesson.setTimeslot(timeslot);
+        scoreDirector.afterVariableChanged(lesson, "timeslot");
+    }
+
+    private void swap(Lesson leftLesson, Lesson rightLesson) {
+        Timeslot leftTimeslot = leftLesson.getTimeslot();
+        Room leftRoom = leftLesson.getRoom();
+        // One variable at a time, like LessonSwapMove, because the incremental calculator retracts per call
+        scoreDirector.beforeVariableChanged(leftLesson, "timeslot");
+        leftLesson.setTimeslot(rightLesson.getTimeslot());
+        scoreDirector.afterVariableChanged(leftLesson, "timeslot");
+        scoreDirector.beforeVariableChanged(leftLesson, "room");
+        leftLesson.setRoom(rightLesson.getRoom());
+        scoreDirector.afterVariableChanged(leftLesson, "room");
+        scoreDirector.beforeVariableChanged(rightLesson, "timeslot");
+        rightLesson.setTimeslot(leftTimeslot);
+        scoreDirector.afterVariableChanged(rightLesson, "timeslot");
+        scoreDirector.beforeVariableChanged(rightLesson, "room");
+        rightLesson.setRoom(leftRoom);
+        scoreDirector.afterVariableChanged(rightLesson, "room");
+    }
+
+    public enum ScoreCalculation {
+        CONSTRAINT_STREAMS,
+        CONSTRAINT_STREAMS_TIME_GAP,
+        INCREMENTAL;
+
+        ScoreDirectorFactoryConfig buildScoreDirectorFactoryConfig() {
+            ScoreDirectorFactoryConfig config = new ScoreDirectorFactoryConfig();
+            switch (this) {
+                case CONSTRAINT_STREAMS:
+                    config.setConstraintProviderClass(TimeTableConstraintProvider.class);
+                    break;
+                case CONSTRAINT_STREAMS_TIME_GAP:
+                    config.setConstraintProviderClass(TimeGapConstraintProvider.class);
+                    break;
+                case INCREMENTAL:
+                    config.setIncrementalScoreCalculatorClass(TimeTableIncrementalScoreCalculator.class);
+                    break;
+                default:
+                    throw new IllegalStateException("Unsupported score calculation (" + this + ").");
+            }
+            return config;
+        }
+    }
+
+}
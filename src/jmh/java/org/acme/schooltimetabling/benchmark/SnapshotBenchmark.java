@@ -0,0 +1,168 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.acme.schooltimetabling.benchmark;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.acme.schooltimetabling.domain.Lesson;
+import org.acme.schooltimetabling.domain.Room;
+import org.acme.schooltimetabling.domain.TeacherUnavailability;
+import org.acme.schooltimetabling.domain.TimeTable;
+import org.acme.schooltimetabling.domain.Timeslot;
+import org.acme.schooltimetabling.persistence.TimeTableSnapshot;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.optaplanner.core.api.score.buildin.hardsoft.HardSoftScore;
+import org.optaplanner.persistence.jackson.api.OptaPlannerJacksonModule;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+/**
+ * The {@link TimeTableSnapshot} binary format versus the JSON of the REST API, for a solved time table.
+ * The encoded size is reported as the {@code encodedBytes} secondary result of {@link #encode}.
+ * Decoding JSON only parses it into a tree: rebuilding the lessons' shared timeslot and room references
+ * would cost an extra pass on top, so the JSON decode time is a lower bound.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SnapshotBenchmark {
+
+    public enum Format {
+        BINARY,
+        JSON
+    }
+
+    @Param({ "LARGE", "XL", "XXL" })
+    TimeTableDataset dataset;
+    @Param
+    Format format;
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(OptaPlannerJacksonModule.createModule())
+            .registerModule(new JavaTimeModule());
+    private TimeTable timeTable;
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() throws IOException {
+        timeTable = withIds(dataset.createInitializedTimeTable(37L));
+        encoded = encodeToBytes();
+    }
+
+    @Benchmark
+    public byte[] encode(EncodedSize encodedSize) throws IOException {
+        byte[] bytes = encodeToBytes();
+        encodedSize.encodedBytes = bytes.length;
+        return bytes;
+    }
+
+    @Benchmark
+    public Object decode() throws IOException {
+        switch (format) {
+            case BINARY:
+                return TimeTableSnapshot.decode(ByteBuffer.wrap(encoded));
+            case JSON:
+                return objectMapper.readValue(encoded, JsonNode.class);
+            default:
+                throw new IllegalStateException("The format (" + format + ") is not implemented.");
+        }
+    }
+
+    // The datasets aren't persisted, but a snapshot is always of a time table loaded from the database
+    private static TimeTable withIds(TimeTable timeTable) {
+        long id = 0L;
+        Map<Object, Object> copyMap = new IdentityHashMap<>();
+        List<Timeslot> timeslotList = new ArrayList<>();
+        for (Timeslot timeslot : timeTable.getTimeslotList()) {
+            Timeslot copy = new Timeslot(id++, timeslot.getTenantId(), timeslot.getDayOfWeek(),
+                    timeslot.getStartTime(), timeslot.getEndTime());
+            copyMap.put(timeslot, copy);
+            timeslotList.add(copy);
+        }
+        List<Room> roomList = new ArrayList<>();
+        for (Room room : timeTable.getRoomList()) {
+            Room copy = new Room(id++, room.getTenantId(), room.getName());
+            copy.setAvailable(room.isAvailable());
+            copy.setRoomType(room.getRoomType());
+            copy.setCapacity(room.getCapacity());
+            copyMap.put(room, copy);
+            roomList.add(copy);
+        }
+        List<TeacherUnavailability> teacherUnavailabilityList = new ArrayList<>();
+        for (TeacherUnavailability teacherUnavailability : timeTable.getTeacherUnavailabilityList()) {
+            teacherUnavailabilityList.add(new TeacherUnavailability(id++, teacherUnavailability.getTenantId(),
+                    teacherUnavailability.getTeacher().getName(), teacherUnavailability.getDayOfWeek()));
+        }
+        List<Lesson> lessonList = new ArrayList<>();
+        for (Lesson lesson : timeTable.getLessonList()) {
+            Lesson copy = new Lesson(id++, lesson.getTenantId(), lesson.getSubject().getName(),
+                    lesson.getTeacher().getName(), lesson.getStudentGroup().getName(),
+                    (Timeslot) copyMap.get(lesson.getTimeslot()), (Room) copyMap.get(lesson.getRoom()));
+            copy.setPinned(lesson.isPinned());
+            copy.setRequiredRoomType(lesson.getRequiredRoomType());
+            copy.setStudentCount(lesson.getStudentCount());
+            lessonList.add(copy);
+        }
+        TimeTable copy = new TimeTable(timeTable.getTenantId(), timeslotList, roomList, teacherUnavailabilityList,
+                lessonList);
+        copy.setScore(HardSoftScore.of(-12, -345));
+        return copy;
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class EncodedSize {
+
+        // Set, not incremented, so it's the size of one encoding
+        public long encodedBytes;
+
+    }
+
+    private byte[] encodeToBytes() throws IOException {
+        switch (format) {
+            case BINARY:
+                return TimeTableSnapshot.encode(timeTable).array();
+            case JSON:
+                return objectMapper.writeValueAsBytes(timeTable);
+            default:
+                throw new IllegalStateException("The format (" + format + ") is not implemented.");
+        }
+    }
+
+}
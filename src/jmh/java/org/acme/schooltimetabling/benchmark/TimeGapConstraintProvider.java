@@ -0,0 +1,83 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.acme.schooltimetabling.benchmark;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.acme.schooltimetabling.domain.ConsecutiveTimeslotPair;
+import org.acme.schooltimetabling.domain.Lesson;
+import org.acme.schooltimetabling.solver.TimeTableConstraintProvider;
+import org.optaplanner.core.api.score.buildin.hardsoft.HardSoftScore;
+import org.optaplanner.core.api.score.stream.Constraint;
+import org.optaplanner.core.api.score.stream.ConstraintFactory;
+import org.optaplanner.core.api.score.stream.ConstraintProvider;
+import org.optaplanner.core.api.score.stream.Joiners;
+
+/**
+ * The constraints of {@link TimeTableConstraintProvider}, but with the gap constraints as they were
+ * before the {@link ConsecutiveTimeslotPair}s: they join every pair of lessons of a teacher or a student group
+ * on the same day and compare their times with a {@link Duration}.
+ * The baseline for the consecutive timeslot pairs in {@link ScoreCalculationBenchmark}.
+ */
+public class TimeGapConstraintProvider implements ConstraintProvider {
+
+    private static final String TEACHER_TIME_EFFICIENCY = "Teacher time efficiency";
+    private static final String STUDENT_GROUP_SUBJECT_VARIETY = "Student group subject variety";
+
+    @Override
+    public Constraint[] defineConstraints(ConstraintFactory constraintFactory) {
+        List<Constraint> constraintList = new ArrayList<>();
+        for (Constraint constraint : new TimeTableConstraintProvider().defineConstraints(constraintFactory)) {
+            String constraintName = constraint.getConstraintName();
+            if (!constraintName.equals(TEACHER_TIME_EFFICIENCY)
+                    && !constraintName.equals(STUDENT_GROUP_SUBJECT_VARIETY)) {
+                constraintList.add(constraint);
+            }
+        }
+        constraintList.add(teacherTimeEfficiency(constraintFactory));
+        constraintList.add(studentGroupSubjectVariety(constraintFactory));
+        return constraintList.toArray(new Constraint[0]);
+    }
+
+    Constraint teacherTimeEfficiency(ConstraintFactory constraintFactory) {
+        return constraintFactory
+                .from(Lesson.class)
+                .join(Lesson.class, Joiners.equal(Lesson::getTeacher),
+                        Joiners.equal((lesson) -> lesson.getTimeslot().getDayOfWeek()))
+                .filter((lesson1, lesson2) -> isWithinGap(lesson1, lesson2))
+                .reward(TEACHER_TIME_EFFICIENCY, HardSoftScore.ONE_SOFT);
+    }
+
+    Constraint studentGroupSubjectVariety(ConstraintFactory constraintFactory) {
+        return constraintFactory
+                .from(Lesson.class)
+                .join(Lesson.class,
+                        Joiners.equal(Lesson::getSubject),
+                        Joiners.equal(Lesson::getStudentGroup),
+                        Joiners.equal((lesson) -> lesson.getTimeslot().getDayOfWeek()))
+                .filter((lesson1, lesson2) -> isWithinGap(lesson1, lesson2))
+                .penalize(STUDENT_GROUP_SUBJECT_VARIETY, HardSoftScore.ONE_SOFT);
+    }
+
+    private static boolean isWithinGap(Lesson lesson1, Lesson lesson2) {
+        Duration between = Duration.between(lesson1.getTimeslot().getEndTime(), lesson2.getTimeslot().getStartTime());
+        return !between.isNegative() && between.compareTo(ConsecutiveTimeslotPair.MAX_GAP) <= 0;
+    }
+
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.acme.schooltimetabling.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.acme.schooltimetabling.domain.Lesson;
+import org.acme.schooltimetabling.domain.Room;
+import org.acme.schooltimetabling.domain.TeacherUnavailability;
+import org.acme.schooltimetabling.domain.TimeTable;
+import org.acme.schooltimetabling.domain.Timeslot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The in-memory part of TimeTableResource.findById(): turning the loaded entity lists into a {@link TimeTable},
+ * which interns the lesson facts and precomputes the consecutive timeslot pairs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TimeTableAssemblyBenchmark {
+
+    @Param({ "SMALL", "LARGE", "XL" })
+    TimeTableDataset dataset;
+
+    private Long tenantId;
+    private List<Timeslot> timeslotList;
+    private List<Room> roomList;
+    private List<TeacherUnavailability> teacherUnavailabilityList;
+    private List<Lesson> lessonList;
+
+    @Setup
+    public void setUp() {
+        TimeTable timeTable = dataset.createTimeTable();
+        tenantId = timeTable.getTenantId();
+        timeslotList = timeTable.getTimeslotList();
+        roomList = timeTable.getRoomList();
+        teacherUnavailabilityList = timeTable.getTeacherUnavailabilityList();
+        lessonList = timeTable.getLessonList();
+    }
+
+    @Benchmark
+    public TimeTable assembleTimeTable() {
+        return new TimeTable(tenantId, timeslotList, roomList, teacherUnavailabilityList, lessonList);
+    }
+
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.acme.schooltimetabling.benchmark;
+
+import java.util.List;
+import java.util.Random;
+
+import org.acme.schooltimetabling.bootstrap.DemoDataGenerator;
+import org.acme.schooltimetabling.bootstrap.SyntheticDataGenerator;
+import org.acme.schooltimetabling.domain.Lesson;
+import org.acme.schooltimetabling.domain.Room;
+import org.acme.schooltimetabling.domain.TimeTable;
+import org.acme.schooltimetabling.domain.Timeslot;
+
+/**
+ * The datasets of the JMH benchmarks: the SMALL and LARGE demo data, generated XL and XXL schools
+ * and a generated CONSTRAINED school.
+ */
+public enum TimeTableDataset {
+    SMALL,
+    LARGE,
+    /**
+     * 1440 lessons.
+     */
+    XL,
+    /**
+     * 10 000 lessons, not in the default parameters, run it with {@code -p dataset=XXL}.
+     */
+    XXL,
+    /**
+     * 720 lessons that need labs, gyms and computer rooms, with room capacities and group sizes,
+     * and 30% of the teachers with a day off.
+     */
+    CONSTRAINED;
+
+    private static final Long TENANT_ID = 1L;
+
+    public TimeTable createTimeTable() {
+        switch (this) {
+            case SMALL:
+                return DemoDataGenerator.createTimeTable(TENANT_ID, DemoDataGenerator.DemoData.SMALL);
+            case LARGE:
+                return DemoDataGenerator.createTimeTable(TENANT_ID, DemoDataGenerator.DemoData.LARGE);
+            case XL:
+                return SyntheticDataGenerator.createTimeTable(TENANT_ID, new SyntheticDataGenerator.Parameters()
+                        .withRoomCount(40)
+                        .withTeacherCount(80)
+                        .withStudentGroupCount(48)
+                        .withLessonsPerGroup(30)
+                        .withSeed(37L));
+            case XXL:
+                return SyntheticDataGenerator.createTimeTable(TENANT_ID, new SyntheticDataGenerator.Parameters()
+                        .withRoomCount(200)
+                        .withTeacherCount(400)
+                        .withStudentGroupCount(250)
+                        .withLessonsPerGroup(40)
+                        .withSeed(37L));
+            case CONSTRAINED:
+                return SyntheticDataGenerator.createTimeTable(TENANT_ID, new SyntheticDataGenerator.Parameters()
+                        .withRoomCount(20)
+                        .withTeacherCount(40)
+                        .withStudentGroupCount(24)
+                        .withLessonsPerGroup(30)
+                        .withRoomTypes(true)
+                        .withCapacities(true)
+                        .withTeacherDayOffRatio(0.3)
+                        .withSeed(37L));
+            default:
+                throw new IllegalStateException("The dataset (" + this + ") is not implemented.");
+        }
+    }
+
+    /**
+     * Assigns every lesson to a random timeslot and room, so every constraint has matches to evaluate.
+     * @param seed the same seed gives the same assignments
+     * @return never null
+     */
+    public TimeTable createInitializedTimeTable(long seed) {
+        TimeTable timeTable = createTimeTable();
+        Random random = new Random(seed);
+        List<Timeslot> timeslotList = timeTable.getTimeslotList();
+        List<Room> roomList = timeTable.getRoomList();
+        for (Lesson lesson : timeTable.getLessonList()) {
+            lesson.setTimeslot(timeslotList.get(random.nextInt(timeslotList.size())));
+            lesson.setRoom(roomList.get(random.nextInt(roomList.size())));
+        }
+        return timeTable;
+    }
+
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.acme.schooltimetabling.benchmark;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.acme.schooltimetabling.domain.Lesson;
+import org.acme.schooltimetabling.domain.Room;
+import org.acme.schooltimetabling.domain.TimeTable;
+import org.acme.schooltimetabling.domain.Timeslot;
+import org.acme.schooltimetabling.solver.TimeTableConstraintProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.optaplanner.core.api.solver.Solver;
+import org.optaplanner.core.api.solver.SolverFactory;
+import org.optaplanner.core.config.score.director.ScoreDirectorFactoryConfig;
+import org.optaplanner.core.config.solver.SolverConfig;
+import org.optaplanner.core.config.solver.termination.TerminationConfig;
+import org.optaplanner.core.impl.score.director.InnerScoreDirector;
+import org.optaplanner.core.impl.solver.DefaultSolverFactory;
+
+/**
+ * The per-lesson value ranges, which leave out the days a lesson's teacher doesn't work and the rooms that don't suit
+ * the lesson, versus the global value ranges, where only the hard constraints keep lessons out of those.
+ * Measures the time to feasible from unassigned lessons and the change moves evaluated per second,
+ * on the {@link TimeTableDataset#CONSTRAINED} dataset by default.
+ */
+@Fork(1)
+public class ValueRangeBenchmark {
+
+    private static final long SEED = 37L;
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    public TimeTable solveUntilFeasible(SolveState state) {
+        Solver<TimeTable> solver = state.solverFactory.buildSolver();
+        TimeTable solution = solver.solve(state.timeTable);
+        if (!solution.getScore().isFeasible()) {
+            throw new IllegalStateException("The dataset (" + state.dataset + ") didn't become feasible with the "
+                    + state.valueRanges + " value ranges.");
+        }
+        return solution;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @Warmup(iterations = 3, time = 5)
+    @Measurement(iterations = 5, time = 5)
+    public Object evaluateChangeMove(MoveState state) {
+        List<Lesson> lessonList = state.lessonList;
+        Random random = state.random;
+        Lesson lesson = lessonList.get(random.nextInt(lessonList.size()));
+        List<Timeslot> timeslotList = lesson.getAllowedTimeslotList();
+        List<Room> roomList = lesson.getAllowedRoomList();
+        Timeslot oldTimeslot = lesson.getTimeslot();
+        Room oldRoom = lesson.getRoom();
+        state.change(lesson, timeslotList.get(random.nextInt(timeslotList.size())),
+                roomList.get(random.nextInt(roomList.size())));
+        Object score = state.scoreDirector.calculateScore();
+        state.change(lesson, oldTimeslot, oldRoom);
+        return score;
+    }
+
+    private static TimeTable createTimeTable(TimeTableDataset dataset, ValueRanges valueRanges) {
+        TimeTable timeTable = dataset.createTimeTable();
+        if (valueRanges == ValueRanges.GLOBAL) {
+            timeTable.widenValueRanges();
+        }
+        return timeTable;
+    }
+
+    @State(Scope.Benchmark)
+    public static class SolveState {
+
+        @Param({ "CONSTRAINED" })
+        TimeTableDataset dataset;
+        @Param({ "PER_LESSON", "GLOBAL" })
+        ValueRanges valueRanges;
+
+        private SolverFactory<TimeTable> solverFactory;
+        private TimeTable timeTable;
+
+        @Setup(Level.Trial)
+        public void setUpTrial() {
+            solverFactory = SolverFactory.create(new SolverConfig()
+                    .withSolutionClass(TimeTable.class)
+                    .withEntityClasses(Lesson.class)
+                    .withConstraintProviderClass(TimeTableConstraintProvider.class)
+                    .withTerminationConfig(new TerminationConfig()
+                            .withBestScoreLimit("0hard/*soft")
+                            .withSpentLimit(Duration.ofMinutes(5))));
+        }
+
+        @Setup(Level.Invocation)
+        public void setUpInvocation() {
+            timeTable = createTimeTable(dataset, valueRanges);
+        }
+
+    }
+
+    @State(Scope.Benchmark)
+    public static class MoveState {
+
+        @Param({ "CONSTRAINED" })
+        TimeTableDataset dataset;
+        @Param({ "PER_LESSON", "GLOBAL" })
+        ValueRanges valueRanges;
+
+        private List<Lesson> lessonList;
+        private InnerScoreDirector<TimeTable, ?> scoreDirector;
+        private Random random;
+
+        @Setup
+        public void setUp() {
+            TimeTable timeTable = createTimeTable(dataset, valueRanges);
+            random = new Random(SEED);
+            lessonList = timeTable.getLessonList();
+            // Every lesson starts in a random timeslot and room of its value ranges
+            for (Lesson lesson : lessonList) {
+                List<Timeslot> timeslotList = lesson.getAllowedTimeslotList();
+                List<Room> roomList = lesson.getAllowedRoomList();
+                lesson.setTimeslot(timeslotList.get(random.nextInt(timeslotList.size())));
+                lesson.setRoom(roomList.get(random.nextInt(roomList.size())));
+            }
+            ScoreDirectorFactoryConfig scoreDirectorFactoryConfig = new ScoreDirectorFactoryConfig();
+            scoreDirectorFactoryConfig.setConstraintProviderClass(TimeTableConstraintProvider.class);
+            SolverConfig solverConfig = new SolverConfig()
+                    .withSolutionClass(TimeTable.class)
+                    .withEntityClasses(Lesson.class)
+                    .withScoreDirectorFactory(scoreDirectorFactoryConfig);
+            DefaultSolverFactory<TimeTable> solverFactory = (DefaultSolverFactory<TimeTable>) SolverFactory
+                    .<TimeTable> create(solverConfig);
+            scoreDirector = solverFactory.getScoreDirectorFactory().buildScoreDirector(false, false);
+            scoreDirector.setWorkingSolution(timeTable);
+            scoreDirector.calculateScore();
+        }
+
+        @TearDown
+        public void tearDown() {
+            scoreDirector.close();
+        }
+
+        private void change(Lesson lesson, Timeslot timeslot, Room room) {
+            scoreDirector.beforeVariableChanged(lesson, "timeslot");
+            lesson.setTimeslot(timeslot);
+            scoreDirector.afterVariableChanged(lesson, "timeslot");
+            scoreDirector.beforeVariableChanged(lesson, "room");
+            lesson.setRoom(room);
+            scoreDirector.afterVariableChanged(lesson, "room");
+        }
+
+    }
+
+    public enum ValueRanges {
+        PER_LESSON,
+        GLOBAL
+    }
+
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.acme.schooltimetabling.benchmark;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.acme.schooltimetabling.domain.Lesson;
+import org.acme.schooltimetabling.domain.TimeTable;
+import org.acme.schooltimetabling.solver.SolverFactoryProducer;
+import org.acme.schooltimetabling.solver.TimeTableConstraintProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.optaplanner.core.api.solver.Solver;
+import org.optaplanner.core.api.solver.SolverFactory;
+import org.optaplanner.core.config.solver.SolverConfig;
+import org.optaplanner.core.config.solver.termination.TerminationConfig;
+
+/**
+ * Time to feasible of a restart: a cold start from unassigned lessons
+ * versus a warm start from a feasible solution of which some lessons were unassigned since,
+ * as if they were added or edited after the last solve.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class WarmStartBenchmark {
+
+    private static final long SEED = 37L;
+    private static final double UNASSIGNED_RATIO = 0.1;
+
+    @Param({ "SMALL", "LARGE" })
+    TimeTableDataset dataset;
+    @Param({ "COLD", "WARM" })
+    Start start;
+
+    private SolverFactory<TimeTable> solverFactory;
+    private int[] feasibleTimeslotIndexes;
+    private int[] feasibleRoomIndexes;
+    private TimeTable timeTable;
+
+    @Setup(Level.Trial)
+    public void setUpTrial() {
+        SolverConfig solverConfig = new SolverConfig()
+                .withSolutionClass(TimeTable.class)
+                .withEntityClasses(Lesson.class)
+                .withConstraintProviderClass(TimeTableConstraintProvider.class)
+                .withTerminationConfig(new TerminationConfig()
+                        .withBestScoreLimit("0hard/*soft")
+                        .withSpentLimit(Duration.ofMinutes(5)));
+        if (start == Start.WARM) {
+            solverConfig = SolverFactoryProducer.buildWarmStartSolverConfig(solverConfig, Duration.ofSeconds(30));
+        }
+        solverFactory = SolverFactory.create(solverConfig);
+        // Stands in for the solution saved by the previous solve
+        TimeTable feasibleTimeTable = solverFactory.buildSolver().solve(dataset.createTimeTable());
+        if (!feasibleTimeTable.getScore().isFeasible()) {
+            throw new IllegalStateException("The dataset (" + dataset + ") didn't become feasible.");
+        }
+        List<Lesson> lessonList = feasibleTimeTable.getLessonList();
+        feasibleTimeslotIndexes = new int[lessonList.size()];
+        feasibleRoomIndexes = new int[lessonList.size()];
+        for (int i = 0; i < lessonList.size(); i++) {
+            Lesson lesson = lessonList.get(i);
+            feasibleTimeslotIndexes[i] = feasibleTimeTable.getTimeslotList().indexOf(lesson.getTimeslot());
+            feasibleRoomIndexes[i] = feasibleTimeTable.getRoomList().indexOf(lesson.getRoom());
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void setUpInvocation() {
+        timeTable = dataset.createTimeTable();
+        if (start == Start.WARM) {
+            Random random = new Random(SEED);
+            List<Lesson> lessonList = timeTable.getLessonList();
+            for (int i = 0; i < lessonList.size(); i++) {
+                if (random.nextDouble() >= UNASSIGNED_RATIO) {
+                    Lesson lesson = lessonList.get(i);
+                    lesson.setTimeslot(timeTable.getTimeslotList().get(feasibleTimeslotIndexes[i]));
+                    lesson.setRoom(timeTable.getRoomList().get(feasibleRoomIndexes[i]));
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public TimeTable solveUntilFeasible() {
+        Solver<TimeTable> solver = solverFactory.buildSolver();
+        return solver.solve(timeTable);
+    }
+
+    public enum Start {
+        COLD,
+        WARM
+    }
+
+}
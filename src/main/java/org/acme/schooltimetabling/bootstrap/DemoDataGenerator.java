@@ -28,6 +28,7 @@ import javax.transaction.Transactional;
 
 import org.acme.schooltimetabling.domain.Lesson;
 import org.acme.schooltimetabling.domain.Room;
+import org.acme.schooltimetabling.domain.TimeTable;
 import org.acme.schooltimetabling.domain.Timeslot;
 import org.acme.schooltimetabling.persistence.LessonRepository;
 import org.acme.schooltimetabling.persistence.RoomRepository;
@@ -48,9 +49,17 @@ public class DemoDataGenerator {
     RoomRepository roomRepository;
     @Inject
     LessonRepository lessonRepository;
+    @Inject
+    SyntheticDataGenerator syntheticDataGenerator;
 
-    @Transactional
     public void generateDemoData(@Observes StartupEvent startupEvent) {
+        if (demoData == DemoData.GENERATED) {
+            // Bulk inserted, one transaction per tenant
+            for (long tenantId = 1L; tenantId <= syntheticDataGenerator.getTenantCount(); tenantId++) {
+                syntheticDataGenerator.generateTenant(tenantId);
+            }
+            return;
+        }
         generateInitialDataForTenant(1L);
         generateInitialDataForTenant(2L);
         generateInitialDataForTenant(3L);
@@ -58,11 +67,24 @@ public class DemoDataGenerator {
         generateInitialDataForTenant(5L);
     }
 
+    @Transactional
     public void generateInitialDataForTenant(Long tenantId) {
-        if (demoData == DemoData.NONE) {
+        if (demoData == DemoData.NONE || demoData == DemoData.GENERATED) {
             return;
         }
+        TimeTable timeTable = createTimeTable(tenantId, demoData);
+        timeslotRepository.persist(timeTable.getTimeslotList());
+        roomRepository.persist(timeTable.getRoomList());
+        lessonRepository.persist(timeTable.getLessonList());
+    }
 
+    /**
+     * Creates the demo data in memory, without persisting it. Also used by the JMH benchmarks.
+     * @param tenantId never null
+     * @param demoData {@link DemoData#SMALL} or {@link DemoData#LARGE}
+     * @return never null
+     */
+    public static TimeTable createTimeTable(Long tenantId, DemoData demoData) {
         List<Timeslot> timeslotList = new ArrayList<>(10);
         timeslotList.add(new Timeslot(tenantId, DayOfWeek.MONDAY, LocalTime.of(8, 30), LocalTime.of(9, 30)));
         timeslotList.add(new Timeslot(tenantId, DayOfWeek.MONDAY, LocalTime.of(9, 30), LocalTime.of(10, 30)));
@@ -92,7 +114,6 @@ public class DemoDataGenerator {
             timeslotList.add(new Timeslot(tenantId, DayOfWeek.FRIDAY, LocalTime.of(13, 30), LocalTime.of(14, 30)));
             timeslotList.add(new Timeslot(tenantId, DayOfWeek.FRIDAY, LocalTime.of(14, 30), LocalTime.of(15, 30)));
         }
-        timeslotRepository.persist(timeslotList);
 
         List<Room> roomList = new ArrayList<>(3);
         roomList.add(new Room(tenantId, "Room A"));
@@ -103,7 +124,6 @@ public class DemoDataGenerator {
             roomList.add(new Room(tenantId, "Room E"));
             roomList.add(new Room(tenantId, "Room F"));
         }
-        roomRepository.persist(roomList);
 
         List<Lesson> lessonList = new ArrayList<>();
         lessonList.add(new Lesson(tenantId, "Math", "A. Turing", "9th grade"));
@@ -217,14 +237,17 @@ public class DemoDataGenerator {
         Lesson lesson = lessonList.get(0);
         lesson.setTimeslot(timeslotList.get(0));
         lesson.setRoom(roomList.get(0));
-
-        lessonRepository.persist(lessonList);
+        return new TimeTable(tenantId, timeslotList, roomList, lessonList);
     }
 
     public enum DemoData {
         NONE,
         SMALL,
-        LARGE
+        LARGE,
+        /**
+         * See {@link SyntheticDataGenerator}.
+         */
+        GENERATED
     }
 
 }
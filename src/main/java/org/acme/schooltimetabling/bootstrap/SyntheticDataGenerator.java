@@ -0,0 +1,300 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.acme.schooltimetabling.bootstrap;
+
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import org.acme.schooltimetabling.domain.Lesson;
+import org.acme.schooltimetabling.domain.Room;
+import org.acme.schooltimetabling.domain.TeacherUnavailability;
+import org.acme.schooltimetabling.domain.TimeTable;
+import org.acme.schooltimetabling.domain.Timeslot;
+import org.acme.schooltimetabling.persistence.TimeTableBulkInserter;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+/**
+ * Generates schools of any size for load testing, used when {@code timeTable.demoData=GENERATED}.
+ * The same parameters and seed always generate the same data.
+ */
+@ApplicationScoped
+public class SyntheticDataGenerator {
+
+    // Hourly timeslots from 08:00, so the last one starts at 23:00 and ends before midnight
+    public static final int MAX_TIMESLOTS_PER_DAY = 16;
+
+    private static final Logger LOGGER = Logger.getLogger(SyntheticDataGenerator.class);
+
+    private static final DayOfWeek[] DAYS = { DayOfWeek.MONDAY, DayOfWeek.TUESDAY, DayOfWeek.WEDNESDAY,
+            DayOfWeek.THURSDAY, DayOfWeek.FRIDAY };
+    private static final String[] SUBJECTS = { "Math", "Physics", "Chemistry", "Biology", "History", "English",
+            "Spanish", "French", "Geography", "Geology", "ICT", "Art", "Drama", "Physical education" };
+    private static final Map<String, String> SUBJECT_ROOM_TYPE_MAP = Map.of(
+            "Physics", "Lab",
+            "Chemistry", "Lab",
+            "Biology", "Lab",
+            "ICT", "Computer room",
+            "Physical education", "Gym");
+    // Rooms of a type per lesson that needs it and timeslot, so these lessons aren't tight
+    private static final double ROOM_TYPE_SLACK = 1.5;
+    private static final int MIN_GROUP_SIZE = 20;
+    private static final int MAX_GROUP_SIZE = 32;
+    private static final int SMALL_ROOM_CAPACITY = 24;
+    private static final LocalTime FIRST_START_TIME = LocalTime.of(8, 0);
+
+    @ConfigProperty(name = "timeTable.generator.tenant-count", defaultValue = "5")
+    int tenantCount;
+    @ConfigProperty(name = "timeTable.generator.timeslots-per-day", defaultValue = "10")
+    int timeslotsPerDay;
+    @ConfigProperty(name = "timeTable.generator.room-count", defaultValue = "10")
+    int roomCount;
+    @ConfigProperty(name = "timeTable.generator.teacher-count", defaultValue = "20")
+    int teacherCount;
+    @ConfigProperty(name = "timeTable.generator.student-group-count", defaultValue = "10")
+    int studentGroupCount;
+    @ConfigProperty(name = "timeTable.generator.lessons-per-group", defaultValue = "30")
+    int lessonsPerGroup;
+    @ConfigProperty(name = "timeTable.generator.seed", defaultValue = "0")
+    long seed;
+    @ConfigProperty(name = "timeTable.generator.room-types", defaultValue = "false")
+    boolean roomTypes;
+    @ConfigProperty(name = "timeTable.generator.capacities", defaultValue = "false")
+    boolean capacities;
+    @ConfigProperty(name = "timeTable.generator.teacher-day-off-ratio", defaultValue = "0.0")
+    double teacherDayOffRatio;
+
+    @Inject
+    TimeTableBulkInserter bulkInserter;
+
+    public int getTenantCount() {
+        return tenantCount;
+    }
+
+    /**
+     * Generates and inserts one tenant, in its own transaction.
+     * @param tenantId never null
+     */
+    public void generateTenant(Long tenantId) {
+        long startNanos = System.nanoTime();
+        Parameters parameters = new Parameters()
+                .withTimeslotsPerDay(timeslotsPerDay)
+                .withRoomCount(roomCount)
+                .withTeacherCount(teacherCount)
+                .withStudentGroupCount(studentGroupCount)
+                .withLessonsPerGroup(lessonsPerGroup)
+                .withRoomTypes(roomTypes)
+                .withCapacities(capacities)
+                .withTeacherDayOffRatio(teacherDayOffRatio)
+                // Each tenant gets different data
+                .withSeed(seed + tenantId);
+        TimeTable timeTable = createTimeTable(tenantId, parameters);
+        int rowCount = bulkInserter.insert(timeTable);
+        LOGGER.infof("Generated tenant %d with %d timeslots, %d rooms and %d lessons (%d rows) in %d ms.",
+                tenantId, timeTable.getTimeslotList().size(), timeTable.getRoomList().size(),
+                timeTable.getLessonList().size(), rowCount, (System.nanoTime() - startNanos) / 1_000_000L);
+    }
+
+    /**
+     * Creates a school in memory, without persisting it. Also used by the JMH benchmarks.
+     * Every student group gets {@link Parameters#withLessonsPerGroup(int) lessonsPerGroup} lessons
+     * and each subject is taught by a subset of the teachers.
+     * With {@link Parameters#withRoomTypes(boolean) roomTypes}, the lessons of the science subjects, ICT
+     * and physical education need a lab, a computer room or a gym, with enough of those rooms for their lessons.
+     * With {@link Parameters#withCapacities(boolean) capacities}, the student groups have 20 to 32 students,
+     * which the ordinary classrooms and half of the other rooms fit.
+     * @param tenantId never null
+     * @param parameters never null
+     * @return never null, with unassigned lessons
+     */
+    public static TimeTable createTimeTable(Long tenantId, Parameters parameters) {
+        Random random = new Random(parameters.seed);
+        List<Timeslot> timeslotList = new ArrayList<>(DAYS.length * parameters.timeslotsPerDay);
+        for (DayOfWeek dayOfWeek : DAYS) {
+            for (int i = 0; i < parameters.timeslotsPerDay; i++) {
+                // Lessons of 50 minutes with a 10 minute break
+                LocalTime startTime = FIRST_START_TIME.plusHours(i);
+                timeslotList.add(new Timeslot(tenantId, dayOfWeek, startTime, startTime.plusMinutes(50)));
+            }
+        }
+        List<Room> roomList = new ArrayList<>(parameters.roomCount);
+        for (int i = 0; i < parameters.roomCount; i++) {
+            roomList.add(new Room(tenantId, "Room " + (i + 1)));
+        }
+        int subjectCount = Math.min(SUBJECTS.length, parameters.teacherCount);
+        // Teacher i teaches subject i % subjectCount
+        int teachersPerSubject = Math.max(1, parameters.teacherCount / subjectCount);
+        List<Lesson> lessonList = new ArrayList<>(parameters.studentGroupCount * parameters.lessonsPerGroup);
+        for (int group = 0; group < parameters.studentGroupCount; group++) {
+            String studentGroup = "Group " + (group + 1);
+            for (int i = 0; i < parameters.lessonsPerGroup; i++) {
+                int subject = random.nextInt(subjectCount);
+                int teacher = subject + subjectCount * random.nextInt(teachersPerSubject);
+                lessonList.add(new Lesson(tenantId, SUBJECTS[subject], "Teacher " + (teacher + 1), studentGroup));
+            }
+        }
+        // Drawn after the lessons, so the other parameters generate the same lessons as without these
+        if (parameters.roomTypes) {
+            assignRoomTypes(roomList, lessonList, timeslotList.size());
+        }
+        if (parameters.capacities) {
+            assignCapacities(random, roomList, lessonList);
+        }
+        List<TeacherUnavailability> teacherUnavailabilityList = new ArrayList<>();
+        for (int teacher = 0; teacher < parameters.teacherCount && parameters.teacherDayOffRatio > 0.0; teacher++) {
+            if (random.nextDouble() < parameters.teacherDayOffRatio) {
+                teacherUnavailabilityList.add(new TeacherUnavailability(tenantId, "Teacher " + (teacher + 1),
+                        DAYS[random.nextInt(DAYS.length)]));
+            }
+        }
+        return new TimeTable(tenantId, timeslotList, roomList, teacherUnavailabilityList, lessonList);
+    }
+
+    // The last rooms get a room type, at least one per type, but the first room stays an ordinary classroom
+    private static void assignRoomTypes(List<Room> roomList, List<Lesson> lessonList, int timeslotCount) {
+        Map<String, Integer> lessonCountMap = new LinkedHashMap<>();
+        for (Lesson lesson : lessonList) {
+            String roomType = SUBJECT_ROOM_TYPE_MAP.get(lesson.getSubject().getName());
+            if (roomType != null) {
+                lesson.setRequiredRoomType(roomType);
+                lessonCountMap.merge(roomType, 1, Integer::sum);
+            }
+        }
+        int roomIndex = roomList.size() - 1;
+        for (Map.Entry<String, Integer> entry : lessonCountMap.entrySet()) {
+            int typedRoomCount = Math.max(1, (int) Math.ceil(entry.getValue() * ROOM_TYPE_SLACK / timeslotCount));
+            for (int i = 0; i < typedRoomCount && roomIndex > 0; i++) {
+                roomList.get(roomIndex--).setRoomType(entry.getKey());
+            }
+        }
+    }
+
+    private static void assignCapacities(Random random, List<Room> roomList, List<Lesson> lessonList) {
+        int typedRoomCount = 0;
+        for (Room room : roomList) {
+            if (room.getRoomType() == null) {
+                room.setCapacity(MAX_GROUP_SIZE);
+            } else {
+                // Every other room of a type is small, starting with a big one
+                room.setCapacity(typedRoomCount++ % 2 == 0 ? MAX_GROUP_SIZE : SMALL_ROOM_CAPACITY);
+            }
+        }
+        Map<String, Integer> groupSizeMap = new HashMap<>();
+        for (Lesson lesson : lessonList) {
+            lesson.setStudentCount(groupSizeMap.computeIfAbsent(lesson.getStudentGroup().getName(),
+                    studentGroup -> MIN_GROUP_SIZE + random.nextInt(MAX_GROUP_SIZE - MIN_GROUP_SIZE + 1)));
+        }
+    }
+
+    public static class Parameters {
+
+        private int timeslotsPerDay = 10;
+        private int roomCount = 10;
+        private int teacherCount = 20;
+        private int studentGroupCount = 10;
+        private int lessonsPerGroup = 30;
+        private boolean roomTypes = false;
+        private boolean capacities = false;
+        private double teacherDayOffRatio = 0.0;
+        private long seed = 0L;
+
+        /**
+         * @param timeslotsPerDay between 1 and {@link #MAX_TIMESLOTS_PER_DAY}
+         */
+        public Parameters withTimeslotsPerDay(int timeslotsPerDay) {
+            if (timeslotsPerDay < 1 || timeslotsPerDay > MAX_TIMESLOTS_PER_DAY) {
+                throw new IllegalArgumentException("The timeslotsPerDay (" + timeslotsPerDay
+                        + ") must be between 1 and " + MAX_TIMESLOTS_PER_DAY + ", so every timeslot fits in a day.");
+            }
+            this.timeslotsPerDay = timeslotsPerDay;
+            return this;
+        }
+
+        /**
+         * @param roomCount at least 1
+         */
+        public Parameters withRoomCount(int roomCount) {
+            this.roomCount = requireAtLeastOne("roomCount", roomCount);
+            return this;
+        }
+
+        /**
+         * @param teacherCount at least 1
+         */
+        public Parameters withTeacherCount(int teacherCount) {
+            this.teacherCount = requireAtLeastOne("teacherCount", teacherCount);
+            return this;
+        }
+
+        /**
+         * @param studentGroupCount at least 1
+         */
+        public Parameters withStudentGroupCount(int studentGroupCount) {
+            this.studentGroupCount = requireAtLeastOne("studentGroupCount", studentGroupCount);
+            return this;
+        }
+
+        /**
+         * @param lessonsPerGroup at least 1
+         */
+        public Parameters withLessonsPerGroup(int lessonsPerGroup) {
+            this.lessonsPerGroup = requireAtLeastOne("lessonsPerGroup", lessonsPerGroup);
+            return this;
+        }
+
+        public Parameters withRoomTypes(boolean roomTypes) {
+            this.roomTypes = roomTypes;
+            return this;
+        }
+
+        public Parameters withCapacities(boolean capacities) {
+            this.capacities = capacities;
+            return this;
+        }
+
+        /**
+         * @param teacherDayOffRatio between 0 and 1, the probability that a teacher doesn't work on one weekday
+         */
+        public Parameters withTeacherDayOffRatio(double teacherDayOffRatio) {
+            this.teacherDayOffRatio = teacherDayOffRatio;
+            return this;
+        }
+
+        public Parameters withSeed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        private static int requireAtLeastOne(String name, int value) {
+            if (value < 1) {
+                throw new IllegalArgumentException("The " + name + " (" + value + ") must be at least 1.");
+            }
+            return value;
+        }
+
+    }
+
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.acme.schooltimetabling.domain;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Two timeslots on the same day where the second starts at most 30 minutes after the first ends.
+ * Precomputed once per problem, so the constraints join lessons on these pairs
+ * instead of comparing the times of every pair of lessons.
+ */
+public class ConsecutiveTimeslotPair {
+
+    public static final Duration MAX_GAP = Duration.ofMinutes(30);
+
+    private static final Comparator<Timeslot> DAY_AND_START_TIME_COMPARATOR =
+            Comparator.comparing(Timeslot::getDayOfWeek).thenComparing(Timeslot::getStartTime);
+
+    private final Timeslot first;
+    private final Timeslot second;
+
+    public ConsecutiveTimeslotPair(Timeslot first, Timeslot second) {
+        this.first = first;
+        this.second = second;
+    }
+
+    /**
+     * Sorts a copy of the timeslots by day and start time, so each timeslot is only compared
+     * with the timeslots that start between its end and {@link #MAX_GAP} later.
+     * Doesn't modify the timeslots, because time tables that share them build their own pairs.
+     * @param timeslotList never null
+     * @return never null
+     */
+    public static List<ConsecutiveTimeslotPair> buildList(List<Timeslot> timeslotList) {
+        List<Timeslot> sortedList = new ArrayList<>(timeslotList);
+        sortedList.sort(DAY_AND_START_TIME_COMPARATOR);
+        List<ConsecutiveTimeslotPair> pairList = new ArrayList<>();
+        for (Timeslot first : sortedList) {
+            for (int i = firstStartingAtOrAfterEnd(sortedList, first); i < sortedList.size(); i++) {
+                Timeslot second = sortedList.get(i);
+                if (!isConsecutive(first, second)) {
+                    break;
+                }
+                pairList.add(new ConsecutiveTimeslotPair(first, second));
+            }
+        }
+        return pairList;
+    }
+
+    private static int firstStartingAtOrAfterEnd(List<Timeslot> sortedList, Timeslot first) {
+        int low = 0;
+        int high = sortedList.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            Timeslot timeslot = sortedList.get(middle);
+            int comparison = timeslot.getDayOfWeek().compareTo(first.getDayOfWeek());
+            if (comparison < 0 || (comparison == 0 && timeslot.getStartTime().isBefore(first.getEndTime()))) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static boolean isConsecutive(Timeslot first, Timeslot second) {
+        if (first.getDayOfWeek() != second.getDayOfWeek()) {
+            return false;
+        }
+        Duration between = Duration.between(first.getEndTime(), second.getStartTime());
+        return !between.isNegative() && between.compareTo(MAX_GAP) <= 0;
+    }
+
+    @Override
+    public String toString() {
+        return first + " -> " + second;
+    }
+
+    // ************************************************************************
+    // Getters and setters
+    // ************************************************************************
+
+    public Timeslot getFirst() {
+        return first;
+    }
+
+    public Timeslot getSecond() {
+        return second;
+    }
+
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.acme.schooltimetabling.domain;
+
+import java.util.Objects;
+
+import com.fasterxml.jackson.annotation.JsonValue;
+
+/**
+ * A name shared by many lessons, such as a {@link Teacher}, a {@link StudentGroup} or a {@link Subject}.
+ * The {@link TimeTable} constructor interns them per time table, so equal names are the same instance
+ * with a dense id. So they're equal by identity, which keeps join indexes and hash keys from hashing the names:
+ * compare facts that aren't interned in the same time table by {@link #getName()}.
+ * Stored and serialized as the plain name.
+ */
+public abstract class InternedFact {
+
+    public static final int NOT_INTERNED_ID = -1;
+
+    private final String name;
+    private final int id;
+
+    protected InternedFact(String name, int id) {
+        this.name = Objects.requireNonNull(name).trim();
+        this.id = id;
+    }
+
+    public boolean isInterned() {
+        return id != NOT_INTERNED_ID;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    // ************************************************************************
+    // Getters and setters
+    // ************************************************************************
+
+    @JsonValue
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return dense per tenant, {@link #NOT_INTERNED_ID} if not interned
+     */
+    public int getId() {
+        return id;
+    }
+
+}
@@ -16,17 +16,38 @@
 
 package org.acme.schooltimetabling.domain;
 
+import java.util.List;
+
+import javax.persistence.Convert;
 import javax.persistence.Entity;
+import javax.persistence.EntityListeners;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.ManyToOne;
+import javax.persistence.Table;
+import javax.persistence.Transient;
 
+import org.acme.schooltimetabling.persistence.StudentGroupConverter;
+import org.acme.schooltimetabling.persistence.SubjectConverter;
+import org.acme.schooltimetabling.persistence.TeacherConverter;
+import org.acme.schooltimetabling.persistence.TenantChangeListener;
 import org.optaplanner.core.api.domain.entity.PlanningEntity;
+import org.optaplanner.core.api.domain.entity.PlanningPin;
 import org.optaplanner.core.api.domain.lookup.PlanningId;
+import org.optaplanner.core.api.domain.valuerange.ValueRangeProvider;
 import org.optaplanner.core.api.domain.variable.PlanningVariable;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 @PlanningEntity
 @Entity
+// The first index matches LessonRepository.findByTenantId(), the second the keyset pages of TenantPageStreamer
+@Table(indexes = {
+        @Index(name = "Lesson_tenant_sort_idx", columnList = "tenantId, subject, teacher, studentGroup, id"),
+        @Index(name = "Lesson_tenant_id_idx", columnList = "tenantId, id")
+})
+@EntityListeners(TenantChangeListener.class)
 public class Lesson {
 
     private Long tenantId;
@@ -36,9 +57,17 @@ public class Lesson {
     @GeneratedValue
     private Long id;
 
-    private String subject;
-    private String teacher;
-    private String studentGroup;
+    // Stored and serialized as plain text, interned by the TimeTable constructor
+    @Convert(converter = SubjectConverter.class)
+    private Subject subject;
+    @Convert(converter = TeacherConverter.class)
+    private Teacher teacher;
+    @Convert(converter = StudentGroupConverter.class)
+    private StudentGroup studentGroup;
+    // Null if an ordinary classroom will do, see isSuitableRoom()
+    private String requiredRoomType;
+    // Null if unknown, so any room is big enough
+    private Integer studentCount;
 
     @PlanningVariable(valueRangeProviderRefs = "timeslotRange")
     @ManyToOne
@@ -47,15 +76,29 @@ public class Lesson {
     @ManyToOne
     private Room room;
 
+    // A pinned lesson keeps its timeslot and room, even during a solve
+    private boolean pinned;
+    // Pinned for the current solve only, because its timeslot is outside the rolling horizon, see TimeTable
+    @Transient
+    @JsonIgnore
+    private boolean outsideHorizon;
+    // The values the solver assigns, set by the TimeTable and shared with the lessons that have the same restrictions
+    @Transient
+    @JsonIgnore
+    private List<Timeslot> allowedTimeslotList;
+    @Transient
+    @JsonIgnore
+    private List<Room> allowedRoomList;
+
     // No-arg constructor required for Hibernate and OptaPlanner
     public Lesson() {
     }
 
     public Lesson(Long tenantId, String subject, String teacher, String studentGroup) {
         this.tenantId = tenantId;
-        this.subject = subject.trim();
-        this.teacher = teacher.trim();
-        this.studentGroup = studentGroup.trim();
+        this.subject = new Subject(subject);
+        this.teacher = new Teacher(teacher);
+        this.studentGroup = new StudentGroup(studentGroup);
     }
 
     public Lesson(long id, Long tenantId, String subject, String teacher, String studentGroup, Timeslot timeslot, Room room) {
@@ -65,6 +108,20 @@ public class Lesson {
         this.room = room;
     }
 
+    /**
+     * A room suits a lesson if it's of the room type the lesson requires, an ordinary classroom if it requires none,
+     * and if it has room for the students of the lesson.
+     * See the "Room suitability" constraint.
+     * @param room never null
+     * @return true if this lesson can be held in the room
+     */
+    public boolean isSuitableRoom(Room room) {
+        if (requiredRoomType == null ? room.getRoomType() != null : !requiredRoomType.equals(room.getRoomType())) {
+            return false;
+        }
+        return studentCount == null || room.getCapacity() == null || studentCount <= room.getCapacity();
+    }
+
     @Override
     public String toString() {
         return subject + "(" + id + ")";
@@ -82,18 +139,46 @@ public class Lesson {
         return id;
     }
 
-    public String getSubject() {
+    public Subject getSubject() {
         return subject;
     }
 
-    public String getTeacher() {
+    public void setSubject(Subject subject) {
+        this.subject = subject;
+    }
+
+    public Teacher getTeacher() {
         return teacher;
     }
 
-    public String getStudentGroup() {
+    public void setTeacher(Teacher teacher) {
+        this.teacher = teacher;
+    }
+
+    public StudentGroup getStudentGroup() {
         return studentGroup;
     }
 
+    public void setStudentGroup(StudentGroup studentGroup) {
+        this.studentGroup = studentGroup;
+    }
+
+    public String getRequiredRoomType() {
+        return requiredRoomType;
+    }
+
+    public void setRequiredRoomType(String requiredRoomType) {
+        this.requiredRoomType = requiredRoomType;
+    }
+
+    public Integer getStudentCount() {
+        return studentCount;
+    }
+
+    public void setStudentCount(Integer studentCount) {
+        this.studentCount = studentCount;
+    }
+
     public Timeslot getTimeslot() {
         return timeslot;
     }
@@ -110,4 +195,46 @@ public class Lesson {
         this.room = room;
     }
 
+    public boolean isPinned() {
+        return pinned;
+    }
+
+    public void setPinned(boolean pinned) {
+        this.pinned = pinned;
+    }
+
+    public boolean isOutsideHorizon() {
+        return outsideHorizon;
+    }
+
+    public void setOutsideHorizon(boolean outsideHorizon) {
+        this.outsideHorizon = outsideHorizon;
+    }
+
+    @PlanningPin
+    @JsonIgnore
+    public boolean isPlanningPinned() {
+        return pinned || outsideHorizon;
+    }
+
+    @ValueRangeProvider(id = "timeslotRange")
+    @JsonIgnore
+    public List<Timeslot> getAllowedTimeslotList() {
+        return allowedTimeslotList;
+    }
+
+    public void setAllowedTimeslotList(List<Timeslot> allowedTimeslotList) {
+        this.allowedTimeslotList = allowedTimeslotList;
+    }
+
+    @ValueRangeProvider(id = "roomRange")
+    @JsonIgnore
+    public List<Room> getAllowedRoomList() {
+        return allowedRoomList;
+    }
+
+    public void setAllowedRoomList(List<Room> allowedRoomList) {
+        this.allowedRoomList = allowedRoomList;
+    }
+
 }
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.acme.schooltimetabling.domain;
+
+import java.util.Objects;
+
+/**
+ * The timeslot and room ids a {@link Lesson} is assigned to, detached from the entity graph.
+ */
+public class LessonAssignment {
+
+    private Long lessonId;
+    private Long timeslotId;
+    private Long roomId;
+
+    // No-arg constructor required for Jackson
+    public LessonAssignment() {
+    }
+
+    public LessonAssignment(Long lessonId, Long timeslotId, Long roomId) {
+        this.lessonId = lessonId;
+        this.timeslotId = timeslotId;
+        this.roomId = roomId;
+    }
+
+    public static LessonAssignment of(Lesson lesson) {
+        Timeslot timeslot = lesson.getTimeslot();
+        Room room = lesson.getRoom();
+        return new LessonAssignment(lesson.getId(),
+                timeslot == null ? null : timeslot.getId(),
+                room == null ? null : room.getId());
+    }
+
+    /**
+     * @param lesson never null
+     * @return true if the lesson's timeslot and room are the ones of this assignment
+     */
+    public boolean matches(Lesson lesson) {
+        Timeslot timeslot = lesson.getTimeslot();
+        Room room = lesson.getRoom();
+        return Objects.equals(timeslotId, timeslot == null ? null : timeslot.getId())
+                && Objects.equals(roomId, room == null ? null : room.getId());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof LessonAssignment)) {
+            return false;
+        }
+        LessonAssignment other = (LessonAssignment) o;
+        return Objects.equals(lessonId, other.lessonId)
+                && Objects.equals(timeslotId, other.timeslotId)
+                && Objects.equals(roomId, other.roomId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(lessonId, timeslotId, roomId);
+    }
+
+    @Override
+    public String toString() {
+        return lessonId + "->(" + timeslotId + ", " + roomId + ")";
+    }
+
+    // ************************************************************************
+    // Getters and setters
+    // ************************************************************************
+
+    public Long getLessonId() {
+        return lessonId;
+    }
+
+    public Long getTimeslotId() {
+        return timeslotId;
+    }
+
+    public Long getRoomId() {
+        return roomId;
+    }
+
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.acme.schooltimetabling.domain;
+
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+/**
+ * The part of the week that a solve may still change: from a day and time for a number of days,
+ * at most up to the end of the week. The timeslots before it have already taken place this week
+ * and the ones after it are published, so their lessons stay where they are, see {@link TimeTable#applyRollingHorizon}.
+ */
+public class RollingHorizon {
+
+    private final DayOfWeek startDayOfWeek;
+    private final LocalTime startTime;
+    private final int dayCount;
+
+    /**
+     * @param startDayOfWeek never null
+     * @param startTime never null, timeslots on the start day that start before it are outside
+     * @param dayCount at least 1, including the start day
+     */
+    public RollingHorizon(DayOfWeek startDayOfWeek, LocalTime startTime, int dayCount) {
+        if (dayCount < 1) {
+            throw new IllegalArgumentException("The dayCount (" + dayCount + ") must be at least 1.");
+        }
+        this.startDayOfWeek = startDayOfWeek;
+        this.startTime = startTime;
+        this.dayCount = dayCount;
+    }
+
+    public static RollingHorizon startingAt(LocalDateTime dateTime, int dayCount) {
+        return new RollingHorizon(dateTime.getDayOfWeek(), dateTime.toLocalTime(), dayCount);
+    }
+
+    public boolean contains(Timeslot timeslot) {
+        int day = timeslot.getDayOfWeek().ordinal() - startDayOfWeek.ordinal();
+        if (day < 0 || day >= dayCount) {
+            return false;
+        }
+        return day > 0 || !timeslot.getStartTime().isBefore(startTime);
+    }
+
+    @Override
+    public String toString() {
+        return startDayOfWeek + " " + startTime + " + " + dayCount + " days";
+    }
+
+    // ************************************************************************
+    // Getters and setters
+    // ************************************************************************
+
+    public DayOfWeek getStartDayOfWeek() {
+        return startDayOfWeek;
+    }
+
+    public LocalTime getStartTime() {
+        return startTime;
+    }
+
+    public int getDayCount() {
+        return dayCount;
+    }
+
+}
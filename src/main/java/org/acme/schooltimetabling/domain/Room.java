@@ -17,12 +17,21 @@
 package org.acme.schooltimetabling.domain;
 
 import javax.persistence.Entity;
+import javax.persistence.EntityListeners;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
 
+import org.acme.schooltimetabling.persistence.TenantChangeListener;
 import org.optaplanner.core.api.domain.lookup.PlanningId;
 
 @Entity
+@Table(indexes = {
+        @Index(name = "Room_tenant_sort_idx", columnList = "tenantId, name, id"),
+        @Index(name = "Room_tenant_id_idx", columnList = "tenantId, id")
+})
+@EntityListeners(TenantChangeListener.class)
 public class Room {
 
     Long tenantId;
@@ -34,6 +43,14 @@ public class Room {
 
     private String name;
 
+    // No lesson can be held in an unavailable room, see the "Room unavailability" constraint
+    private boolean available = true;
+
+    // Null for an ordinary classroom, such as "Lab" or "Gym" otherwise, see Lesson.isSuitableRoom()
+    private String roomType;
+    // Null if any student group fits
+    private Integer capacity;
+
     // No-arg constructor required for Hibernate
     public Room() {
     }
@@ -69,4 +86,28 @@ public class Room {
         return name;
     }
 
+    public boolean isAvailable() {
+        return available;
+    }
+
+    public void setAvailable(boolean available) {
+        this.available = available;
+    }
+
+    public String getRoomType() {
+        return roomType;
+    }
+
+    public void setRoomType(String roomType) {
+        this.roomType = roomType;
+    }
+
+    public Integer getCapacity() {
+        return capacity;
+    }
+
+    public void setCapacity(Integer capacity) {
+        this.capacity = capacity;
+    }
+
 }
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.acme.schooltimetabling.domain;
+
+import java.time.Instant;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+
+/**
+ * A JVM that solves time tables, registered in the shared database while it heartbeats.
+ */
+@Entity
+public class SolverNode {
+
+    // The base URL of the node, such as http://node1:8080, which other nodes forward requests to
+    @Id
+    private String url;
+
+    private Instant lastHeartbeat;
+
+    // Comma separated, the tenants queued or solving on this node, handed off if it stops heartbeating
+    @Column(length = 10000)
+    private String activeTenantIds;
+
+    // No-arg constructor required for Hibernate
+    public SolverNode() {
+    }
+
+    public SolverNode(String url, Instant lastHeartbeat, String activeTenantIds) {
+        this.url = url;
+        this.lastHeartbeat = lastHeartbeat;
+        this.activeTenantIds = activeTenantIds;
+    }
+
+    @Override
+    public String toString() {
+        return url;
+    }
+
+    // ************************************************************************
+    // Getters and setters
+    // ************************************************************************
+
+    public String getUrl() {
+        return url;
+    }
+
+    public Instant getLastHeartbeat() {
+        return lastHeartbeat;
+    }
+
+    public void setLastHeartbeat(Instant lastHeartbeat) {
+        this.lastHeartbeat = lastHeartbeat;
+    }
+
+    public String getActiveTenantIds() {
+        return activeTenantIds;
+    }
+
+    public void setActiveTenantIds(String activeTenantIds) {
+        this.activeTenantIds = activeTenantIds;
+    }
+
+}
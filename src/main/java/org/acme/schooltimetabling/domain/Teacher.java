@@ -0,0 +1,35 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.acme.schooltimetabling.domain;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+
+/**
+ * The teacher of a {@link Lesson}.
+ */
+public class Teacher extends InternedFact {
+
+    @JsonCreator(mode = JsonCreator.Mode.DELEGATING)
+    public Teacher(String name) {
+        super(name, NOT_INTERNED_ID);
+    }
+
+    public Teacher(String name, int id) {
+        super(name, id);
+    }
+
+}
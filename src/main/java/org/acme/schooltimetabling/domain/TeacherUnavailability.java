@@ -0,0 +1,101 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.acme.schooltimetabling.domain;
+
+import java.time.DayOfWeek;
+
+import javax.persistence.Convert;
+import javax.persistence.Entity;
+import javax.persistence.EntityListeners;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+
+import org.acme.schooltimetabling.persistence.TeacherConverter;
+import org.acme.schooltimetabling.persistence.TenantChangeListener;
+import org.optaplanner.core.api.domain.lookup.PlanningId;
+
+/**
+ * A day a teacher doesn't work, such as a part-time teacher's day off.
+ * No lesson of the teacher can be held on that day, see the "Teacher unavailability" constraint.
+ */
+@Entity
+@Table(indexes = {
+        @Index(name = "TeacherUnavailability_tenant_sort_idx", columnList = "tenantId, teacher, dayOfWeek, id"),
+        @Index(name = "TeacherUnavailability_tenant_id_idx", columnList = "tenantId, id")
+})
+@EntityListeners(TenantChangeListener.class)
+public class TeacherUnavailability {
+
+    private Long tenantId;
+
+    @PlanningId
+    @Id
+    @GeneratedValue
+    private Long id;
+
+    // Stored and serialized as plain text, interned by the TimeTable constructor
+    @Convert(converter = TeacherConverter.class)
+    private Teacher teacher;
+    private DayOfWeek dayOfWeek;
+
+    // No-arg constructor required for Hibernate
+    public TeacherUnavailability() {
+    }
+
+    public TeacherUnavailability(Long tenantId, String teacher, DayOfWeek dayOfWeek) {
+        this.tenantId = tenantId;
+        this.teacher = new Teacher(teacher);
+        this.dayOfWeek = dayOfWeek;
+    }
+
+    public TeacherUnavailability(long id, Long tenantId, String teacher, DayOfWeek dayOfWeek) {
+        this(tenantId, teacher, dayOfWeek);
+        this.id = id;
+    }
+
+    @Override
+    public String toString() {
+        return teacher + " on " + dayOfWeek;
+    }
+
+    // ************************************************************************
+    // Getters and setters
+    // ************************************************************************
+
+    public Long getTenantId() {
+        return tenantId;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Teacher getTeacher() {
+        return teacher;
+    }
+
+    public void setTeacher(Teacher teacher) {
+        this.teacher = teacher;
+    }
+
+    public DayOfWeek getDayOfWeek() {
+        return dayOfWeek;
+    }
+
+}
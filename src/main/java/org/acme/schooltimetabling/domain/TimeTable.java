@@ -16,27 +16,50 @@
 
 package org.acme.schooltimetabling.domain;
 
+import java.time.DayOfWeek;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 
 import org.optaplanner.core.api.domain.solution.PlanningEntityCollectionProperty;
 import org.optaplanner.core.api.domain.solution.PlanningScore;
 import org.optaplanner.core.api.domain.solution.PlanningSolution;
 import org.optaplanner.core.api.domain.solution.ProblemFactCollectionProperty;
-import org.optaplanner.core.api.domain.valuerange.ValueRangeProvider;
 import org.optaplanner.core.api.score.buildin.hardsoft.HardSoftScore;
 import org.optaplanner.core.api.solver.SolverStatus;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 @PlanningSolution
 public class TimeTable {
 
+    private Long tenantId;
+
     @ProblemFactCollectionProperty
-    @ValueRangeProvider(id = "timeslotRange")
     private List<Timeslot> timeslotList;
     @ProblemFactCollectionProperty
-    @ValueRangeProvider(id = "roomRange")
     private List<Room> roomList;
+    @ProblemFactCollectionProperty
+    private List<TeacherUnavailability> teacherUnavailabilityList;
+    @ProblemFactCollectionProperty
+    private List<ConsecutiveTimeslotPair> consecutiveTimeslotPairList;
     @PlanningEntityCollectionProperty
     private List<Lesson> lessonList;
+    // Interned from the lessons, indexed by their ids
+    private List<Teacher> teacherList;
+    private List<StudentGroup> studentGroupList;
+    private List<Subject> subjectList;
+    // Null unless this solve has a rolling horizon, see applyRollingHorizon()
+    private RollingHorizon rollingHorizon;
+    private List<Timeslot> horizonTimeslotList;
+    // True to let every lesson take any timeslot and room, see widenValueRanges()
+    private boolean valueRangesWidened;
 
     @PlanningScore
     private HardSoftScore score;
@@ -49,31 +72,263 @@ public class TimeTable {
     }
 
     public TimeTable(List<Timeslot> timeslotList, List<Room> roomList, List<Lesson> lessonList) {
+        this(null, timeslotList, roomList, lessonList);
+    }
+
+    public TimeTable(Long tenantId, List<Timeslot> timeslotList, List<Room> roomList, List<Lesson> lessonList) {
+        this(tenantId, timeslotList, roomList, new ArrayList<>(), lessonList);
+    }
+
+    public TimeTable(Long tenantId, List<Timeslot> timeslotList, List<Room> roomList,
+            List<TeacherUnavailability> teacherUnavailabilityList, List<Lesson> lessonList) {
+        this.tenantId = tenantId;
         this.timeslotList = timeslotList;
+        this.consecutiveTimeslotPairList = ConsecutiveTimeslotPair.buildList(timeslotList);
         this.roomList = roomList;
+        this.teacherUnavailabilityList = teacherUnavailabilityList;
         this.lessonList = lessonList;
+        internLessonFacts();
+        restrictValueRanges();
+    }
+
+    private void internLessonFacts() {
+        Map<String, Teacher> teacherMap = new LinkedHashMap<>();
+        Map<String, StudentGroup> studentGroupMap = new LinkedHashMap<>();
+        Map<String, Subject> subjectMap = new LinkedHashMap<>();
+        for (TeacherUnavailability teacherUnavailability : teacherUnavailabilityList) {
+            teacherUnavailability.setTeacher(intern(teacherMap, teacherUnavailability.getTeacher(),
+                    name -> new Teacher(name, teacherMap.size())));
+        }
+        for (Lesson lesson : lessonList) {
+            lesson.setTeacher(intern(teacherMap, lesson.getTeacher(), name -> new Teacher(name, teacherMap.size())));
+            lesson.setStudentGroup(intern(studentGroupMap, lesson.getStudentGroup(),
+                    name -> new StudentGroup(name, studentGroupMap.size())));
+            lesson.setSubject(intern(subjectMap, lesson.getSubject(), name -> new Subject(name, subjectMap.size())));
+        }
+        teacherList = new ArrayList<>(teacherMap.values());
+        studentGroupList = new ArrayList<>(studentGroupMap.values());
+        subjectList = new ArrayList<>(subjectMap.values());
+    }
+
+    private static <T extends InternedFact> T intern(Map<String, T> map, T fact, Function<String, T> factory) {
+        return fact == null ? null : map.computeIfAbsent(fact.getName(), factory);
+    }
+
+    /**
+     * Interns the teacher, student group and subject of a lesson added after this time table was created
+     * and gives it its value ranges, shared with the existing lessons where they match.
+     * The interned lists are copied on write, because clones of this time table share them.
+     * @param lesson never null
+     */
+    public void internLesson(Lesson lesson) {
+        Teacher teacher = findInterned(teacherList, lesson.getTeacher());
+        if (teacher == null) {
+            teacher = new Teacher(lesson.getTeacher().getName(), teacherList.size());
+            teacherList = append(teacherList, teacher);
+        }
+        lesson.setTeacher(teacher);
+        StudentGroup studentGroup = findInterned(studentGroupList, lesson.getStudentGroup());
+        if (studentGroup == null) {
+            studentGroup = new StudentGroup(lesson.getStudentGroup().getName(), studentGroupList.size());
+            studentGroupList = append(studentGroupList, studentGroup);
+        }
+        lesson.setStudentGroup(studentGroup);
+        Subject subject = findInterned(subjectList, lesson.getSubject());
+        if (subject == null) {
+            subject = new Subject(lesson.getSubject().getName(), subjectList.size());
+            subjectList = append(subjectList, subject);
+        }
+        lesson.setSubject(subject);
+        ValueRangeIndex valueRangeIndex = new ValueRangeIndex();
+        for (Lesson other : lessonList) {
+            valueRangeIndex.add(other);
+        }
+        valueRangeIndex.restrict(lesson);
+    }
+
+    /**
+     * Gives each lesson the timeslots on which its teacher works and the rooms that suit it
+     * as its own value ranges, so the solver doesn't try the other ones.
+     * Lessons of the same teacher share one timeslot list and lessons with the same room requirements one room list,
+     * so the ranges take a reference per lesson, not a copy.
+     */
+    private void restrictValueRanges() {
+        ValueRangeIndex valueRangeIndex = new ValueRangeIndex();
+        for (Lesson lesson : lessonList) {
+            valueRangeIndex.restrict(lesson);
+        }
+    }
+
+    /**
+     * Lets every lesson take any timeslot and room, including the ones that break the "Teacher unavailability"
+     * and "Room suitability" constraints, such as to compare against the restricted value ranges in a benchmark.
+     */
+    public void widenValueRanges() {
+        valueRangesWidened = true;
+        restrictValueRanges();
+    }
+
+    private static <T extends InternedFact> T findInterned(List<T> internedList, T fact) {
+        for (T interned : internedList) {
+            if (interned.getName().equals(fact.getName())) {
+                return interned;
+            }
+        }
+        return null;
+    }
+
+    private static <T> List<T> append(List<T> list, T element) {
+        List<T> newList = new ArrayList<>(list.size() + 1);
+        newList.addAll(list);
+        newList.add(element);
+        return newList;
+    }
+
+    /**
+     * @param rollingHorizon never null
+     * @return false if no timeslot is inside the horizon, such as over a weekend,
+     * and a lesson that isn't pinned lacks a timeslot or a room, because it would have no timeslot to take
+     */
+    public boolean canApplyRollingHorizon(RollingHorizon rollingHorizon) {
+        for (Timeslot timeslot : timeslotList) {
+            if (rollingHorizon.contains(timeslot)) {
+                return true;
+            }
+        }
+        for (Lesson lesson : lessonList) {
+            if (!lesson.isPinned() && !isOutside(lesson, rollingHorizon)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Pins the lessons assigned to a timeslot outside the horizon and to a room for this solve only,
+     * so the solver doesn't select moves for them, and only assigns the other lessons to timeslots inside it.
+     * If no timeslot is inside the horizon, every lesson is pinned.
+     * @param rollingHorizon never null
+     * @return the number of lessons pinned by the horizon
+     * @throws IllegalStateException if {@link #canApplyRollingHorizon} is false
+     */
+    public int applyRollingHorizon(RollingHorizon rollingHorizon) {
+        if (!canApplyRollingHorizon(rollingHorizon)) {
+            throw new IllegalStateException("The rolling horizon (" + rollingHorizon
+                    + ") contains none of the timeslots of tenant (" + tenantId
+                    + "), so its unassigned lessons can't be assigned.");
+        }
+        List<Timeslot> insideTimeslotList = new ArrayList<>(timeslotList.size());
+        for (Timeslot timeslot : timeslotList) {
+            if (rollingHorizon.contains(timeslot)) {
+                insideTimeslotList.add(timeslot);
+            }
+        }
+        this.rollingHorizon = rollingHorizon;
+        horizonTimeslotList = insideTimeslotList;
+        restrictValueRanges();
+        int pinnedCount = 0;
+        for (Lesson lesson : lessonList) {
+            boolean outsideHorizon = isOutside(lesson, rollingHorizon);
+            lesson.setOutsideHorizon(outsideHorizon);
+            if (outsideHorizon && !lesson.isPinned()) {
+                pinnedCount++;
+            }
+        }
+        return pinnedCount;
+    }
+
+    // A lesson without a room stays unpinned, otherwise the solution could never be initialized
+    private static boolean isOutside(Lesson lesson, RollingHorizon rollingHorizon) {
+        return lesson.getTimeslot() != null && lesson.getRoom() != null
+                && !rollingHorizon.contains(lesson.getTimeslot());
+    }
+
+    /**
+     * @param solverStatus never null
+     * @return never null, a shallow copy that shares the problem facts and the lessons
+     */
+    public TimeTable withSolverStatus(SolverStatus solverStatus) {
+        TimeTable copy = new TimeTable();
+        copy.tenantId = tenantId;
+        copy.timeslotList = timeslotList;
+        copy.consecutiveTimeslotPairList = consecutiveTimeslotPairList;
+        copy.roomList = roomList;
+        copy.teacherUnavailabilityList = teacherUnavailabilityList;
+        copy.lessonList = lessonList;
+        copy.teacherList = teacherList;
+        copy.studentGroupList = studentGroupList;
+        copy.subjectList = subjectList;
+        copy.rollingHorizon = rollingHorizon;
+        copy.horizonTimeslotList = horizonTimeslotList;
+        copy.valueRangesWidened = valueRangesWidened;
+        copy.score = score;
+        copy.solverStatus = solverStatus;
+        return copy;
     }
 
     // ************************************************************************
     // Getters and setters
     // ************************************************************************
 
+    public Long getTenantId() {
+        return tenantId;
+    }
+
     public List<Timeslot> getTimeslotList() {
         return timeslotList;
     }
 
+    // The timeslots that lessons can be assigned to, before the restrictions of each lesson
+    @JsonIgnore
+    public List<Timeslot> getPlanningTimeslotList() {
+        return rollingHorizon == null ? timeslotList : horizonTimeslotList;
+    }
+
+    @JsonIgnore
+    public RollingHorizon getRollingHorizon() {
+        return rollingHorizon;
+    }
+
+    @JsonIgnore
+    public List<ConsecutiveTimeslotPair> getConsecutiveTimeslotPairList() {
+        return consecutiveTimeslotPairList;
+    }
+
     public List<Room> getRoomList() {
         return roomList;
     }
 
+    public List<TeacherUnavailability> getTeacherUnavailabilityList() {
+        return teacherUnavailabilityList;
+    }
+
     public List<Lesson> getLessonList() {
         return lessonList;
     }
 
+    @JsonIgnore
+    public List<Teacher> getTeacherList() {
+        return teacherList;
+    }
+
+    @JsonIgnore
+    public List<StudentGroup> getStudentGroupList() {
+        return studentGroupList;
+    }
+
+    @JsonIgnore
+    public List<Subject> getSubjectList() {
+        return subjectList;
+    }
+
     public HardSoftScore getScore() {
         return score;
     }
 
+    public void setScore(HardSoftScore score) {
+        this.score = score;
+    }
+
     public SolverStatus getSolverStatus() {
         return solverStatus;
     }
@@ -82,4 +337,76 @@ public class TimeTable {
         this.solverStatus = solverStatus;
     }
 
+    /**
+     * Computes the value ranges of lessons and hands out the same list instance
+     * to the lessons of the same teacher or with the same room requirements.
+     */
+    private final class ValueRangeIndex {
+
+        private final Map<Teacher, Set<DayOfWeek>> unavailableDayMap = new HashMap<>();
+        private final Map<Teacher, List<Timeslot>> timeslotListMap = new HashMap<>();
+        private final Map<List<Object>, List<Room>> roomListMap = new HashMap<>();
+
+        private ValueRangeIndex() {
+            for (TeacherUnavailability teacherUnavailability : teacherUnavailabilityList) {
+                unavailableDayMap.computeIfAbsent(teacherUnavailability.getTeacher(),
+                        teacher -> EnumSet.noneOf(DayOfWeek.class))
+                        .add(teacherUnavailability.getDayOfWeek());
+            }
+        }
+
+        private void add(Lesson lesson) {
+            if (lesson.getAllowedTimeslotList() != null && lesson.getAllowedRoomList() != null) {
+                timeslotListMap.putIfAbsent(lesson.getTeacher(), lesson.getAllowedTimeslotList());
+                roomListMap.putIfAbsent(roomRequirement(lesson), lesson.getAllowedRoomList());
+            }
+        }
+
+        private void restrict(Lesson lesson) {
+            if (valueRangesWidened) {
+                lesson.setAllowedTimeslotList(getPlanningTimeslotList());
+                lesson.setAllowedRoomList(roomList);
+                return;
+            }
+            lesson.setAllowedTimeslotList(timeslotListMap.computeIfAbsent(lesson.getTeacher(),
+                    teacher -> buildAllowedTimeslotList(unavailableDayMap.get(teacher))));
+            lesson.setAllowedRoomList(roomListMap.computeIfAbsent(roomRequirement(lesson),
+                    requirement -> buildAllowedRoomList(lesson)));
+        }
+
+        private List<Timeslot> buildAllowedTimeslotList(Set<DayOfWeek> unavailableDaySet) {
+            List<Timeslot> planningTimeslotList = getPlanningTimeslotList();
+            if (unavailableDaySet == null) {
+                return planningTimeslotList;
+            }
+            List<Timeslot> allowedTimeslotList = new ArrayList<>(planningTimeslotList.size());
+            for (Timeslot timeslot : planningTimeslotList) {
+                if (!unavailableDaySet.contains(timeslot.getDayOfWeek())) {
+                    allowedTimeslotList.add(timeslot);
+                }
+            }
+            // A teacher who never works still needs a timeslot, the hard constraint reports it
+            return allowedTimeslotList.isEmpty() ? planningTimeslotList : allowedTimeslotList;
+        }
+
+        private List<Room> buildAllowedRoomList(Lesson lesson) {
+            List<Room> allowedRoomList = new ArrayList<>(roomList.size());
+            for (Room room : roomList) {
+                if (lesson.isSuitableRoom(room)) {
+                    allowedRoomList.add(room);
+                }
+            }
+            if (allowedRoomList.size() == roomList.size()) {
+                return roomList;
+            }
+            // A lesson that no room suits still needs a room, the hard constraint reports it
+            return allowedRoomList.isEmpty() ? roomList : allowedRoomList;
+        }
+
+        private List<Object> roomRequirement(Lesson lesson) {
+            return Arrays.asList(lesson.getRequiredRoomType(), lesson.getStudentCount());
+        }
+
+    }
+
 }
@@ -20,12 +20,21 @@ import java.time.DayOfWeek;
 import java.time.LocalTime;
 
 import javax.persistence.Entity;
+import javax.persistence.EntityListeners;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
 
+import org.acme.schooltimetabling.persistence.TenantChangeListener;
 import org.optaplanner.core.api.domain.lookup.PlanningId;
 
 @Entity
+@Table(indexes = {
+        @Index(name = "Timeslot_tenant_sort_idx", columnList = "tenantId, dayOfWeek, startTime, endTime, id"),
+        @Index(name = "Timeslot_tenant_id_idx", columnList = "tenantId, id")
+})
+@EntityListeners(TenantChangeListener.class)
 public class Timeslot {
 
     private Long tenantId;
@@ -51,7 +60,11 @@ public class Timeslot {
     }
 
     public Timeslot(long id, Long tenantId, DayOfWeek dayOfWeek, LocalTime startTime) {
-        this(tenantId, dayOfWeek, startTime, startTime.plusMinutes(50));
+        this(id, tenantId, dayOfWeek, startTime, startTime.plusMinutes(50));
+    }
+
+    public Timeslot(long id, Long tenantId, DayOfWeek dayOfWeek, LocalTime startTime, LocalTime endTime) {
+        this(tenantId, dayOfWeek, startTime, endTime);
         this.id = id;
     }
 
@@ -64,6 +77,10 @@ public class Timeslot {
     // Getters and setters
     // ************************************************************************
 
+    public Long getTenantId() {
+        return tenantId;
+    }
+
     public Long getId() {
         return id;
     }
@@ -0,0 +1,236 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.acme.schooltimetabling.persistence;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import org.acme.schooltimetabling.domain.TimeTable;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Decouples the solver's best solution events from the database.
+ * Each tenant has room for exactly one pending solution: a newer best solution replaces (coalesces) the pending one,
+ * and a tenant is flushed at most once per {@code timeTable.writer.min-flush-interval}.
+ * The final best solution of a solve is always written, without waiting for the interval.
+ */
+@ApplicationScoped
+public class BestSolutionWriter {
+
+    private static final Logger LOGGER = Logger.getLogger(BestSolutionWriter.class);
+
+    @ConfigProperty(name = "timeTable.writer.min-flush-interval", defaultValue = "1s")
+    Duration minFlushInterval;
+    @ConfigProperty(name = "timeTable.writer.thread-count", defaultValue = "2")
+    int threadCount;
+
+    @Inject
+    LessonAssignmentRepository lessonAssignmentRepository;
+    @Inject
+    MeterRegistry meterRegistry;
+
+    private final ConcurrentMap<Long, TenantQueue> tenantQueueMap = new ConcurrentHashMap<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private ScheduledExecutorService executorService;
+
+    @PostConstruct
+    void startExecutor() {
+        AtomicInteger threadIndex = new AtomicInteger();
+        executorService = Executors.newScheduledThreadPool(threadCount, runnable -> {
+            Thread thread = new Thread(runnable, "BestSolutionWriter-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        meterRegistry.gauge("timetable.writer.pending", pendingCount);
+    }
+
+    @PreDestroy
+    void stopExecutor() throws InterruptedException {
+        // Write what's still pending: those are better solutions than what's in the database
+        executorService.shutdown();
+        for (TenantQueue tenantQueue : tenantQueueMap.values()) {
+            tenantQueue.flushNow();
+        }
+        if (!executorService.awaitTermination(30, TimeUnit.SECONDS)) {
+            LOGGER.warn("The best solution writer did not finish writing the pending solutions in time.");
+        }
+    }
+
+    /**
+     * Queues a best solution, replacing any pending solution of the same tenant that hasn't been written yet.
+     * @param timeTable never null, not modified afterwards
+     */
+    public void submit(TimeTable timeTable) {
+        queue(timeTable.getTenantId()).submit(timeTable);
+    }
+
+    /**
+     * Writes the final best solution of a solve, after any write of that tenant that is already in progress.
+     * Blocks until it's written, so the solve only reports that it stopped once its result is in the database.
+     * @param timeTable never null, not modified afterwards
+     */
+    public void submitFinal(TimeTable timeTable) {
+        queue(timeTable.getTenantId()).submitFinal(timeTable);
+    }
+
+    private TenantQueue queue(Long tenantId) {
+        return tenantQueueMap.computeIfAbsent(tenantId, TenantQueue::new);
+    }
+
+    private final class TenantQueue {
+
+        private final Long tenantId;
+        private final String tenantTag;
+
+        // Guarded by this
+        private TimeTable pendingTimeTable = null;
+        private long pendingSinceNanos = 0L;
+        private boolean flushScheduled = false;
+        private boolean flushing = false;
+        private long lastFlushNanos = System.nanoTime() - minFlushInterval.toNanos();
+
+        private TenantQueue(Long tenantId) {
+            this.tenantId = tenantId;
+            this.tenantTag = tenantId.toString();
+        }
+
+        private synchronized void submit(TimeTable timeTable) {
+            enqueue(timeTable);
+            scheduleFlush();
+        }
+
+        private void submitFinal(TimeTable timeTable) {
+            TimeTable finalTimeTable;
+            synchronized (this) {
+                enqueue(timeTable);
+                finalTimeTable = awaitAndTakePending();
+            }
+            if (finalTimeTable != null) {
+                write(finalTimeTable);
+            }
+        }
+
+        private void enqueue(TimeTable timeTable) {
+            if (pendingTimeTable == null) {
+                pendingSinceNanos = System.nanoTime();
+                pendingCount.incrementAndGet();
+            } else {
+                meterRegistry.counter("timetable.writer.coalesced", "tenantId", tenantTag).increment();
+            }
+            pendingTimeTable = timeTable;
+        }
+
+        private synchronized void scheduleFlush() {
+            if (pendingTimeTable == null || flushing || flushScheduled) {
+                // A running flush reschedules when it's done, to keep the writes of this tenant in order
+                return;
+            }
+            long delayNanos = Math.max(0L, lastFlushNanos + minFlushInterval.toNanos() - System.nanoTime());
+            flushScheduled = true;
+            try {
+                executorService.schedule(this::flush, delayNanos, TimeUnit.NANOSECONDS);
+            } catch (RuntimeException e) { // Rejected because the application is shutting down
+                flushScheduled = false;
+                LOGGER.warn("Could not schedule writing the best solution of tenant (" + tenantId + ").", e);
+            }
+        }
+
+        private void flush() {
+            TimeTable timeTable;
+            synchronized (this) {
+                flushScheduled = false;
+                if (flushing) {
+                    return;
+                }
+                timeTable = takePending();
+            }
+            if (timeTable != null) {
+                write(timeTable);
+            }
+        }
+
+        private void flushNow() {
+            TimeTable timeTable;
+            synchronized (this) {
+                timeTable = awaitAndTakePending();
+            }
+            if (timeTable != null) {
+                write(timeTable);
+            }
+        }
+
+        // Must hold the lock
+        private TimeTable awaitAndTakePending() {
+            while (flushing) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    meterRegistry.counter("timetable.writer.dropped", "tenantId", tenantTag).increment();
+                    LOGGER.warn("Interrupted before writing the final best solution of tenant (" + tenantId + ").");
+                    return null;
+                }
+            }
+            return takePending();
+        }
+
+        // Must hold the lock
+        private TimeTable takePending() {
+            TimeTable timeTable = pendingTimeTable;
+            if (timeTable == null) {
+                return null;
+            }
+            pendingTimeTable = null;
+            pendingCount.decrementAndGet();
+            flushing = true;
+            meterRegistry.timer("timetable.writer.lag", "tenantId", tenantTag)
+                    .record(System.nanoTime() - pendingSinceNanos, TimeUnit.NANOSECONDS);
+            return timeTable;
+        }
+
+        private void write(TimeTable timeTable) {
+            try {
+                lessonAssignmentRepository.save(timeTable);
+            } catch (RuntimeException e) {
+                meterRegistry.counter("timetable.writer.dropped", "tenantId", tenantTag).increment();
+                LOGGER.error("Failed writing the best solution of tenant (" + tenantId + ").", e);
+            } finally {
+                synchronized (this) {
+                    flushing = false;
+                    lastFlushNanos = System.nanoTime();
+                    notifyAll();
+                    scheduleFlush();
+                }
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.acme.schooltimetabling.persistence;
+
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.DayOfWeek;
+
+/**
+ * Shared by {@link TenantPageStreamer} and {@link TimeTableExporter},
+ * which write the rows to the response while reading them.
+ */
+final class JdbcStreaming {
+
+    // Rows fetched per round trip, so the driver doesn't buffer all of them
+    static final int FETCH_SIZE = 500;
+
+    private JdbcStreaming() {
+    }
+
+    static Long getNullableLong(ResultSet resultSet, int columnIndex) throws SQLException {
+        long value = resultSet.getLong(columnIndex);
+        return resultSet.wasNull() ? null : value;
+    }
+
+    /**
+     * @return null if the column is null
+     */
+    static DayOfWeek getDayOfWeek(ResultSet resultSet, int columnIndex) throws SQLException {
+        // Stored as the enum ordinal, see TimeTableBulkInserter
+        int ordinal = resultSet.getInt(columnIndex);
+        return resultSet.wasNull() ? null : DayOfWeek.values()[ordinal];
+    }
+
+    static IOException toResponseException(String message, SQLException e) {
+        // The response is already committed, so the client sees a truncated body
+        return new IOException(message, e);
+    }
+
+}
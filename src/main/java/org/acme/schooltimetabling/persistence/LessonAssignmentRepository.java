@@ -0,0 +1,148 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.acme.schooltimetabling.persistence;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+import javax.transaction.Transactional;
+
+import org.acme.schooltimetabling.domain.Lesson;
+import org.acme.schooltimetabling.domain.LessonAssignment;
+import org.acme.schooltimetabling.domain.TimeTable;
+import org.hibernate.Session;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Writes the timeslot and room of solved lessons with a single JDBC batch,
+ * skipping every lesson whose assignment didn't change since the last save of that tenant.
+ */
+@ApplicationScoped
+public class LessonAssignmentRepository {
+
+    private static final String UPDATE_ASSIGNMENT_SQL = "UPDATE Lesson SET timeslot_id = ?, room_id = ? WHERE id = ?";
+
+    @Inject
+    EntityManager entityManager;
+    @Inject
+    TransactionSynchronizationRegistry transactionSynchronizationRegistry;
+    @Inject
+    MeterRegistry meterRegistry;
+
+    // The assignment of each lesson as it was last committed to the database, per tenant
+    private final ConcurrentMap<Long, Map<Long, LessonAssignment>> tenantSnapshotMap = new ConcurrentHashMap<>();
+
+    /**
+     * Remembers the assignments of a freshly loaded time table as the database state,
+     * so the next {@link #save(TimeTable)} only writes what the solver changed.
+     * @param timeTable never null, loaded from the database
+     */
+    public void resetSnapshot(TimeTable timeTable) {
+        Map<Long, LessonAssignment> snapshot = new ConcurrentHashMap<>(timeTable.getLessonList().size());
+        for (Lesson lesson : timeTable.getLessonList()) {
+            snapshot.put(lesson.getId(), LessonAssignment.of(lesson));
+        }
+        tenantSnapshotMap.put(timeTable.getTenantId(), snapshot);
+    }
+
+    public void clearSnapshot(Long tenantId) {
+        tenantSnapshotMap.remove(tenantId);
+    }
+
+    /**
+     * @param timeTable never null
+     * @return the number of lessons written
+     */
+    @Transactional
+    public int save(TimeTable timeTable) {
+        Long tenantId = timeTable.getTenantId();
+        Timer.Sample sample = Timer.start(meterRegistry);
+        Map<Long, LessonAssignment> snapshot = tenantSnapshotMap.get(tenantId);
+        List<LessonAssignment> changedList = new ArrayList<>();
+        for (Lesson lesson : timeTable.getLessonList()) {
+            LessonAssignment lastSaved = snapshot == null ? null : snapshot.get(lesson.getId());
+            if (lastSaved == null || !lastSaved.matches(lesson)) {
+                changedList.add(LessonAssignment.of(lesson));
+            }
+        }
+        if (!changedList.isEmpty()) {
+            entityManager.unwrap(Session.class).doWork(connection -> {
+                try (PreparedStatement statement = connection.prepareStatement(UPDATE_ASSIGNMENT_SQL)) {
+                    for (LessonAssignment assignment : changedList) {
+                        setNullableLong(statement, 1, assignment.getTimeslotId());
+                        setNullableLong(statement, 2, assignment.getRoomId());
+                        statement.setLong(3, assignment.getLessonId());
+                        statement.addBatch();
+                    }
+                    statement.executeBatch();
+                }
+            });
+            // Only trust the written assignments once they are committed
+            transactionSynchronizationRegistry.registerInterposedSynchronization(new Synchronization() {
+                @Override
+                public void beforeCompletion() {
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == Status.STATUS_COMMITTED) {
+                        updateSnapshot(tenantId, changedList);
+                    } else {
+                        clearSnapshot(tenantId);
+                    }
+                }
+            });
+        }
+        String tenantTag = tenantId.toString();
+        meterRegistry.counter("timetable.save.rows", "tenantId", tenantTag).increment(changedList.size());
+        meterRegistry.counter("timetable.save.lessons", "tenantId", tenantTag).increment(timeTable.getLessonList().size());
+        sample.stop(meterRegistry.timer("timetable.save", "tenantId", tenantTag));
+        return changedList.size();
+    }
+
+    private void updateSnapshot(Long tenantId, List<LessonAssignment> changedList) {
+        Map<Long, LessonAssignment> snapshot = tenantSnapshotMap.computeIfAbsent(tenantId,
+                key -> new ConcurrentHashMap<>(changedList.size()));
+        for (LessonAssignment assignment : changedList) {
+            snapshot.put(assignment.getLessonId(), assignment);
+        }
+    }
+
+    private static void setNullableLong(PreparedStatement statement, int parameterIndex, Long value)
+            throws SQLException {
+        if (value == null) {
+            statement.setNull(parameterIndex, Types.BIGINT);
+        } else {
+            statement.setLong(parameterIndex, value);
+        }
+    }
+
+}
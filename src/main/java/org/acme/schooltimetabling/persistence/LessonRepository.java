@@ -20,7 +20,6 @@ import java.util.List;
 
 import javax.enterprise.context.ApplicationScoped;
 
-import io.quarkus.panache.common.Sort;
 import org.acme.schooltimetabling.domain.Lesson;
 
 import io.quarkus.hibernate.orm.panache.PanacheRepository;
@@ -28,7 +27,17 @@ import io.quarkus.hibernate.orm.panache.PanacheRepository;
 @ApplicationScoped
 public class LessonRepository implements PanacheRepository<Lesson> {
     public List<Lesson> findByTenantId(Long tenantId) {
-        return find("tenantId", Sort.by("subject").and("teacher").and("studentGroup").and("id"),
-                    tenantId).list();
+        // Fetches the timeslot and room in the same query, instead of one query per lesson
+        // if they aren't in the persistence context yet
+        return find("from Lesson l left join fetch l.timeslot left join fetch l.room where l.tenantId = ?1"
+                + " order by l.subject, l.teacher, l.studentGroup, l.id", tenantId).list();
+    }
+
+    public long countByTenantId(Long tenantId) {
+        return count("tenantId", tenantId);
+    }
+
+    public long countAssignedByTenantId(Long tenantId) {
+        return count("tenantId = ?1 and timeslot is not null and room is not null", tenantId);
     }
 }
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.acme.schooltimetabling.persistence;
+
+import org.acme.schooltimetabling.domain.Lesson;
+
+/**
+ * The columns of a {@link Lesson} row, with the ids of its timeslot and room instead of the entities.
+ */
+public class LessonSummary {
+
+    private Long id;
+    private String subject;
+    private String teacher;
+    private String studentGroup;
+    private Long timeslotId;
+    private Long roomId;
+    private boolean pinned;
+
+    // No-arg constructor required for Jackson
+    public LessonSummary() {
+    }
+
+    public LessonSummary(Long id, String subject, String teacher, String studentGroup, Long timeslotId, Long roomId,
+            boolean pinned) {
+        this.id = id;
+        this.subject = subject;
+        this.teacher = teacher;
+        this.studentGroup = studentGroup;
+        this.timeslotId = timeslotId;
+        this.roomId = roomId;
+        this.pinned = pinned;
+    }
+
+    // ************************************************************************
+    // Getters and setters
+    // ************************************************************************
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+
+    public String getTeacher() {
+        return teacher;
+    }
+
+    public String getStudentGroup() {
+        return studentGroup;
+    }
+
+    public Long getTimeslotId() {
+        return timeslotId;
+    }
+
+    public Long getRoomId() {
+        return roomId;
+    }
+
+    public boolean isPinned() {
+        return pinned;
+    }
+
+}
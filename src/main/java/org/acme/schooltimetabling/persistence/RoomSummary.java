@@ -0,0 +1,56 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.acme.schooltimetabling.persistence;
+
+import org.acme.schooltimetabling.domain.Room;
+
+/**
+ * The columns of a {@link Room} row.
+ */
+public class RoomSummary {
+
+    private Long id;
+    private String name;
+    private boolean available;
+
+    // No-arg constructor required for Jackson
+    public RoomSummary() {
+    }
+
+    public RoomSummary(Long id, String name, boolean available) {
+        this.id = id;
+        this.name = name;
+        this.available = available;
+    }
+
+    // ************************************************************************
+    // Getters and setters
+    // ************************************************************************
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean isAvailable() {
+        return available;
+    }
+
+}
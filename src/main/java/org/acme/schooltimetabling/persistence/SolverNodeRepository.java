@@ -0,0 +1,68 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.acme.schooltimetabling.persistence;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.transaction.Transactional;
+
+import org.acme.schooltimetabling.domain.SolverNode;
+
+import io.quarkus.hibernate.orm.panache.PanacheRepositoryBase;
+import io.quarkus.panache.common.Sort;
+
+@ApplicationScoped
+public class SolverNodeRepository implements PanacheRepositoryBase<SolverNode, String> {
+
+    @Transactional
+    public void heartbeat(String url, Instant now, String activeTenantIds) {
+        SolverNode node = findById(url);
+        if (node == null) {
+            persist(new SolverNode(url, now, activeTenantIds));
+        } else {
+            node.setLastHeartbeat(now);
+            node.setActiveTenantIds(activeTenantIds);
+        }
+    }
+
+    /**
+     * @param cutoff never null
+     * @return never null, the nodes that didn't heartbeat since the cutoff and that this call removed,
+     * so only one of the nodes that remove them concurrently gets them
+     */
+    @Transactional
+    public List<SolverNode> removeExpired(Instant cutoff) {
+        List<SolverNode> expiredList = list("lastHeartbeat < ?1", cutoff);
+        expiredList.removeIf(node -> delete("url = ?1 and lastHeartbeat < ?2", node.getUrl(), cutoff) == 0L);
+        return expiredList;
+    }
+
+    @Transactional
+    public List<String> findUrls() {
+        return findAll(Sort.by("url")).stream()
+                .map(SolverNode::getUrl)
+                .collect(Collectors.toList());
+    }
+
+    @Transactional
+    public void remove(String url) {
+        deleteById(url);
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.acme.schooltimetabling.persistence;
+
+import javax.persistence.AttributeConverter;
+import javax.persistence.Converter;
+
+import org.acme.schooltimetabling.domain.StudentGroup;
+
+/**
+ * Keeps the {@link StudentGroup} of a lesson in its plain text column.
+ */
+@Converter
+public class StudentGroupConverter implements AttributeConverter<StudentGroup, String> {
+
+    @Override
+    public String convertToDatabaseColumn(StudentGroup studentGroup) {
+        return studentGroup == null ? null : studentGroup.getName();
+    }
+
+    @Override
+    public StudentGroup convertToEntityAttribute(String name) {
+        return name == null ? null : new StudentGroup(name);
+    }
+
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.acme.schooltimetabling.persistence;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+import org.acme.schooltimetabling.domain.Lesson;
+import org.acme.schooltimetabling.domain.Room;
+import org.acme.schooltimetabling.domain.TeacherUnavailability;
+import org.acme.schooltimetabling.domain.Timeslot;
+
+import io.quarkus.arc.Arc;
+
+/**
+ * Invalidates the {@link TimeTableViewCache} of a tenant when one of its entities is written through the ORM,
+ * such as through the {@code /lessons}, {@code /rooms}, {@code /timeslots}
+ * and {@code /teacherUnavailabilities} resources.
+ */
+public class TenantChangeListener {
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onChange(Object entity) {
+        Long tenantId;
+        if (entity instanceof Lesson) {
+            tenantId = ((Lesson) entity).getTenantId();
+        } else if (entity instanceof Room) {
+            tenantId = ((Room) entity).getTenantId();
+        } else if (entity instanceof Timeslot) {
+            tenantId = ((Timeslot) entity).getTenantId();
+        } else if (entity instanceof TeacherUnavailability) {
+            tenantId = ((TeacherUnavailability) entity).getTenantId();
+        } else {
+            throw new IllegalArgumentException("Unsupported entity class (" + entity.getClass() + ").");
+        }
+        if (tenantId == null) {
+            return;
+        }
+        // Entity listeners are instantiated by Hibernate, not by CDI
+        Arc.container().instance(TimeTableViewCache.class).get().invalidateOnCompletion(tenantId);
+    }
+
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.acme.schooltimetabling.persistence;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalTime;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.agroal.api.AgroalDataSource;
+
+/**
+ * Writes one page of the lessons, rooms or timeslots of a tenant as JSON while reading the rows,
+ * so a large page is never materialized as entities or as a list:
+ * {@code {"items":[...],"nextAfterId":123}}.
+ * Pages are seeked by id ({@code id > afterId}), so a deep page costs as much as the first one,
+ * unlike an offset that reads and skips every row before it.
+ * {@code nextAfterId} is null on the last page.
+ */
+@ApplicationScoped
+public class TenantPageStreamer {
+
+    public static final String LESSON_PAGE_SQL
+            = "SELECT id, subject, teacher, studentGroup, timeslot_id, room_id, pinned"
+            + " FROM Lesson WHERE tenantId = ? AND id > ? ORDER BY id LIMIT ?";
+    public static final String ROOM_PAGE_SQL = "SELECT id, name, available"
+            + " FROM Room WHERE tenantId = ? AND id > ? ORDER BY id LIMIT ?";
+    public static final String TIMESLOT_PAGE_SQL = "SELECT id, dayOfWeek, startTime, endTime"
+            + " FROM Timeslot WHERE tenantId = ? AND id > ? ORDER BY id LIMIT ?";
+
+    @Inject
+    AgroalDataSource dataSource;
+    @Inject
+    ObjectMapper objectMapper;
+
+    public void streamLessons(Long tenantId, long afterId, int limit, OutputStream outputStream) throws IOException {
+        stream(LESSON_PAGE_SQL, tenantId, afterId, limit, outputStream, TenantPageStreamer::toLessonSummary);
+    }
+
+    public void streamRooms(Long tenantId, long afterId, int limit, OutputStream outputStream) throws IOException {
+        stream(ROOM_PAGE_SQL, tenantId, afterId, limit, outputStream, TenantPageStreamer::toRoomSummary);
+    }
+
+    public void streamTimeslots(Long tenantId, long afterId, int limit, OutputStream outputStream)
+            throws IOException {
+        stream(TIMESLOT_PAGE_SQL, tenantId, afterId, limit, outputStream, TenantPageStreamer::toTimeslotSummary);
+    }
+
+    private void stream(String sql, Long tenantId, long afterId, int limit, OutputStream outputStream,
+            RowMapper rowMapper) throws IOException {
+        try (Connection connection = dataSource.getConnection();
+                JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)
+                        .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+            writePage(connection, generator, sql, tenantId, afterId, limit, rowMapper);
+        } catch (SQLException e) {
+            throw JdbcStreaming.toResponseException("Listing page (" + afterId + ", " + limit + ") of tenant ("
+                    + tenantId + ") failed.", e);
+        }
+    }
+
+    /**
+     * @param connection never null
+     * @param generator never null, not closed
+     * @param sql never null, one of the *_PAGE_SQL
+     * @param tenantId never null
+     * @param afterId the id of the last row of the previous page, or {@code 0} for the first page
+     * @param limit at least 1
+     * @param rowMapper never null
+     * @return the number of rows written
+     */
+    public static int writePage(Connection connection, JsonGenerator generator, String sql, Long tenantId,
+            long afterId, int limit, RowMapper rowMapper) throws SQLException, IOException {
+        int rowCount = 0;
+        long lastId = afterId;
+        generator.writeStartObject();
+        generator.writeArrayFieldStart("items");
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setLong(1, tenantId);
+            statement.setLong(2, afterId);
+            statement.setInt(3, limit);
+            statement.setFetchSize(Math.min(limit, JdbcStreaming.FETCH_SIZE));
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    lastId = resultSet.getLong(1);
+                    generator.writeObject(rowMapper.map(resultSet));
+                    rowCount++;
+                }
+            }
+        }
+        generator.writeEndArray();
+        if (rowCount == limit) {
+            generator.writeNumberField("nextAfterId", lastId);
+        } else {
+            generator.writeNullField("nextAfterId");
+        }
+        generator.writeEndObject();
+        return rowCount;
+    }
+
+    public static LessonSummary toLessonSummary(ResultSet resultSet) throws SQLException {
+        return new LessonSummary(resultSet.getLong(1), resultSet.getString(2), resultSet.getString(3),
+                resultSet.getString(4), JdbcStreaming.getNullableLong(resultSet, 5),
+                JdbcStreaming.getNullableLong(resultSet, 6),
+                resultSet.getBoolean(7));
+    }
+
+    public static RoomSummary toRoomSummary(ResultSet resultSet) throws SQLException {
+        return new RoomSummary(resultSet.getLong(1), resultSet.getString(2), resultSet.getBoolean(3));
+    }
+
+    public static TimeslotSummary toTimeslotSummary(ResultSet resultSet) throws SQLException {
+        return new TimeslotSummary(resultSet.getLong(1), JdbcStreaming.getDayOfWeek(resultSet, 2),
+                resultSet.getObject(3, LocalTime.class), resultSet.getObject(4, LocalTime.class));
+    }
+
+    @FunctionalInterface
+    public interface RowMapper {
+
+        Object map(ResultSet resultSet) throws SQLException;
+
+    }
+
+}
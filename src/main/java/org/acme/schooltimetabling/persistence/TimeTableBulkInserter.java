@@ -0,0 +1,391 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.acme.schooltimetabling.persistence;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceException;
+import javax.transaction.Transactional;
+
+import org.acme.schooltimetabling.domain.Lesson;
+import org.acme.schooltimetabling.domain.Room;
+import org.acme.schooltimetabling.domain.TeacherUnavailability;
+import org.acme.schooltimetabling.domain.TimeTable;
+import org.acme.schooltimetabling.domain.Timeslot;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.hibernate.Session;
+
+/**
+ * Inserts the timeslots, rooms, teacher unavailabilities and lessons of a new {@link TimeTable} with JDBC batches
+ * instead of persisting them entity by entity, for datasets of tens of thousands of lessons.
+ * The ids come from the same hibernate_sequence as the ORM, a whole range per round trip.
+ */
+@ApplicationScoped
+public class TimeTableBulkInserter {
+
+    // H2 specific: one sequence value per row of the range
+    private static final String ALLOCATE_IDS_SQL = "SELECT NEXT VALUE FOR hibernate_sequence FROM SYSTEM_RANGE(1, ?)";
+    private static final String INSERT_TIMESLOT_SQL
+            = "INSERT INTO Timeslot (id, tenantId, dayOfWeek, startTime, endTime) VALUES (?, ?, ?, ?, ?)";
+    private static final String INSERT_ROOM_SQL
+            = "INSERT INTO Room (id, tenantId, name, available, roomType, capacity) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_TEACHER_UNAVAILABILITY_SQL
+            = "INSERT INTO TeacherUnavailability (id, tenantId, teacher, dayOfWeek) VALUES (?, ?, ?, ?)";
+    private static final String INSERT_LESSON_SQL = "INSERT INTO Lesson"
+            + " (id, tenantId, subject, teacher, studentGroup, requiredRoomType, studentCount,"
+            + " timeslot_id, room_id, pinned)"
+            + " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    // Lessons first, because they reference the timeslots and rooms
+    private static final String[] DELETE_TENANT_SQLS = {
+            "DELETE FROM Lesson WHERE tenantId = ?",
+            "DELETE FROM TeacherUnavailability WHERE tenantId = ?",
+            "DELETE FROM Room WHERE tenantId = ?",
+            "DELETE FROM Timeslot WHERE tenantId = ?"
+    };
+
+    @Inject
+    EntityManager entityManager;
+    @Inject
+    TimeTableViewCache viewCache;
+
+    @ConfigProperty(name = "timeTable.bulk-insert.batch-size", defaultValue = "1000")
+    int batchSize;
+
+    /**
+     * @param timeTable never null, its timeslots, rooms and lessons must not be persisted yet,
+     * but a lesson may already be assigned to one of its timeslots and rooms or to a persisted one
+     * @return the number of rows inserted
+     */
+    @Transactional
+    public int insert(TimeTable timeTable) {
+        List<Timeslot> timeslotList = timeTable.getTimeslotList();
+        List<Room> roomList = timeTable.getRoomList();
+        List<TeacherUnavailability> teacherUnavailabilityList = timeTable.getTeacherUnavailabilityList();
+        List<Lesson> lessonList = timeTable.getLessonList();
+        // Make sure no pending ORM change is written after the rows it depends on
+        entityManager.flush();
+        int rowCount = entityManager.unwrap(Session.class).doReturningWork(connection -> {
+            long[] ids = allocateIds(connection, timeslotList.size() + roomList.size()
+                    + teacherUnavailabilityList.size() + lessonList.size());
+            int idIndex = 0;
+            Map<Object, Long> idMap = new IdentityHashMap<>(timeslotList.size() + roomList.size());
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_TIMESLOT_SQL)) {
+                int count = 0;
+                for (Timeslot timeslot : timeslotList) {
+                    long id = ids[idIndex++];
+                    idMap.put(timeslot, id);
+                    statement.setLong(1, id);
+                    statement.setLong(2, timeslot.getTenantId());
+                    statement.setInt(3, timeslot.getDayOfWeek().ordinal());
+                    statement.setObject(4, timeslot.getStartTime());
+                    statement.setObject(5, timeslot.getEndTime());
+                    addBatch(statement, ++count);
+                }
+                statement.executeBatch();
+            }
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_ROOM_SQL)) {
+                int count = 0;
+                for (Room room : roomList) {
+                    long id = ids[idIndex++];
+                    idMap.put(room, id);
+                    statement.setLong(1, id);
+                    statement.setLong(2, room.getTenantId());
+                    statement.setString(3, room.getName());
+                    statement.setBoolean(4, room.isAvailable());
+                    statement.setString(5, room.getRoomType());
+                    setNullableInt(statement, 6, room.getCapacity());
+                    addBatch(statement, ++count);
+                }
+                statement.executeBatch();
+            }
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_TEACHER_UNAVAILABILITY_SQL)) {
+                int count = 0;
+                for (TeacherUnavailability teacherUnavailability : teacherUnavailabilityList) {
+                    statement.setLong(1, ids[idIndex++]);
+                    statement.setLong(2, teacherUnavailability.getTenantId());
+                    statement.setString(3, teacherUnavailability.getTeacher().getName());
+                    statement.setInt(4, teacherUnavailability.getDayOfWeek().ordinal());
+                    addBatch(statement, ++count);
+                }
+                statement.executeBatch();
+            }
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_LESSON_SQL)) {
+                int count = 0;
+                for (Lesson lesson : lessonList) {
+                    statement.setLong(1, ids[idIndex++]);
+                    statement.setLong(2, lesson.getTenantId());
+                    statement.setString(3, lesson.getSubject().getName());
+                    statement.setString(4, lesson.getTeacher().getName());
+                    statement.setString(5, lesson.getStudentGroup().getName());
+                    statement.setString(6, lesson.getRequiredRoomType());
+                    setNullableInt(statement, 7, lesson.getStudentCount());
+                    Timeslot timeslot = lesson.getTimeslot();
+                    Room room = lesson.getRoom();
+                    setNullableLong(statement, 8, timeslot == null ? null : idMap.getOrDefault(timeslot, timeslot.getId()));
+                    setNullableLong(statement, 9, room == null ? null : idMap.getOrDefault(room, room.getId()));
+                    statement.setBoolean(10, lesson.isPinned());
+                    addBatch(statement, ++count);
+                }
+                statement.executeBatch();
+            }
+            return idIndex;
+        });
+        // JDBC writes bypass the entity listeners
+        viewCache.invalidateOnCompletion(timeTable.getTenantId());
+        return rowCount;
+    }
+
+    /**
+     * Replaces the timeslots, rooms, teacher unavailabilities and lessons of a tenant with the rows of the reader,
+     * in a single transaction.
+     * The rows are written in JDBC batches as they are read, so the heap use doesn't grow with the rows.
+     * The lessons are unassigned and unpinned.
+     * @param tenantId never null
+     * @param problemReader never null
+     * @return the number of rows inserted
+     * @throws UncheckedIOException if the reader fails, after which nothing is replaced
+     */
+    @Transactional
+    public int replace(Long tenantId, ProblemReader problemReader) {
+        entityManager.flush();
+        int rowCount = entityManager.unwrap(Session.class).doReturningWork(connection -> {
+            for (String sql : DELETE_TENANT_SQLS) {
+                try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                    statement.setLong(1, tenantId);
+                    statement.executeUpdate();
+                }
+            }
+            try (StreamingProblemSink sink = new StreamingProblemSink(connection, tenantId)) {
+                problemReader.read(sink);
+                sink.flush();
+                return sink.rowCount;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Reading the problem of tenant (" + tenantId + ") failed.", e);
+            }
+        });
+        // The entities of this tenant in the persistence context were deleted behind Hibernate's back
+        entityManager.clear();
+        viewCache.invalidateOnCompletion(tenantId);
+        return rowCount;
+    }
+
+    private static long[] allocateIds(Connection connection, int count) throws SQLException {
+        long[] ids = new long[count];
+        if (count == 0) {
+            return ids;
+        }
+        try (PreparedStatement statement = connection.prepareStatement(ALLOCATE_IDS_SQL)) {
+            statement.setInt(1, count);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                int i = 0;
+                while (resultSet.next()) {
+                    ids[i++] = resultSet.getLong(1);
+                }
+                if (i != count) {
+                    throw new IllegalStateException("Allocated " + i + " ids instead of " + count + ".");
+                }
+            }
+        }
+        return ids;
+    }
+
+    private void addBatch(PreparedStatement statement, int count) throws SQLException {
+        statement.addBatch();
+        if (count % batchSize == 0) {
+            statement.executeBatch();
+        }
+    }
+
+    private static void setNullableLong(PreparedStatement statement, int parameterIndex, Long value)
+            throws SQLException {
+        if (value == null) {
+            statement.setNull(parameterIndex, Types.BIGINT);
+        } else {
+            statement.setLong(parameterIndex, value);
+        }
+    }
+
+    private static void setNullableInt(PreparedStatement statement, int parameterIndex, Integer value)
+            throws SQLException {
+        if (value == null) {
+            statement.setNull(parameterIndex, Types.INTEGER);
+        } else {
+            statement.setInt(parameterIndex, value);
+        }
+    }
+
+    /**
+     * Receives the rows of a problem in any order, see {@link #replace(Long, ProblemReader)}.
+     */
+    public interface ProblemSink {
+
+        void addTimeslot(DayOfWeek dayOfWeek, LocalTime startTime, LocalTime endTime);
+
+        /**
+         * @param roomType null for an ordinary classroom
+         * @param capacity null if any student group fits
+         */
+        void addRoom(String name, String roomType, Integer capacity);
+
+        void addTeacherUnavailability(String teacher, DayOfWeek dayOfWeek);
+
+        /**
+         * @param requiredRoomType null if an ordinary classroom will do
+         * @param studentCount null if unknown
+         */
+        void addLesson(String subject, String teacher, String studentGroup, String requiredRoomType,
+                Integer studentCount);
+
+    }
+
+    @FunctionalInterface
+    public interface ProblemReader {
+
+        void read(ProblemSink sink) throws IOException;
+
+    }
+
+    private final class StreamingProblemSink implements ProblemSink, AutoCloseable {
+
+        private final Connection connection;
+        private final Long tenantId;
+        private final PreparedStatement timeslotStatement;
+        private final PreparedStatement roomStatement;
+        private final PreparedStatement teacherUnavailabilityStatement;
+        private final PreparedStatement lessonStatement;
+        private long[] ids = new long[0];
+        private int idIndex = 0;
+        private int timeslotCount = 0;
+        private int roomCount = 0;
+        private int teacherUnavailabilityCount = 0;
+        private int lessonCount = 0;
+        private int rowCount = 0;
+
+        private StreamingProblemSink(Connection connection, Long tenantId) throws SQLException {
+            this.connection = connection;
+            this.tenantId = tenantId;
+            timeslotStatement = connection.prepareStatement(INSERT_TIMESLOT_SQL);
+            roomStatement = connection.prepareStatement(INSERT_ROOM_SQL);
+            teacherUnavailabilityStatement = connection.prepareStatement(INSERT_TEACHER_UNAVAILABILITY_SQL);
+            lessonStatement = connection.prepareStatement(INSERT_LESSON_SQL);
+        }
+
+        @Override
+        public void addTimeslot(DayOfWeek dayOfWeek, LocalTime startTime, LocalTime endTime) {
+            try {
+                timeslotStatement.setLong(1, nextId());
+                timeslotStatement.setLong(2, tenantId);
+                timeslotStatement.setInt(3, dayOfWeek.ordinal());
+                timeslotStatement.setObject(4, startTime);
+                timeslotStatement.setObject(5, endTime);
+                addBatch(timeslotStatement, ++timeslotCount);
+            } catch (SQLException e) {
+                throw new PersistenceException("Inserting timeslot (" + dayOfWeek + " " + startTime + ") failed.", e);
+            }
+        }
+
+        @Override
+        public void addRoom(String name, String roomType, Integer capacity) {
+            try {
+                roomStatement.setLong(1, nextId());
+                roomStatement.setLong(2, tenantId);
+                roomStatement.setString(3, name);
+                roomStatement.setBoolean(4, true);
+                roomStatement.setString(5, roomType);
+                setNullableInt(roomStatement, 6, capacity);
+                addBatch(roomStatement, ++roomCount);
+            } catch (SQLException e) {
+                throw new PersistenceException("Inserting room (" + name + ") failed.", e);
+            }
+        }
+
+        @Override
+        public void addTeacherUnavailability(String teacher, DayOfWeek dayOfWeek) {
+            try {
+                teacherUnavailabilityStatement.setLong(1, nextId());
+                teacherUnavailabilityStatement.setLong(2, tenantId);
+                teacherUnavailabilityStatement.setString(3, teacher);
+                teacherUnavailabilityStatement.setInt(4, dayOfWeek.ordinal());
+                addBatch(teacherUnavailabilityStatement, ++teacherUnavailabilityCount);
+            } catch (SQLException e) {
+                throw new PersistenceException("Inserting teacher unavailability (" + teacher + " on " + dayOfWeek
+                        + ") failed.", e);
+            }
+        }
+
+        @Override
+        public void addLesson(String subject, String teacher, String studentGroup, String requiredRoomType,
+                Integer studentCount) {
+            try {
+                lessonStatement.setLong(1, nextId());
+                lessonStatement.setLong(2, tenantId);
+                lessonStatement.setString(3, subject);
+                lessonStatement.setString(4, teacher);
+                lessonStatement.setString(5, studentGroup);
+                lessonStatement.setString(6, requiredRoomType);
+                setNullableInt(lessonStatement, 7, studentCount);
+                lessonStatement.setNull(8, Types.BIGINT);
+                lessonStatement.setNull(9, Types.BIGINT);
+                lessonStatement.setBoolean(10, false);
+                addBatch(lessonStatement, ++lessonCount);
+            } catch (SQLException e) {
+                throw new PersistenceException("Inserting lesson (" + subject + ") failed.", e);
+            }
+        }
+
+        // One round trip per batchSize ids
+        private long nextId() throws SQLException {
+            if (idIndex == ids.length) {
+                ids = allocateIds(connection, batchSize);
+                idIndex = 0;
+            }
+            rowCount++;
+            return ids[idIndex++];
+        }
+
+        private void flush() throws SQLException {
+            timeslotStatement.executeBatch();
+            roomStatement.executeBatch();
+            teacherUnavailabilityStatement.executeBatch();
+            lessonStatement.executeBatch();
+        }
+
+        @Override
+        public void close() throws SQLException {
+            timeslotStatement.close();
+            roomStatement.close();
+            teacherUnavailabilityStatement.close();
+            lessonStatement.close();
+        }
+
+    }
+
+}
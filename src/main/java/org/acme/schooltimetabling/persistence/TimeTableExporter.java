@@ -0,0 +1,241 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.acme.schooltimetabling.persistence;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAdjusters;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import io.agroal.api.AgroalDataSource;
+
+/**
+ * Writes the saved time table of a tenant as CSV or iCalendar while reading the rows
+ * from a single forward-only cursor, so neither the entities nor a list of the lessons are ever materialized
+ * and the score isn't calculated. The memory use doesn't depend on the number of lessons.
+ * A running solve is exported as of its last saved best solution.
+ */
+@ApplicationScoped
+public class TimeTableExporter {
+
+    public static final String CSV_HEADER = "dayOfWeek,startTime,endTime,room,subject,teacher,studentGroup";
+
+    private static final String EXPORT_SQL = "SELECT l.id, l.subject, l.teacher, l.studentGroup,"
+            + " t.dayOfWeek, t.startTime, t.endTime, r.name"
+            + " FROM Lesson l LEFT JOIN Timeslot t ON t.id = l.timeslot_id LEFT JOIN Room r ON r.id = l.room_id"
+            + " WHERE l.tenantId = ?";
+    private static final DateTimeFormatter ICALENDAR_DATE_TIME_FORMATTER
+            = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss");
+    // RFC 5545 folds content lines longer than 75 octets
+    private static final int ICALENDAR_MAX_LINE_OCTETS = 75;
+
+    @Inject
+    AgroalDataSource dataSource;
+
+    /**
+     * One row per lesson, grouped by the room, teacher or student group and then in time order.
+     * Unassigned lessons have an empty time and room and come last in their group, or last when grouped by room.
+     * @param tenantId never null
+     * @param grouping never null
+     * @param name null to export every room, teacher or student group, otherwise only that one
+     * @param outputStream never null, not closed
+     */
+    public void exportCsv(Long tenantId, Grouping grouping, String name, OutputStream outputStream)
+            throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        writer.write(CSV_HEADER);
+        writer.write('\n');
+        query(tenantId, grouping, name, false, resultSet -> {
+            DayOfWeek dayOfWeek = JdbcStreaming.getDayOfWeek(resultSet, 5);
+            writeCsvField(writer, dayOfWeek == null ? null : dayOfWeek.name(), true);
+            writeCsvField(writer, toString(resultSet.getObject(6, LocalTime.class)), false);
+            writeCsvField(writer, toString(resultSet.getObject(7, LocalTime.class)), false);
+            writeCsvField(writer, resultSet.getString(8), false);
+            writeCsvField(writer, resultSet.getString(2), false);
+            writeCsvField(writer, resultSet.getString(3), false);
+            writeCsvField(writer, resultSet.getString(4), false);
+            writer.write('\n');
+        });
+        writer.flush();
+    }
+
+    /**
+     * One weekly recurring event per assigned lesson, in floating local time, starting in the week of weekStart.
+     * Unassigned lessons are left out.
+     * @param tenantId never null
+     * @param grouping never null
+     * @param name null to export every room, teacher or student group, otherwise only that one
+     * @param weekStart never null
+     * @param outputStream never null, not closed
+     */
+    public void exportICalendar(Long tenantId, Grouping grouping, String name, LocalDate weekStart,
+            OutputStream outputStream) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        String timestamp = ICALENDAR_DATE_TIME_FORMATTER.format(LocalDateTime.now(ZoneOffset.UTC)) + "Z";
+        writeICalendarLine(writer, "BEGIN:VCALENDAR");
+        writeICalendarLine(writer, "VERSION:2.0");
+        writeICalendarLine(writer, "PRODID:-//OptaPlanner//School Timetabling//EN");
+        writeICalendarLine(writer, "CALSCALE:GREGORIAN");
+        query(tenantId, grouping, name, true, resultSet -> {
+            LocalDate date = weekStart.with(TemporalAdjusters.nextOrSame(JdbcStreaming.getDayOfWeek(resultSet, 5)));
+            LocalTime startTime = resultSet.getObject(6, LocalTime.class);
+            LocalTime endTime = resultSet.getObject(7, LocalTime.class);
+            writeICalendarLine(writer, "BEGIN:VEVENT");
+            writeICalendarLine(writer, "UID:lesson-" + resultSet.getLong(1) + "-tenant-" + tenantId
+                    + "@school-timetabling");
+            writeICalendarLine(writer, "DTSTAMP:" + timestamp);
+            writeICalendarLine(writer, "DTSTART:" + ICALENDAR_DATE_TIME_FORMATTER.format(date.atTime(startTime)));
+            writeICalendarLine(writer, "DTEND:" + ICALENDAR_DATE_TIME_FORMATTER.format(date.atTime(endTime)));
+            writeICalendarLine(writer, "RRULE:FREQ=WEEKLY");
+            writeICalendarLine(writer, "SUMMARY:" + escapeICalendarText(resultSet.getString(2)));
+            writeICalendarLine(writer, "LOCATION:" + escapeICalendarText(resultSet.getString(8)));
+            writeICalendarLine(writer, "DESCRIPTION:" + escapeICalendarText(resultSet.getString(3)
+                    + " - " + resultSet.getString(4)));
+            writeICalendarLine(writer, "END:VEVENT");
+        });
+        writeICalendarLine(writer, "END:VCALENDAR");
+        writer.flush();
+    }
+
+    private void query(Long tenantId, Grouping grouping, String name, boolean assignedOnly, RowWriter rowWriter)
+            throws IOException {
+        StringBuilder sql = new StringBuilder(EXPORT_SQL);
+        if (name != null) {
+            sql.append(" AND ").append(grouping.getColumn()).append(" = ?");
+        }
+        if (assignedOnly) {
+            sql.append(" AND t.id IS NOT NULL AND r.id IS NOT NULL");
+        }
+        // Unassigned lessons have no timeslot or room, NULLS LAST keeps them at the end
+        sql.append(" ORDER BY ").append(grouping.getColumn())
+                .append(" NULLS LAST, t.dayOfWeek NULLS LAST, t.startTime NULLS LAST, l.id");
+        try (Connection connection = dataSource.getConnection()) {
+            // Some drivers, such as PostgreSQL's, only stream with a cursor outside of autocommit
+            connection.setAutoCommit(false);
+            try (PreparedStatement statement = connection.prepareStatement(sql.toString(),
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                statement.setLong(1, tenantId);
+                if (name != null) {
+                    statement.setString(2, name);
+                }
+                statement.setFetchSize(JdbcStreaming.FETCH_SIZE);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        rowWriter.write(resultSet);
+                    }
+                }
+            } finally {
+                connection.rollback();
+            }
+        } catch (SQLException e) {
+            throw JdbcStreaming.toResponseException("Exporting tenant (" + tenantId + ") failed.", e);
+        }
+    }
+
+    private static String toString(LocalTime time) {
+        return time == null ? null : time.toString();
+    }
+
+    // Same quoting as the CSV import
+    private static void writeCsvField(Writer writer, String value, boolean first) throws IOException {
+        if (!first) {
+            writer.write(',');
+        }
+        if (value == null) {
+            return;
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0
+                && value.indexOf('\r') < 0) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    static String escapeICalendarText(String value) {
+        if (value == null) {
+            return "";
+        }
+        return value.replace("\\", "\\\\")
+                .replace(";", "\\;")
+                .replace(",", "\\,")
+                .replace("\r\n", "\\n")
+                .replace("\n", "\\n");
+    }
+
+    static void writeICalendarLine(Writer writer, String line) throws IOException {
+        int lineOctets = 0;
+        for (int i = 0; i < line.length(); i++) {
+            int codePoint = line.codePointAt(i);
+            int octets = codePoint < 0x80 ? 1 : codePoint < 0x800 ? 2 : codePoint < 0x10000 ? 3 : 4;
+            if (lineOctets + octets > ICALENDAR_MAX_LINE_OCTETS) {
+                // A continuation line starts with a space, which counts towards its length
+                writer.write("\r\n ");
+                lineOctets = 1;
+            }
+            writer.write(Character.toChars(codePoint));
+            lineOctets += octets;
+            if (Character.isSupplementaryCodePoint(codePoint)) {
+                i++;
+            }
+        }
+        writer.write("\r\n");
+    }
+
+    public enum Grouping {
+        ROOM("r.name"),
+        TEACHER("l.teacher"),
+        STUDENT_GROUP("l.studentGroup");
+
+        private final String column;
+
+        Grouping(String column) {
+            this.column = column;
+        }
+
+        public String getColumn() {
+            return column;
+        }
+
+    }
+
+    @FunctionalInterface
+    private interface RowWriter {
+
+        void write(ResultSet resultSet) throws SQLException, IOException;
+
+    }
+
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.acme.schooltimetabling.persistence;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.transaction.Transactional;
+
+import org.acme.schooltimetabling.domain.TimeTable;
+import org.hibernate.Session;
+
+/**
+ * Loads the whole time table of a tenant in four queries, one per table, each served by its tenant index,
+ * and the lessons with their timeslot and room joined, so the number of queries doesn't grow with the lessons.
+ * The entities are loaded read-only, because the callers only read or detach them,
+ * so Hibernate doesn't keep a dirty checking snapshot of every one and doesn't check them at commit.
+ */
+@ApplicationScoped
+public class TimeTableRepository {
+
+    @Inject
+    EntityManager entityManager;
+    @Inject
+    TimeslotRepository timeslotRepository;
+    @Inject
+    RoomRepository roomRepository;
+    @Inject
+    TeacherUnavailabilityRepository teacherUnavailabilityRepository;
+    @Inject
+    LessonRepository lessonRepository;
+
+    /**
+     * @param tenantId never null
+     * @return never null
+     */
+    @Transactional
+    public TimeTable findByTenantId(Long tenantId) {
+        Session session = entityManager.unwrap(Session.class);
+        boolean defaultReadOnly = session.isDefaultReadOnly();
+        session.setDefaultReadOnly(true);
+        try {
+            // Occurs in a single transaction, so each initialized lesson references the same timeslot/room instance
+            // that is contained by the timeTable's timeslotList/roomList.
+            return new TimeTable(tenantId,
+                    timeslotRepository.findByTenantId(tenantId),
+                    roomRepository.findByTenantId(tenantId),
+                    teacherUnavailabilityRepository.findByTenantId(tenantId),
+                    lessonRepository.findByTenantId(tenantId));
+        } finally {
+            // This transaction might be a caller's that still changes entities
+            session.setDefaultReadOnly(defaultReadOnly);
+        }
+    }
+
+}
@@ -0,0 +1,313 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.acme.schooltimetabling.persistence;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+import org.acme.schooltimetabling.domain.Lesson;
+import org.acme.schooltimetabling.domain.Room;
+import org.acme.schooltimetabling.domain.TeacherUnavailability;
+import org.acme.schooltimetabling.domain.TimeTable;
+import org.acme.schooltimetabling.domain.Timeslot;
+import org.optaplanner.core.api.score.buildin.hardsoft.HardSoftScore;
+
+/**
+ * A compact binary encoding of a {@link TimeTable}, for checkpoints that are restored without the ORM.
+ * After a header with the format, the tenant id and the score come the distinct names (subjects, teachers,
+ * student groups and room types), the fact tables (timeslots, rooms and teacher unavailabilities)
+ * and then the lessons as dense columns: ids, name indexes, timeslot index and room index (-1 if unassigned),
+ * required room type name index (-1 if none), student count and pinned flags.
+ * A snapshot of another format version is rejected.
+ */
+public final class TimeTableSnapshot {
+
+    private static final int MAGIC = 0x54545332; // "TTS2"
+    private static final int UNASSIGNED = -1;
+    // A null name index, capacity or student count, which are never negative otherwise
+    private static final int ABSENT = -1;
+    // The minimal encoded size of each element, to reject a corrupt count before allocating for it
+    private static final int STRING_BYTES = Integer.BYTES;
+    private static final int TIMESLOT_BYTES = Long.BYTES + 1 + 2 * Integer.BYTES;
+    private static final int ROOM_BYTES = Long.BYTES + 1 + 2 * Integer.BYTES + STRING_BYTES;
+    private static final int TEACHER_UNAVAILABILITY_BYTES = Long.BYTES + Integer.BYTES + 1;
+    private static final int LESSON_BYTES = Long.BYTES + 7 * Integer.BYTES + 1;
+
+    private TimeTableSnapshot() {
+    }
+
+    /**
+     * @param timeTable never null
+     * @return never null, positioned at 0, with the limit at the end of the encoding
+     */
+    public static ByteBuffer encode(TimeTable timeTable) {
+        return encode(timeTable, ByteBuffer::allocate);
+    }
+
+    /**
+     * @param timeTable never null
+     * @param allocator never null, returns a buffer of exactly the given size, such as a memory-mapped file region
+     * @return never null, the allocated buffer, positioned at 0
+     */
+    public static ByteBuffer encode(TimeTable timeTable, IntFunction<ByteBuffer> allocator) {
+        Map<String, Integer> nameIndexMap = new HashMap<>();
+        List<byte[]> nameList = new ArrayList<>();
+        List<Lesson> lessonList = timeTable.getLessonList();
+        int[] nameIndexes = new int[lessonList.size() * 4];
+        for (int i = 0; i < lessonList.size(); i++) {
+            Lesson lesson = lessonList.get(i);
+            nameIndexes[i * 4] = nameIndex(lesson.getSubject().getName(), nameIndexMap, nameList);
+            nameIndexes[i * 4 + 1] = nameIndex(lesson.getTeacher().getName(), nameIndexMap, nameList);
+            nameIndexes[i * 4 + 2] = nameIndex(lesson.getStudentGroup().getName(), nameIndexMap, nameList);
+            nameIndexes[i * 4 + 3] = nameIndex(lesson.getRequiredRoomType(), nameIndexMap, nameList);
+        }
+        List<Room> roomList = timeTable.getRoomList();
+        int[] roomTypeIndexes = new int[roomList.size()];
+        List<byte[]> roomNameList = new ArrayList<>(roomList.size());
+        for (int i = 0; i < roomList.size(); i++) {
+            Room room = roomList.get(i);
+            roomTypeIndexes[i] = nameIndex(room.getRoomType(), nameIndexMap, nameList);
+            roomNameList.add(room.getName().getBytes(StandardCharsets.UTF_8));
+        }
+        List<TeacherUnavailability> teacherUnavailabilityList = timeTable.getTeacherUnavailabilityList();
+        int[] unavailableTeacherIndexes = new int[teacherUnavailabilityList.size()];
+        for (int i = 0; i < teacherUnavailabilityList.size(); i++) {
+            unavailableTeacherIndexes[i] = nameIndex(teacherUnavailabilityList.get(i).getTeacher().getName(),
+                    nameIndexMap, nameList);
+        }
+        int size = Integer.BYTES + Long.BYTES + 1 + 3 * Integer.BYTES
+                + Integer.BYTES + stringsSize(nameList)
+                + Integer.BYTES + timeTable.getTimeslotList().size() * (Long.BYTES + 1 + 2 * Integer.BYTES)
+                + Integer.BYTES + roomList.size() * (Long.BYTES + 1 + 2 * Integer.BYTES) + stringsSize(roomNameList)
+                + Integer.BYTES + teacherUnavailabilityList.size() * (Long.BYTES + Integer.BYTES + 1)
+                + Integer.BYTES + lessonList.size() * (Long.BYTES + 7 * Integer.BYTES + 1);
+        ByteBuffer buffer = allocator.apply(size);
+        write(timeTable, nameList, roomNameList, roomTypeIndexes, unavailableTeacherIndexes, nameIndexes, buffer);
+        buffer.flip();
+        return buffer;
+    }
+
+    private static void write(TimeTable timeTable, List<byte[]> nameList, List<byte[]> roomNameList,
+            int[] roomTypeIndexes, int[] unavailableTeacherIndexes, int[] nameIndexes, ByteBuffer buffer) {
+        buffer.putInt(MAGIC);
+        buffer.putLong(timeTable.getTenantId());
+        HardSoftScore score = timeTable.getScore();
+        buffer.put((byte) (score == null ? 0 : 1));
+        buffer.putInt(score == null ? 0 : score.getInitScore());
+        buffer.putInt(score == null ? 0 : score.getHardScore());
+        buffer.putInt(score == null ? 0 : score.getSoftScore());
+        buffer.putInt(nameList.size());
+        for (byte[] name : nameList) {
+            putString(buffer, name);
+        }
+
+        List<Timeslot> timeslotList = timeTable.getTimeslotList();
+        Map<Object, Integer> factIndexMap = new IdentityHashMap<>(timeslotList.size() + roomNameList.size());
+        buffer.putInt(timeslotList.size());
+        for (int i = 0; i < timeslotList.size(); i++) {
+            Timeslot timeslot = timeslotList.get(i);
+            factIndexMap.put(timeslot, i);
+            buffer.putLong(timeslot.getId());
+            buffer.put((byte) timeslot.getDayOfWeek().ordinal());
+            buffer.putInt(timeslot.getStartTime().toSecondOfDay());
+            buffer.putInt(timeslot.getEndTime().toSecondOfDay());
+        }
+        List<Room> roomList = timeTable.getRoomList();
+        buffer.putInt(roomList.size());
+        for (int i = 0; i < roomList.size(); i++) {
+            Room room = roomList.get(i);
+            factIndexMap.put(room, i);
+            buffer.putLong(room.getId());
+            buffer.put((byte) (room.isAvailable() ? 1 : 0));
+            buffer.putInt(roomTypeIndexes[i]);
+            buffer.putInt(room.getCapacity() == null ? ABSENT : room.getCapacity());
+            putString(buffer, roomNameList.get(i));
+        }
+        List<TeacherUnavailability> teacherUnavailabilityList = timeTable.getTeacherUnavailabilityList();
+        buffer.putInt(teacherUnavailabilityList.size());
+        for (int i = 0; i < teacherUnavailabilityList.size(); i++) {
+            TeacherUnavailability teacherUnavailability = teacherUnavailabilityList.get(i);
+            buffer.putLong(teacherUnavailability.getId());
+            buffer.putInt(unavailableTeacherIndexes[i]);
+            buffer.put((byte) teacherUnavailability.getDayOfWeek().ordinal());
+        }
+
+        List<Lesson> lessonList = timeTable.getLessonList();
+        buffer.putInt(lessonList.size());
+        for (Lesson lesson : lessonList) {
+            buffer.putLong(lesson.getId());
+        }
+        for (int nameIndex : nameIndexes) {
+            buffer.putInt(nameIndex);
+        }
+        for (Lesson lesson : lessonList) {
+            buffer.putInt(factIndexMap.getOrDefault(lesson.getTimeslot(), UNASSIGNED));
+        }
+        for (Lesson lesson : lessonList) {
+            buffer.putInt(factIndexMap.getOrDefault(lesson.getRoom(), UNASSIGNED));
+        }
+        for (Lesson lesson : lessonList) {
+            buffer.putInt(lesson.getStudentCount() == null ? ABSENT : lesson.getStudentCount());
+        }
+        for (Lesson lesson : lessonList) {
+            buffer.put((byte) (lesson.isPinned() ? 1 : 0));
+        }
+    }
+
+    /**
+     * @param buffer never null, positioned at the start of an encoding
+     * @return never null
+     * @throws IllegalArgumentException if the buffer doesn't contain a (complete) encoding of this format version
+     */
+    public static TimeTable decode(ByteBuffer buffer) {
+        try {
+            if (buffer.getInt() != MAGIC) {
+                throw new IllegalArgumentException("The buffer doesn't start with a time table snapshot"
+                        + " of this format version.");
+            }
+            Long tenantId = buffer.getLong();
+            boolean hasScore = buffer.get() != 0;
+            int initScore = buffer.getInt();
+            int hardScore = buffer.getInt();
+            int softScore = buffer.getInt();
+            String[] names = new String[getCount(buffer, STRING_BYTES)];
+            for (int i = 0; i < names.length; i++) {
+                names[i] = getString(buffer);
+            }
+
+            int timeslotCount = getCount(buffer, TIMESLOT_BYTES);
+            List<Timeslot> timeslotList = new ArrayList<>(timeslotCount);
+            for (int i = 0; i < timeslotCount; i++) {
+                timeslotList.add(new Timeslot(buffer.getLong(), tenantId, DayOfWeek.values()[buffer.get()],
+                        LocalTime.ofSecondOfDay(buffer.getInt()), LocalTime.ofSecondOfDay(buffer.getInt())));
+            }
+            int roomCount = getCount(buffer, ROOM_BYTES);
+            List<Room> roomList = new ArrayList<>(roomCount);
+            for (int i = 0; i < roomCount; i++) {
+                long id = buffer.getLong();
+                boolean available = buffer.get() != 0;
+                String roomType = getName(names, buffer.getInt());
+                Integer capacity = getNumber(buffer.getInt());
+                Room room = new Room(id, tenantId, getString(buffer));
+                room.setAvailable(available);
+                room.setRoomType(roomType);
+                room.setCapacity(capacity);
+                roomList.add(room);
+            }
+            int teacherUnavailabilityCount = getCount(buffer, TEACHER_UNAVAILABILITY_BYTES);
+            List<TeacherUnavailability> teacherUnavailabilityList = new ArrayList<>(teacherUnavailabilityCount);
+            for (int i = 0; i < teacherUnavailabilityCount; i++) {
+                teacherUnavailabilityList.add(new TeacherUnavailability(buffer.getLong(), tenantId,
+                        names[buffer.getInt()], DayOfWeek.values()[buffer.get()]));
+            }
+
+            int lessonCount = getCount(buffer, LESSON_BYTES);
+            long[] ids = new long[lessonCount];
+            for (int i = 0; i < lessonCount; i++) {
+                ids[i] = buffer.getLong();
+            }
+            int[] nameIndexes = new int[lessonCount * 4];
+            buffer.asIntBuffer().get(nameIndexes);
+            buffer.position(buffer.position() + nameIndexes.length * Integer.BYTES);
+            int[] timeslotIndexes = new int[lessonCount];
+            buffer.asIntBuffer().get(timeslotIndexes);
+            buffer.position(buffer.position() + lessonCount * Integer.BYTES);
+            int[] roomIndexes = new int[lessonCount];
+            buffer.asIntBuffer().get(roomIndexes);
+            buffer.position(buffer.position() + lessonCount * Integer.BYTES);
+            int[] studentCounts = new int[lessonCount];
+            buffer.asIntBuffer().get(studentCounts);
+            buffer.position(buffer.position() + lessonCount * Integer.BYTES);
+            List<Lesson> lessonList = new ArrayList<>(lessonCount);
+            for (int i = 0; i < lessonCount; i++) {
+                Lesson lesson = new Lesson(ids[i], tenantId,
+                        names[nameIndexes[i * 4]], names[nameIndexes[i * 4 + 1]], names[nameIndexes[i * 4 + 2]],
+                        timeslotIndexes[i] == UNASSIGNED ? null : timeslotList.get(timeslotIndexes[i]),
+                        roomIndexes[i] == UNASSIGNED ? null : roomList.get(roomIndexes[i]));
+                lesson.setRequiredRoomType(getName(names, nameIndexes[i * 4 + 3]));
+                lesson.setStudentCount(getNumber(studentCounts[i]));
+                lesson.setPinned(buffer.get() != 0);
+                lessonList.add(lesson);
+            }
+            TimeTable timeTable = new TimeTable(tenantId, timeslotList, roomList, teacherUnavailabilityList,
+                    lessonList);
+            if (hasScore) {
+                timeTable.setScore(HardSoftScore.ofUninitialized(initScore, hardScore, softScore));
+            }
+            return timeTable;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | DateTimeException e) {
+            throw new IllegalArgumentException("The time table snapshot is truncated or corrupt.", e);
+        }
+    }
+
+    private static int nameIndex(String name, Map<String, Integer> nameIndexMap, List<byte[]> nameList) {
+        if (name == null) {
+            return ABSENT;
+        }
+        return nameIndexMap.computeIfAbsent(name, key -> {
+            nameList.add(key.getBytes(StandardCharsets.UTF_8));
+            return nameList.size() - 1;
+        });
+    }
+
+    private static String getName(String[] names, int nameIndex) {
+        return nameIndex == ABSENT ? null : names[nameIndex];
+    }
+
+    private static Integer getNumber(int number) {
+        return number == ABSENT ? null : number;
+    }
+
+    private static int stringsSize(List<byte[]> stringList) {
+        int size = 0;
+        for (byte[] string : stringList) {
+            size += Integer.BYTES + string.length;
+        }
+        return size;
+    }
+
+    private static void putString(ByteBuffer buffer, byte[] string) {
+        buffer.putInt(string.length);
+        buffer.put(string);
+    }
+
+    private static int getCount(ByteBuffer buffer, int elementBytes) {
+        int count = buffer.getInt();
+        if (count < 0 || count > buffer.remaining() / elementBytes) {
+            throw new IllegalArgumentException("The time table snapshot is corrupt: a count (" + count
+                    + ") doesn't fit in the remaining (" + buffer.remaining() + ") bytes.");
+        }
+        return count;
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        byte[] string = new byte[getCount(buffer, 1)];
+        buffer.get(string);
+        return new String(string, StandardCharsets.UTF_8);
+    }
+
+}
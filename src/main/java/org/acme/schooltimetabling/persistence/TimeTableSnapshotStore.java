@@ -0,0 +1,226 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.acme.schooltimetabling.persistence;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PreDestroy;
+import javax.annotation.Priority;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import javax.interceptor.Interceptor;
+
+import org.acme.schooltimetabling.domain.TimeTable;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.quarkus.runtime.StartupEvent;
+
+/**
+ * Checkpoints the best solution of every running solve to a local, memory-mapped file per tenant
+ * in the {@link TimeTableSnapshot} format, at most once per {@code timeTable.snapshot.interval}.
+ * A solve that ends normally deletes its snapshot, because its final best solution is in the database,
+ * and so does a solve that fails, because its best solutions were already submitted to the database.
+ * So at startup, every snapshot left is the progress of a solve that was cut off by a restart:
+ * it's decoded without the ORM, served from the {@link TimeTableViewCache} and written back to the database.
+ * <p>
+ * Disabled unless {@code timeTable.snapshot.enabled=true}.
+ */
+@ApplicationScoped
+public class TimeTableSnapshotStore {
+
+    private static final Logger LOGGER = Logger.getLogger(TimeTableSnapshotStore.class);
+    private static final String FILE_PREFIX = "tenant-";
+    private static final String FILE_SUFFIX = ".snapshot";
+
+    @ConfigProperty(name = "timeTable.snapshot.enabled", defaultValue = "false")
+    boolean enabled;
+    @ConfigProperty(name = "timeTable.snapshot.directory", defaultValue = "snapshots")
+    String directoryName;
+    @ConfigProperty(name = "timeTable.snapshot.interval", defaultValue = "10s")
+    Duration interval;
+
+    @Inject
+    TimeTableViewCache viewCache;
+    @Inject
+    BestSolutionWriter bestSolutionWriter;
+    @Inject
+    MeterRegistry meterRegistry;
+
+    private final ConcurrentMap<Long, TimeTable> pendingMap = new ConcurrentHashMap<>();
+    // Guarded by this, the tenants whose solve didn't end yet, so a late write doesn't recreate a deleted snapshot
+    private final Set<Long> solvingTenantIdSet = new HashSet<>();
+    private Path directory;
+    private ScheduledExecutorService executorService;
+
+    // After DemoDataGenerator, so the restored assignments aren't overwritten by the demo data
+    public void restoreSnapshots(@Observes @Priority(Interceptor.Priority.LIBRARY_AFTER) StartupEvent startupEvent) {
+        if (!enabled) {
+            return;
+        }
+        directory = Paths.get(directoryName);
+        try {
+            Files.createDirectories(directory);
+            try (DirectoryStream<Path> pathStream
+                    = Files.newDirectoryStream(directory, FILE_PREFIX + "*" + FILE_SUFFIX)) {
+                for (Path path : pathStream) {
+                    // One unreadable snapshot mustn't keep the application from starting
+                    try {
+                        restore(path);
+                    } catch (IOException | RuntimeException e) {
+                        LOGGER.warn("Skipping the snapshot (" + path + "), restoring it failed.", e);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Restoring the snapshots of directory (" + directory + ") failed.", e);
+        }
+        executorService = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "TimeTableSnapshotStore");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executorService.scheduleWithFixedDelay(this::writePending, interval.toMillis(), interval.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stopExecutor() {
+        if (executorService != null) {
+            executorService.shutdownNow();
+            // The latest best solutions, in case the BestSolutionWriter can't write them before the shutdown
+            writePending();
+        }
+    }
+
+    /**
+     * Queues a best solution, replacing any pending one of the same tenant that isn't written yet.
+     * @param timeTable never null, not modified afterwards
+     */
+    public void submit(TimeTable timeTable) {
+        if (!enabled) {
+            return;
+        }
+        synchronized (this) {
+            solvingTenantIdSet.add(timeTable.getTenantId());
+        }
+        pendingMap.put(timeTable.getTenantId(), timeTable);
+    }
+
+    /**
+     * @param tenantId never null, its solve ended and its final best solution is written to the database,
+     * or its solve failed
+     */
+    public synchronized void delete(Long tenantId) {
+        if (!enabled) {
+            return;
+        }
+        solvingTenantIdSet.remove(tenantId);
+        pendingMap.remove(tenantId);
+        try {
+            Files.deleteIfExists(snapshotPath(tenantId));
+        } catch (IOException e) {
+            LOGGER.warn("Deleting the snapshot of tenant (" + tenantId + ") failed.", e);
+        }
+    }
+
+    private void writePending() {
+        for (Long tenantId : pendingMap.keySet()) {
+            TimeTable timeTable = pendingMap.remove(tenantId);
+            if (timeTable != null) {
+                try {
+                    write(timeTable);
+                } catch (IOException | RuntimeException e) {
+                    LOGGER.warn("Writing the snapshot of tenant (" + tenantId + ") failed.", e);
+                }
+            }
+        }
+    }
+
+    private synchronized void write(TimeTable timeTable) throws IOException {
+        Long tenantId = timeTable.getTenantId();
+        if (!solvingTenantIdSet.contains(tenantId)) {
+            return;
+        }
+        String tenantTag = tenantId.toString();
+        Timer.Sample sample = Timer.start(meterRegistry);
+        Path path = snapshotPath(tenantId);
+        Path temporaryPath = path.resolveSibling(path.getFileName() + ".tmp");
+        int size;
+        try (FileChannel channel = FileChannel.open(temporaryPath, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = TimeTableSnapshot.encode(timeTable, encodedSize -> {
+                try {
+                    return channel.map(FileChannel.MapMode.READ_WRITE, 0L, encodedSize);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            ((MappedByteBuffer) buffer).force();
+            size = buffer.limit();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        // A crash during the write leaves the previous snapshot intact
+        Files.move(temporaryPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        sample.stop(meterRegistry.timer("timetable.snapshot.write", "tenantId", tenantTag));
+        meterRegistry.summary("timetable.snapshot.bytes", "tenantId", tenantTag).record(size);
+    }
+
+    private void restore(Path path) throws IOException {
+        TimeTable timeTable;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            timeTable = TimeTableSnapshot.decode(channel.map(FileChannel.MapMode.READ_ONLY, 0L, channel.size()));
+        } catch (IllegalArgumentException e) {
+            LOGGER.warn("Ignoring the snapshot (" + path + ").", e);
+            Files.delete(path);
+            return;
+        }
+        LOGGER.info("Restoring the best solution of tenant (" + timeTable.getTenantId() + ") with score ("
+                + timeTable.getScore() + ") from its snapshot.");
+        viewCache.put(timeTable);
+        // Blocks until it's in the database, so the snapshot is no longer needed
+        bestSolutionWriter.submitFinal(timeTable);
+        Files.delete(path);
+    }
+
+    private Path snapshotPath(Long tenantId) {
+        return directory.resolve(FILE_PREFIX + tenantId + FILE_SUFFIX);
+    }
+
+}
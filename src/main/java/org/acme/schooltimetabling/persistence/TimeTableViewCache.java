@@ -0,0 +1,147 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.acme.schooltimetabling.persistence;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+
+import org.acme.schooltimetabling.domain.TimeTable;
+import org.optaplanner.core.api.solver.SolverStatus;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * The latest scored {@link TimeTable} of each tenant, as shown to the users.
+ * Fed by the solver's best solutions and dropped when a tenant's problem facts or lessons change in the database,
+ * so a read doesn't need a database round trip nor a score calculation.
+ */
+@ApplicationScoped
+public class TimeTableViewCache {
+
+    // Distinguishes the versions of this run from those handed out before a restart
+    private static final String EPOCH = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+
+    @Inject
+    TransactionSynchronizationRegistry transactionSynchronizationRegistry;
+    @Inject
+    MeterRegistry meterRegistry;
+
+    private final AtomicLong versionSequence = new AtomicLong();
+    private final ConcurrentMap<Long, View> viewMap = new ConcurrentHashMap<>();
+    // Detects a load that raced with an invalidation, so it isn't cached
+    private final ConcurrentMap<Long, AtomicLong> invalidationCountMap = new ConcurrentHashMap<>();
+
+    /**
+     * @param tenantId never null
+     * @param loader loads and scores the time table of a tenant, called on a cache miss
+     * @return never null
+     */
+    public View getOrLoad(Long tenantId, Function<Long, TimeTable> loader) {
+        View view = viewMap.get(tenantId);
+        if (view != null) {
+            meterRegistry.counter("timetable.view.hits").increment();
+            return view;
+        }
+        meterRegistry.counter("timetable.view.misses").increment();
+        long invalidationCount = invalidationCount(tenantId).get();
+        View loadedView = new View(loader.apply(tenantId), nextVersion());
+        View cachedView = viewMap.compute(tenantId, (key, existingView) -> {
+            if (existingView != null) {
+                return existingView;
+            }
+            return invalidationCount(tenantId).get() == invalidationCount ? loadedView : null;
+        });
+        return cachedView == null ? loadedView : cachedView;
+    }
+
+    /**
+     * @param timeTable never null, a best solution that already has a score and isn't modified afterwards
+     */
+    public void put(TimeTable timeTable) {
+        viewMap.put(timeTable.getTenantId(), new View(timeTable, nextVersion()));
+    }
+
+    public void invalidate(Long tenantId) {
+        invalidationCount(tenantId).incrementAndGet();
+        viewMap.remove(tenantId);
+    }
+
+    /**
+     * Invalidates now and again once the current transaction (if any) completes,
+     * so a read that loaded the uncommitted state in between isn't kept.
+     * @param tenantId never null
+     */
+    public void invalidateOnCompletion(Long tenantId) {
+        invalidate(tenantId);
+        if (transactionSynchronizationRegistry.getTransactionStatus() == Status.STATUS_ACTIVE) {
+            transactionSynchronizationRegistry.registerInterposedSynchronization(new Synchronization() {
+                @Override
+                public void beforeCompletion() {
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    invalidate(tenantId);
+                }
+            });
+        }
+    }
+
+    private AtomicLong invalidationCount(Long tenantId) {
+        return invalidationCountMap.computeIfAbsent(tenantId, key -> new AtomicLong());
+    }
+
+    private String nextVersion() {
+        return EPOCH + "-" + versionSequence.incrementAndGet();
+    }
+
+    public static final class View {
+
+        private final TimeTable timeTable;
+        private final String version;
+
+        private View(TimeTable timeTable, String version) {
+            this.timeTable = timeTable;
+            this.version = version;
+        }
+
+        /**
+         * @return changes every time the time table changes
+         */
+        public String getVersion() {
+            return version;
+        }
+
+        /**
+         * @param solverStatus never null
+         * @return never null, a shallow copy because the cached instance is shared between readers
+         */
+        public TimeTable toTimeTable(SolverStatus solverStatus) {
+            return timeTable.withSolverStatus(solverStatus);
+        }
+
+    }
+
+}
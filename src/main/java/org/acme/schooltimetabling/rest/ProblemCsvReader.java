@@ -0,0 +1,144 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.acme.schooltimetabling.rest;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.ws.rs.BadRequestException;
+
+import org.acme.schooltimetabling.persistence.TimeTableBulkInserter;
+
+/**
+ * Reads a problem with one row per line, such as
+ * <pre>
+ * timeslot,MONDAY,08:30,09:30
+ * room,Room A
+ * room,Lab 1,Lab,24
+ * teacherUnavailability,A. Turing,FRIDAY
+ * lesson,Math,A. Turing,"9th grade, group 1"
+ * lesson,Chemistry,M. Curie,"9th grade, group 1",Lab,22
+ * </pre>
+ * where a room's room type and capacity and a lesson's required room type and student count are optional.
+ * line by line, so only one row is in memory at a time.
+ * A field with a comma or a double quote is quoted, with double quotes doubled. It can't span lines.
+ * Blank lines and lines starting with {@code #} are skipped.
+ */
+public class ProblemCsvReader implements TimeTableBulkInserter.ProblemReader {
+
+    private final InputStream inputStream;
+
+    public ProblemCsvReader(InputStream inputStream) {
+        this.inputStream = inputStream;
+    }
+
+    @Override
+    public void read(TimeTableBulkInserter.ProblemSink sink) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+        List<String> fieldList = new ArrayList<>(4);
+        int lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank() || line.startsWith("#")) {
+                continue;
+            }
+            fieldList.clear();
+            splitFields(line, lineNumber, fieldList);
+            String rowType = fieldList.get(0).trim();
+            switch (rowType) {
+                case "timeslot":
+                    expectFieldCount(fieldList, 4, 4, lineNumber);
+                    sink.addTimeslot(ProblemJsonReader.parseDayOfWeek(fieldList.get(1).trim()),
+                            ProblemJsonReader.parseTime(fieldList.get(2).trim()),
+                            ProblemJsonReader.parseTime(fieldList.get(3).trim()));
+                    break;
+                case "room":
+                    expectFieldCount(fieldList, 2, 4, lineNumber);
+                    sink.addRoom(ProblemJsonReader.requireText(fieldList.get(1), "room", "name"),
+                            ProblemJsonReader.optionalText(optionalField(fieldList, 2)),
+                            ProblemJsonReader.parseCount(optionalField(fieldList, 3), "capacity"));
+                    break;
+                case "teacherUnavailability":
+                    expectFieldCount(fieldList, 3, 3, lineNumber);
+                    sink.addTeacherUnavailability(
+                            ProblemJsonReader.requireText(fieldList.get(1), "teacher unavailability", "teacher"),
+                            ProblemJsonReader.parseDayOfWeek(fieldList.get(2).trim()));
+                    break;
+                case "lesson":
+                    expectFieldCount(fieldList, 4, 6, lineNumber);
+                    sink.addLesson(ProblemJsonReader.requireText(fieldList.get(1), "lesson", "subject"),
+                            ProblemJsonReader.requireText(fieldList.get(2), "lesson", "teacher"),
+                            ProblemJsonReader.requireText(fieldList.get(3), "lesson", "studentGroup"),
+                            ProblemJsonReader.optionalText(optionalField(fieldList, 4)),
+                            ProblemJsonReader.parseCount(optionalField(fieldList, 5), "studentCount"));
+                    break;
+                default:
+                    throw new BadRequestException("Line " + lineNumber + " has an unknown row type (" + rowType
+                            + "), expected timeslot, room, teacherUnavailability or lesson.");
+            }
+        }
+    }
+
+    private static void splitFields(String line, int lineNumber, List<String> fieldList) {
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == ',') {
+                fieldList.add(field.toString());
+                field.setLength(0);
+            } else if (c == '"' && field.length() == 0) {
+                quoted = true;
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new BadRequestException("Line " + lineNumber + " has an unclosed quote.");
+        }
+        fieldList.add(field.toString());
+    }
+
+    private static void expectFieldCount(List<String> fieldList, int minFieldCount, int maxFieldCount,
+            int lineNumber) {
+        if (fieldList.size() < minFieldCount || fieldList.size() > maxFieldCount) {
+            throw new BadRequestException("Line " + lineNumber + " has " + fieldList.size() + " fields instead of "
+                    + (minFieldCount == maxFieldCount ? minFieldCount : minFieldCount + " to " + maxFieldCount)
+                    + ".");
+        }
+    }
+
+    private static String optionalField(List<String> fieldList, int index) {
+        return index < fieldList.size() ? fieldList.get(index) : null;
+    }
+
+}
@@ -0,0 +1,251 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.acme.schooltimetabling.rest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+
+import javax.ws.rs.BadRequestException;
+
+import org.acme.schooltimetabling.persistence.TimeTableBulkInserter;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Reads a problem such as
+ * {@code {"timeslots":[{"dayOfWeek":"MONDAY","startTime":"08:30","endTime":"09:30"}],"rooms":[{"name":"Room A"}],
+ * "teacherUnavailabilities":[{"teacher":"A. Turing","dayOfWeek":"FRIDAY"}],
+ * "lessons":[{"subject":"Math","teacher":"A. Turing","studentGroup":"9th grade"}]}}
+ * token by token, so only one row is in memory at a time. Other fields are ignored.
+ * A room may also have a {@code roomType} and a {@code capacity},
+ * a lesson a {@code requiredRoomType} and a {@code studentCount}.
+ */
+public class ProblemJsonReader implements TimeTableBulkInserter.ProblemReader {
+
+    private final JsonFactory jsonFactory;
+    private final InputStream inputStream;
+
+    public ProblemJsonReader(JsonFactory jsonFactory, InputStream inputStream) {
+        this.jsonFactory = jsonFactory;
+        this.inputStream = inputStream;
+    }
+
+    @Override
+    public void read(TimeTableBulkInserter.ProblemSink sink) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(inputStream)) {
+            expect(parser, parser.nextToken(), JsonToken.START_OBJECT);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String fieldName = parser.getCurrentName();
+                JsonToken valueToken = parser.nextToken();
+                switch (fieldName) {
+                    case "timeslots":
+                        readArray(parser, valueToken, () -> readTimeslot(parser, sink));
+                        break;
+                    case "rooms":
+                        readArray(parser, valueToken, () -> readRoom(parser, sink));
+                        break;
+                    case "teacherUnavailabilities":
+                        readArray(parser, valueToken, () -> readTeacherUnavailability(parser, sink));
+                        break;
+                    case "lessons":
+                        readArray(parser, valueToken, () -> readLesson(parser, sink));
+                        break;
+                    default:
+                        parser.skipChildren();
+                }
+            }
+            expect(parser, parser.currentToken(), JsonToken.END_OBJECT);
+        } catch (JsonProcessingException e) {
+            throw new BadRequestException("The problem isn't valid JSON: " + e.getOriginalMessage(), e);
+        }
+    }
+
+    private void readArray(JsonParser parser, JsonToken token, ElementReader elementReader) throws IOException {
+        expect(parser, token, JsonToken.START_ARRAY);
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            expect(parser, parser.currentToken(), JsonToken.START_OBJECT);
+            elementReader.read();
+        }
+    }
+
+    private void readTimeslot(JsonParser parser, TimeTableBulkInserter.ProblemSink sink) throws IOException {
+        String dayOfWeek = null;
+        String startTime = null;
+        String endTime = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = parser.getCurrentName();
+            parser.nextToken();
+            switch (fieldName) {
+                case "dayOfWeek":
+                    dayOfWeek = parser.getValueAsString();
+                    break;
+                case "startTime":
+                    startTime = parser.getValueAsString();
+                    break;
+                case "endTime":
+                    endTime = parser.getValueAsString();
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        sink.addTimeslot(parseDayOfWeek(dayOfWeek), parseTime(startTime), parseTime(endTime));
+    }
+
+    private void readRoom(JsonParser parser, TimeTableBulkInserter.ProblemSink sink) throws IOException {
+        String name = null;
+        String roomType = null;
+        String capacity = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = parser.getCurrentName();
+            parser.nextToken();
+            switch (fieldName) {
+                case "name":
+                    name = parser.getValueAsString();
+                    break;
+                case "roomType":
+                    roomType = parser.getValueAsString();
+                    break;
+                case "capacity":
+                    capacity = parser.getValueAsString();
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        sink.addRoom(requireText(name, "room", "name"), optionalText(roomType), parseCount(capacity, "capacity"));
+    }
+
+    private void readTeacherUnavailability(JsonParser parser, TimeTableBulkInserter.ProblemSink sink)
+            throws IOException {
+        String teacher = null;
+        String dayOfWeek = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = parser.getCurrentName();
+            parser.nextToken();
+            switch (fieldName) {
+                case "teacher":
+                    teacher = parser.getValueAsString();
+                    break;
+                case "dayOfWeek":
+                    dayOfWeek = parser.getValueAsString();
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        sink.addTeacherUnavailability(requireText(teacher, "teacher unavailability", "teacher"),
+                parseDayOfWeek(requireText(dayOfWeek, "teacher unavailability", "dayOfWeek")));
+    }
+
+    private void readLesson(JsonParser parser, TimeTableBulkInserter.ProblemSink sink) throws IOException {
+        String subject = null;
+        String teacher = null;
+        String studentGroup = null;
+        String requiredRoomType = null;
+        String studentCount = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = parser.getCurrentName();
+            parser.nextToken();
+            switch (fieldName) {
+                case "subject":
+                    subject = parser.getValueAsString();
+                    break;
+                case "teacher":
+                    teacher = parser.getValueAsString();
+                    break;
+                case "studentGroup":
+                    studentGroup = parser.getValueAsString();
+                    break;
+                case "requiredRoomType":
+                    requiredRoomType = parser.getValueAsString();
+                    break;
+                case "studentCount":
+                    studentCount = parser.getValueAsString();
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        sink.addLesson(requireText(subject, "lesson", "subject"), requireText(teacher, "lesson", "teacher"),
+                requireText(studentGroup, "lesson", "studentGroup"), optionalText(requiredRoomType),
+                parseCount(studentCount, "studentCount"));
+    }
+
+    private static void expect(JsonParser parser, JsonToken token, JsonToken expectedToken) {
+        if (token != expectedToken) {
+            throw new BadRequestException("Expected " + expectedToken + " but found " + token
+                    + " at " + parser.getCurrentLocation() + ".");
+        }
+    }
+
+    static DayOfWeek parseDayOfWeek(String text) {
+        try {
+            return DayOfWeek.valueOf(requireText(text, "timeslot", "dayOfWeek"));
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("The dayOfWeek (" + text + ") isn't a day of the week, like MONDAY.");
+        }
+    }
+
+    static LocalTime parseTime(String text) {
+        try {
+            return LocalTime.parse(requireText(text, "timeslot", "startTime and endTime"));
+        } catch (DateTimeParseException e) {
+            throw new BadRequestException("The time (" + text + ") isn't a time, like 08:30.");
+        }
+    }
+
+    static String requireText(String text, String rowName, String fieldName) {
+        if (text == null || text.isBlank()) {
+            throw new BadRequestException("A " + rowName + " needs a " + fieldName + ".");
+        }
+        return text;
+    }
+
+    static String optionalText(String text) {
+        return text == null || text.isBlank() ? null : text;
+    }
+
+    static Integer parseCount(String text, String fieldName) {
+        if (text == null || text.isBlank()) {
+            return null;
+        }
+        try {
+            int count = Integer.parseInt(text.trim());
+            if (count >= 0) {
+                return count;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        throw new BadRequestException("The " + fieldName + " (" + text + ") isn't a number of students, like 30.");
+    }
+
+    @FunctionalInterface
+    private interface ElementReader {
+
+        void read() throws IOException;
+
+    }
+
+}
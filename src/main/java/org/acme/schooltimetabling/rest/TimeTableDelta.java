@@ -0,0 +1,59 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.acme.schooltimetabling.rest;
+
+import java.util.List;
+
+import org.acme.schooltimetabling.domain.LessonAssignment;
+import org.optaplanner.core.api.score.buildin.hardsoft.HardSoftScore;
+
+/**
+ * The changes of a best solution compared to the previous event sent to the same tenant's listeners.
+ */
+public class TimeTableDelta {
+
+    private Long tenantId;
+    private HardSoftScore score;
+    private List<LessonAssignment> lessonAssignmentList;
+
+    // No-arg constructor required for Jackson
+    public TimeTableDelta() {
+    }
+
+    public TimeTableDelta(Long tenantId, HardSoftScore score, List<LessonAssignment> lessonAssignmentList) {
+        this.tenantId = tenantId;
+        this.score = score;
+        this.lessonAssignmentList = lessonAssignmentList;
+    }
+
+    // ************************************************************************
+    // Getters and setters
+    // ************************************************************************
+
+    public Long getTenantId() {
+        return tenantId;
+    }
+
+    public HardSoftScore getScore() {
+        return score;
+    }
+
+    public List<LessonAssignment> getLessonAssignmentList() {
+        return lessonAssignmentList;
+    }
+
+}
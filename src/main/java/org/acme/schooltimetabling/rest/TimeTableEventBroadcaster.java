@@ -0,0 +1,278 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.acme.schooltimetabling.rest;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.sse.OutboundSseEvent;
+import javax.ws.rs.sse.Sse;
+import javax.ws.rs.sse.SseBroadcaster;
+import javax.ws.rs.sse.SseEventSink;
+
+import org.acme.schooltimetabling.domain.Lesson;
+import org.acme.schooltimetabling.domain.LessonAssignment;
+import org.acme.schooltimetabling.domain.TimeTable;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.optaplanner.core.api.solver.SolverStatus;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Pushes the best solutions of a tenant to its server-sent event listeners.
+ * A {@code keyframe} event carries the whole {@link TimeTable},
+ * a {@code delta} event only the score and the lessons that moved since the previous event (a {@link TimeTableDelta}).
+ * Events are sent at most once per {@code timeTable.events.min-interval}, the newest best solution wins,
+ * and every {@code timeTable.events.keyframe-interval} events is a keyframe so listeners resynchronize.
+ */
+@ApplicationScoped
+public class TimeTableEventBroadcaster {
+
+    public static final String KEYFRAME_EVENT_NAME = "keyframe";
+    public static final String DELTA_EVENT_NAME = "delta";
+
+    @ConfigProperty(name = "timeTable.events.min-interval", defaultValue = "250ms")
+    Duration minInterval;
+    @ConfigProperty(name = "timeTable.events.keyframe-interval", defaultValue = "20")
+    int keyframeInterval;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    private final ConcurrentMap<Long, Channel> channelMap = new ConcurrentHashMap<>();
+    private ScheduledExecutorService executorService;
+
+    @PostConstruct
+    void startExecutor() {
+        executorService = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "TimeTableEventBroadcaster");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void stopExecutor() {
+        executorService.shutdownNow();
+        for (Channel channel : channelMap.values()) {
+            channel.close();
+        }
+    }
+
+    /**
+     * @param tenantId never null
+     * @param eventSink never null
+     * @param sse never null
+     * @param currentTimeTable never null, sent as the first keyframe unless a solver already published a newer one
+     */
+    public void register(Long tenantId, SseEventSink eventSink, Sse sse, TimeTable currentTimeTable) {
+        channelMap.computeIfAbsent(tenantId, Channel::new).register(eventSink, sse, currentTimeTable);
+    }
+
+    /**
+     * @param timeTable never null, a best solution that isn't modified afterwards
+     */
+    public void publish(TimeTable timeTable) {
+        Channel channel = channelMap.get(timeTable.getTenantId());
+        if (channel != null) {
+            channel.publish(timeTable);
+        }
+    }
+
+    /**
+     * @param timeTable never null, the final best solution of a solve
+     */
+    public void publishFinal(TimeTable timeTable) {
+        Channel channel = channelMap.get(timeTable.getTenantId());
+        if (channel != null) {
+            channel.publishFinal(timeTable);
+        }
+    }
+
+    private final class Channel {
+
+        private final Long tenantId;
+
+        // Guarded by this
+        private Sse sse = null;
+        private SseBroadcaster broadcaster = null;
+        // A sink that fails and then closes is reported twice, so it's removed only once
+        private final Set<SseEventSink> eventSinkSet = new HashSet<>();
+        private long eventId = 0L;
+        private TimeTable lastSentTimeTable = null;
+        private Map<Long, LessonAssignment> lastSentAssignmentMap = null;
+        private int eventCountSinceKeyframe = 0;
+        private long lastSentNanos = 0L;
+        private TimeTable pendingTimeTable = null;
+        private boolean flushScheduled = false;
+
+        private Channel(Long tenantId) {
+            this.tenantId = tenantId;
+        }
+
+        private synchronized void register(SseEventSink eventSink, Sse sse, TimeTable currentTimeTable) {
+            if (broadcaster == null) {
+                this.sse = sse;
+                broadcaster = sse.newBroadcaster();
+                broadcaster.onClose(this::unregister);
+                broadcaster.onError((failedEventSink, throwable) -> unregister(failedEventSink));
+            }
+            broadcaster.register(eventSink);
+            eventSinkSet.add(eventSink);
+            TimeTable keyframeTimeTable = lastSentTimeTable == null ? currentTimeTable
+                    : lastSentTimeTable.withSolverStatus(SolverStatus.SOLVING_ACTIVE);
+            eventSink.send(buildKeyframeEvent(keyframeTimeTable));
+        }
+
+        private synchronized void unregister(SseEventSink eventSink) {
+            if (eventSinkSet.remove(eventSink) && eventSinkSet.isEmpty()) {
+                // Nobody listens, so the next listener starts from a keyframe anyway
+                lastSentTimeTable = null;
+                lastSentAssignmentMap = null;
+                pendingTimeTable = null;
+            }
+        }
+
+        private synchronized void publish(TimeTable timeTable) {
+            if (eventSinkSet.isEmpty()) {
+                return;
+            }
+            pendingTimeTable = timeTable;
+            if (flushScheduled) {
+                return;
+            }
+            long delayNanos = Math.max(0L, lastSentNanos + minInterval.toNanos() - System.nanoTime());
+            try {
+                executorService.schedule(this::flush, delayNanos, TimeUnit.NANOSECONDS);
+                flushScheduled = true;
+            } catch (RejectedExecutionException e) { // The application is shutting down
+                pendingTimeTable = null;
+            }
+        }
+
+        private synchronized void flush() {
+            flushScheduled = false;
+            TimeTable timeTable = pendingTimeTable;
+            if (timeTable == null || eventSinkSet.isEmpty()) {
+                return;
+            }
+            pendingTimeTable = null;
+            OutboundSseEvent event;
+            // A delta can't remove lessons, so a lesson added or removed during the solve needs a keyframe
+            if (lastSentAssignmentMap == null || eventCountSinceKeyframe >= keyframeInterval
+                    || !hasSameLessons(timeTable)) {
+                event = buildKeyframeEvent(timeTable.withSolverStatus(SolverStatus.SOLVING_ACTIVE));
+            } else {
+                event = buildDeltaEvent(timeTable);
+            }
+            send(timeTable, event);
+        }
+
+        private synchronized void publishFinal(TimeTable timeTable) {
+            pendingTimeTable = null;
+            if (eventSinkSet.isEmpty()) {
+                return;
+            }
+            send(timeTable, buildKeyframeEvent(timeTable.withSolverStatus(SolverStatus.NOT_SOLVING)));
+            // The next solve starts from a keyframe
+            lastSentTimeTable = null;
+            lastSentAssignmentMap = null;
+        }
+
+        private boolean hasSameLessons(TimeTable timeTable) {
+            List<Lesson> lessonList = timeTable.getLessonList();
+            if (lessonList.size() != lastSentAssignmentMap.size()) {
+                return false;
+            }
+            for (Lesson lesson : lessonList) {
+                if (!lastSentAssignmentMap.containsKey(lesson.getId())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void send(TimeTable timeTable, OutboundSseEvent event) {
+            broadcaster.broadcast(event);
+            lastSentTimeTable = timeTable;
+            lastSentNanos = System.nanoTime();
+        }
+
+        private OutboundSseEvent buildKeyframeEvent(TimeTable timeTable) {
+            Map<Long, LessonAssignment> assignmentMap = new HashMap<>(timeTable.getLessonList().size());
+            for (Lesson lesson : timeTable.getLessonList()) {
+                assignmentMap.put(lesson.getId(), LessonAssignment.of(lesson));
+            }
+            lastSentAssignmentMap = assignmentMap;
+            eventCountSinceKeyframe = 0;
+            meterRegistry.counter("timetable.events", "tenantId", tenantId.toString(), "type", KEYFRAME_EVENT_NAME)
+                    .increment();
+            return sse.newEventBuilder()
+                    .id(Long.toString(++eventId))
+                    .name(KEYFRAME_EVENT_NAME)
+                    .mediaType(MediaType.APPLICATION_JSON_TYPE)
+                    .data(TimeTable.class, timeTable)
+                    .build();
+        }
+
+        private OutboundSseEvent buildDeltaEvent(TimeTable timeTable) {
+            List<LessonAssignment> changedList = new ArrayList<>();
+            for (Lesson lesson : timeTable.getLessonList()) {
+                LessonAssignment lastSent = lastSentAssignmentMap.get(lesson.getId());
+                if (lastSent == null || !lastSent.matches(lesson)) {
+                    LessonAssignment assignment = LessonAssignment.of(lesson);
+                    lastSentAssignmentMap.put(lesson.getId(), assignment);
+                    changedList.add(assignment);
+                }
+            }
+            eventCountSinceKeyframe++;
+            String tenantTag = tenantId.toString();
+            meterRegistry.counter("timetable.events", "tenantId", tenantTag, "type", DELTA_EVENT_NAME).increment();
+            meterRegistry.summary("timetable.events.delta.lessons", "tenantId", tenantTag).record(changedList.size());
+            return sse.newEventBuilder()
+                    .id(Long.toString(++eventId))
+                    .name(DELTA_EVENT_NAME)
+                    .mediaType(MediaType.APPLICATION_JSON_TYPE)
+                    .data(TimeTableDelta.class, new TimeTableDelta(tenantId, timeTable.getScore(), changedList))
+                    .build();
+        }
+
+        private synchronized void close() {
+            if (broadcaster != null) {
+                broadcaster.close();
+            }
+        }
+
+    }
+
+}
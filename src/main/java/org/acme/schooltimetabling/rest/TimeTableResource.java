@@ -16,87 +16,621 @@
 
 package org.acme.schooltimetabling.rest;
 
+import java.io.InputStream;
+import java.net.http.HttpResponse;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.TemporalAdjusters;
+
 import javax.inject.Inject;
 import javax.transaction.Transactional;
+import javax.ws.rs.BadRequestException;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.DELETE;
 import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
+import javax.ws.rs.HttpMethod;
 import javax.ws.rs.POST;
+import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.CacheControl;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import javax.ws.rs.sse.Sse;
+import javax.ws.rs.sse.SseEventSink;
 
 import org.acme.schooltimetabling.domain.Lesson;
+import org.acme.schooltimetabling.domain.RollingHorizon;
+import org.acme.schooltimetabling.domain.Room;
 import org.acme.schooltimetabling.domain.TimeTable;
+import org.acme.schooltimetabling.persistence.BestSolutionWriter;
+import org.acme.schooltimetabling.persistence.LessonAssignmentRepository;
 import org.acme.schooltimetabling.persistence.LessonRepository;
 import org.acme.schooltimetabling.persistence.RoomRepository;
-import org.acme.schooltimetabling.persistence.TimeslotRepository;
+import org.acme.schooltimetabling.persistence.TenantPageStreamer;
+import org.acme.schooltimetabling.persistence.TimeTableBulkInserter;
+import org.acme.schooltimetabling.persistence.TimeTableExporter;
+import org.acme.schooltimetabling.persistence.TimeTableRepository;
+import org.acme.schooltimetabling.persistence.TimeTableSnapshotStore;
+import org.acme.schooltimetabling.persistence.TimeTableViewCache;
+import org.acme.schooltimetabling.solver.AddLessonChange;
+import org.acme.schooltimetabling.solver.ConstraintMetrics;
+import org.acme.schooltimetabling.solver.LiveSolverRegistry;
+import org.acme.schooltimetabling.solver.PinLessonChange;
+import org.acme.schooltimetabling.solver.ProblemImportInProgressException;
+import org.acme.schooltimetabling.solver.RemoveLessonChange;
+import org.acme.schooltimetabling.solver.RoomAvailabilityChange;
+import org.acme.schooltimetabling.solver.SolveMode;
+import org.acme.schooltimetabling.solver.SolverCoordinator;
+import org.acme.schooltimetabling.solver.SolverNodeUnavailableException;
+import org.acme.schooltimetabling.solver.SolverQueueFullException;
+import org.acme.schooltimetabling.solver.SolverScheduler;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
 import org.optaplanner.core.api.score.ScoreManager;
 import org.optaplanner.core.api.score.buildin.hardsoft.HardSoftScore;
-import org.optaplanner.core.api.solver.SolverManager;
 import org.optaplanner.core.api.solver.SolverStatus;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
 import io.quarkus.panache.common.Sort;
 
 @Path("timeTable/{tenantId}")
 public class TimeTableResource {
+
+    private static final Logger LOGGER = Logger.getLogger(TimeTableResource.class);
+    private static final int RETRY_AFTER_SECONDS = 5;
+    private static final String CSV_MEDIA_TYPE = "text/csv";
+    private static final String ICALENDAR_MEDIA_TYPE = "text/calendar";
+
+    @ConfigProperty(name = "timeTable.warm-start.min-assigned-ratio", defaultValue = "0.8")
+    double warmStartMinAssignedRatio;
+    @ConfigProperty(name = "timeTable.partitioning.min-lesson-count", defaultValue = "0")
+    long partitioningMinLessonCount;
+    @ConfigProperty(name = "timeTable.rolling-horizon.day-count", defaultValue = "0")
+    int rollingHorizonDayCount;
+    @ConfigProperty(name = "timeTable.page.default-limit", defaultValue = "1000")
+    int defaultPageLimit;
+    @ConfigProperty(name = "timeTable.page.max-limit", defaultValue = "10000")
+    int maxPageLimit;
+
     @Inject
-    TimeslotRepository timeslotRepository;
+    TimeTableRepository timeTableRepository;
     @Inject
     RoomRepository roomRepository;
     @Inject
     LessonRepository lessonRepository;
+    @Inject
+    LessonAssignmentRepository lessonAssignmentRepository;
+    @Inject
+    BestSolutionWriter bestSolutionWriter;
+    @Inject
+    TimeTableViewCache timeTableViewCache;
+    @Inject
+    TimeTableSnapshotStore timeTableSnapshotStore;
+    @Inject
+    TenantPageStreamer tenantPageStreamer;
+    @Inject
+    TimeTableBulkInserter timeTableBulkInserter;
+    @Inject
+    TimeTableExporter timeTableExporter;
+    @Inject
+    ObjectMapper objectMapper;
+    @Inject
+    TimeTableEventBroadcaster timeTableEventBroadcaster;
+    @Inject
+    ConstraintMetrics constraintMetrics;
 
     @Inject
-    SolverManager<TimeTable, Long> solverManager;
+    SolverScheduler solverScheduler;
+    @Inject
+    SolverCoordinator solverCoordinator;
+    @Inject
+    LiveSolverRegistry liveSolverRegistry;
     @Inject
     ScoreManager<TimeTable, HardSoftScore> scoreManager;
 
     // To try, open http://localhost:8080/timeTable/1
     @GET
-    public TimeTable getTimeTable(@PathParam("tenantId") Long tenantId) {
+    public Response getTimeTable(@PathParam("tenantId") Long tenantId, @Context Request request) {
         // Get the solver status before loading the solution
         // to avoid the race condition that the solver terminates between them
         SolverStatus solverStatus = getSolverStatus(tenantId);
-        TimeTable solution = findById(tenantId);
-        scoreManager.updateScore(solution); // Sets the score
-        solution.setSolverStatus(solverStatus);
-        return solution;
+        TimeTableViewCache.View view = timeTableViewCache.getOrLoad(tenantId, this::findByIdWithScore);
+        EntityTag entityTag = new EntityTag(view.getVersion() + "-" + solverStatus);
+        CacheControl cacheControl = new CacheControl();
+        cacheControl.setNoCache(true); // Cacheable, but revalidate with If-None-Match every time
+        Response.ResponseBuilder notModifiedBuilder = request.evaluatePreconditions(entityTag);
+        if (notModifiedBuilder != null) {
+            return notModifiedBuilder.cacheControl(cacheControl).build();
+        }
+        return Response.ok(view.toTimeTable(solverStatus))
+                .tag(entityTag)
+                .cacheControl(cacheControl)
+                .build();
+    }
+
+    public TimeTable getTimeTable(Long tenantId) {
+        SolverStatus solverStatus = getSolverStatus(tenantId);
+        return timeTableViewCache.getOrLoad(tenantId, this::findByIdWithScore).toTimeTable(solverStatus);
+    }
+
+    // To try, run: curl -N http://localhost:8080/timeTable/1/events
+    @GET
+    @Path("events")
+    @Produces(MediaType.SERVER_SENT_EVENTS)
+    public void listenToEvents(@PathParam("tenantId") Long tenantId,
+            @Context SseEventSink eventSink, @Context Sse sse) {
+        timeTableEventBroadcaster.register(tenantId, eventSink, sse, getTimeTable(tenantId));
     }
 
     @POST
     @Path("solve")
-    public void solve(@PathParam("tenantId") Long tenantId) {
-        solverManager.solveAndListen(tenantId,
-                this::findById,
-                this::save);
+    public Response solve(@PathParam("tenantId") Long tenantId,
+            @HeaderParam(SolverCoordinator.FORWARDED_HEADER) String forwardedHeader) {
+        String ownerUrl = getRemoteOwnerUrl(tenantId, forwardedHeader);
+        if (ownerUrl != null) {
+            return forward(ownerUrl, tenantId, "solve", HttpMethod.POST, "solve", null);
+        }
+        // The writer coalesces the burst of best solutions, so the solver thread never waits on the database
+        try {
+            solverScheduler.submit(tenantId, chooseSolveMode(tenantId),
+                    this::findByIdForSolving,
+                    timeTable -> {
+                        timeTableViewCache.put(timeTable);
+                        timeTableEventBroadcaster.publish(timeTable);
+                        bestSolutionWriter.submit(timeTable);
+                        timeTableSnapshotStore.submit(timeTable);
+                        constraintMetrics.submit(timeTable);
+                    },
+                    timeTable -> {
+                        timeTableViewCache.put(timeTable);
+                        bestSolutionWriter.submitFinal(timeTable);
+                        timeTableSnapshotStore.delete(timeTable.getTenantId());
+                        timeTableEventBroadcaster.publishFinal(timeTable);
+                        constraintMetrics.submit(timeTable);
+                    },
+                    (problemId, throwable) -> {
+                        // Otherwise the next startup would restore a failed solve over the saved solution
+                        timeTableSnapshotStore.delete(problemId);
+                        LOGGER.error("Solving tenant (" + problemId + ") failed.", throwable);
+                    });
+        } catch (SolverQueueFullException e) {
+            return Response.status(Response.Status.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS)
+                    .entity(e.getMessage())
+                    .build();
+        } catch (ProblemImportInProgressException e) {
+            return Response.status(Response.Status.CONFLICT)
+                    .entity(e.getMessage())
+                    .build();
+        }
+        return Response.accepted().build();
+    }
+
+    public Response solve(Long tenantId) {
+        return solve(tenantId, null);
     }
 
     public SolverStatus getSolverStatus(Long tenantId) {
-        return solverManager.getSolverStatus(tenantId);
+        String ownerUrl = solverCoordinator.getRemoteOwnerUrl(tenantId);
+        if (ownerUrl != null) {
+            try {
+                return solverCoordinator.getRemoteSolverStatus(ownerUrl, tenantId);
+            } catch (SolverNodeUnavailableException e) {
+                // Still serve the saved time table, the owner's replacement resumes solving it
+                LOGGER.warn("The solver status of tenant (" + tenantId + ") is unknown.", e);
+                return SolverStatus.NOT_SOLVING;
+            }
+        }
+        return solverScheduler.getSolverStatus(tenantId);
+    }
+
+    // Called by other nodes, see SolverCoordinator
+    @GET
+    @Path("solverStatus")
+    @Produces(MediaType.TEXT_PLAIN)
+    public String getSolverStatus(@PathParam("tenantId") Long tenantId,
+            @HeaderParam(SolverCoordinator.FORWARDED_HEADER) String forwardedHeader) {
+        return (solverCoordinator.isForwarded(forwardedHeader) ? solverScheduler.getSolverStatus(tenantId)
+                : getSolverStatus(tenantId)).name();
     }
 
     @POST
     @Path("stopSolving")
-    public void stopSolving(@PathParam("tenantId") Long tenantId) {
-        solverManager.terminateEarly(tenantId);
+    public Response stopSolving(@PathParam("tenantId") Long tenantId,
+            @HeaderParam(SolverCoordinator.FORWARDED_HEADER) String forwardedHeader) {
+        String ownerUrl = getRemoteOwnerUrl(tenantId, forwardedHeader);
+        if (ownerUrl != null) {
+            return forward(ownerUrl, tenantId, "stopSolving", HttpMethod.POST, "stopSolving", null);
+        }
+        solverScheduler.terminateEarly(tenantId);
+        return Response.noContent().build();
+    }
+
+    private String getRemoteOwnerUrl(Long tenantId, String forwardedHeader) {
+        return solverCoordinator.isForwarded(forwardedHeader) ? null : solverCoordinator.getRemoteOwnerUrl(tenantId);
+    }
+
+    private Response forward(String ownerUrl, Long tenantId, String action, String method, String path,
+            Object jsonEntity) {
+        try {
+            byte[] jsonBody = jsonEntity == null ? null : objectMapper.writeValueAsBytes(jsonEntity);
+            return toResponse(solverCoordinator.forward(ownerUrl, tenantId, action, method, path, jsonBody));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed serializing the request of tenant (" + tenantId + ").", e);
+        } catch (SolverNodeUnavailableException e) {
+            return toUnavailableResponse(e);
+        }
+    }
+
+    private Response forwardImport(String ownerUrl, Long tenantId, InputStream inputStream, String contentType) {
+        try {
+            return toResponse(solverCoordinator.forwardImport(ownerUrl, tenantId, inputStream, contentType));
+        } catch (SolverNodeUnavailableException e) {
+            return toUnavailableResponse(e);
+        }
+    }
+
+    private static Response toResponse(HttpResponse<byte[]> response) {
+        Response.ResponseBuilder responseBuilder = Response.status(response.statusCode());
+        if (response.statusCode() == Response.Status.TOO_MANY_REQUESTS.getStatusCode()) {
+            responseBuilder.header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS);
+        }
+        if (response.body().length > 0) {
+            responseBuilder.entity(response.body());
+            response.headers().firstValue(HttpHeaders.CONTENT_TYPE)
+                    .ifPresent(contentType -> responseBuilder.type(contentType));
+        }
+        return responseBuilder.build();
+    }
+
+    private static Response toUnavailableResponse(SolverNodeUnavailableException e) {
+        // The other nodes reassign its tenants once it misses its heartbeats
+        return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS)
+                .entity(e.getMessage())
+                .build();
+    }
+
+    // Keyset paginated, for example: curl http://localhost:8080/timeTable/1/lessons?after=0&limit=1000
+    // and then ?after=<nextAfterId> until nextAfterId is null
+    @GET
+    @Path("lessons")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response listLessons(@PathParam("tenantId") Long tenantId, @QueryParam("after") long afterId,
+            @QueryParam("limit") Integer limit) {
+        int pageLimit = toPageLimit(limit);
+        return Response.ok((StreamingOutput) outputStream
+                -> tenantPageStreamer.streamLessons(tenantId, afterId, pageLimit, outputStream)).build();
+    }
+
+    @GET
+    @Path("rooms")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response listRooms(@PathParam("tenantId") Long tenantId, @QueryParam("after") long afterId,
+            @QueryParam("limit") Integer limit) {
+        int pageLimit = toPageLimit(limit);
+        return Response.ok((StreamingOutput) outputStream
+                -> tenantPageStreamer.streamRooms(tenantId, afterId, pageLimit, outputStream)).build();
+    }
+
+    @GET
+    @Path("timeslots")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response listTimeslots(@PathParam("tenantId") Long tenantId, @QueryParam("after") long afterId,
+            @QueryParam("limit") Integer limit) {
+        int pageLimit = toPageLimit(limit);
+        return Response.ok((StreamingOutput) outputStream
+                -> tenantPageStreamer.streamTimeslots(tenantId, afterId, pageLimit, outputStream)).build();
+    }
+
+    // Replaces the whole problem of a tenant, streamed into the database. The lessons start unassigned.
+    // To try, run: curl -X PUT -H "Content-Type: text/csv" --data-binary @problem.csv http://localhost:8080/timeTable/1/problem
+    @PUT
+    @Path("problem")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.TEXT_PLAIN)
+    public Response importProblem(@PathParam("tenantId") Long tenantId,
+            @HeaderParam(SolverCoordinator.FORWARDED_HEADER) String forwardedHeader, InputStream inputStream) {
+        String ownerUrl = getRemoteOwnerUrl(tenantId, forwardedHeader);
+        if (ownerUrl != null) {
+            return forwardImport(ownerUrl, tenantId, inputStream, MediaType.APPLICATION_JSON);
+        }
+        return importProblem(tenantId, new ProblemJsonReader(objectMapper.getFactory(), inputStream));
+    }
+
+    @PUT
+    @Path("problem")
+    @Consumes(CSV_MEDIA_TYPE)
+    @Produces(MediaType.TEXT_PLAIN)
+    public Response importProblemCsv(@PathParam("tenantId") Long tenantId,
+            @HeaderParam(SolverCoordinator.FORWARDED_HEADER) String forwardedHeader, InputStream inputStream) {
+        String ownerUrl = getRemoteOwnerUrl(tenantId, forwardedHeader);
+        if (ownerUrl != null) {
+            return forwardImport(ownerUrl, tenantId, inputStream, CSV_MEDIA_TYPE);
+        }
+        return importProblem(tenantId, new ProblemCsvReader(inputStream));
+    }
+
+    private Response importProblem(Long tenantId, TimeTableBulkInserter.ProblemReader problemReader) {
+        // Replacing the problem under a running solve would let it save lessons that no longer exist,
+        // so the tenant stays locked against solving until the new problem is stored
+        if (!solverScheduler.tryLockForImport(tenantId)) {
+            return Response.status(Response.Status.CONFLICT)
+                    .entity("Tenant (" + tenantId + ") is solving or importing, stop solving it first.")
+                    .build();
+        }
+        try {
+            int rowCount = timeTableBulkInserter.replace(tenantId, problemReader);
+            lessonAssignmentRepository.clearSnapshot(tenantId);
+            return Response.ok(Integer.toString(rowCount)).build();
+        } finally {
+            solverScheduler.unlockImport(tenantId);
+        }
+    }
+
+    // Grouped by room, teacher or studentGroup, optionally only one of them, for example:
+    // curl "http://localhost:8080/timeTable/1/export.csv?by=teacher&name=A.%20Turing"
+    @GET
+    @Path("export.csv")
+    @Produces(CSV_MEDIA_TYPE)
+    public Response exportCsv(@PathParam("tenantId") Long tenantId, @QueryParam("by") String by,
+            @QueryParam("name") String name) {
+        TimeTableExporter.Grouping grouping = toGrouping(by);
+        return Response.ok((StreamingOutput) outputStream
+                -> timeTableExporter.exportCsv(tenantId, grouping, name, outputStream))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"timetable-" + tenantId + ".csv\"")
+                .build();
+    }
+
+    // Weekly recurring events from the week of weekOf (default this week), for example:
+    // curl "http://localhost:8080/timeTable/1/export.ics?by=studentGroup&name=9th%20grade&weekOf=2021-09-06"
+    @GET
+    @Path("export.ics")
+    @Produces(ICALENDAR_MEDIA_TYPE)
+    public Response exportICalendar(@PathParam("tenantId") Long tenantId, @QueryParam("by") String by,
+            @QueryParam("name") String name, @QueryParam("weekOf") String weekOf) {
+        TimeTableExporter.Grouping grouping = toGrouping(by);
+        LocalDate weekStart;
+        try {
+            weekStart = (weekOf == null ? LocalDate.now() : LocalDate.parse(weekOf))
+                    .with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        } catch (DateTimeParseException e) {
+            throw new BadRequestException("The weekOf (" + weekOf + ") isn't a date, like 2021-09-06.");
+        }
+        return Response.ok((StreamingOutput) outputStream
+                -> timeTableExporter.exportICalendar(tenantId, grouping, name, weekStart, outputStream))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"timetable-" + tenantId + ".ics\"")
+                .build();
+    }
+
+    private static TimeTableExporter.Grouping toGrouping(String by) {
+        if (by == null) {
+            return TimeTableExporter.Grouping.ROOM;
+        }
+        switch (by) {
+            case "room":
+                return TimeTableExporter.Grouping.ROOM;
+            case "teacher":
+                return TimeTableExporter.Grouping.TEACHER;
+            case "studentGroup":
+                return TimeTableExporter.Grouping.STUDENT_GROUP;
+            default:
+                throw new BadRequestException("The by (" + by + ") must be room, teacher or studentGroup.");
+        }
+    }
+
+    private int toPageLimit(Integer limit) {
+        if (limit == null) {
+            return defaultPageLimit;
+        }
+        if (limit < 1 || limit > maxPageLimit) {
+            throw new BadRequestException("The limit (" + limit + ") must be between 1 and " + maxPageLimit + ".");
+        }
+        return limit;
+    }
+
+    // The following changes are persisted first and then also applied to the running solve of the tenant, if any,
+    // so they're handled by the node that solves the tenant.
+    // To try, run: curl -X POST -H "Content-Type: application/json" -d '{"subject":"Math","teacher":"A. Turing","studentGroup":"9th grade"}' http://localhost:8080/timeTable/1/lessons
+    @POST
+    @Path("lessons")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response addLesson(@PathParam("tenantId") Long tenantId, Lesson lesson,
+            @HeaderParam(SolverCoordinator.FORWARDED_HEADER) String forwardedHeader) {
+        String ownerUrl = getRemoteOwnerUrl(tenantId, forwardedHeader);
+        if (ownerUrl != null) {
+            return forward(ownerUrl, tenantId, "addLesson", HttpMethod.POST, "lessons", lesson);
+        }
+        Lesson persistedLesson = persistLesson(tenantId, lesson);
+        liveSolverRegistry.addProblemFactChange(tenantId, new AddLessonChange(persistedLesson));
+        return Response.status(Response.Status.CREATED).entity(persistedLesson).build();
+    }
+
+    @DELETE
+    @Path("lessons/{lessonId}")
+    public Response removeLesson(@PathParam("tenantId") Long tenantId, @PathParam("lessonId") Long lessonId,
+            @HeaderParam(SolverCoordinator.FORWARDED_HEADER) String forwardedHeader) {
+        String ownerUrl = getRemoteOwnerUrl(tenantId, forwardedHeader);
+        if (ownerUrl != null) {
+            return forward(ownerUrl, tenantId, "removeLesson", HttpMethod.DELETE, "lessons/" + lessonId, null);
+        }
+        if (!deleteLesson(tenantId, lessonId)) {
+            return Response.status(Response.Status.NOT_FOUND).build();
+        }
+        liveSolverRegistry.addProblemFactChange(tenantId, new RemoveLessonChange(lessonId));
+        return Response.noContent().build();
+    }
+
+    @POST
+    @Path("lessons/{lessonId}/pin")
+    public Response pinLesson(@PathParam("tenantId") Long tenantId, @PathParam("lessonId") Long lessonId,
+            @HeaderParam(SolverCoordinator.FORWARDED_HEADER) String forwardedHeader) {
+        String ownerUrl = getRemoteOwnerUrl(tenantId, forwardedHeader);
+        if (ownerUrl != null) {
+            return forward(ownerUrl, tenantId, "pinLesson", HttpMethod.POST, "lessons/" + lessonId + "/pin", null);
+        }
+        return setLessonPinned(tenantId, lessonId, true);
+    }
+
+    @DELETE
+    @Path("lessons/{lessonId}/pin")
+    public Response unpinLesson(@PathParam("tenantId") Long tenantId, @PathParam("lessonId") Long lessonId,
+            @HeaderParam(SolverCoordinator.FORWARDED_HEADER) String forwardedHeader) {
+        String ownerUrl = getRemoteOwnerUrl(tenantId, forwardedHeader);
+        if (ownerUrl != null) {
+            return forward(ownerUrl, tenantId, "unpinLesson", HttpMethod.DELETE, "lessons/" + lessonId + "/pin",
+                    null);
+        }
+        return setLessonPinned(tenantId, lessonId, false);
+    }
+
+    @POST
+    @Path("rooms/{roomId}/unavailable")
+    public Response makeRoomUnavailable(@PathParam("tenantId") Long tenantId, @PathParam("roomId") Long roomId,
+            @HeaderParam(SolverCoordinator.FORWARDED_HEADER) String forwardedHeader) {
+        String ownerUrl = getRemoteOwnerUrl(tenantId, forwardedHeader);
+        if (ownerUrl != null) {
+            return forward(ownerUrl, tenantId, "makeRoomUnavailable", HttpMethod.POST,
+                    "rooms/" + roomId + "/unavailable", null);
+        }
+        return setRoomAvailable(tenantId, roomId, false);
+    }
+
+    @DELETE
+    @Path("rooms/{roomId}/unavailable")
+    public Response makeRoomAvailable(@PathParam("tenantId") Long tenantId, @PathParam("roomId") Long roomId,
+            @HeaderParam(SolverCoordinator.FORWARDED_HEADER) String forwardedHeader) {
+        String ownerUrl = getRemoteOwnerUrl(tenantId, forwardedHeader);
+        if (ownerUrl != null) {
+            return forward(ownerUrl, tenantId, "makeRoomAvailable", HttpMethod.DELETE,
+                    "rooms/" + roomId + "/unavailable", null);
+        }
+        return setRoomAvailable(tenantId, roomId, true);
+    }
+
+    private Response setLessonPinned(Long tenantId, Long lessonId, boolean pinned) {
+        if (!updateLessonPinned(tenantId, lessonId, pinned)) {
+            return Response.status(Response.Status.NOT_FOUND).build();
+        }
+        liveSolverRegistry.addProblemFactChange(tenantId, new PinLessonChange(lessonId, pinned));
+        return Response.noContent().build();
+    }
+
+    private Response setRoomAvailable(Long tenantId, Long roomId, boolean available) {
+        Room room = updateRoomAvailable(tenantId, roomId, available);
+        if (room == null) {
+            return Response.status(Response.Status.NOT_FOUND).build();
+        }
+        liveSolverRegistry.addProblemFactChange(tenantId, new RoomAvailabilityChange(room, available));
+        return Response.noContent().build();
     }
 
     @Transactional
-    protected TimeTable findById(Long id) {
-        // Occurs in a single transaction, so each initialized lesson references the same timeslot/room instance
-        // that is contained by the timeTable's timeslotList/roomList.
-        return new TimeTable(
-                timeslotRepository.findByTenantId(id),
-                roomRepository.findByTenantId(id),
-                lessonRepository.findByTenantId(id));
+    protected Lesson persistLesson(Long tenantId, Lesson lesson) {
+        if (lesson.getSubject() == null || lesson.getTeacher() == null || lesson.getStudentGroup() == null) {
+            throw new BadRequestException("A lesson needs a subject, a teacher and a student group.");
+        }
+        // A new lesson starts unassigned and unpinned, the solver assigns it
+        Lesson newLesson = new Lesson(tenantId, lesson.getSubject().getName(), lesson.getTeacher().getName(),
+                lesson.getStudentGroup().getName());
+        newLesson.setRequiredRoomType(lesson.getRequiredRoomType());
+        newLesson.setStudentCount(lesson.getStudentCount());
+        lessonRepository.persist(newLesson);
+        return newLesson;
+    }
+
+    @Transactional
+    protected boolean deleteLesson(Long tenantId, Long lessonId) {
+        Lesson lesson = lessonRepository.findById(lessonId);
+        if (lesson == null || !tenantId.equals(lesson.getTenantId())) {
+            return false;
+        }
+        lessonRepository.delete(lesson);
+        return true;
     }
 
     @Transactional
-    protected void save(TimeTable timeTable) {
-        for (Lesson lesson : timeTable.getLessonList()) {
-            // TODO this is awfully naive: optimistic locking causes issues if called by the SolverManager
-            Lesson attachedLesson = lessonRepository.findById(lesson.getId());
-            attachedLesson.setTimeslot(lesson.getTimeslot());
-            attachedLesson.setRoom(lesson.getRoom());
+    protected boolean updateLessonPinned(Long tenantId, Long lessonId, boolean pinned) {
+        Lesson lesson = lessonRepository.findById(lessonId);
+        if (lesson == null || !tenantId.equals(lesson.getTenantId())) {
+            return false;
+        }
+        // The solver never assigns a pinned lesson, so it would stay unassigned
+        if (pinned && (lesson.getTimeslot() == null || lesson.getRoom() == null)) {
+            throw new BadRequestException("The lesson (" + lessonId + ") has no saved timeslot and room to pin.");
+        }
+        lesson.setPinned(pinned);
+        return true;
+    }
+
+    @Transactional
+    protected Room updateRoomAvailable(Long tenantId, Long roomId, boolean available) {
+        Room room = roomRepository.findById(roomId);
+        if (room == null || !tenantId.equals(room.getTenantId())) {
+            return null;
+        }
+        room.setAvailable(available);
+        return room;
+    }
+
+    /**
+     * A tenant that was solved before restarts from its saved lessons
+     * with a shorter termination, see {@link org.acme.schooltimetabling.solver.WarmStart}.
+     * Otherwise a tenant with at least {@code timeTable.partitioning.min-lesson-count} lessons
+     * is solved in parts, see {@link org.acme.schooltimetabling.solver.Partitioned}.
+     */
+    protected SolveMode chooseSolveMode(Long tenantId) {
+        long lessonCount = lessonRepository.countByTenantId(tenantId);
+        if (lessonCount > 0L
+                && lessonRepository.countAssignedByTenantId(tenantId) >= warmStartMinAssignedRatio * lessonCount) {
+            return SolveMode.WARM_START;
+        }
+        if (partitioningMinLessonCount > 0L && lessonCount >= partitioningMinLessonCount) {
+            return SolveMode.PARTITIONED;
+        }
+        return SolveMode.COLD;
+    }
+
+    protected TimeTable findById(Long id) {
+        return timeTableRepository.findByTenantId(id);
+    }
+
+    protected TimeTable findByIdWithScore(Long id) {
+        TimeTable timeTable = findById(id);
+        scoreManager.updateScore(timeTable); // Sets the score
+        return timeTable;
+    }
+
+    protected TimeTable findByIdForSolving(Long id) {
+        TimeTable timeTable = findById(id);
+        if (rollingHorizonDayCount > 0) {
+            RollingHorizon rollingHorizon = RollingHorizon.startingAt(LocalDateTime.now(), rollingHorizonDayCount);
+            if (timeTable.canApplyRollingHorizon(rollingHorizon)) {
+                int pinnedCount = timeTable.applyRollingHorizon(rollingHorizon);
+                LOGGER.debug("Tenant (" + id + ") has " + pinnedCount
+                        + " lessons pinned outside of its rolling horizon (" + rollingHorizon + ").");
+            } else {
+                LOGGER.info("Tenant (" + id + ") has unassigned lessons and no timeslot inside its rolling horizon ("
+                        + rollingHorizon + "), so it is solved without one.");
+            }
         }
+        // The solver starts from the database state, so only its changes need to be written back
+        lessonAssignmentRepository.resetSnapshot(timeTable);
+        return timeTable;
     }
 
 }
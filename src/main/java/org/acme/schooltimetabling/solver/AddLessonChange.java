@@ -0,0 +1,58 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.acme.schooltimetabling.solver;
+
+import org.acme.schooltimetabling.domain.Lesson;
+import org.acme.schooltimetabling.domain.TimeTable;
+import org.optaplanner.core.api.score.director.ScoreDirector;
+import org.optaplanner.core.api.solver.ProblemFactChange;
+
+/**
+ * Adds a persisted lesson to a live solve, unless the solve loaded it already.
+ */
+public class AddLessonChange implements ProblemFactChange<TimeTable> {
+
+    private final Lesson lesson;
+
+    /**
+     * @param lesson never null, persisted, not modified
+     */
+    public AddLessonChange(Lesson lesson) {
+        this.lesson = lesson;
+    }
+
+    @Override
+    public void doChange(ScoreDirector<TimeTable> scoreDirector) {
+        TimeTable timeTable = scoreDirector.getWorkingSolution();
+        if (RemoveLessonChange.findLesson(timeTable, lesson.getId()) != null) {
+            return;
+        }
+        Lesson workingLesson = new Lesson(lesson.getId(), lesson.getTenantId(), lesson.getSubject().getName(),
+                lesson.getTeacher().getName(), lesson.getStudentGroup().getName(),
+                scoreDirector.lookUpWorkingObjectOrReturnNull(lesson.getTimeslot()),
+                scoreDirector.lookUpWorkingObjectOrReturnNull(lesson.getRoom()));
+        workingLesson.setRequiredRoomType(lesson.getRequiredRoomType());
+        workingLesson.setStudentCount(lesson.getStudentCount());
+        workingLesson.setPinned(lesson.isPinned());
+        timeTable.internLesson(workingLesson);
+        scoreDirector.beforeEntityAdded(workingLesson);
+        timeTable.getLessonList().add(workingLesson);
+        scoreDirector.afterEntityAdded(workingLesson);
+        scoreDirector.triggerVariableListeners();
+    }
+
+}
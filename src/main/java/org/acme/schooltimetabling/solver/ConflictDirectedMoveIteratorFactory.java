@@ -0,0 +1,198 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.acme.schooltimetabling.solver;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.acme.schooltimetabling.domain.Lesson;
+import org.acme.schooltimetabling.domain.Room;
+import org.acme.schooltimetabling.domain.TimeTable;
+import org.acme.schooltimetabling.domain.Timeslot;
+import org.optaplanner.core.api.score.director.ScoreDirector;
+import org.optaplanner.core.impl.heuristic.move.Move;
+import org.optaplanner.core.impl.heuristic.selector.move.factory.MoveIteratorFactory;
+
+/**
+ * Generates change moves (timeslot and room together) and swap moves that mostly start from a lesson
+ * that currently breaks a hard constraint, tracked by a {@link LessonConflictTracker}.
+ * A change move of such a lesson prefers a timeslot and room where its teacher, its student group and the room
+ * are free. With a probability of {@code 1 - focusRatio}, or once nothing breaks a hard constraint,
+ * the lesson is picked uniformly instead, so the soft constraints still improve.
+ * Like OptaPlanner's own moves, these only assign a lesson the timeslots and rooms of its value ranges.
+ * The tracker is only updated by these moves, so a local search phase must use no other move selector.
+ * With move threads, each thread tracks the conflicts of its own working solution, see {@link LessonChangeMove#rebase}.
+ * In original selection order, each lesson gets every change move within its value ranges
+ * and then a swap move with every lesson after it, without focusing on conflicts.
+ */
+public class ConflictDirectedMoveIteratorFactory implements MoveIteratorFactory<TimeTable, Move<TimeTable>> {
+
+    // Candidate timeslot and room pairs tried per change move of a conflicted lesson, before taking a busy one
+    private static final int FREE_CANDIDATE_ATTEMPTS = 8;
+
+    private double focusRatio = 0.9;
+
+    // One tracker per working solution, keyed by identity because TimeTable doesn't override equals()
+    private Map<TimeTable, LessonConflictTracker> conflictTrackerMap;
+    private LessonConflictTracker conflictTracker;
+    private List<Lesson> movableLessonList;
+
+    @Override
+    public void phaseStarted(ScoreDirector<TimeTable> scoreDirector) {
+        TimeTable timeTable = scoreDirector.getWorkingSolution();
+        conflictTracker = new LessonConflictTracker(timeTable);
+        conflictTrackerMap = new ConcurrentHashMap<>();
+        conflictTrackerMap.put(timeTable, conflictTracker);
+        movableLessonList = new ArrayList<>(timeTable.getLessonList().size());
+        for (Lesson lesson : timeTable.getLessonList()) {
+            if (!lesson.isPlanningPinned()) {
+                movableLessonList.add(lesson);
+            }
+        }
+    }
+
+    @Override
+    public void phaseEnded(ScoreDirector<TimeTable> scoreDirector) {
+        conflictTrackerMap = null;
+        conflictTracker = null;
+        movableLessonList = null;
+    }
+
+    @Override
+    public long getSize(ScoreDirector<TimeTable> scoreDirector) {
+        TimeTable timeTable = scoreDirector.getWorkingSolution();
+        long lessonCount = timeTable.getLessonList().size();
+        long changeCount = (long) timeTable.getPlanningTimeslotList().size() * timeTable.getRoomList().size();
+        return lessonCount * (changeCount + lessonCount);
+    }
+
+    @Override
+    public Iterator<Move<TimeTable>> createOriginalMoveIterator(ScoreDirector<TimeTable> scoreDirector) {
+        return new OriginalMoveIterator();
+    }
+
+    @Override
+    public Iterator<Move<TimeTable>> createRandomMoveIterator(ScoreDirector<TimeTable> scoreDirector,
+            Random workingRandom) {
+        return new RandomMoveIterator(workingRandom);
+    }
+
+    /**
+     * @param focusRatio between 0 and 1, the probability that a move starts from a lesson that breaks a hard
+     * constraint, set through the {@code moveIteratorFactoryCustomProperties} of the solver config
+     */
+    public void setFocusRatio(double focusRatio) {
+        if (focusRatio < 0.0 || focusRatio > 1.0) {
+            throw new IllegalArgumentException("The focusRatio (" + focusRatio + ") must be between 0 and 1.");
+        }
+        this.focusRatio = focusRatio;
+    }
+
+    private final class OriginalMoveIterator implements Iterator<Move<TimeTable>> {
+
+        private int lessonIndex = 0;
+        // Over the lesson's allowed timeslots times its allowed rooms
+        private int changeIndex = 0;
+        private int otherLessonIndex = 1;
+
+        @Override
+        public boolean hasNext() {
+            while (lessonIndex < movableLessonList.size()) {
+                Lesson lesson = movableLessonList.get(lessonIndex);
+                if (changeIndex < lesson.getAllowedTimeslotList().size() * lesson.getAllowedRoomList().size()
+                        || otherLessonIndex < movableLessonList.size()) {
+                    return true;
+                }
+                lessonIndex++;
+                changeIndex = 0;
+                otherLessonIndex = lessonIndex + 1;
+            }
+            return false;
+        }
+
+        @Override
+        public Move<TimeTable> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Lesson lesson = movableLessonList.get(lessonIndex);
+            List<Room> roomList = lesson.getAllowedRoomList();
+            if (changeIndex < lesson.getAllowedTimeslotList().size() * roomList.size()) {
+                Timeslot timeslot = lesson.getAllowedTimeslotList().get(changeIndex / roomList.size());
+                Room room = roomList.get(changeIndex % roomList.size());
+                changeIndex++;
+                return new LessonChangeMove(lesson, timeslot, room, conflictTrackerMap);
+            }
+            return new LessonSwapMove(lesson, movableLessonList.get(otherLessonIndex++), conflictTrackerMap);
+        }
+
+    }
+
+    private final class RandomMoveIterator implements Iterator<Move<TimeTable>> {
+
+        private final Random random;
+
+        private RandomMoveIterator(Random random) {
+            this.random = random;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !movableLessonList.isEmpty();
+        }
+
+        @Override
+        public Move<TimeTable> next() {
+            Lesson lesson = random.nextDouble() < focusRatio ? conflictTracker.pickConflictedLesson(random) : null;
+            boolean focused = lesson != null;
+            if (!focused) {
+                lesson = movableLessonList.get(random.nextInt(movableLessonList.size()));
+            }
+            if (movableLessonList.size() > 1 && random.nextBoolean()) {
+                Lesson otherLesson = movableLessonList.get(random.nextInt(movableLessonList.size()));
+                // The move is not doable if it's the same lesson or breaks a value range, OptaPlanner skips it
+                return new LessonSwapMove(lesson, otherLesson, conflictTrackerMap);
+            }
+            Timeslot timeslot = pickTimeslot(lesson);
+            Room room = pickRoom(lesson);
+            if (focused) {
+                for (int i = 1; i < FREE_CANDIDATE_ATTEMPTS && !conflictTracker.isFree(lesson, timeslot, room); i++) {
+                    timeslot = pickTimeslot(lesson);
+                    room = pickRoom(lesson);
+                }
+            }
+            return new LessonChangeMove(lesson, timeslot, room, conflictTrackerMap);
+        }
+
+        private Timeslot pickTimeslot(Lesson lesson) {
+            List<Timeslot> timeslotList = lesson.getAllowedTimeslotList();
+            return timeslotList.get(random.nextInt(timeslotList.size()));
+        }
+
+        private Room pickRoom(Lesson lesson) {
+            List<Room> roomList = lesson.getAllowedRoomList();
+            return roomList.get(random.nextInt(roomList.size()));
+        }
+
+    }
+
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.acme.schooltimetabling.solver;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Assigns each tenant to one node, so that a node joining or leaving
+ * only moves the tenants of roughly 1/n of the ring instead of reshuffling all of them.
+ * Each node has {@code virtualNodeCount} points on the ring to spread its tenants evenly.
+ * Immutable, so every node with the same node URLs computes the same owners.
+ */
+public final class ConsistentHashRing {
+
+    private final List<String> nodeUrlList;
+    private final NavigableMap<Long, String> ring = new TreeMap<>();
+
+    /**
+     * @param nodeUrls never null, not empty
+     * @param virtualNodeCount at least 1
+     */
+    public ConsistentHashRing(Collection<String> nodeUrls, int virtualNodeCount) {
+        if (nodeUrls.isEmpty()) {
+            throw new IllegalArgumentException("The nodeUrls (" + nodeUrls + ") must not be empty.");
+        }
+        nodeUrlList = new ArrayList<>(nodeUrls);
+        for (String nodeUrl : nodeUrlList) {
+            for (int i = 0; i < virtualNodeCount; i++) {
+                ring.put(hash(nodeUrl + "#" + i), nodeUrl);
+            }
+        }
+    }
+
+    /**
+     * @param tenantId never null
+     * @return never null, the URL of the node that owns the tenant
+     */
+    public String getOwner(Long tenantId) {
+        Map.Entry<Long, String> entry = ring.ceilingEntry(hash(tenantId.toString()));
+        return entry != null ? entry.getValue() : ring.firstEntry().getValue();
+    }
+
+    private static long hash(String key) {
+        byte[] digest;
+        try {
+            // Not for security, only because it spreads similar keys, such as "node1#0" and "node1#1", evenly
+            digest = MessageDigest.getInstance("MD5").digest(key.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Every JVM supports MD5.", e);
+        }
+        long hash = 0L;
+        for (int i = 0; i < Long.BYTES; i++) {
+            hash = (hash << 8) | (digest[i] & 0xFF);
+        }
+        return hash;
+    }
+
+    // ************************************************************************
+    // Getters and setters
+    // ************************************************************************
+
+    public List<String> getNodeUrlList() {
+        return nodeUrlList;
+    }
+
+}
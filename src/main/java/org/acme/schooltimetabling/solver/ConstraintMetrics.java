@@ -0,0 +1,170 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.acme.schooltimetabling.solver;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import org.acme.schooltimetabling.domain.TimeTable;
+import org.jboss.logging.Logger;
+import org.optaplanner.core.api.score.ScoreExplanation;
+import org.optaplanner.core.api.score.ScoreManager;
+import org.optaplanner.core.api.score.buildin.hardsoft.HardSoftScore;
+import org.optaplanner.core.api.score.calculator.ConstraintMatchAwareIncrementalScoreCalculator;
+import org.optaplanner.core.api.score.constraint.ConstraintMatchTotal;
+import org.optaplanner.core.config.score.director.ScoreDirectorFactoryConfig;
+import org.optaplanner.core.config.solver.SolverConfig;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Exports the match count and score impact of each constraint of each tenant's latest best solution as gauges,
+ * tagged by tenant and constraint name.
+ * Explaining a score recalculates it from scratch, so it happens on its own thread,
+ * and a best solution that arrives while the previous one of the same tenant is still waiting replaces it.
+ * Disabled when the score calculation doesn't track constraint matches, such as the
+ * {@link TimeTableIncrementalScoreCalculator}.
+ */
+@ApplicationScoped
+public class ConstraintMetrics {
+
+    private static final Logger LOGGER = Logger.getLogger(ConstraintMetrics.class);
+
+    @Inject
+    SolverConfig solverConfig;
+    @Inject
+    ScoreManager<TimeTable, HardSoftScore> scoreManager;
+    @Inject
+    MeterRegistry meterRegistry;
+
+    private final ConcurrentMap<Long, AtomicReference<TimeTable>> pendingMap = new ConcurrentHashMap<>();
+    // Tenant tag to constraint name to gauge
+    private final ConcurrentMap<String, ConcurrentMap<String, ConstraintGauge>> gaugeMap = new ConcurrentHashMap<>();
+    private ExecutorService executorService;
+    private boolean constraintMatchSupported;
+
+    @PostConstruct
+    void startExecutor() {
+        constraintMatchSupported = isConstraintMatchSupported(solverConfig.getScoreDirectorFactoryConfig());
+        if (!constraintMatchSupported) {
+            LOGGER.info("Disabled the per constraint metrics: the incremental score calculator doesn't implement "
+                    + ConstraintMatchAwareIncrementalScoreCalculator.class.getSimpleName() + ".");
+        }
+        executorService = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ConstraintMetrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void stopExecutor() {
+        executorService.shutdownNow();
+    }
+
+    private static boolean isConstraintMatchSupported(ScoreDirectorFactoryConfig scoreDirectorFactoryConfig) {
+        Class<?> calculatorClass = scoreDirectorFactoryConfig == null ? null
+                : scoreDirectorFactoryConfig.getIncrementalScoreCalculatorClass();
+        return calculatorClass == null
+                || ConstraintMatchAwareIncrementalScoreCalculator.class.isAssignableFrom(calculatorClass);
+    }
+
+    /**
+     * @param timeTable never null, a best solution that isn't modified afterwards
+     */
+    public void submit(TimeTable timeTable) {
+        if (!constraintMatchSupported) {
+            return;
+        }
+        AtomicReference<TimeTable> pending = pendingMap.computeIfAbsent(timeTable.getTenantId(),
+                key -> new AtomicReference<>());
+        if (pending.getAndSet(timeTable) != null) {
+            // Already queued, the queued task picks up this newer solution
+            return;
+        }
+        try {
+            executorService.execute(() -> record(pending.getAndSet(null)));
+        } catch (RejectedExecutionException e) { // The application is shutting down
+            pending.set(null);
+        }
+    }
+
+    /**
+     * Explains the score and updates the gauges on the caller's thread.
+     * @param timeTable never null
+     */
+    public void record(TimeTable timeTable) {
+        String tenantTag = timeTable.getTenantId().toString();
+        Timer.Sample sample = Timer.start(meterRegistry);
+        ScoreExplanation<TimeTable, HardSoftScore> scoreExplanation = scoreManager.explainScore(timeTable);
+        ConcurrentMap<String, ConstraintGauge> tenantGaugeMap = gaugeMap.computeIfAbsent(tenantTag,
+                key -> new ConcurrentHashMap<>());
+        Set<String> matchedConstraintNameSet = new HashSet<>();
+        for (ConstraintMatchTotal<HardSoftScore> constraintMatchTotal
+                : scoreExplanation.getConstraintMatchTotalMap().values()) {
+            String constraintName = constraintMatchTotal.getConstraintName();
+            HardSoftScore score = constraintMatchTotal.getScore();
+            ConstraintGauge gauge = tenantGaugeMap.computeIfAbsent(constraintName,
+                    key -> new ConstraintGauge(tenantTag, constraintName));
+            gauge.set(constraintMatchTotal.getConstraintMatchCount(), score.getHardScore(), score.getSoftScore());
+            matchedConstraintNameSet.add(constraintName);
+        }
+        // A constraint that no longer matches disappears from the explanation, but its gauges must drop to zero
+        tenantGaugeMap.forEach((constraintName, gauge) -> {
+            if (!matchedConstraintNameSet.contains(constraintName)) {
+                gauge.set(0, 0, 0);
+            }
+        });
+        sample.stop(meterRegistry.timer("timetable.constraint.explain", "tenantId", tenantTag));
+    }
+
+    private final class ConstraintGauge {
+
+        private final AtomicInteger matchCount = new AtomicInteger();
+        private final AtomicInteger hardScore = new AtomicInteger();
+        private final AtomicInteger softScore = new AtomicInteger();
+
+        private ConstraintGauge(String tenantTag, String constraintName) {
+            Tags tags = Tags.of("tenantId", tenantTag, "constraint", constraintName);
+            meterRegistry.gauge("timetable.constraint.matches", tags, matchCount);
+            meterRegistry.gauge("timetable.constraint.score.hard", tags, hardScore);
+            meterRegistry.gauge("timetable.constraint.score.soft", tags, softScore);
+        }
+
+        private void set(int matchCount, int hardScore, int softScore) {
+            this.matchCount.set(matchCount);
+            this.hardScore.set(hardScore);
+            this.softScore.set(softScore);
+        }
+
+    }
+
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.acme.schooltimetabling.solver;
+
+import java.util.List;
+
+/**
+ * Finds the position of a fact in the list it was built from, by identity and without boxing,
+ * so the score calculation can index its counters by the facts that the facts themselves don't carry.
+ * An open-addressing table at most half full, probed linearly from the identity hash code.
+ */
+final class FactIndex {
+
+    private final Object[] facts;
+    private final int[] positions;
+    private final int mask;
+
+    /**
+     * @param factList never null, not modified
+     */
+    FactIndex(List<?> factList) {
+        int capacity = Integer.highestOneBit(Math.max(2, factList.size() * 2 - 1)) << 1;
+        facts = new Object[capacity];
+        positions = new int[capacity];
+        mask = capacity - 1;
+        for (int i = 0; i < factList.size(); i++) {
+            Object fact = factList.get(i);
+            int slot = slot(fact);
+            while (facts[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            facts[slot] = fact;
+            positions[slot] = i;
+        }
+    }
+
+    /**
+     * @param fact never null
+     * @return at least 0, the position of that instance in the list
+     * @throws IllegalArgumentException if the list doesn't contain that instance
+     */
+    int indexOf(Object fact) {
+        int slot = slot(fact);
+        while (true) {
+            Object candidate = facts[slot];
+            if (candidate == fact) {
+                return positions[slot];
+            } else if (candidate == null) {
+                throw new IllegalArgumentException("The fact (" + fact + ") isn't in the time table.");
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private int slot(Object fact) {
+        int hash = System.identityHashCode(fact);
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+}
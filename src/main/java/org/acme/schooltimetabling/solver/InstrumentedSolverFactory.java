@@ -0,0 +1,63 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.acme.schooltimetabling.solver;
+
+import org.acme.schooltimetabling.domain.TimeTable;
+import org.optaplanner.core.api.solver.Solver;
+import org.optaplanner.core.config.solver.SolverConfig;
+import org.optaplanner.core.impl.phase.event.PhaseLifecycleListenerAdapter;
+import org.optaplanner.core.impl.solver.DefaultSolver;
+import org.optaplanner.core.impl.solver.DefaultSolverFactory;
+import org.optaplanner.core.impl.solver.scope.SolverScope;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Attaches a {@link SolverMetricsListener} to every solver it builds
+ * and registers the solver in the {@link LiveSolverRegistry} when it starts solving.
+ * Extends {@link DefaultSolverFactory}, because the {@link org.optaplanner.core.api.score.ScoreManager}
+ * requires one.
+ */
+public class InstrumentedSolverFactory extends DefaultSolverFactory<TimeTable> {
+
+    private final MeterRegistry meterRegistry;
+    private final LiveSolverRegistry liveSolverRegistry;
+    private final PartitionMetrics partitionMetrics;
+
+    public InstrumentedSolverFactory(SolverConfig solverConfig, MeterRegistry meterRegistry,
+            LiveSolverRegistry liveSolverRegistry, PartitionMetrics partitionMetrics) {
+        super(solverConfig);
+        this.meterRegistry = meterRegistry;
+        this.liveSolverRegistry = liveSolverRegistry;
+        this.partitionMetrics = partitionMetrics;
+    }
+
+    @Override
+    public Solver<TimeTable> buildSolver() {
+        DefaultSolver<TimeTable> solver = (DefaultSolver<TimeTable>) super.buildSolver();
+        solver.addPhaseLifecycleListener(new SolverMetricsListener(solver, meterRegistry, partitionMetrics));
+        solver.addPhaseLifecycleListener(new PhaseLifecycleListenerAdapter<TimeTable>() {
+            @Override
+            public void solvingStarted(SolverScope<TimeTable> solverScope) {
+                // Also called again when the solver restarts to apply problem changes
+                liveSolverRegistry.register(solverScope.getWorkingSolution().getTenantId(), solver);
+            }
+        });
+        return solver;
+    }
+
+}
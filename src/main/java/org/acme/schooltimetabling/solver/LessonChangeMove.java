@@ -0,0 +1,117 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.acme.schooltimetabling.solver;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+
+import org.acme.schooltimetabling.domain.Lesson;
+import org.acme.schooltimetabling.domain.Room;
+import org.acme.schooltimetabling.domain.TimeTable;
+import org.acme.schooltimetabling.domain.Timeslot;
+import org.optaplanner.core.api.score.director.ScoreDirector;
+import org.optaplanner.core.impl.heuristic.move.AbstractMove;
+
+/**
+ * Moves a lesson to another timeslot and room at once, see {@link ConflictDirectedMoveIteratorFactory}.
+ */
+public class LessonChangeMove extends AbstractMove<TimeTable> {
+
+    private final Lesson lesson;
+    private final Timeslot toTimeslot;
+    private final Room toRoom;
+    // The trackers of the working solutions, one per move thread, see rebase()
+    private final Map<TimeTable, LessonConflictTracker> conflictTrackerMap;
+    // Restores the values the lesson had, even if they're outside of its value ranges
+    private final boolean undo;
+
+    LessonChangeMove(Lesson lesson, Timeslot toTimeslot, Room toRoom,
+            Map<TimeTable, LessonConflictTracker> conflictTrackerMap) {
+        this(lesson, toTimeslot, toRoom, conflictTrackerMap, false);
+    }
+
+    private LessonChangeMove(Lesson lesson, Timeslot toTimeslot, Room toRoom,
+            Map<TimeTable, LessonConflictTracker> conflictTrackerMap, boolean undo) {
+        this.lesson = lesson;
+        this.toTimeslot = toTimeslot;
+        this.toRoom = toRoom;
+        this.conflictTrackerMap = conflictTrackerMap;
+        this.undo = undo;
+    }
+
+    @Override
+    public boolean isMoveDoable(ScoreDirector<TimeTable> scoreDirector) {
+        if (lesson.getTimeslot() == toTimeslot && lesson.getRoom() == toRoom) {
+            return false;
+        }
+        if (undo) {
+            return true;
+        }
+        // Like OptaPlanner's change move, the lesson must allow the new values, but it can keep its current one
+        return (lesson.getTimeslot() == toTimeslot || lesson.getAllowedTimeslotList().contains(toTimeslot))
+                && (lesson.getRoom() == toRoom || lesson.getAllowedRoomList().contains(toRoom));
+    }
+
+    @Override
+    protected LessonChangeMove createUndoMove(ScoreDirector<TimeTable> scoreDirector) {
+        return new LessonChangeMove(lesson, lesson.getTimeslot(), lesson.getRoom(), conflictTrackerMap, true);
+    }
+
+    /**
+     * A move thread tracks the conflicts of its own working solution, from the first move rebased to it.
+     * That working solution is then at the same step as the one the move was selected on.
+     */
+    @Override
+    public LessonChangeMove rebase(ScoreDirector<TimeTable> destinationScoreDirector) {
+        conflictTrackerMap.computeIfAbsent(destinationScoreDirector.getWorkingSolution(), LessonConflictTracker::new);
+        return new LessonChangeMove(destinationScoreDirector.lookUpWorkingObject(lesson),
+                destinationScoreDirector.lookUpWorkingObject(toTimeslot),
+                destinationScoreDirector.lookUpWorkingObject(toRoom), conflictTrackerMap, undo);
+    }
+
+    @Override
+    protected void doMoveOnGenuineVariables(ScoreDirector<TimeTable> scoreDirector) {
+        LessonConflictTracker conflictTracker = conflictTrackerMap.get(scoreDirector.getWorkingSolution());
+        conflictTracker.retract(lesson);
+        scoreDirector.beforeVariableChanged(lesson, "timeslot");
+        lesson.setTimeslot(toTimeslot);
+        scoreDirector.afterVariableChanged(lesson, "timeslot");
+        scoreDirector.beforeVariableChanged(lesson, "room");
+        lesson.setRoom(toRoom);
+        scoreDirector.afterVariableChanged(lesson, "room");
+        conflictTracker.insert(lesson);
+    }
+
+    @Override
+    public Collection<?> getPlanningEntities() {
+        return Collections.singletonList(lesson);
+    }
+
+    @Override
+    public Collection<?> getPlanningValues() {
+        return Arrays.asList(toTimeslot, toRoom);
+    }
+
+    @Override
+    public String toString() {
+        return lesson + " {" + lesson.getTimeslot() + ", " + lesson.getRoom() + " -> " + toTimeslot + ", " + toRoom
+                + "}";
+    }
+
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.acme.schooltimetabling.solver;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.acme.schooltimetabling.domain.Lesson;
+import org.acme.schooltimetabling.domain.Room;
+import org.acme.schooltimetabling.domain.TeacherUnavailability;
+import org.acme.schooltimetabling.domain.TimeTable;
+import org.acme.schooltimetabling.domain.Timeslot;
+
+/**
+ * Counts the lessons per (timeslot, room), (teacher, timeslot) and (student group, timeslot),
+ * like {@link TimeTableIncrementalScoreCalculator}, and keeps a set of lessons that break a hard constraint:
+ * a room, teacher or student group conflict, an unavailable room, an unavailable teacher or an unsuitable room.
+ * Every lesson that a move puts in a conflict is added to the set, so of each conflicting pair at least one lesson
+ * is in it. Lessons that are no longer in a conflict because another lesson moved away are only removed
+ * once they're picked, so updating the set costs the same regardless of the number of lessons.
+ */
+final class LessonConflictTracker {
+
+    private final Map<Timeslot, Integer> timeslotIndexMap;
+    private final Map<Room, Integer> roomIndexMap;
+    private final int timeslotCount;
+    private final int roomCount;
+
+    private final int[] roomOccupancy; // [timeslot * roomCount + room]
+    private final int[] teacherOccupancy; // [teacher * timeslotCount + timeslot]
+    private final int[] studentGroupOccupancy; // [studentGroup * timeslotCount + timeslot]
+    private final boolean[] teacherUnavailable; // [teacher * 7 + dayOfWeek - 1]
+
+    private final List<Lesson> conflictedLessonList = new ArrayList<>();
+    private final Map<Lesson, Integer> conflictedLessonIndexMap = new IdentityHashMap<>();
+
+    /**
+     * @param timeTable never null, its lesson facts interned
+     */
+    LessonConflictTracker(TimeTable timeTable) {
+        List<Timeslot> timeslotList = timeTable.getTimeslotList();
+        List<Room> roomList = timeTable.getRoomList();
+        timeslotCount = timeslotList.size();
+        roomCount = roomList.size();
+        timeslotIndexMap = new IdentityHashMap<>(timeslotCount);
+        for (Timeslot timeslot : timeslotList) {
+            timeslotIndexMap.put(timeslot, timeslotIndexMap.size());
+        }
+        roomIndexMap = new IdentityHashMap<>(roomCount);
+        for (Room room : roomList) {
+            roomIndexMap.put(room, roomIndexMap.size());
+        }
+        roomOccupancy = new int[timeslotCount * roomCount];
+        teacherOccupancy = new int[timeTable.getTeacherList().size() * timeslotCount];
+        studentGroupOccupancy = new int[timeTable.getStudentGroupList().size() * timeslotCount];
+        teacherUnavailable = new boolean[timeTable.getTeacherList().size() * 7];
+        for (TeacherUnavailability teacherUnavailability : timeTable.getTeacherUnavailabilityList()) {
+            teacherUnavailable[teacherUnavailability.getTeacher().getId() * 7
+                    + teacherUnavailability.getDayOfWeek().getValue() - 1] = true;
+        }
+        for (Lesson lesson : timeTable.getLessonList()) {
+            count(lesson, 1);
+        }
+        for (Lesson lesson : timeTable.getLessonList()) {
+            if (isConflicted(lesson)) {
+                add(lesson);
+            }
+        }
+    }
+
+    /**
+     * Call before a move changes the timeslot or room of the lesson.
+     */
+    void retract(Lesson lesson) {
+        count(lesson, -1);
+    }
+
+    /**
+     * Call after a move changed the timeslot or room of the lesson.
+     */
+    void insert(Lesson lesson) {
+        count(lesson, 1);
+        if (isConflicted(lesson)) {
+            add(lesson);
+        }
+    }
+
+    /**
+     * Call after a move changed the timeslots or rooms of both lessons.
+     */
+    void insert(Lesson leftLesson, Lesson rightLesson) {
+        count(leftLesson, 1);
+        count(rightLesson, 1);
+        if (isConflicted(leftLesson)) {
+            add(leftLesson);
+        }
+        if (isConflicted(rightLesson)) {
+            add(rightLesson);
+        }
+    }
+
+    private void count(Lesson lesson, int delta) {
+        if (lesson.getTimeslot() == null || lesson.getRoom() == null) {
+            return;
+        }
+        int timeslot = timeslotIndexMap.get(lesson.getTimeslot());
+        roomOccupancy[timeslot * roomCount + roomIndexMap.get(lesson.getRoom())] += delta;
+        teacherOccupancy[lesson.getTeacher().getId() * timeslotCount + timeslot] += delta;
+        studentGroupOccupancy[lesson.getStudentGroup().getId() * timeslotCount + timeslot] += delta;
+    }
+
+    boolean isConflicted(Lesson lesson) {
+        if (lesson.getTimeslot() == null || lesson.getRoom() == null) {
+            return false;
+        }
+        int timeslot = timeslotIndexMap.get(lesson.getTimeslot());
+        return !lesson.getRoom().isAvailable()
+                || !lesson.isSuitableRoom(lesson.getRoom())
+                || isTeacherUnavailable(lesson, lesson.getTimeslot())
+                || roomOccupancy[timeslot * roomCount + roomIndexMap.get(lesson.getRoom())] > 1
+                || teacherOccupancy[lesson.getTeacher().getId() * timeslotCount + timeslot] > 1
+                || studentGroupOccupancy[lesson.getStudentGroup().getId() * timeslotCount + timeslot] > 1;
+    }
+
+    /**
+     * @return true if the lesson would break no hard constraint in that timeslot and room,
+     * not counting the lesson itself
+     */
+    boolean isFree(Lesson lesson, Timeslot timeslot, Room room) {
+        if (!room.isAvailable() || !lesson.isSuitableRoom(room) || isTeacherUnavailable(lesson, timeslot)) {
+            return false;
+        }
+        int timeslotIndex = timeslotIndexMap.get(timeslot);
+        int self = lesson.getTimeslot() == timeslot ? 1 : 0;
+        int roomSelf = self == 1 && lesson.getRoom() == room ? 1 : 0;
+        return roomOccupancy[timeslotIndex * roomCount + roomIndexMap.get(room)] == roomSelf
+                && teacherOccupancy[lesson.getTeacher().getId() * timeslotCount + timeslotIndex] == self
+                && studentGroupOccupancy[lesson.getStudentGroup().getId() * timeslotCount + timeslotIndex] == self;
+    }
+
+    private boolean isTeacherUnavailable(Lesson lesson, Timeslot timeslot) {
+        return teacherUnavailable[lesson.getTeacher().getId() * 7 + timeslot.getDayOfWeek().getValue() - 1];
+    }
+
+    /**
+     * @param random never null
+     * @return null if no movable lesson breaks a hard constraint
+     */
+    Lesson pickConflictedLesson(Random random) {
+        while (!conflictedLessonList.isEmpty()) {
+            Lesson lesson = conflictedLessonList.get(random.nextInt(conflictedLessonList.size()));
+            if (isConflicted(lesson) && !lesson.isPlanningPinned()) {
+                return lesson;
+            }
+            remove(lesson);
+        }
+        return null;
+    }
+
+    int getConflictedLessonCount() {
+        return conflictedLessonList.size();
+    }
+
+    private void add(Lesson lesson) {
+        if (!conflictedLessonIndexMap.containsKey(lesson)) {
+            conflictedLessonIndexMap.put(lesson, conflictedLessonList.size());
+            conflictedLessonList.add(lesson);
+        }
+    }
+
+    // Swaps the last lesson into its place, so removal is O(1)
+    private void remove(Lesson lesson) {
+        int index = conflictedLessonIndexMap.remove(lesson);
+        Lesson last = conflictedLessonList.remove(conflictedLessonList.size() - 1);
+        if (last != lesson) {
+            conflictedLessonList.set(index, last);
+            conflictedLessonIndexMap.put(last, index);
+        }
+    }
+
+}
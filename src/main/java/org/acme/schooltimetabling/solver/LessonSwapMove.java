@@ -0,0 +1,109 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.acme.schooltimetabling.solver;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+
+import org.acme.schooltimetabling.domain.Lesson;
+import org.acme.schooltimetabling.domain.Room;
+import org.acme.schooltimetabling.domain.TimeTable;
+import org.acme.schooltimetabling.domain.Timeslot;
+import org.optaplanner.core.api.score.director.ScoreDirector;
+import org.optaplanner.core.impl.heuristic.move.AbstractMove;
+
+/**
+ * Swaps the timeslots and rooms of two lessons, see {@link ConflictDirectedMoveIteratorFactory}.
+ */
+public class LessonSwapMove extends AbstractMove<TimeTable> {
+
+    private final Lesson leftLesson;
+    private final Lesson rightLesson;
+    // The trackers of the working solutions, one per move thread, see LessonChangeMove.rebase()
+    private final Map<TimeTable, LessonConflictTracker> conflictTrackerMap;
+
+    LessonSwapMove(Lesson leftLesson, Lesson rightLesson, Map<TimeTable, LessonConflictTracker> conflictTrackerMap) {
+        this.leftLesson = leftLesson;
+        this.rightLesson = rightLesson;
+        this.conflictTrackerMap = conflictTrackerMap;
+    }
+
+    @Override
+    public boolean isMoveDoable(ScoreDirector<TimeTable> scoreDirector) {
+        if (leftLesson.getTimeslot() == rightLesson.getTimeslot() && leftLesson.getRoom() == rightLesson.getRoom()) {
+            return false;
+        }
+        // Like OptaPlanner's swap move, each lesson must allow the other one's values
+        return leftLesson.getAllowedTimeslotList().contains(rightLesson.getTimeslot())
+                && leftLesson.getAllowedRoomList().contains(rightLesson.getRoom())
+                && rightLesson.getAllowedTimeslotList().contains(leftLesson.getTimeslot())
+                && rightLesson.getAllowedRoomList().contains(leftLesson.getRoom());
+    }
+
+    @Override
+    protected LessonSwapMove createUndoMove(ScoreDirector<TimeTable> scoreDirector) {
+        return new LessonSwapMove(rightLesson, leftLesson, conflictTrackerMap);
+    }
+
+    @Override
+    public LessonSwapMove rebase(ScoreDirector<TimeTable> destinationScoreDirector) {
+        conflictTrackerMap.computeIfAbsent(destinationScoreDirector.getWorkingSolution(), LessonConflictTracker::new);
+        return new LessonSwapMove(destinationScoreDirector.lookUpWorkingObject(leftLesson),
+                destinationScoreDirector.lookUpWorkingObject(rightLesson), conflictTrackerMap);
+    }
+
+    @Override
+    protected void doMoveOnGenuineVariables(ScoreDirector<TimeTable> scoreDirector) {
+        LessonConflictTracker conflictTracker = conflictTrackerMap.get(scoreDirector.getWorkingSolution());
+        Timeslot leftTimeslot = leftLesson.getTimeslot();
+        Room leftRoom = leftLesson.getRoom();
+        conflictTracker.retract(leftLesson);
+        conflictTracker.retract(rightLesson);
+        scoreDirector.beforeVariableChanged(leftLesson, "timeslot");
+        leftLesson.setTimeslot(rightLesson.getTimeslot());
+        scoreDirector.afterVariableChanged(leftLesson, "timeslot");
+        scoreDirector.beforeVariableChanged(leftLesson, "room");
+        leftLesson.setRoom(rightLesson.getRoom());
+        scoreDirector.afterVariableChanged(leftLesson, "room");
+        scoreDirector.beforeVariableChanged(rightLesson, "timeslot");
+        rightLesson.setTimeslot(leftTimeslot);
+        scoreDirector.afterVariableChanged(rightLesson, "timeslot");
+        scoreDirector.beforeVariableChanged(rightLesson, "room");
+        rightLesson.setRoom(leftRoom);
+        scoreDirector.afterVariableChanged(rightLesson, "room");
+        conflictTracker.insert(leftLesson, rightLesson);
+    }
+
+    @Override
+    public Collection<?> getPlanningEntities() {
+        return Arrays.asList(leftLesson, rightLesson);
+    }
+
+    @Override
+    public Collection<?> getPlanningValues() {
+        return Arrays.asList(leftLesson.getTimeslot(), leftLesson.getRoom(),
+                rightLesson.getTimeslot(), rightLesson.getRoom());
+    }
+
+    @Override
+    public String toString() {
+        return leftLesson + " {" + leftLesson.getTimeslot() + ", " + leftLesson.getRoom() + "} <-> "
+                + rightLesson + " {" + rightLesson.getTimeslot() + ", " + rightLesson.getRoom() + "}";
+    }
+
+}
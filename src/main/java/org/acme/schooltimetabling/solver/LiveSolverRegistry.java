@@ -0,0 +1,92 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.acme.schooltimetabling.solver;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.enterprise.context.ApplicationScoped;
+
+import org.acme.schooltimetabling.domain.TimeTable;
+import org.optaplanner.core.api.solver.ProblemFactChange;
+import org.optaplanner.core.api.solver.Solver;
+
+/**
+ * Tracks the solver of each tenant that is solving, so problem changes reach it while it solves.
+ * The SolverManager doesn't expose its solvers, so {@link InstrumentedSolverFactory} registers them.
+ * <p>
+ * Between {@link #expect(Long)} and the start of solving, the solver loads its problem from the database.
+ * A change submitted in that window might or might not be part of the loaded problem,
+ * so it's buffered and replayed once solving starts. That's why every change must be idempotent.
+ */
+@ApplicationScoped
+public class LiveSolverRegistry {
+
+    // Guarded by this
+    private final Map<Long, Solver<TimeTable>> solverMap = new HashMap<>();
+    private final Map<Long, List<ProblemFactChange<TimeTable>>> bufferedChangeMap = new HashMap<>();
+
+    /**
+     * Called before the problem of a tenant is loaded to solve it.
+     * @param tenantId never null
+     */
+    public synchronized void expect(Long tenantId) {
+        bufferedChangeMap.put(tenantId, new ArrayList<>());
+    }
+
+    /**
+     * Called after a solve of the tenant ended.
+     * A change submitted between the end of solving and this call is lost to that solve,
+     * but it's persisted, so the next solve loads it.
+     * @param tenantId never null
+     */
+    public synchronized void forget(Long tenantId) {
+        solverMap.remove(tenantId);
+        bufferedChangeMap.remove(tenantId);
+    }
+
+    synchronized void register(Long tenantId, Solver<TimeTable> solver) {
+        solverMap.put(tenantId, solver);
+        List<ProblemFactChange<TimeTable>> bufferedChangeList = bufferedChangeMap.remove(tenantId);
+        if (bufferedChangeList != null && !bufferedChangeList.isEmpty()) {
+            solver.addProblemFactChanges(bufferedChangeList);
+        }
+    }
+
+    /**
+     * The change must already be persisted, so a solve that starts later loads it from the database.
+     * @param tenantId never null
+     * @param problemFactChange never null, idempotent
+     * @return true if a solve of the tenant received or will receive the change,
+     * false if the tenant isn't solving
+     */
+    public synchronized boolean addProblemFactChange(Long tenantId, ProblemFactChange<TimeTable> problemFactChange) {
+        Solver<TimeTable> solver = solverMap.get(tenantId);
+        if (solver != null) {
+            return solver.addProblemFactChange(problemFactChange);
+        }
+        List<ProblemFactChange<TimeTable>> bufferedChangeList = bufferedChangeMap.get(tenantId);
+        if (bufferedChangeList != null) {
+            bufferedChangeList.add(problemFactChange);
+            return true;
+        }
+        return false;
+    }
+
+}
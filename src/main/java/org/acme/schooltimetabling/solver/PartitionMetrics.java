@@ -0,0 +1,99 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.acme.schooltimetabling.solver;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import org.acme.schooltimetabling.domain.Lesson;
+import org.acme.schooltimetabling.domain.TimeTable;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+
+/**
+ * Exports the partitions of each tenant's partitioned solve, see {@link TimeTablePartitioner}:
+ * the partition count, the lessons per partition and the improvements each partition contributed.
+ */
+@ApplicationScoped
+public class PartitionMetrics {
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    private final ConcurrentMap<String, AtomicInteger> gaugeMap = new ConcurrentHashMap<>();
+    // The partition of each lesson, per tenant
+    private final ConcurrentMap<Long, Map<Long, Integer>> lessonPartitionMap = new ConcurrentHashMap<>();
+
+    /**
+     * @param tenantId never null
+     * @param partList never null
+     */
+    public void recordPartitions(Long tenantId, List<TimeTable> partList) {
+        String tenantTag = tenantId.toString();
+        gauge("timetable.partition.count", Tags.of("tenantId", tenantTag)).set(partList.size());
+        Map<Long, Integer> partitionMap = new HashMap<>();
+        for (int i = 0; i < partList.size(); i++) {
+            List<Lesson> lessonList = partList.get(i).getLessonList();
+            gauge("timetable.partition.lessons", Tags.of("tenantId", tenantTag, "partition", Integer.toString(i)))
+                    .set(lessonList.size());
+            for (Lesson lesson : lessonList) {
+                partitionMap.put(lesson.getId(), i);
+            }
+        }
+        lessonPartitionMap.put(tenantId, partitionMap);
+    }
+
+    /**
+     * Called for each new best solution of a partition, merged into the solution.
+     * @param tenantId never null
+     * @param planningEntities never null, the lessons the partition changed, all of the same partition
+     */
+    public void recordImprovement(Long tenantId, Collection<?> planningEntities) {
+        Map<Long, Integer> partitionMap = lessonPartitionMap.get(tenantId);
+        if (partitionMap == null || planningEntities.isEmpty()) {
+            return;
+        }
+        Integer partition = partitionMap.get(((Lesson) planningEntities.iterator().next()).getId());
+        if (partition != null) {
+            meterRegistry.counter("timetable.partition.improvements",
+                    "tenantId", tenantId.toString(), "partition", partition.toString()).increment();
+        }
+    }
+
+    /**
+     * Called when a solve of the tenant ended, so the lessons of finished solves aren't kept.
+     * A restart to apply problem changes splits the time table again.
+     * @param tenantId never null
+     */
+    public void forget(Long tenantId) {
+        lessonPartitionMap.remove(tenantId);
+    }
+
+    private AtomicInteger gauge(String name, Tags tags) {
+        return gaugeMap.computeIfAbsent(name + tags, key -> meterRegistry.gauge(name, tags, new AtomicInteger()));
+    }
+
+}
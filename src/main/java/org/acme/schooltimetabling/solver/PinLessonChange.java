@@ -0,0 +1,59 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.acme.schooltimetabling.solver;
+
+import org.acme.schooltimetabling.domain.Lesson;
+import org.acme.schooltimetabling.domain.TimeTable;
+import org.optaplanner.core.api.score.director.ScoreDirector;
+import org.optaplanner.core.api.solver.ProblemFactChange;
+
+/**
+ * Pins or unpins a lesson of a live solve.
+ * The solver applies problem changes to its best solution, so a lesson is pinned to its best timeslot and room,
+ * which the best solution writer persists.
+ * A lesson without a timeslot or room in the best solution isn't pinned, because the solver would never assign it.
+ */
+public class PinLessonChange implements ProblemFactChange<TimeTable> {
+
+    private final Long lessonId;
+    private final boolean pinned;
+
+    /**
+     * @param lessonId never null
+     * @param pinned true to pin, false to unpin
+     */
+    public PinLessonChange(Long lessonId, boolean pinned) {
+        this.lessonId = lessonId;
+        this.pinned = pinned;
+    }
+
+    @Override
+    public void doChange(ScoreDirector<TimeTable> scoreDirector) {
+        Lesson workingLesson = RemoveLessonChange.findLesson(scoreDirector.getWorkingSolution(), lessonId);
+        if (workingLesson == null || workingLesson.isPinned() == pinned) {
+            return;
+        }
+        if (pinned && (workingLesson.getTimeslot() == null || workingLesson.getRoom() == null)) {
+            return;
+        }
+        scoreDirector.beforeProblemPropertyChanged(workingLesson);
+        workingLesson.setPinned(pinned);
+        scoreDirector.afterProblemPropertyChanged(workingLesson);
+        scoreDirector.triggerVariableListeners();
+    }
+
+}
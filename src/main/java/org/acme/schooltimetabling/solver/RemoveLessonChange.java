@@ -0,0 +1,60 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.acme.schooltimetabling.solver;
+
+import org.acme.schooltimetabling.domain.Lesson;
+import org.acme.schooltimetabling.domain.TimeTable;
+import org.optaplanner.core.api.score.director.ScoreDirector;
+import org.optaplanner.core.api.solver.ProblemFactChange;
+
+/**
+ * Removes a deleted lesson from a live solve, unless the solve didn't load it.
+ */
+public class RemoveLessonChange implements ProblemFactChange<TimeTable> {
+
+    private final Long lessonId;
+
+    /**
+     * @param lessonId never null
+     */
+    public RemoveLessonChange(Long lessonId) {
+        this.lessonId = lessonId;
+    }
+
+    @Override
+    public void doChange(ScoreDirector<TimeTable> scoreDirector) {
+        TimeTable timeTable = scoreDirector.getWorkingSolution();
+        Lesson workingLesson = findLesson(timeTable, lessonId);
+        if (workingLesson == null) {
+            return;
+        }
+        scoreDirector.beforeEntityRemoved(workingLesson);
+        timeTable.getLessonList().remove(workingLesson);
+        scoreDirector.afterEntityRemoved(workingLesson);
+        scoreDirector.triggerVariableListeners();
+    }
+
+    static Lesson findLesson(TimeTable timeTable, Long lessonId) {
+        for (Lesson lesson : timeTable.getLessonList()) {
+            if (lesson.getId().equals(lessonId)) {
+                return lesson;
+            }
+        }
+        return null;
+    }
+
+}
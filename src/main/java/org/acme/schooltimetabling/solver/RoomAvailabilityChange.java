@@ -0,0 +1,53 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.acme.schooltimetabling.solver;
+
+import org.acme.schooltimetabling.domain.Room;
+import org.acme.schooltimetabling.domain.TimeTable;
+import org.optaplanner.core.api.score.director.ScoreDirector;
+import org.optaplanner.core.api.solver.ProblemFactChange;
+
+/**
+ * Makes a room of a live solve available or unavailable.
+ */
+public class RoomAvailabilityChange implements ProblemFactChange<TimeTable> {
+
+    private final Room room;
+    private final boolean available;
+
+    /**
+     * @param room never null, persisted
+     * @param available false if no lesson can be held in the room
+     */
+    public RoomAvailabilityChange(Room room, boolean available) {
+        this.room = room;
+        this.available = available;
+    }
+
+    @Override
+    public void doChange(ScoreDirector<TimeTable> scoreDirector) {
+        Room workingRoom = scoreDirector.lookUpWorkingObjectOrReturnNull(room);
+        if (workingRoom == null || workingRoom.isAvailable() == available) {
+            return;
+        }
+        scoreDirector.beforeProblemPropertyChanged(workingRoom);
+        workingRoom.setAvailable(available);
+        scoreDirector.afterProblemPropertyChanged(workingRoom);
+        scoreDirector.triggerVariableListeners();
+    }
+
+}
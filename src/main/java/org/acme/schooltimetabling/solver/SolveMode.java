@@ -0,0 +1,40 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.acme.schooltimetabling.solver;
+
+/**
+ * Which SolverManager a {@link SolverScheduler} solves a tenant with.
+ */
+public enum SolveMode {
+    /**
+     * The default SolverManager, configured by solverConfig.xml and application.properties.
+     */
+    COLD,
+    /**
+     * The {@link WarmStart} SolverManager, for a tenant that is mostly assigned already.
+     */
+    WARM_START,
+    /**
+     * The {@link Partitioned} SolverManager, for a tenant with many lessons.
+     */
+    PARTITIONED;
+
+    public String getTag() {
+        return name().toLowerCase();
+    }
+
+}
@@ -0,0 +1,412 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.acme.schooltimetabling.solver;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+
+import org.acme.schooltimetabling.domain.SolverNode;
+import org.acme.schooltimetabling.persistence.SolverNodeRepository;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+import org.optaplanner.core.api.solver.SolverStatus;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.runtime.StartupEvent;
+
+/**
+ * Shards the tenants over the nodes that share the database, so each tenant is solved on exactly one node.
+ * Every node heartbeats its {@link SolverNode} row every {@code timeTable.cluster.heartbeat-interval}
+ * and assigns the tenants to the live nodes with a {@link ConsistentHashRing}.
+ * A solve, stop, status, problem change or problem import request for a tenant of another node
+ * is forwarded to that node, with the {@code timeTable.cluster.secret} in the {@link #FORWARDED_HEADER}.
+ * <p>
+ * When a node joins, the other nodes stop the tenants it now owns and, once their final best solution is saved,
+ * resubmit them to it, which warm starts them from that solution.
+ * A tenant that doesn't stop within {@code timeTable.cluster.handoff-attempts} times the
+ * {@code timeTable.cluster.handoff-timeout} isn't handed off, the next heartbeat tries again.
+ * When a node doesn't heartbeat for {@code timeTable.cluster.node-timeout},
+ * the node that removes it resubmits its tenants to their new owners.
+ * The solver status of a remote tenant is cached for {@code timeTable.cluster.status-cache-ttl},
+ * so polling clients don't cost a request to its owner each.
+ * <p>
+ * Disabled unless {@code timeTable.cluster.enabled=true}, in which case every tenant is local.
+ */
+@ApplicationScoped
+public class SolverCoordinator {
+
+    // Set to the cluster secret on forwarded requests,
+    // so the receiving node handles them even if its ring is briefly different
+    public static final String FORWARDED_HEADER = "X-TimeTable-Forwarded";
+
+    private static final Logger LOGGER = Logger.getLogger(SolverCoordinator.class);
+
+    @ConfigProperty(name = "timeTable.cluster.enabled", defaultValue = "false")
+    boolean enabled;
+    @ConfigProperty(name = "timeTable.cluster.node-url", defaultValue = "http://localhost:8080")
+    String nodeUrl;
+    @ConfigProperty(name = "timeTable.cluster.heartbeat-interval", defaultValue = "2s")
+    Duration heartbeatInterval;
+    @ConfigProperty(name = "timeTable.cluster.node-timeout", defaultValue = "10s")
+    Duration nodeTimeout;
+    @ConfigProperty(name = "timeTable.cluster.virtual-node-count", defaultValue = "100")
+    int virtualNodeCount;
+    @ConfigProperty(name = "timeTable.cluster.forward-timeout", defaultValue = "5s")
+    Duration forwardTimeout;
+    @ConfigProperty(name = "timeTable.cluster.handoff-timeout", defaultValue = "30s")
+    Duration handOffTimeout;
+    @ConfigProperty(name = "timeTable.cluster.handoff-attempts", defaultValue = "3")
+    int handOffAttempts;
+    @ConfigProperty(name = "timeTable.cluster.status-cache-ttl", defaultValue = "1s")
+    Duration statusCacheTtl;
+    @ConfigProperty(name = "timeTable.cluster.import-timeout", defaultValue = "10m")
+    Duration importTimeout;
+    @ConfigProperty(name = "timeTable.cluster.secret")
+    Optional<String> secret;
+
+    @Inject
+    SolverNodeRepository solverNodeRepository;
+    @Inject
+    SolverScheduler solverScheduler;
+    @Inject
+    MeterRegistry meterRegistry;
+
+    private final AtomicInteger nodeCount = new AtomicInteger(1);
+    private volatile ConsistentHashRing ring;
+    private final Set<Long> handingOffTenantIdSet = ConcurrentHashMap.newKeySet();
+    private final ConcurrentMap<Long, CachedSolverStatus> remoteSolverStatusMap = new ConcurrentHashMap<>();
+    private HttpClient httpClient;
+    private ScheduledExecutorService executorService;
+    // Separate, so waiting for a solve to stop doesn't delay the heartbeat
+    private ExecutorService handOffExecutorService;
+
+    public void start(@Observes StartupEvent startupEvent) {
+        if (!enabled) {
+            return;
+        }
+        if (secret.isEmpty()) {
+            throw new IllegalStateException("The timeTable.cluster.secret must be set when the cluster is enabled,"
+                    + " so only the other nodes can send forwarded requests.");
+        }
+        // Until the first heartbeat, this node only knows itself
+        ring = new ConsistentHashRing(Collections.singletonList(nodeUrl), virtualNodeCount);
+        httpClient = HttpClient.newBuilder()
+                .connectTimeout(forwardTimeout)
+                .build();
+        meterRegistry.gauge("timetable.cluster.nodes", nodeCount);
+        executorService = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "SolverCoordinator");
+            thread.setDaemon(true);
+            return thread;
+        });
+        handOffExecutorService = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "SolverCoordinator-handoff");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executorService.scheduleWithFixedDelay(this::heartbeat, 0L, heartbeatInterval.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (executorService == null) {
+            return;
+        }
+        executorService.shutdownNow();
+        handOffExecutorService.shutdownNow();
+        // Leave gracefully, the other nodes take over on their next heartbeat instead of after the node-timeout
+        try {
+            solverNodeRepository.remove(nodeUrl);
+        } catch (RuntimeException e) {
+            LOGGER.warn("Node (" + nodeUrl + ") failed to unregister.", e);
+        }
+    }
+
+    /**
+     * @param tenantId never null
+     * @return null if this node owns the tenant, otherwise the URL of the node that does
+     */
+    public String getRemoteOwnerUrl(Long tenantId) {
+        if (!enabled) {
+            return null;
+        }
+        String ownerUrl = ring.getOwner(tenantId);
+        return ownerUrl.equals(nodeUrl) ? null : ownerUrl;
+    }
+
+    /**
+     * @param forwardedHeader sometimes null, the value of the {@link #FORWARDED_HEADER}
+     * @return true if another node forwarded the request, false if a client sent it or forged the header
+     */
+    public boolean isForwarded(String forwardedHeader) {
+        if (!enabled || forwardedHeader == null) {
+            return false;
+        }
+        // Constant time, so the secret can't be guessed from the response times
+        return MessageDigest.isEqual(forwardedHeader.getBytes(StandardCharsets.UTF_8),
+                secret.get().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param ownerUrl never null
+     * @param tenantId never null
+     * @param action never null, such as {@code solve} or {@code stopSolving}
+     * @return the HTTP status code of the owner's response
+     * @throws SolverNodeUnavailableException if the owner doesn't respond
+     */
+    public int forward(String ownerUrl, Long tenantId, String action) {
+        return forward(ownerUrl, tenantId, action, "POST", action, null).statusCode();
+    }
+
+    /**
+     * @param ownerUrl never null
+     * @param tenantId never null
+     * @param action never null, the metric tag, such as {@code pinLesson}
+     * @param method never null, such as {@code POST} or {@code DELETE}
+     * @param path never null, relative to the tenant, such as {@code lessons/1/pin}
+     * @param jsonBody null if the request has no body
+     * @return never null, the owner's response
+     * @throws SolverNodeUnavailableException if the owner doesn't respond
+     */
+    public HttpResponse<byte[]> forward(String ownerUrl, Long tenantId, String action, String method, String path,
+            byte[] jsonBody) {
+        HttpRequest.Builder requestBuilder = buildRequest(ownerUrl, tenantId, path);
+        if (jsonBody == null) {
+            requestBuilder.method(method, HttpRequest.BodyPublishers.noBody());
+        } else {
+            requestBuilder.header("Content-Type", "application/json")
+                    .method(method, HttpRequest.BodyPublishers.ofByteArray(jsonBody));
+        }
+        // The request likely changes the solver status, such as a solve or a stop
+        remoteSolverStatusMap.remove(tenantId);
+        HttpResponse<byte[]> response = send(requestBuilder.build(), HttpResponse.BodyHandlers.ofByteArray());
+        meterRegistry.counter("timetable.cluster.forwarded", "action", action).increment();
+        return response;
+    }
+
+    /**
+     * Streams a problem import to the owner, so the owner's {@link SolverScheduler} locks the tenant.
+     * Waits up to the {@code timeTable.cluster.import-timeout} instead, because the owner answers once it's stored.
+     * @param ownerUrl never null
+     * @param tenantId never null
+     * @param body never null, read once
+     * @param contentType never null
+     * @return never null, the owner's response
+     * @throws SolverNodeUnavailableException if the owner doesn't respond
+     */
+    public HttpResponse<byte[]> forwardImport(String ownerUrl, Long tenantId, InputStream body, String contentType) {
+        HttpRequest request = buildRequest(ownerUrl, tenantId, "problem", importTimeout)
+                .header("Content-Type", contentType)
+                .PUT(HttpRequest.BodyPublishers.ofInputStream(() -> body))
+                .build();
+        HttpResponse<byte[]> response = send(request, HttpResponse.BodyHandlers.ofByteArray());
+        meterRegistry.counter("timetable.cluster.forwarded", "action", "importProblem").increment();
+        return response;
+    }
+
+    /**
+     * Like {@link #fetchSolverStatus}, but at most once per {@code timeTable.cluster.status-cache-ttl}.
+     * @param ownerUrl never null
+     * @param tenantId never null
+     * @return never null
+     * @throws SolverNodeUnavailableException if the owner doesn't respond
+     */
+    public SolverStatus getRemoteSolverStatus(String ownerUrl, Long tenantId) {
+        long nowNanos = System.nanoTime();
+        CachedSolverStatus cached = remoteSolverStatusMap.get(tenantId);
+        if (cached != null && cached.ownerUrl.equals(ownerUrl)
+                && nowNanos - cached.fetchedNanos < statusCacheTtl.toNanos()) {
+            return cached.solverStatus;
+        }
+        SolverStatus solverStatus = fetchSolverStatus(ownerUrl, tenantId);
+        remoteSolverStatusMap.put(tenantId, new CachedSolverStatus(ownerUrl, solverStatus, nowNanos));
+        return solverStatus;
+    }
+
+    /**
+     * @param ownerUrl never null
+     * @param tenantId never null
+     * @return never null
+     * @throws SolverNodeUnavailableException if the owner doesn't respond
+     */
+    public SolverStatus fetchSolverStatus(String ownerUrl, Long tenantId) {
+        HttpRequest request = buildRequest(ownerUrl, tenantId, "solverStatus")
+                .GET()
+                .build();
+        HttpResponse<String> response = send(request, HttpResponse.BodyHandlers.ofString());
+        meterRegistry.counter("timetable.cluster.forwarded", "action", "solverStatus").increment();
+        if (response.statusCode() != 200) {
+            throw new SolverNodeUnavailableException("Node (" + ownerUrl + ") responded with status ("
+                    + response.statusCode() + ") for the solver status of tenant (" + tenantId + ").", null);
+        }
+        return SolverStatus.valueOf(response.body().trim());
+    }
+
+    private HttpRequest.Builder buildRequest(String ownerUrl, Long tenantId, String path) {
+        return buildRequest(ownerUrl, tenantId, path, forwardTimeout);
+    }
+
+    private HttpRequest.Builder buildRequest(String ownerUrl, Long tenantId, String path, Duration timeout) {
+        return HttpRequest.newBuilder(URI.create(ownerUrl + "/timeTable/" + tenantId + "/" + path))
+                .timeout(timeout)
+                .header(FORWARDED_HEADER, secret.get());
+    }
+
+    private <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> bodyHandler) {
+        try {
+            return httpClient.send(request, bodyHandler);
+        } catch (IOException e) {
+            throw new SolverNodeUnavailableException("Forwarding (" + request.uri() + ") failed.", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SolverNodeUnavailableException("Forwarding (" + request.uri() + ") was interrupted.", e);
+        }
+    }
+
+    private void heartbeat() {
+        // An uncaught exception would cancel the heartbeat, so the other nodes would drop this node
+        try {
+            Instant now = Instant.now();
+            List<Long> activeTenantIdList = solverScheduler.getActiveTenantIds();
+            solverNodeRepository.heartbeat(nodeUrl, now, activeTenantIdList.stream()
+                    .map(Object::toString)
+                    .collect(Collectors.joining(",")));
+            List<SolverNode> expiredNodeList = solverNodeRepository.removeExpired(now.minus(nodeTimeout));
+            List<String> nodeUrlList = solverNodeRepository.findUrls();
+            nodeCount.set(nodeUrlList.size());
+            if (!nodeUrlList.equals(ring.getNodeUrlList())) {
+                LOGGER.info("Nodes changed from " + ring.getNodeUrlList() + " to " + nodeUrlList + ".");
+                ring = new ConsistentHashRing(nodeUrlList, virtualNodeCount);
+            }
+            // Also retries the tenants whose hand-off gave up
+            handOffMovedTenants(activeTenantIdList);
+            for (SolverNode expiredNode : expiredNodeList) {
+                handOffExpiredNodeTenants(expiredNode);
+            }
+        } catch (RuntimeException e) {
+            LOGGER.error("Node (" + nodeUrl + ") failed to heartbeat.", e);
+        }
+    }
+
+    private void handOffMovedTenants(List<Long> activeTenantIdList) {
+        for (Long tenantId : activeTenantIdList) {
+            if (getRemoteOwnerUrl(tenantId) != null && handingOffTenantIdSet.add(tenantId)) {
+                solverScheduler.terminateEarly(tenantId);
+                handOffExecutorService.execute(() -> handOffOnceStopped(tenantId));
+            }
+        }
+    }
+
+    private void handOffOnceStopped(Long tenantId) {
+        try {
+            // Otherwise the new owner warm starts from an older solution
+            // and this node's final write overwrites the new owner's results
+            int attempt = 1;
+            while (!solverScheduler.awaitStopped(tenantId, handOffTimeout)) {
+                if (attempt >= handOffAttempts) {
+                    // Frees the hand-off thread for the other tenants, the next heartbeat retries it
+                    LOGGER.error("Tenant (" + tenantId + ") hasn't stopped solving after (" + handOffAttempts
+                            + ") times (" + handOffTimeout + "), giving up handing it off.");
+                    return;
+                }
+                attempt++;
+                LOGGER.warn("Tenant (" + tenantId + ") hasn't stopped solving after (" + handOffTimeout
+                        + "), terminating it again.");
+                solverScheduler.terminateEarly(tenantId);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOGGER.warn("Interrupted before handing off tenant (" + tenantId + ").");
+            return;
+        } finally {
+            handingOffTenantIdSet.remove(tenantId);
+        }
+        // The nodes might have changed again while it was stopping
+        String ownerUrl = getRemoteOwnerUrl(tenantId);
+        handOff(ownerUrl != null ? ownerUrl : nodeUrl, tenantId);
+    }
+
+    private void handOffExpiredNodeTenants(SolverNode expiredNode) {
+        String activeTenantIds = expiredNode.getActiveTenantIds();
+        LOGGER.warn("Node (" + expiredNode + ") stopped heartbeating, resubmitting its tenants ("
+                + activeTenantIds + ").");
+        if (activeTenantIds == null || activeTenantIds.isEmpty()) {
+            return;
+        }
+        for (String tenantId : activeTenantIds.split(",")) {
+            Long id = Long.valueOf(tenantId);
+            String ownerUrl = getRemoteOwnerUrl(id);
+            // Forwarded to this node too, so the solve goes through the same TimeTableResource consumers
+            handOff(ownerUrl != null ? ownerUrl : nodeUrl, id);
+        }
+    }
+
+    private void handOff(String ownerUrl, Long tenantId) {
+        LOGGER.info("Handing off tenant (" + tenantId + ") to node (" + ownerUrl + ").");
+        try {
+            int statusCode = forward(ownerUrl, tenantId, "solve");
+            if (statusCode >= 300) {
+                LOGGER.warn("Node (" + ownerUrl + ") refused tenant (" + tenantId + ") with status ("
+                        + statusCode + ").");
+            }
+            meterRegistry.counter("timetable.cluster.handoffs", "tenantId", tenantId.toString()).increment();
+        } catch (SolverNodeUnavailableException e) {
+            LOGGER.warn("Handing off tenant (" + tenantId + ") failed.", e);
+        }
+    }
+
+    private static final class CachedSolverStatus {
+
+        private final String ownerUrl;
+        private final SolverStatus solverStatus;
+        private final long fetchedNanos;
+
+        private CachedSolverStatus(String ownerUrl, SolverStatus solverStatus, long fetchedNanos) {
+            this.ownerUrl = ownerUrl;
+            this.solverStatus = solverStatus;
+            this.fetchedNanos = fetchedNanos;
+        }
+
+    }
+
+}
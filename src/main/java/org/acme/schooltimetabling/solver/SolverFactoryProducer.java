@@ -0,0 +1,191 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.acme.schooltimetabling.solver;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+
+import javax.enterprise.inject.Disposes;
+import javax.enterprise.inject.Produces;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.acme.schooltimetabling.domain.TimeTable;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.optaplanner.core.api.solver.SolverFactory;
+import org.optaplanner.core.api.solver.SolverManager;
+import org.optaplanner.core.config.constructionheuristic.ConstructionHeuristicPhaseConfig;
+import org.optaplanner.core.config.heuristic.selector.move.factory.MoveIteratorFactoryConfig;
+import org.optaplanner.core.config.localsearch.LocalSearchPhaseConfig;
+import org.optaplanner.core.config.partitionedsearch.PartitionedSearchPhaseConfig;
+import org.optaplanner.core.config.solver.SolverConfig;
+import org.optaplanner.core.config.solver.SolverManagerConfig;
+import org.optaplanner.core.config.solver.termination.TerminationConfig;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Replaces the default {@link SolverFactory} of the OptaPlanner extension,
+ * so the SolverManager and the ScoreManager it produces are instrumented too,
+ * and adds a {@link WarmStart} and a {@link Partitioned} SolverManager.
+ */
+public class SolverFactoryProducer {
+
+    @ConfigProperty(name = "timeTable.warm-start.unimproved-spent-limit", defaultValue = "30s")
+    Duration warmStartUnimprovedSpentLimit;
+    @ConfigProperty(name = "timeTable.partitioning.part-count", defaultValue = "4")
+    int partCount;
+    @ConfigProperty(name = "timeTable.partitioning.thread-limit", defaultValue = "AUTO")
+    String partThreadLimit;
+    @ConfigProperty(name = "timeTable.partitioning.part-unimproved-spent-limit", defaultValue = "10s")
+    Duration partUnimprovedSpentLimit;
+    @ConfigProperty(name = "timeTable.partitioning.merge-unimproved-spent-limit", defaultValue = "30s")
+    Duration mergeUnimprovedSpentLimit;
+    @ConfigProperty(name = "timeTable.conflict-directed.enabled", defaultValue = "false")
+    boolean conflictDirectedEnabled;
+    @ConfigProperty(name = "timeTable.conflict-directed.focus-ratio", defaultValue = "0.9")
+    double conflictDirectedFocusRatio;
+
+    @Inject
+    SolverConfig solverConfig;
+    @Inject
+    SolverManagerConfig solverManagerConfig;
+    @Inject
+    MeterRegistry meterRegistry;
+    @Inject
+    LiveSolverRegistry liveSolverRegistry;
+    @Inject
+    PartitionMetrics partitionMetrics;
+
+    @Produces
+    @Singleton
+    public SolverFactory<TimeTable> solverFactory() {
+        return buildSolverFactory(buildDefaultSolverConfig());
+    }
+
+    /**
+     * Solves a time table that was solved before, so it's mostly assigned already.
+     * The construction heuristic only assigns the unassigned lessons, because it skips initialized entities,
+     * and local search stops once it didn't improve for {@code timeTable.warm-start.unimproved-spent-limit}.
+     */
+    @Produces
+    @Singleton
+    @WarmStart
+    public SolverManager<TimeTable, Long> warmStartSolverManager() {
+        return SolverManager.create(
+                buildSolverFactory(buildWarmStartSolverConfig(buildDefaultSolverConfig(),
+                        warmStartUnimprovedSpentLimit)),
+                solverManagerConfig);
+    }
+
+    public void closeWarmStartSolverManager(@Disposes @WarmStart SolverManager<TimeTable, Long> solverManager) {
+        solverManager.close();
+    }
+
+    /**
+     * Solves a large time table in {@code timeTable.partitioning.part-count} parts in parallel,
+     * see {@link TimeTablePartitioner}, and then merges them with a short local search on the whole time table.
+     */
+    @Produces
+    @Singleton
+    @Partitioned
+    public SolverManager<TimeTable, Long> partitionedSolverManager() {
+        return SolverManager.create(
+                buildSolverFactory(buildPartitionedSolverConfig(solverConfig, partCount, partThreadLimit,
+                        partUnimprovedSpentLimit, mergeUnimprovedSpentLimit)),
+                solverManagerConfig);
+    }
+
+    public void closePartitionedSolverManager(@Disposes @Partitioned SolverManager<TimeTable, Long> solverManager) {
+        solverManager.close();
+    }
+
+    private SolverConfig buildDefaultSolverConfig() {
+        return conflictDirectedEnabled ? buildConflictDirectedSolverConfig(solverConfig, conflictDirectedFocusRatio)
+                : solverConfig;
+    }
+
+    private SolverFactory<TimeTable> buildSolverFactory(SolverConfig solverConfig) {
+        return new InstrumentedSolverFactory(solverConfig, meterRegistry, liveSolverRegistry, partitionMetrics);
+    }
+
+    /**
+     * @param solverConfig never null, not modified
+     * @param unimprovedSpentLimit never null
+     * @return never null, a copy of the solverConfig that also terminates after the unimprovedSpentLimit
+     */
+    public static SolverConfig buildWarmStartSolverConfig(SolverConfig solverConfig, Duration unimprovedSpentLimit) {
+        SolverConfig warmStartSolverConfig = solverConfig.copyConfig();
+        TerminationConfig terminationConfig = solverConfig.getTerminationConfig() == null ? new TerminationConfig()
+                : solverConfig.getTerminationConfig().copyConfig();
+        // The other limits, such as the spent limit, still apply
+        terminationConfig.setUnimprovedSpentLimit(unimprovedSpentLimit);
+        warmStartSolverConfig.setTerminationConfig(terminationConfig);
+        return warmStartSolverConfig;
+    }
+
+    /**
+     * @param solverConfig never null, not modified
+     * @param partCount at least 1
+     * @param partThreadLimit never null, such as {@code AUTO} or {@code 4}
+     * @param partUnimprovedSpentLimit never null, ends the local search of each part
+     * @param mergeUnimprovedSpentLimit never null, ends the local search on the merged parts
+     * @return never null, a copy of the solverConfig with a partitioned search phase and a local search phase
+     */
+    public static SolverConfig buildPartitionedSolverConfig(SolverConfig solverConfig, int partCount,
+            String partThreadLimit, Duration partUnimprovedSpentLimit, Duration mergeUnimprovedSpentLimit) {
+        LocalSearchPhaseConfig partLocalSearchPhaseConfig = new LocalSearchPhaseConfig();
+        partLocalSearchPhaseConfig.setTerminationConfig(
+                new TerminationConfig().withUnimprovedSpentLimit(partUnimprovedSpentLimit));
+        PartitionedSearchPhaseConfig partitionedSearchPhaseConfig = new PartitionedSearchPhaseConfig();
+        partitionedSearchPhaseConfig.setSolutionPartitionerClass(TimeTablePartitioner.class);
+        partitionedSearchPhaseConfig.setSolutionPartitionerCustomProperties(
+                Collections.singletonMap("partCount", Integer.toString(partCount)));
+        partitionedSearchPhaseConfig.setRunnablePartThreadLimit(partThreadLimit);
+        partitionedSearchPhaseConfig.setPhaseConfigList(
+                Arrays.asList(new ConstructionHeuristicPhaseConfig(), partLocalSearchPhaseConfig));
+        // Fixes the teacher and room conflicts between the parts
+        LocalSearchPhaseConfig mergeLocalSearchPhaseConfig = new LocalSearchPhaseConfig();
+        mergeLocalSearchPhaseConfig.setTerminationConfig(
+                new TerminationConfig().withUnimprovedSpentLimit(mergeUnimprovedSpentLimit));
+        SolverConfig partitionedSolverConfig = solverConfig.copyConfig();
+        partitionedSolverConfig.setPhaseConfigList(
+                Arrays.asList(partitionedSearchPhaseConfig, mergeLocalSearchPhaseConfig));
+        return partitionedSolverConfig;
+    }
+
+    /**
+     * @param solverConfig never null, not modified
+     * @param focusRatio between 0 and 1, see {@link ConflictDirectedMoveIteratorFactory#setFocusRatio(double)}
+     * @return never null, a copy of the solverConfig with a construction heuristic and a local search phase
+     * that only selects the moves of a {@link ConflictDirectedMoveIteratorFactory}
+     */
+    public static SolverConfig buildConflictDirectedSolverConfig(SolverConfig solverConfig, double focusRatio) {
+        MoveIteratorFactoryConfig moveIteratorFactoryConfig = new MoveIteratorFactoryConfig();
+        moveIteratorFactoryConfig.setMoveIteratorFactoryClass(ConflictDirectedMoveIteratorFactory.class);
+        moveIteratorFactoryConfig.setMoveIteratorFactoryCustomProperties(
+                Collections.singletonMap("focusRatio", Double.toString(focusRatio)));
+        LocalSearchPhaseConfig localSearchPhaseConfig = new LocalSearchPhaseConfig();
+        localSearchPhaseConfig.setMoveSelectorConfig(moveIteratorFactoryConfig);
+        SolverConfig conflictDirectedSolverConfig = solverConfig.copyConfig();
+        conflictDirectedSolverConfig.setPhaseConfigList(
+                Arrays.asList(new ConstructionHeuristicPhaseConfig(), localSearchPhaseConfig));
+        return conflictDirectedSolverConfig;
+    }
+
+}
@@ -0,0 +1,239 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.acme.schooltimetabling.solver;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.acme.schooltimetabling.domain.Lesson;
+import org.acme.schooltimetabling.domain.LessonAssignment;
+import org.acme.schooltimetabling.domain.TimeTable;
+import org.optaplanner.core.api.score.Score;
+import org.optaplanner.core.api.solver.Solver;
+import org.optaplanner.core.impl.constructionheuristic.scope.ConstructionHeuristicPhaseScope;
+import org.optaplanner.core.impl.localsearch.scope.LocalSearchPhaseScope;
+import org.optaplanner.core.impl.localsearch.scope.LocalSearchStepScope;
+import org.optaplanner.core.impl.partitionedsearch.scope.PartitionedSearchPhaseScope;
+import org.optaplanner.core.impl.phase.event.PhaseLifecycleListenerAdapter;
+import org.optaplanner.core.impl.phase.scope.AbstractPhaseScope;
+import org.optaplanner.core.impl.phase.scope.AbstractStepScope;
+import org.optaplanner.core.impl.solver.scope.SolverScope;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Counts the score calculations and the evaluated moves of one solver, tagged by tenant,
+ * and records the score calculation speed and move evaluation speed of every phase.
+ * Use {@code rate(timetable_solver_score_calculations_total[1m])} for a live speed.
+ * Tracks how a solve progresses too: the time to the first initialized and the first feasible best solution,
+ * the duration and the step speed of each phase, each best score improvement and the time it occurred at,
+ * and the time spent after the last improvement, which shows whether the spent limit is too long or too short.
+ * The durations are timers with percentile histograms, without the tenant tag:
+ * each tenant would add a series per histogram bucket, and they aggregate over tenants and nodes anyway.
+ * Each is also recorded per tenant in a timer of the same name with a {@code .by.tenant} suffix,
+ * without a histogram, so a tenant only adds its count, sum and max.
+ * The time spent after the last improvement and the run are recorded once per solve,
+ * not again for every restart to apply problem changes.
+ * Also reports the improvements of each partition of a partitioned search to the {@link PartitionMetrics}.
+ * A solver runs on a single thread, so this isn't thread-safe.
+ */
+public class SolverMetricsListener extends PhaseLifecycleListenerAdapter<TimeTable> {
+
+    // Bounds the histogram buckets, well above the default spent limit of 5 minutes
+    private static final Duration MAX_EXPECTED_DURATION = Duration.ofMinutes(30);
+
+    private final Solver<TimeTable> solver;
+    private final MeterRegistry meterRegistry;
+    private final PartitionMetrics partitionMetrics;
+
+    private Long tenantId;
+    private String tenantTag;
+    private Counter scoreCalculationCounter;
+    private Counter moveEvaluationCounter;
+    private long lastScoreCalculationCount;
+    private long phaseMoveEvaluationCount;
+    // The assignment of each lesson before the current step of a partitioned search, null in other phases
+    private Map<Lesson, LessonAssignment> partitionedAssignmentMap;
+    // Kept across the restarts to apply problem changes, which call solvingStarted() again
+    private long solveStartNanos = -1L;
+    private boolean initializedRecorded = false;
+    private boolean feasibleRecorded = false;
+    private long lastImprovementNanos;
+    private boolean runRecorded = false;
+
+    public SolverMetricsListener(Solver<TimeTable> solver, MeterRegistry meterRegistry,
+            PartitionMetrics partitionMetrics) {
+        this.solver = solver;
+        this.meterRegistry = meterRegistry;
+        this.partitionMetrics = partitionMetrics;
+    }
+
+    @Override
+    public void solvingStarted(SolverScope<TimeTable> solverScope) {
+        tenantId = solverScope.getWorkingSolution().getTenantId();
+        tenantTag = tenantId == null ? "none" : tenantId.toString();
+        scoreCalculationCounter = meterRegistry.counter("timetable.solver.score.calculations", "tenantId", tenantTag);
+        moveEvaluationCounter = meterRegistry.counter("timetable.solver.moves.evaluated", "tenantId", tenantTag);
+        lastScoreCalculationCount = solverScope.getScoreCalculationCount();
+        long nowNanos = System.nanoTime();
+        if (solveStartNanos < 0L) {
+            solveStartNanos = nowNanos;
+        }
+        lastImprovementNanos = nowNanos;
+        // A warm start or a restart can begin from an initialized or feasible solution
+        recordFirstBestScores(solverScope);
+    }
+
+    @Override
+    public void phaseStarted(AbstractPhaseScope<TimeTable> phaseScope) {
+        phaseMoveEvaluationCount = 0L;
+        if (phaseScope instanceof PartitionedSearchPhaseScope && tenantId != null) {
+            List<Lesson> lessonList = phaseScope.getWorkingSolution().getLessonList();
+            partitionedAssignmentMap = new IdentityHashMap<>(lessonList.size());
+            for (Lesson lesson : lessonList) {
+                partitionedAssignmentMap.put(lesson, LessonAssignment.of(lesson));
+            }
+        }
+    }
+
+    @Override
+    public void stepEnded(AbstractStepScope<TimeTable> stepScope) {
+        long scoreCalculationCount = stepScope.getPhaseScope().getSolverScope().getScoreCalculationCount();
+        scoreCalculationCounter.increment(scoreCalculationCount - lastScoreCalculationCount);
+        lastScoreCalculationCount = scoreCalculationCount;
+        if (stepScope instanceof LocalSearchStepScope) {
+            Long selectedMoveCount = ((LocalSearchStepScope<TimeTable>) stepScope).getSelectedMoveCount();
+            if (selectedMoveCount != null) {
+                moveEvaluationCounter.increment(selectedMoveCount);
+                phaseMoveEvaluationCount += selectedMoveCount;
+            }
+        } else if (partitionedAssignmentMap != null) {
+            // Each step merges a new best solution of one partition.
+            // Its PartitionChangeMove doesn't support getPlanningEntities(), so find the lessons it changed.
+            partitionMetrics.recordImprovement(tenantId,
+                    findChangedLessons(stepScope.getPhaseScope().getWorkingSolution()));
+        }
+        if (Boolean.TRUE.equals(stepScope.getBestScoreImproved())) {
+            long nowNanos = System.nanoTime();
+            lastImprovementNanos = nowNanos;
+            meterRegistry.counter("timetable.solver.best.score.improvements",
+                    "tenantId", tenantTag, "phase", phaseTag(stepScope.getPhaseScope())).increment();
+            recordDuration("timetable.solver.best.score.improvement.time", nowNanos - solveStartNanos);
+            recordFirstBestScores(stepScope.getPhaseScope().getSolverScope());
+        }
+    }
+
+    @Override
+    public void phaseEnded(AbstractPhaseScope<TimeTable> phaseScope) {
+        String phaseTag = phaseTag(phaseScope);
+        meterRegistry.summary("timetable.solver.score.calculation.speed", "tenantId", tenantTag, "phase", phaseTag)
+                .record(phaseScope.getPhaseScoreCalculationSpeed());
+        long timeMillisSpent = phaseScope.calculatePhaseTimeMillisSpent();
+        if (phaseMoveEvaluationCount > 0L && timeMillisSpent > 0L) {
+            meterRegistry.summary("timetable.solver.move.evaluation.speed", "tenantId", tenantTag, "phase", phaseTag)
+                    .record(phaseMoveEvaluationCount * 1000.0 / timeMillisSpent);
+        }
+        recordDuration("timetable.solver.phase.duration", TimeUnit.MILLISECONDS.toNanos(timeMillisSpent),
+                "phase", phaseTag);
+        int stepCount = phaseScope.getNextStepIndex();
+        if (stepCount > 0 && timeMillisSpent > 0L) {
+            meterRegistry.summary("timetable.solver.step.speed", "tenantId", tenantTag, "phase", phaseTag)
+                    .record(stepCount * 1000.0 / timeMillisSpent);
+        }
+        // The construction heuristic doesn't necessarily flag its steps as best score improvements
+        recordFirstBestScores(phaseScope.getSolverScope());
+        partitionedAssignmentMap = null;
+    }
+
+    @Override
+    public void solvingEnded(SolverScope<TimeTable> solverScope) {
+        if (tenantId != null) {
+            partitionMetrics.forget(tenantId);
+        }
+        // The solver restarts if problem changes are pending, unless it's terminated early
+        if (runRecorded || (!solver.isTerminateEarly() && !solver.isEveryProblemFactChangeProcessed())) {
+            return;
+        }
+        runRecorded = true;
+        recordDuration("timetable.solver.unimproved.time", System.nanoTime() - lastImprovementNanos);
+        Score<?> bestScore = solverScope.getBestScore();
+        meterRegistry.counter("timetable.solver.runs", "tenantId", tenantTag,
+                "feasible", Boolean.toString(bestScore != null && bestScore.isFeasible())).increment();
+    }
+
+    private List<Lesson> findChangedLessons(TimeTable timeTable) {
+        List<Lesson> changedLessonList = new ArrayList<>();
+        for (Lesson lesson : timeTable.getLessonList()) {
+            LessonAssignment assignment = partitionedAssignmentMap.get(lesson);
+            if (assignment == null || !assignment.matches(lesson)) {
+                partitionedAssignmentMap.put(lesson, LessonAssignment.of(lesson));
+                changedLessonList.add(lesson);
+            }
+        }
+        return changedLessonList;
+    }
+
+    private void recordFirstBestScores(SolverScope<TimeTable> solverScope) {
+        Score<?> bestScore = solverScope.getBestScore();
+        if (bestScore == null || (initializedRecorded && feasibleRecorded)) {
+            return;
+        }
+        long elapsedNanos = System.nanoTime() - solveStartNanos;
+        if (!initializedRecorded && bestScore.isSolutionInitialized()) {
+            initializedRecorded = true;
+            recordDuration("timetable.solver.time.to.initialized", elapsedNanos);
+        }
+        if (!feasibleRecorded && bestScore.isFeasible()) {
+            feasibleRecorded = true;
+            recordDuration("timetable.solver.time.to.feasible", elapsedNanos);
+        }
+    }
+
+    private void recordDuration(String name, long durationNanos, String... tags) {
+        Timer.builder(name)
+                .tags(tags)
+                .publishPercentileHistogram()
+                .maximumExpectedValue(MAX_EXPECTED_DURATION)
+                .register(meterRegistry)
+                .record(durationNanos, TimeUnit.NANOSECONDS);
+        // Prometheus requires the same tag keys for every meter of a name, so the tenant's timer has its own name
+        Timer.builder(name + ".by.tenant")
+                .tags(tags)
+                .tag("tenantId", tenantTag)
+                .register(meterRegistry)
+                .record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private static String phaseTag(AbstractPhaseScope<TimeTable> phaseScope) {
+        if (phaseScope instanceof ConstructionHeuristicPhaseScope) {
+            return "constructionHeuristic";
+        } else if (phaseScope instanceof LocalSearchPhaseScope) {
+            return "localSearch";
+        } else if (phaseScope instanceof PartitionedSearchPhaseScope) {
+            return "partitionedSearch";
+        } else {
+            return "other";
+        }
+    }
+
+}
@@ -0,0 +1,483 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.acme.schooltimetabling.solver;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import org.acme.schooltimetabling.domain.TimeTable;
+import org.eclipse.microprofile.config.Config;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+import org.optaplanner.core.api.solver.SolverManager;
+import org.optaplanner.core.api.solver.SolverStatus;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+
+/**
+ * Admits solve requests to the {@link SolverManager}, so one tenant can't starve the others.
+ * At most {@code timeTable.scheduler.max-running-solves} solves run at the same time
+ * and at most {@code timeTable.scheduler.queue-capacity} wait; beyond that {@link #submit} throws a
+ * {@link SolverQueueFullException}.
+ * A tenant runs or waits at most once, because the tenant id is the problem id,
+ * so a repeated solve request of a tenant joins the one that's already queued or running.
+ * <p>
+ * A free slot goes to the waiting tenant with the highest {@code timeTable.scheduler.tenant.<id>.priority}
+ * and among those to the one that consumed the least solving time relative to its
+ * {@code timeTable.scheduler.tenant.<id>.weight} (weighted fair queueing).
+ * <p>
+ * A tenant whose problem is being replaced is locked with {@link #tryLockForImport},
+ * so no solve loads it halfway and saves assignments of lessons that no longer exist.
+ */
+@ApplicationScoped
+public class SolverScheduler {
+
+    private static final Logger LOGGER = Logger.getLogger(SolverScheduler.class);
+    // The SolverManager unregisters a job only after its final best solution consumer returns
+    private static final long RETRY_DELAY_MILLIS = 10L;
+
+    @ConfigProperty(name = "timeTable.scheduler.max-running-solves", defaultValue = "2")
+    int maxRunningSolves;
+    @ConfigProperty(name = "timeTable.scheduler.queue-capacity", defaultValue = "100")
+    int queueCapacity;
+    @ConfigProperty(name = "timeTable.scheduler.default-priority", defaultValue = "0")
+    int defaultPriority;
+    @ConfigProperty(name = "timeTable.scheduler.default-weight", defaultValue = "1")
+    int defaultWeight;
+
+    @Inject
+    Config config;
+    @Inject
+    SolverManager<TimeTable, Long> solverManager;
+    @Inject
+    @WarmStart
+    SolverManager<TimeTable, Long> warmStartSolverManager;
+    @Inject
+    @Partitioned
+    SolverManager<TimeTable, Long> partitionedSolverManager;
+    @Inject
+    LiveSolverRegistry liveSolverRegistry;
+    @Inject
+    MeterRegistry meterRegistry;
+
+    private final ConcurrentMap<Long, TenantState> tenantStateMap = new ConcurrentHashMap<>();
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final AtomicInteger runningCount = new AtomicInteger();
+    private ScheduledExecutorService executorService;
+
+    // Guarded by this
+    private final List<TenantState> queuedList = new ArrayList<>();
+    private double virtualTime = 0.0;
+    private boolean dispatchScheduled = false;
+
+    @PostConstruct
+    void startExecutor() {
+        executorService = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "SolverScheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        meterRegistry.gauge("timetable.scheduler.queue.depth", queueDepth);
+        meterRegistry.gauge("timetable.scheduler.running", runningCount);
+    }
+
+    @PreDestroy
+    void stopExecutor() {
+        executorService.shutdownNow();
+    }
+
+    /**
+     * Like {@link SolverManager#solveAndListen(Object, Function, Consumer, Consumer, BiConsumer)},
+     * but waits for a free slot first.
+     * @param tenantId never null
+     * @param solveMode never null
+     * @param problemFinder never null
+     * @param bestSolutionConsumer never null
+     * @param finalBestSolutionConsumer never null
+     * @param exceptionHandler never null
+     * @return true if the solve was queued, false if a solve of this tenant is already queued or running
+     * @throws SolverQueueFullException if too many tenants are waiting already
+     * @throws ProblemImportInProgressException if the problem of the tenant is being replaced
+     */
+    public synchronized boolean submit(Long tenantId, SolveMode solveMode, Function<Long, TimeTable> problemFinder,
+            Consumer<TimeTable> bestSolutionConsumer, Consumer<TimeTable> finalBestSolutionConsumer,
+            BiConsumer<Long, Throwable> exceptionHandler) {
+        TenantState tenantState = tenantStateMap.computeIfAbsent(tenantId, TenantState::new);
+        if (tenantState.queuedRequest != null || tenantState.runningRequest != null) {
+            return false;
+        }
+        if (tenantState.importing) {
+            throw new ProblemImportInProgressException("The problem of tenant (" + tenantId
+                    + ") is being replaced, retry later.");
+        }
+        if (queuedList.size() >= queueCapacity) {
+            meterRegistry.counter("timetable.scheduler.rejected", "tenantId", tenantState.tenantTag).increment();
+            throw new SolverQueueFullException("The solver queue is full (" + queueCapacity
+                    + " tenants waiting), retry later.");
+        }
+        // A tenant that was idle doesn't get the solving time it didn't use back, or it would starve the others
+        tenantState.virtualTime = Math.max(tenantState.virtualTime, virtualTime);
+        tenantState.queuedRequest = new SolveRequest(solveMode, problemFinder, bestSolutionConsumer,
+                finalBestSolutionConsumer, exceptionHandler);
+        tenantState.queuedGauge.set(1);
+        queuedList.add(tenantState);
+        queueDepth.set(queuedList.size());
+        scheduleDispatch(0L);
+        return true;
+    }
+
+    /**
+     * Removes a queued solve of the tenant or terminates its running solve.
+     * @param tenantId never null
+     */
+    public void terminateEarly(Long tenantId) {
+        if (cancel(tenantId)) {
+            return;
+        }
+        TenantState tenantState = tenantStateMap.get(tenantId);
+        SolveRequest runningRequest = tenantState == null ? null : getRunningRequest(tenantState);
+        for (SolveMode solveMode : SolveMode.values()) {
+            getSolverManager(solveMode).terminateEarly(tenantId);
+        }
+        // The SolverManager cancels a job that didn't start yet without calling any of its consumers
+        if (runningRequest != null && !runningRequest.started) {
+            release(tenantState, runningRequest);
+        }
+    }
+
+    private synchronized SolveRequest getRunningRequest(TenantState tenantState) {
+        return tenantState.runningRequest;
+    }
+
+    /**
+     * @param tenantId never null
+     * @return true if a queued solve of the tenant was removed, false if it wasn't queued
+     */
+    public synchronized boolean cancel(Long tenantId) {
+        TenantState tenantState = tenantStateMap.get(tenantId);
+        if (tenantState == null || tenantState.queuedRequest == null) {
+            return false;
+        }
+        tenantState.queuedRequest = null;
+        tenantState.queuedGauge.set(0);
+        queuedList.remove(tenantState);
+        queueDepth.set(queuedList.size());
+        notifyAll();
+        return true;
+    }
+
+    /**
+     * @return never null, the tenants that are queued or running here
+     */
+    public synchronized List<Long> getActiveTenantIds() {
+        List<Long> tenantIdList = new ArrayList<>();
+        for (TenantState tenantState : tenantStateMap.values()) {
+            if (tenantState.queuedRequest != null || tenantState.runningRequest != null) {
+                tenantIdList.add(tenantState.tenantId);
+            }
+        }
+        return tenantIdList;
+    }
+
+    /**
+     * @param tenantId never null
+     * @return {@link SolverStatus#SOLVING_SCHEDULED} while queued here or admitted but not registered
+     * by the SolverManager yet, otherwise the status of the SolverManager
+     */
+    public synchronized SolverStatus getSolverStatus(Long tenantId) {
+        TenantState tenantState = tenantStateMap.get(tenantId);
+        if (tenantState != null && tenantState.queuedRequest != null) {
+            return SolverStatus.SOLVING_SCHEDULED;
+        }
+        for (SolveMode solveMode : SolveMode.values()) {
+            SolverStatus solverStatus = getSolverManager(solveMode).getSolverStatus(tenantId);
+            if (solverStatus != SolverStatus.NOT_SOLVING) {
+                return solverStatus;
+            }
+        }
+        // Between dispatch() and start(), or just before its job starts; release() clears it before unregistering
+        if (tenantState != null && tenantState.runningRequest != null) {
+            return SolverStatus.SOLVING_SCHEDULED;
+        }
+        return SolverStatus.NOT_SOLVING;
+    }
+
+    /**
+     * Locks the tenant against solving, until {@link #unlockImport}, if it doesn't solve now.
+     * @param tenantId never null
+     * @return true if locked, false if the tenant is queued, solving or already locked
+     */
+    public synchronized boolean tryLockForImport(Long tenantId) {
+        TenantState tenantState = tenantStateMap.computeIfAbsent(tenantId, TenantState::new);
+        if (tenantState.importing || tenantState.queuedRequest != null || tenantState.runningRequest != null
+                || isSolving(tenantId)) {
+            return false;
+        }
+        tenantState.importing = true;
+        return true;
+    }
+
+    /**
+     * @param tenantId never null, locked by {@link #tryLockForImport}
+     */
+    public synchronized void unlockImport(Long tenantId) {
+        TenantState tenantState = tenantStateMap.get(tenantId);
+        if (tenantState != null) {
+            tenantState.importing = false;
+        }
+    }
+
+    /**
+     * Waits until the tenant is neither queued nor running here,
+     * so the final best solution consumer of its last solve has returned.
+     * @param tenantId never null
+     * @param timeout never null
+     * @return true if it stopped, false if the timeout elapsed first
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public synchronized boolean awaitStopped(Long tenantId, Duration timeout) throws InterruptedException {
+        long deadlineNanos = System.nanoTime() + timeout.toNanos();
+        TenantState tenantState = tenantStateMap.get(tenantId);
+        while ((tenantState != null && (tenantState.queuedRequest != null || tenantState.runningRequest != null))
+                || isSolving(tenantId)) {
+            long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime());
+            if (remainingMillis <= 0L) {
+                return false;
+            }
+            // Polls, because the SolverManager unregisters the job after release() notifies
+            wait(Math.min(remainingMillis, RETRY_DELAY_MILLIS));
+        }
+        return true;
+    }
+
+    private SolverManager<TimeTable, Long> getSolverManager(SolveMode solveMode) {
+        switch (solveMode) {
+            case COLD:
+                return solverManager;
+            case WARM_START:
+                return warmStartSolverManager;
+            case PARTITIONED:
+                return partitionedSolverManager;
+            default:
+                throw new IllegalStateException("Unsupported solveMode (" + solveMode + ").");
+        }
+    }
+
+    private void scheduleDispatch(long delayMillis) {
+        if (dispatchScheduled) {
+            return;
+        }
+        try {
+            executorService.schedule(this::dispatch, delayMillis, TimeUnit.MILLISECONDS);
+            dispatchScheduled = true;
+        } catch (RejectedExecutionException e) { // The application is shutting down
+        }
+    }
+
+    private void dispatch() {
+        List<TenantState> admittedList = new ArrayList<>();
+        List<SolveRequest> admittedRequestList = new ArrayList<>();
+        synchronized (this) {
+            dispatchScheduled = false;
+            boolean retry = false;
+            while (runningCount.get() + admittedList.size() < maxRunningSolves) {
+                TenantState next = null;
+                for (TenantState tenantState : queuedList) {
+                    if (isSolving(tenantState.tenantId)) {
+                        retry = true; // Its previous solve hasn't unregistered yet
+                    } else if (next == null || tenantState.precedes(next)) {
+                        next = tenantState;
+                    }
+                }
+                if (next == null) {
+                    break;
+                }
+                queuedList.remove(next);
+                admittedList.add(next);
+                admittedRequestList.add(next.queuedRequest);
+                next.runningRequest = next.queuedRequest;
+                next.runningRequest.startNanos = System.nanoTime();
+                next.queuedRequest = null;
+                next.queuedGauge.set(0);
+                virtualTime = Math.max(virtualTime, next.virtualTime);
+            }
+            queueDepth.set(queuedList.size());
+            runningCount.addAndGet(admittedList.size());
+            if (retry) {
+                scheduleDispatch(RETRY_DELAY_MILLIS);
+            }
+        }
+        for (int i = 0; i < admittedList.size(); i++) {
+            start(admittedList.get(i), admittedRequestList.get(i));
+        }
+    }
+
+    private boolean isSolving(Long tenantId) {
+        for (SolveMode solveMode : SolveMode.values()) {
+            if (getSolverManager(solveMode).getSolverStatus(tenantId) != SolverStatus.NOT_SOLVING) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void start(TenantState tenantState, SolveRequest request) {
+        meterRegistry.timer("timetable.scheduler.wait", "tenantId", tenantState.tenantTag)
+                .record(request.startNanos - request.submitNanos, TimeUnit.NANOSECONDS);
+        RuntimeException exception = null;
+        synchronized (this) {
+            if (tenantState.runningRequest != request) {
+                return; // terminateEarly() released it after it was admitted
+            }
+            tenantState.runningGauge.set(1);
+            liveSolverRegistry.expect(tenantState.tenantId);
+            try {
+                getSolverManager(request.solveMode).solveAndListen(tenantState.tenantId,
+                        tenantId -> {
+                            request.started = true;
+                            return request.problemFinder.apply(tenantId);
+                        },
+                        request.bestSolutionConsumer,
+                        timeTable -> {
+                            try {
+                                request.finalBestSolutionConsumer.accept(timeTable);
+                            } finally {
+                                release(tenantState, request);
+                            }
+                        },
+                        (problemId, throwable) -> {
+                            try {
+                                request.exceptionHandler.accept(problemId, throwable);
+                            } finally {
+                                release(tenantState, request);
+                            }
+                        });
+            } catch (RuntimeException e) {
+                release(tenantState, request);
+                exception = e;
+            }
+        }
+        if (exception != null) {
+            request.exceptionHandler.accept(tenantState.tenantId, exception);
+        }
+    }
+
+    private synchronized void release(TenantState tenantState, SolveRequest request) {
+        if (tenantState.runningRequest != request) {
+            // Released by terminateEarly() already, when the job was cancelled just as it started
+            LOGGER.debug("Tenant (" + tenantState.tenantId + ") released its solver slot twice.");
+            return;
+        }
+        long solvingNanos = System.nanoTime() - request.startNanos;
+        meterRegistry.timer("timetable.scheduler.solve", "tenantId", tenantState.tenantTag,
+                "mode", request.solveMode.getTag())
+                .record(solvingNanos, TimeUnit.NANOSECONDS);
+        tenantState.runningGauge.set(0);
+        liveSolverRegistry.forget(tenantState.tenantId);
+        tenantState.runningRequest = null;
+        tenantState.virtualTime += (double) solvingNanos / tenantState.weight;
+        runningCount.decrementAndGet();
+        scheduleDispatch(0L);
+        notifyAll();
+    }
+
+    private int tenantProperty(Long tenantId, String name, int defaultValue) {
+        return config.getOptionalValue("timeTable.scheduler.tenant." + tenantId + "." + name, Integer.class)
+                .orElse(defaultValue);
+    }
+
+    private final class TenantState {
+
+        private final Long tenantId;
+        private final String tenantTag;
+        private final int priority;
+        private final int weight;
+        private final AtomicInteger queuedGauge = new AtomicInteger();
+        private final AtomicInteger runningGauge = new AtomicInteger();
+
+        // Guarded by SolverScheduler.this
+        private SolveRequest queuedRequest = null;
+        private SolveRequest runningRequest = null;
+        private boolean importing = false;
+        // The solving time consumed, divided by the weight
+        private double virtualTime = 0.0;
+
+        private TenantState(Long tenantId) {
+            this.tenantId = tenantId;
+            tenantTag = tenantId.toString();
+            priority = tenantProperty(tenantId, "priority", defaultPriority);
+            weight = Math.max(1, tenantProperty(tenantId, "weight", defaultWeight));
+            Tags tags = Tags.of("tenantId", tenantTag);
+            meterRegistry.gauge("timetable.scheduler.tenant.queued", tags, queuedGauge);
+            meterRegistry.gauge("timetable.scheduler.tenant.running", tags, runningGauge);
+        }
+
+        private boolean precedes(TenantState other) {
+            if (priority != other.priority) {
+                return priority > other.priority;
+            }
+            if (virtualTime != other.virtualTime) {
+                return virtualTime < other.virtualTime;
+            }
+            return queuedRequest.submitNanos < other.queuedRequest.submitNanos;
+        }
+
+    }
+
+    private static final class SolveRequest {
+
+        private final long submitNanos = System.nanoTime();
+        private final SolveMode solveMode;
+        private final Function<Long, TimeTable> problemFinder;
+        private final Consumer<TimeTable> bestSolutionConsumer;
+        private final Consumer<TimeTable> finalBestSolutionConsumer;
+        private final BiConsumer<Long, Throwable> exceptionHandler;
+        // Guarded by SolverScheduler.this
+        private long startNanos;
+        // Set on the solver thread once the SolverManager starts the job
+        private volatile boolean started = false;
+
+        private SolveRequest(SolveMode solveMode, Function<Long, TimeTable> problemFinder,
+                Consumer<TimeTable> bestSolutionConsumer, Consumer<TimeTable> finalBestSolutionConsumer,
+                BiConsumer<Long, Throwable> exceptionHandler) {
+            this.solveMode = solveMode;
+            this.problemFinder = problemFinder;
+            this.bestSolutionConsumer = bestSolutionConsumer;
+            this.finalBestSolutionConsumer = finalBestSolutionConsumer;
+            this.exceptionHandler = exceptionHandler;
+        }
+
+    }
+
+}
@@ -16,9 +16,9 @@
 
 package org.acme.schooltimetabling.solver;
 
-import java.time.Duration;
-
+import org.acme.schooltimetabling.domain.ConsecutiveTimeslotPair;
 import org.acme.schooltimetabling.domain.Lesson;
+import org.acme.schooltimetabling.domain.TeacherUnavailability;
 import org.optaplanner.core.api.score.buildin.hardsoft.HardSoftScore;
 import org.optaplanner.core.api.score.stream.Constraint;
 import org.optaplanner.core.api.score.stream.ConstraintFactory;
@@ -34,6 +34,9 @@ public class TimeTableConstraintProvider implements ConstraintProvider {
                 roomConflict(constraintFactory),
                 teacherConflict(constraintFactory),
                 studentGroupConflict(constraintFactory),
+                roomUnavailability(constraintFactory),
+                teacherUnavailability(constraintFactory),
+                roomSuitability(constraintFactory),
                 // Soft constraints
                 teacherRoomStability(constraintFactory),
                 teacherTimeEfficiency(constraintFactory),
@@ -72,6 +75,35 @@ public class TimeTableConstraintProvider implements ConstraintProvider {
                 .penalize("Student group conflict", HardSoftScore.ONE_HARD);
     }
 
+    Constraint roomUnavailability(ConstraintFactory constraintFactory) {
+        // A room that is unavailable can't accommodate any lesson.
+        return constraintFactory
+                .from(Lesson.class)
+                .filter(lesson -> !lesson.getRoom().isAvailable())
+                .penalize("Room unavailability", HardSoftScore.ONE_HARD);
+    }
+
+    Constraint teacherUnavailability(ConstraintFactory constraintFactory) {
+        // A teacher can't teach on a day they don't work.
+        // Each lesson's timeslot range already leaves out those days, this reports pinned or earlier assignments.
+        return constraintFactory
+                .from(Lesson.class)
+                .join(TeacherUnavailability.class,
+                        Joiners.equal(Lesson::getTeacher, TeacherUnavailability::getTeacher),
+                        Joiners.equal(lesson -> lesson.getTimeslot().getDayOfWeek(),
+                                TeacherUnavailability::getDayOfWeek))
+                .penalize("Teacher unavailability", HardSoftScore.ONE_HARD);
+    }
+
+    Constraint roomSuitability(ConstraintFactory constraintFactory) {
+        // A lesson needs a room of the type it requires, with enough seats for its students.
+        // Each lesson's room range already leaves out the other rooms, this reports pinned or earlier assignments.
+        return constraintFactory
+                .from(Lesson.class)
+                .filter(lesson -> !lesson.isSuitableRoom(lesson.getRoom()))
+                .penalize("Room suitability", HardSoftScore.ONE_HARD);
+    }
+
     Constraint teacherRoomStability(ConstraintFactory constraintFactory) {
         // A teacher prefers to teach in a single room.
         return constraintFactory
@@ -84,30 +116,26 @@ public class TimeTableConstraintProvider implements ConstraintProvider {
     Constraint teacherTimeEfficiency(ConstraintFactory constraintFactory) {
         // A teacher prefers to teach sequential lessons and dislikes gaps between lessons.
         return constraintFactory
-                .from(Lesson.class)
-                .join(Lesson.class, Joiners.equal(Lesson::getTeacher),
-                        Joiners.equal((lesson) -> lesson.getTimeslot().getDayOfWeek()))
-                .filter((lesson1, lesson2) -> {
-                    Duration between = Duration.between(lesson1.getTimeslot().getEndTime(),
-                            lesson2.getTimeslot().getStartTime());
-                    return !between.isNegative() && between.compareTo(Duration.ofMinutes(30)) <= 0;
-                })
+                // Select each pair of consecutive timeslots ...
+                .from(ConsecutiveTimeslotPair.class)
+                // ... with a lesson in the first timeslot ...
+                .join(Lesson.class, Joiners.equal(ConsecutiveTimeslotPair::getFirst, Lesson::getTimeslot))
+                // ... and a lesson of the same teacher in the second timeslot.
+                .join(Lesson.class,
+                        Joiners.equal((pair, lesson1) -> pair.getSecond(), Lesson::getTimeslot),
+                        Joiners.equal((pair, lesson1) -> lesson1.getTeacher(), Lesson::getTeacher))
                 .reward("Teacher time efficiency", HardSoftScore.ONE_SOFT);
     }
 
     Constraint studentGroupSubjectVariety(ConstraintFactory constraintFactory) {
         // A student group dislikes sequential lessons on the same subject.
         return constraintFactory
-                .from(Lesson.class)
+                .from(ConsecutiveTimeslotPair.class)
+                .join(Lesson.class, Joiners.equal(ConsecutiveTimeslotPair::getFirst, Lesson::getTimeslot))
                 .join(Lesson.class,
-                        Joiners.equal(Lesson::getSubject),
-                        Joiners.equal(Lesson::getStudentGroup),
-                        Joiners.equal((lesson) -> lesson.getTimeslot().getDayOfWeek()))
-                .filter((lesson1, lesson2) -> {
-                    Duration between = Duration.between(lesson1.getTimeslot().getEndTime(),
-                            lesson2.getTimeslot().getStartTime());
-                    return !between.isNegative() && between.compareTo(Duration.ofMinutes(30)) <= 0;
-                })
+                        Joiners.equal((pair, lesson1) -> pair.getSecond(), Lesson::getTimeslot),
+                        Joiners.equal((pair, lesson1) -> lesson1.getSubject(), Lesson::getSubject),
+                        Joiners.equal((pair, lesson1) -> lesson1.getStudentGroup(), Lesson::getStudentGroup))
                 .penalize("Student group subject variety", HardSoftScore.ONE_SOFT);
     }
 
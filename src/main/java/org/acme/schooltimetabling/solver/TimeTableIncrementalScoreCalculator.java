@@ -0,0 +1,282 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.acme.schooltimetabling.solver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.acme.schooltimetabling.domain.ConsecutiveTimeslotPair;
+import org.acme.schooltimetabling.domain.InternedFact;
+import org.acme.schooltimetabling.domain.Lesson;
+import org.acme.schooltimetabling.domain.Room;
+import org.acme.schooltimetabling.domain.TeacherUnavailability;
+import org.acme.schooltimetabling.domain.TimeTable;
+import org.acme.schooltimetabling.domain.Timeslot;
+import org.optaplanner.core.api.score.buildin.hardsoft.HardSoftScore;
+import org.optaplanner.core.api.score.calculator.IncrementalScoreCalculator;
+
+/**
+ * Calculates the same score as {@link TimeTableConstraintProvider}, but with primitive occupancy counters
+ * indexed by (timeslot, room), (teacher, timeslot), (student group, timeslot)
+ * and (student group and subject, timeslot), so a move only touches the counters of the lessons it changes.
+ * Teacher unavailabilities are counted per (teacher, day of week).
+ * Timeslots and rooms are indexed by their position in the time table through a {@link FactIndex},
+ * timeslots are adjacent through the {@link ConsecutiveTimeslotPair}s,
+ * and teachers, student groups and subjects are indexed by their {@link InternedFact#getId()}.
+ * To use it, set {@code quarkus.optaplanner.solver-config-xml=incrementalSolverConfig.xml}.
+ */
+public class TimeTableIncrementalScoreCalculator implements IncrementalScoreCalculator<TimeTable, HardSoftScore> {
+
+    private static final int DAY_COUNT = 7;
+
+    private FactIndex timeslotIndex;
+    private FactIndex roomIndex;
+    private int timeslotCount;
+    private int roomCount;
+    private int subjectCount;
+
+    // For each timeslot index, the indexes of the timeslots on the same day that start at most 30 minutes after it ends
+    private int[][] nextTimeslotIndexes;
+    private int[][] previousTimeslotIndexes;
+    private boolean[] selfConsecutive;
+
+    private int[] roomOccupancy; // [timeslot * roomCount + room]
+    private int[] teacherOccupancy; // [teacher * timeslotCount + timeslot]
+    private int[] studentGroupOccupancy; // [studentGroup * timeslotCount + timeslot]
+    private int[][] studentGroupSubjectOccupancy; // [studentGroup][subject * timeslotCount + timeslot]
+    private int[] teacherLessonCount; // [teacher]
+    private int[] teacherRoomLessonCount; // [teacher * roomCount + room]
+    private int[] teacherUnavailabilityCount; // [teacher * DAY_COUNT + dayOfWeek - 1]
+
+    private int hardScore;
+    private int softScore;
+
+    @Override
+    public void resetWorkingSolution(TimeTable timeTable) {
+        List<Timeslot> timeslotList = timeTable.getTimeslotList();
+        List<Room> roomList = timeTable.getRoomList();
+        timeslotCount = timeslotList.size();
+        roomCount = roomList.size();
+        timeslotIndex = new FactIndex(timeslotList);
+        roomIndex = new FactIndex(roomList);
+        buildConsecutiveTimeslotIndexes(timeTable.getConsecutiveTimeslotPairList());
+        // Teachers, student groups and subjects are indexed by their interned ids
+        int teacherCount = timeTable.getTeacherList().size();
+        int studentGroupCount = timeTable.getStudentGroupList().size();
+        subjectCount = timeTable.getSubjectList().size();
+
+        roomOccupancy = new int[timeslotCount * roomCount];
+        teacherOccupancy = new int[teacherCount * timeslotCount];
+        studentGroupOccupancy = new int[studentGroupCount * timeslotCount];
+        studentGroupSubjectOccupancy = new int[studentGroupCount][subjectCount * timeslotCount];
+        teacherLessonCount = new int[teacherCount];
+        teacherRoomLessonCount = new int[teacherCount * roomCount];
+        teacherUnavailabilityCount = new int[teacherCount * DAY_COUNT];
+        for (TeacherUnavailability teacherUnavailability : timeTable.getTeacherUnavailabilityList()) {
+            teacherUnavailabilityCount[internedId(teacherUnavailability.getTeacher()) * DAY_COUNT
+                    + teacherUnavailability.getDayOfWeek().getValue() - 1]++;
+        }
+        hardScore = 0;
+        softScore = 0;
+        for (Lesson lesson : timeTable.getLessonList()) {
+            insert(lesson);
+        }
+    }
+
+    private void buildConsecutiveTimeslotIndexes(List<ConsecutiveTimeslotPair> consecutiveTimeslotPairList) {
+        List<List<Integer>> nextIndexListList = new ArrayList<>(timeslotCount);
+        List<List<Integer>> previousIndexListList = new ArrayList<>(timeslotCount);
+        for (int i = 0; i < timeslotCount; i++) {
+            nextIndexListList.add(new ArrayList<>());
+            previousIndexListList.add(new ArrayList<>());
+        }
+        selfConsecutive = new boolean[timeslotCount];
+        for (ConsecutiveTimeslotPair pair : consecutiveTimeslotPairList) {
+            int first = timeslotIndex.indexOf(pair.getFirst());
+            int second = timeslotIndex.indexOf(pair.getSecond());
+            if (first == second) {
+                selfConsecutive[first] = true;
+            } else {
+                nextIndexListList.get(first).add(second);
+                previousIndexListList.get(second).add(first);
+            }
+        }
+        nextTimeslotIndexes = new int[timeslotCount][];
+        previousTimeslotIndexes = new int[timeslotCount][];
+        for (int i = 0; i < timeslotCount; i++) {
+            nextTimeslotIndexes[i] = nextIndexListList.get(i).stream().mapToInt(Integer::intValue).toArray();
+            previousTimeslotIndexes[i] = previousIndexListList.get(i).stream().mapToInt(Integer::intValue).toArray();
+        }
+    }
+
+    @Override
+    public void beforeEntityAdded(Object entity) {
+        // Do nothing
+    }
+
+    @Override
+    public void afterEntityAdded(Object entity) {
+        insert((Lesson) entity);
+    }
+
+    @Override
+    public void beforeVariableChanged(Object entity, String variableName) {
+        retract((Lesson) entity);
+    }
+
+    @Override
+    public void afterVariableChanged(Object entity, String variableName) {
+        insert((Lesson) entity);
+    }
+
+    @Override
+    public void beforeEntityRemoved(Object entity) {
+        retract((Lesson) entity);
+    }
+
+    @Override
+    public void afterEntityRemoved(Object entity) {
+        // Do nothing
+    }
+
+    private void insert(Lesson lesson) {
+        // Like ConstraintFactory.from(), ignore lessons that aren't fully assigned
+        if (lesson.getTimeslot() == null || lesson.getRoom() == null) {
+            return;
+        }
+        int timeslot = timeslotIndex.indexOf(lesson.getTimeslot());
+        int room = roomIndex.indexOf(lesson.getRoom());
+        int teacher = internedId(lesson.getTeacher());
+        int studentGroup = internedId(lesson.getStudentGroup());
+        int subject = internedId(lesson.getSubject());
+        ensureCapacity(teacher, studentGroup, subject);
+
+        // Room conflict, teacher conflict and student group conflict: one hard per pair
+        hardScore -= roomOccupancy[timeslot * roomCount + room]++;
+        int teacherOffset = teacher * timeslotCount;
+        hardScore -= teacherOccupancy[teacherOffset + timeslot];
+        hardScore -= studentGroupOccupancy[studentGroup * timeslotCount + timeslot]++;
+        // Room unavailability: a room property change resets the working solution, so it can't change in between
+        if (!lesson.getRoom().isAvailable()) {
+            hardScore--;
+        }
+        // Teacher unavailability and room suitability: teacher unavailabilities also change through a reset
+        hardScore -= teacherUnavailabilityCount[teacherDay(teacher, lesson)];
+        if (!lesson.isSuitableRoom(lesson.getRoom())) {
+            hardScore--;
+        }
+        // Teacher room stability: one soft per pair of lessons of the teacher in different rooms
+        int teacherRoom = teacher * roomCount + room;
+        softScore -= teacherLessonCount[teacher]++ - teacherRoomLessonCount[teacherRoom]++;
+        // Teacher time efficiency and student group subject variety
+        softScore += countConsecutive(teacherOccupancy, teacherOffset, timeslot);
+        teacherOccupancy[teacherOffset + timeslot]++;
+        int[] studentGroupSubjectRow = studentGroupSubjectOccupancy[studentGroup];
+        int subjectOffset = subject * timeslotCount;
+        softScore -= countConsecutive(studentGroupSubjectRow, subjectOffset, timeslot);
+        studentGroupSubjectRow[subjectOffset + timeslot]++;
+    }
+
+    private void retract(Lesson lesson) {
+        if (lesson.getTimeslot() == null || lesson.getRoom() == null) {
+            return;
+        }
+        int timeslot = timeslotIndex.indexOf(lesson.getTimeslot());
+        int room = roomIndex.indexOf(lesson.getRoom());
+        int teacher = lesson.getTeacher().getId();
+        int studentGroup = lesson.getStudentGroup().getId();
+        int subject = lesson.getSubject().getId();
+
+        hardScore += --roomOccupancy[timeslot * roomCount + room];
+        int teacherOffset = teacher * timeslotCount;
+        hardScore += --teacherOccupancy[teacherOffset + timeslot];
+        hardScore += --studentGroupOccupancy[studentGroup * timeslotCount + timeslot];
+        if (!lesson.getRoom().isAvailable()) {
+            hardScore++;
+        }
+        hardScore += teacherUnavailabilityCount[teacherDay(teacher, lesson)];
+        if (!lesson.isSuitableRoom(lesson.getRoom())) {
+            hardScore++;
+        }
+        int teacherRoom = teacher * roomCount + room;
+        softScore += --teacherLessonCount[teacher] - --teacherRoomLessonCount[teacherRoom];
+        softScore -= countConsecutive(teacherOccupancy, teacherOffset, timeslot);
+        int[] studentGroupSubjectRow = studentGroupSubjectOccupancy[studentGroup];
+        int subjectOffset = subject * timeslotCount;
+        studentGroupSubjectRow[subjectOffset + timeslot]--;
+        softScore += countConsecutive(studentGroupSubjectRow, subjectOffset, timeslot);
+    }
+
+    /**
+     * @return the number of ordered (lesson1, lesson2) pairs that a lesson in the given timeslot forms
+     * with the other lessons counted in the occupancy row, where lesson2 starts at most 30 minutes after lesson1 ends
+     */
+    private int countConsecutive(int[] occupancy, int offset, int timeslot) {
+        int count = selfConsecutive[timeslot] ? 1 + 2 * occupancy[offset + timeslot] : 0;
+        for (int next : nextTimeslotIndexes[timeslot]) {
+            count += occupancy[offset + next];
+        }
+        for (int previous : previousTimeslotIndexes[timeslot]) {
+            count += occupancy[offset + previous];
+        }
+        return count;
+    }
+
+    private static int teacherDay(int teacher, Lesson lesson) {
+        return teacher * DAY_COUNT + lesson.getTimeslot().getDayOfWeek().getValue() - 1;
+    }
+
+    private static int internedId(InternedFact fact) {
+        if (!fact.isInterned()) {
+            throw new IllegalStateException("The lesson fact (" + fact + ") isn't interned. Create the TimeTable"
+                    + " through its constructor or intern new lessons with TimeTable.internLesson().");
+        }
+        return fact.getId();
+    }
+
+    private void ensureCapacity(int teacher, int studentGroup, int subject) {
+        // A lesson with a new teacher, student group or subject was added to the working solution
+        if (teacher >= teacherLessonCount.length) {
+            teacherOccupancy = Arrays.copyOf(teacherOccupancy, (teacher + 1) * timeslotCount);
+            teacherLessonCount = Arrays.copyOf(teacherLessonCount, teacher + 1);
+            teacherRoomLessonCount = Arrays.copyOf(teacherRoomLessonCount, (teacher + 1) * roomCount);
+            teacherUnavailabilityCount = Arrays.copyOf(teacherUnavailabilityCount, (teacher + 1) * DAY_COUNT);
+        }
+        if (subject >= subjectCount) {
+            subjectCount = subject + 1;
+            for (int i = 0; i < studentGroupSubjectOccupancy.length; i++) {
+                studentGroupSubjectOccupancy[i] = Arrays.copyOf(studentGroupSubjectOccupancy[i],
+                        subjectCount * timeslotCount);
+            }
+        }
+        if (studentGroup >= studentGroupSubjectOccupancy.length) {
+            int oldStudentGroupCount = studentGroupSubjectOccupancy.length;
+            studentGroupOccupancy = Arrays.copyOf(studentGroupOccupancy, (studentGroup + 1) * timeslotCount);
+            studentGroupSubjectOccupancy = Arrays.copyOf(studentGroupSubjectOccupancy, studentGroup + 1);
+            for (int i = oldStudentGroupCount; i <= studentGroup; i++) {
+                studentGroupSubjectOccupancy[i] = new int[subjectCount * timeslotCount];
+            }
+        }
+    }
+
+    @Override
+    public HardSoftScore calculateScore() {
+        return HardSoftScore.of(hardScore, softScore);
+    }
+
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.acme.schooltimetabling.solver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.acme.schooltimetabling.domain.Lesson;
+import org.acme.schooltimetabling.domain.Room;
+import org.acme.schooltimetabling.domain.TeacherUnavailability;
+import org.acme.schooltimetabling.domain.TimeTable;
+import org.optaplanner.core.api.score.director.ScoreDirector;
+import org.optaplanner.core.impl.partitionedsearch.partitioner.SolutionPartitioner;
+
+import io.quarkus.arc.Arc;
+import io.quarkus.arc.ArcContainer;
+
+/**
+ * Splits a time table into parts that are solved in parallel.
+ * Student groups that share a teacher are clustered into the same part, so the parts don't have teacher conflicts,
+ * unless a cluster is larger than a part, in which case its student groups are spread over the parts.
+ * Each part gets its own rooms, in proportion to its lessons, so the parts don't have room conflicts either.
+ * Every part shares all timeslots.
+ * The local search phase after the partitioned search fixes whatever conflicts remain between the parts.
+ */
+public class TimeTablePartitioner implements SolutionPartitioner<TimeTable> {
+
+    private int partCount = 4;
+    private int minimumPartLessonCount = 100;
+
+    @Override
+    public List<TimeTable> splitWorkingSolution(ScoreDirector<TimeTable> scoreDirector,
+            Integer runnablePartThreadLimit) {
+        TimeTable timeTable = scoreDirector.getWorkingSolution();
+        int lessonCount = timeTable.getLessonList().size();
+        int effectivePartCount = Math.max(1, Math.min(partCount,
+                Math.min(lessonCount / minimumPartLessonCount, timeTable.getRoomList().size())));
+        List<List<Lesson>> lessonPartList = partitionLessons(timeTable, effectivePartCount);
+        List<List<Room>> roomPartList = partitionRooms(timeTable.getRoomList(), lessonPartList);
+        List<TimeTable> partList = new ArrayList<>(effectivePartCount);
+        for (int i = 0; i < effectivePartCount; i++) {
+            partList.add(buildPart(timeTable, lessonPartList.get(i), roomPartList.get(i)));
+        }
+        // OptaPlanner instantiates the partitioner, not CDI
+        ArcContainer container = Arc.container();
+        if (container != null) {
+            container.instance(PartitionMetrics.class).get().recordPartitions(timeTable.getTenantId(), partList);
+        }
+        return partList;
+    }
+
+    private static TimeTable buildPart(TimeTable timeTable, List<Lesson> lessonList, List<Room> roomList) {
+        List<Room> partRoomList = new ArrayList<>(roomList);
+        List<Lesson> partLessonList = new ArrayList<>(lessonList.size());
+        for (Lesson lesson : lessonList) {
+            // Each part solves its own copy of the lessons, facts are shared
+            Lesson partLesson = new Lesson(lesson.getId(), lesson.getTenantId(), lesson.getSubject().getName(),
+                    lesson.getTeacher().getName(), lesson.getStudentGroup().getName(), null, null);
+            partLesson.setRequiredRoomType(lesson.getRequiredRoomType());
+            partLesson.setStudentCount(lesson.getStudentCount());
+            partLesson.setPinned(lesson.isPinned());
+            if (lesson.isPlanningPinned()) {
+                if (lesson.getRoom() != null && !partRoomList.contains(lesson.getRoom())) {
+                    partRoomList.add(lesson.getRoom());
+                }
+                partLesson.setTimeslot(lesson.getTimeslot());
+                partLesson.setRoom(lesson.getRoom());
+            } else if (partRoomList.contains(lesson.getRoom())) {
+                partLesson.setTimeslot(lesson.getTimeslot());
+                partLesson.setRoom(lesson.getRoom());
+            }
+            partLessonList.add(partLesson);
+        }
+        // The part interns the teachers of its own copy, the facts of the working solution keep their ids
+        List<TeacherUnavailability> partTeacherUnavailabilityList
+                = new ArrayList<>(timeTable.getTeacherUnavailabilityList().size());
+        for (TeacherUnavailability teacherUnavailability : timeTable.getTeacherUnavailabilityList()) {
+            partTeacherUnavailabilityList.add(new TeacherUnavailability(teacherUnavailability.getId(),
+                    teacherUnavailability.getTenantId(), teacherUnavailability.getTeacher().getName(),
+                    teacherUnavailability.getDayOfWeek()));
+        }
+        // A lesson that none of the part's rooms suit can take any of them, the local search afterwards fixes it.
+        TimeTable part = new TimeTable(timeTable.getTenantId(), timeTable.getTimeslotList(), partRoomList,
+                partTeacherUnavailabilityList, partLessonList);
+        if (timeTable.getRollingHorizon() != null) {
+            part.applyRollingHorizon(timeTable.getRollingHorizon());
+        }
+        return part;
+    }
+
+    /**
+     * @param timeTable never null, its lesson facts interned
+     * @param partCount at least 1
+     * @return never null, of size partCount, every lesson in exactly one part
+     */
+    static List<List<Lesson>> partitionLessons(TimeTable timeTable, int partCount) {
+        int studentGroupCount = timeTable.getStudentGroupList().size();
+        List<List<Lesson>> studentGroupLessonListList = new ArrayList<>(studentGroupCount);
+        for (int i = 0; i < studentGroupCount; i++) {
+            studentGroupLessonListList.add(new ArrayList<>());
+        }
+        // Union-find of the student groups, joined by their teachers
+        int[] parents = new int[studentGroupCount];
+        for (int i = 0; i < studentGroupCount; i++) {
+            parents[i] = i;
+        }
+        int[] teacherStudentGroups = new int[timeTable.getTeacherList().size()];
+        Arrays.fill(teacherStudentGroups, -1);
+        for (Lesson lesson : timeTable.getLessonList()) {
+            int studentGroup = lesson.getStudentGroup().getId();
+            int teacher = lesson.getTeacher().getId();
+            studentGroupLessonListList.get(studentGroup).add(lesson);
+            if (teacherStudentGroups[teacher] < 0) {
+                teacherStudentGroups[teacher] = studentGroup;
+            } else {
+                parents[find(parents, studentGroup)] = find(parents, teacherStudentGroups[teacher]);
+            }
+        }
+        Map<Integer, List<Lesson>> clusterMap = new LinkedHashMap<>();
+        for (int i = 0; i < studentGroupCount; i++) {
+            clusterMap.computeIfAbsent(find(parents, i), key -> new ArrayList<>())
+                    .addAll(studentGroupLessonListList.get(i));
+        }
+        int targetPartSize = (timeTable.getLessonList().size() + partCount - 1) / partCount;
+        List<List<Lesson>> unitList = new ArrayList<>();
+        for (Map.Entry<Integer, List<Lesson>> entry : clusterMap.entrySet()) {
+            if (entry.getValue().size() <= targetPartSize) {
+                unitList.add(entry.getValue());
+            } else {
+                // Too large to keep together: its teachers get conflicts between parts
+                for (int i = 0; i < studentGroupCount; i++) {
+                    if (find(parents, i) == entry.getKey()) {
+                        unitList.add(studentGroupLessonListList.get(i));
+                    }
+                }
+            }
+        }
+        // Largest first, each into the smallest part
+        unitList.sort(Comparator.comparingInt((List<Lesson> unit) -> unit.size()).reversed());
+        List<List<Lesson>> partList = new ArrayList<>(partCount);
+        for (int i = 0; i < partCount; i++) {
+            partList.add(new ArrayList<>());
+        }
+        for (List<Lesson> unit : unitList) {
+            partList.stream().min(Comparator.comparingInt(List::size)).get().addAll(unit);
+        }
+        return partList;
+    }
+
+    private static int find(int[] parents, int i) {
+        while (parents[i] != i) {
+            parents[i] = parents[parents[i]];
+            i = parents[i];
+        }
+        return i;
+    }
+
+    /**
+     * @return never null, every room in exactly one part and at least one room per part,
+     * if there are at least as many rooms as parts
+     */
+    static List<List<Room>> partitionRooms(List<Room> roomList, List<List<Lesson>> lessonPartList) {
+        int partCount = lessonPartList.size();
+        List<List<Room>> roomPartList = new ArrayList<>(partCount);
+        for (int i = 0; i < partCount; i++) {
+            roomPartList.add(new ArrayList<>());
+        }
+        for (int roomIndex = 0; roomIndex < roomList.size(); roomIndex++) {
+            int bestPart = 0;
+            double bestLessonsPerRoom = -1.0;
+            for (int i = 0; i < partCount; i++) {
+                double lessonsPerRoom = roomPartList.get(i).isEmpty() ? Double.MAX_VALUE
+                        : (double) lessonPartList.get(i).size() / (roomPartList.get(i).size() + 1);
+                if (lessonsPerRoom > bestLessonsPerRoom) {
+                    bestPart = i;
+                    bestLessonsPerRoom = lessonsPerRoom;
+                }
+            }
+            roomPartList.get(bestPart).add(roomList.get(roomIndex));
+        }
+        return roomPartList;
+    }
+
+    // ************************************************************************
+    // Getters and setters
+    // ************************************************************************
+
+    public void setPartCount(int partCount) {
+        this.partCount = partCount;
+    }
+
+    public void setMinimumPartLessonCount(int minimumPartLessonCount) {
+        this.minimumPartLessonCount = minimumPartLessonCount;
+    }
+
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.acme.schooltimetabling.domain;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+class ConsecutiveTimeslotPairTest {
+
+    @Test
+    void buildListFromUnsortedTimeslots() {
+        Timeslot mondayNine = new Timeslot(1L, 1L, DayOfWeek.MONDAY, LocalTime.of(9, 0));
+        Timeslot mondayTen = new Timeslot(2L, 1L, DayOfWeek.MONDAY, LocalTime.of(10, 0));
+        Timeslot mondayTenThirty = new Timeslot(3L, 1L, DayOfWeek.MONDAY, LocalTime.of(10, 30));
+        Timeslot mondayElevenThirty = new Timeslot(4L, 1L, DayOfWeek.MONDAY, LocalTime.of(11, 30));
+        Timeslot tuesdayEight = new Timeslot(5L, 1L, DayOfWeek.TUESDAY, LocalTime.of(8, 0));
+        Timeslot tuesdayNine = new Timeslot(6L, 1L, DayOfWeek.TUESDAY, LocalTime.of(9, 0));
+
+        List<ConsecutiveTimeslotPair> pairList = ConsecutiveTimeslotPair.buildList(
+                Arrays.asList(tuesdayNine, mondayElevenThirty, mondayTen, tuesdayEight, mondayTenThirty, mondayNine));
+        // 10:00 ends at 10:50, so 10:30 overlaps it and 11:30 starts 40 minutes after it
+        assertEquals(Arrays.asList("MONDAY 09:00 -> MONDAY 10:00", "MONDAY 10:30 -> MONDAY 11:30",
+                "TUESDAY 08:00 -> TUESDAY 09:00"),
+                pairList.stream().map(ConsecutiveTimeslotPair::toString).collect(Collectors.toList()));
+    }
+
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.acme.schooltimetabling.domain;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class LessonValueRangeTest {
+
+    private Timeslot mondayMorning;
+    private Timeslot tuesdayMorning;
+    private Timeslot wednesdayMorning;
+    private Room classroom;
+    private Room smallLab;
+    private Room bigLab;
+    private Lesson math;
+    private Lesson physics;
+    private Lesson chemistry;
+    private TimeTable timeTable;
+
+    @BeforeEach
+    void createTimeTable() {
+        mondayMorning = new Timeslot(1L, 1L, DayOfWeek.MONDAY, LocalTime.of(8, 30));
+        tuesdayMorning = new Timeslot(2L, 1L, DayOfWeek.TUESDAY, LocalTime.of(8, 30));
+        wednesdayMorning = new Timeslot(3L, 1L, DayOfWeek.WEDNESDAY, LocalTime.of(8, 30));
+        classroom = new Room(10L, 1L, "Room A");
+        smallLab = new Room(11L, 1L, "Lab 1");
+        smallLab.setRoomType("Lab");
+        smallLab.setCapacity(20);
+        bigLab = new Room(12L, 1L, "Lab 2");
+        bigLab.setRoomType("Lab");
+        bigLab.setCapacity(30);
+        math = new Lesson(20L, 1L, "Math", "A. Turing", "9th grade", null, null);
+        physics = new Lesson(21L, 1L, "Physics", "A. Turing", "10th grade", null, null);
+        chemistry = new Lesson(22L, 1L, "Chemistry", "M. Curie", "9th grade", null, null);
+        chemistry.setRequiredRoomType("Lab");
+        chemistry.setStudentCount(25);
+        timeTable = new TimeTable(1L, Arrays.asList(mondayMorning, tuesdayMorning, wednesdayMorning),
+                Arrays.asList(classroom, smallLab, bigLab),
+                Collections.singletonList(new TeacherUnavailability(30L, 1L, "A. Turing", DayOfWeek.TUESDAY)),
+                new ArrayList<>(Arrays.asList(math, physics, chemistry)));
+    }
+
+    @Test
+    void restrictValueRanges() {
+        assertEquals(Arrays.asList(mondayMorning, wednesdayMorning), math.getAllowedTimeslotList());
+        assertSame(math.getAllowedTimeslotList(), physics.getAllowedTimeslotList());
+        assertSame(timeTable.getTimeslotList(), chemistry.getAllowedTimeslotList());
+        assertEquals(Collections.singletonList(classroom), math.getAllowedRoomList());
+        assertSame(math.getAllowedRoomList(), physics.getAllowedRoomList());
+        assertEquals(Collections.singletonList(bigLab), chemistry.getAllowedRoomList());
+    }
+
+    @Test
+    void restrictValueRangesToRollingHorizon() {
+        timeTable.applyRollingHorizon(new RollingHorizon(DayOfWeek.TUESDAY, LocalTime.MIDNIGHT, 2));
+        assertEquals(Collections.singletonList(wednesdayMorning), math.getAllowedTimeslotList());
+        assertEquals(Arrays.asList(tuesdayMorning, wednesdayMorning), chemistry.getAllowedTimeslotList());
+    }
+
+    @Test
+    void internLesson() {
+        Lesson biology = new Lesson(23L, 1L, "Biology", "A. Turing", "11th grade", null, null);
+        timeTable.internLesson(biology);
+        timeTable.getLessonList().add(biology);
+        assertSame(math.getAllowedTimeslotList(), biology.getAllowedTimeslotList());
+        assertSame(math.getAllowedRoomList(), biology.getAllowedRoomList());
+    }
+
+    @Test
+    void unsuitableLessonFallsBackToAllRooms() {
+        Lesson sport = new Lesson(23L, 1L, "Physical education", "I. Jones", "9th grade", null, null);
+        sport.setRequiredRoomType("Gym");
+        timeTable.internLesson(sport);
+        assertSame(timeTable.getRoomList(), sport.getAllowedRoomList());
+    }
+
+    @Test
+    void widenValueRanges() {
+        timeTable.widenValueRanges();
+        for (Lesson lesson : timeTable.getLessonList()) {
+            assertSame(timeTable.getTimeslotList(), lesson.getAllowedTimeslotList());
+            assertSame(timeTable.getRoomList(), lesson.getAllowedRoomList());
+        }
+    }
+
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.acme.schooltimetabling.domain;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class RollingHorizonTest {
+
+    private static final Timeslot MONDAY_MORNING = new Timeslot(1L, 1L, DayOfWeek.MONDAY, LocalTime.of(8, 30));
+    private static final Timeslot TUESDAY_MORNING = new Timeslot(2L, 1L, DayOfWeek.TUESDAY, LocalTime.of(8, 30));
+    private static final Timeslot TUESDAY_AFTERNOON = new Timeslot(3L, 1L, DayOfWeek.TUESDAY, LocalTime.of(13, 30));
+    private static final Timeslot WEDNESDAY_MORNING = new Timeslot(4L, 1L, DayOfWeek.WEDNESDAY, LocalTime.of(8, 30));
+    private static final Timeslot THURSDAY_MORNING = new Timeslot(5L, 1L, DayOfWeek.THURSDAY, LocalTime.of(8, 30));
+
+    @Test
+    void contains() {
+        RollingHorizon rollingHorizon = new RollingHorizon(DayOfWeek.TUESDAY, LocalTime.NOON, 2);
+        assertFalse(rollingHorizon.contains(MONDAY_MORNING));
+        assertFalse(rollingHorizon.contains(TUESDAY_MORNING));
+        assertTrue(rollingHorizon.contains(TUESDAY_AFTERNOON));
+        assertTrue(rollingHorizon.contains(WEDNESDAY_MORNING));
+        assertFalse(rollingHorizon.contains(THURSDAY_MORNING));
+    }
+
+    @Test
+    void applyRollingHorizon() {
+        Room room = new Room(10L, 1L, "Room A");
+        Lesson pastLesson = new Lesson(20L, 1L, "Math", "A. Turing", "9th grade", MONDAY_MORNING, room);
+        Lesson insideLesson = new Lesson(21L, 1L, "Physics", "M. Curie", "9th grade", WEDNESDAY_MORNING, room);
+        Lesson publishedLesson = new Lesson(22L, 1L, "Biology", "C. Darwin", "9th grade", THURSDAY_MORNING, room);
+        Lesson unassignedLesson = new Lesson(23L, 1L, "History", "I. Jones", "9th grade", null, null);
+        TimeTable timeTable = new TimeTable(1L,
+                Arrays.asList(MONDAY_MORNING, TUESDAY_MORNING, TUESDAY_AFTERNOON, WEDNESDAY_MORNING, THURSDAY_MORNING),
+                Arrays.asList(room), Arrays.asList(pastLesson, insideLesson, publishedLesson, unassignedLesson));
+
+        assertEquals(2, timeTable.applyRollingHorizon(new RollingHorizon(DayOfWeek.TUESDAY, LocalTime.NOON, 2)));
+        assertTrue(pastLesson.isPlanningPinned());
+        assertFalse(insideLesson.isPlanningPinned());
+        assertTrue(publishedLesson.isPlanningPinned());
+        assertFalse(unassignedLesson.isPlanningPinned());
+        // Only for the solve, the persisted pin is unchanged
+        assertFalse(pastLesson.isPinned());
+        assertEquals(Arrays.asList(TUESDAY_AFTERNOON, WEDNESDAY_MORNING), timeTable.getPlanningTimeslotList());
+    }
+
+    @Test
+    void applyEmptyRollingHorizon() {
+        List<Timeslot> timeslotList = Arrays.asList(MONDAY_MORNING, TUESDAY_MORNING);
+        Room room = new Room(10L, 1L, "Room A");
+        Lesson lesson = new Lesson(20L, 1L, "Math", "A. Turing", "9th grade", MONDAY_MORNING, room);
+        Lesson otherLesson = new Lesson(21L, 1L, "Physics", "M. Curie", "9th grade", TUESDAY_MORNING, room);
+        TimeTable timeTable = new TimeTable(1L, timeslotList, Arrays.asList(room), Arrays.asList(lesson, otherLesson));
+        RollingHorizon rollingHorizon = new RollingHorizon(DayOfWeek.FRIDAY, LocalTime.NOON, 1);
+
+        assertEquals(2, timeTable.applyRollingHorizon(rollingHorizon));
+        assertTrue(lesson.isPlanningPinned());
+        assertTrue(otherLesson.isPlanningPinned());
+        assertSame(rollingHorizon, timeTable.getRollingHorizon());
+        assertTrue(timeTable.getPlanningTimeslotList().isEmpty());
+    }
+
+    @Test
+    void applyEmptyRollingHorizonWithUnassignedLesson() {
+        List<Timeslot> timeslotList = Arrays.asList(MONDAY_MORNING, TUESDAY_MORNING);
+        Room room = new Room(10L, 1L, "Room A");
+        Lesson lesson = new Lesson(20L, 1L, "Math", "A. Turing", "9th grade", MONDAY_MORNING, room);
+        Lesson unassignedLesson = new Lesson(21L, 1L, "Physics", "M. Curie", "9th grade", null, null);
+        TimeTable timeTable = new TimeTable(1L, timeslotList, Arrays.asList(room),
+                Arrays.asList(lesson, unassignedLesson));
+        RollingHorizon rollingHorizon = new RollingHorizon(DayOfWeek.FRIDAY, LocalTime.NOON, 1);
+
+        // The solve falls back to the whole week
+        assertFalse(timeTable.canApplyRollingHorizon(rollingHorizon));
+        assertThrows(IllegalStateException.class, () -> timeTable.applyRollingHorizon(rollingHorizon));
+        assertFalse(lesson.isPlanningPinned());
+        assertNull(timeTable.getRollingHorizon());
+        assertSame(timeslotList, timeTable.getPlanningTimeslotList());
+    }
+
+    @Test
+    void applyEmptyRollingHorizonWithPinnedUnassignedLesson() {
+        Room room = new Room(10L, 1L, "Room A");
+        Lesson lesson = new Lesson(20L, 1L, "Math", "A. Turing", "9th grade", MONDAY_MORNING, room);
+        Lesson pinnedLesson = new Lesson(21L, 1L, "Physics", "M. Curie", "9th grade", null, null);
+        pinnedLesson.setPinned(true);
+        TimeTable timeTable = new TimeTable(1L, Arrays.asList(MONDAY_MORNING, TUESDAY_MORNING), Arrays.asList(room),
+                Arrays.asList(lesson, pinnedLesson));
+
+        assertTrue(timeTable.canApplyRollingHorizon(new RollingHorizon(DayOfWeek.FRIDAY, LocalTime.NOON, 1)));
+    }
+
+    @Test
+    void applyRollingHorizonWithoutRoom() {
+        Room room = new Room(10L, 1L, "Room A");
+        Lesson pastLesson = new Lesson(20L, 1L, "Math", "A. Turing", "9th grade", MONDAY_MORNING, room);
+        Lesson roomlessLesson = new Lesson(21L, 1L, "Physics", "M. Curie", "9th grade", MONDAY_MORNING, null);
+        TimeTable timeTable = new TimeTable(1L, Arrays.asList(MONDAY_MORNING, WEDNESDAY_MORNING), Arrays.asList(room),
+                Arrays.asList(pastLesson, roomlessLesson));
+
+        assertEquals(1, timeTable.applyRollingHorizon(new RollingHorizon(DayOfWeek.TUESDAY, LocalTime.NOON, 2)));
+        assertTrue(pastLesson.isPlanningPinned());
+        // Pinned without a room, the solution could never be initialized
+        assertFalse(roomlessLesson.isPlanningPinned());
+    }
+
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.acme.schooltimetabling.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import javax.inject.Inject;
+
+import org.acme.schooltimetabling.bootstrap.SyntheticDataGenerator;
+import org.acme.schooltimetabling.domain.Lesson;
+import org.acme.schooltimetabling.domain.TimeTable;
+import org.acme.schooltimetabling.domain.Timeslot;
+import org.junit.jupiter.api.Test;
+
+import io.quarkus.test.junit.QuarkusTest;
+
+@QuarkusTest
+public class LessonAssignmentRepositoryTest {
+
+    // A tenant of its own, so the changed rows don't leak into other tests
+    private static final Long TENANT_ID = 110L;
+
+    @Inject
+    TimeslotRepository timeslotRepository;
+    @Inject
+    RoomRepository roomRepository;
+    @Inject
+    LessonRepository lessonRepository;
+    @Inject
+    LessonAssignmentRepository lessonAssignmentRepository;
+    @Inject
+    TimeTableBulkInserter bulkInserter;
+
+    @Test
+    public void saveOnlyWritesChangedLessons() {
+        bulkInserter.insert(SyntheticDataGenerator.createTimeTable(TENANT_ID, new SyntheticDataGenerator.Parameters()
+                .withTimeslotsPerDay(2)
+                .withRoomCount(2)
+                .withTeacherCount(2)
+                .withStudentGroupCount(1)
+                .withLessonsPerGroup(3)));
+        TimeTable timeTable = load();
+        lessonAssignmentRepository.resetSnapshot(timeTable);
+        assertEquals(0, lessonAssignmentRepository.save(timeTable));
+
+        Lesson lesson = timeTable.getLessonList().get(1);
+        Timeslot timeslot = timeTable.getTimeslotList().get(1);
+        lesson.setTimeslot(timeslot);
+        lesson.setRoom(timeTable.getRoomList().get(1));
+        assertEquals(1, lessonAssignmentRepository.save(timeTable));
+        assertEquals(0, lessonAssignmentRepository.save(timeTable));
+
+        Lesson reloadedLesson = lessonRepository.findById(lesson.getId());
+        assertEquals(timeslot.getId(), reloadedLesson.getTimeslot().getId());
+
+        lesson.setTimeslot(null);
+        lesson.setRoom(null);
+        assertEquals(1, lessonAssignmentRepository.save(timeTable));
+    }
+
+    private TimeTable load() {
+        return new TimeTable(TENANT_ID,
+                timeslotRepository.findByTenantId(TENANT_ID),
+                roomRepository.findByTenantId(TENANT_ID),
+                lessonRepository.findByTenantId(TENANT_ID));
+    }
+
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.acme.schooltimetabling.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import java.util.List;
+
+import javax.inject.Inject;
+
+import org.acme.schooltimetabling.bootstrap.SyntheticDataGenerator;
+import org.acme.schooltimetabling.domain.Lesson;
+import org.acme.schooltimetabling.domain.TimeTable;
+import org.junit.jupiter.api.Test;
+
+import io.quarkus.test.junit.QuarkusTest;
+
+@QuarkusTest
+public class TimeTableBulkInserterTest {
+
+    private static final Long TENANT_ID = 100L;
+
+    @Inject
+    TimeslotRepository timeslotRepository;
+    @Inject
+    RoomRepository roomRepository;
+    @Inject
+    LessonRepository lessonRepository;
+    @Inject
+    TimeTableBulkInserter bulkInserter;
+
+    @Test
+    public void insertGeneratedTimeTable() {
+        TimeTable timeTable = SyntheticDataGenerator.createTimeTable(TENANT_ID, new SyntheticDataGenerator.Parameters()
+                .withTimeslotsPerDay(4)
+                .withRoomCount(3)
+                .withTeacherCount(5)
+                .withStudentGroupCount(2)
+                .withLessonsPerGroup(7));
+        Lesson assignedLesson = timeTable.getLessonList().get(0);
+        assignedLesson.setTimeslot(timeTable.getTimeslotList().get(2));
+        assignedLesson.setRoom(timeTable.getRoomList().get(1));
+        assertEquals(20 + 3 + 14, bulkInserter.insert(timeTable));
+
+        assertEquals(20, timeslotRepository.findByTenantId(TENANT_ID).size());
+        assertEquals(3, roomRepository.findByTenantId(TENANT_ID).size());
+        List<Lesson> lessonList = lessonRepository.findByTenantId(TENANT_ID);
+        assertEquals(14, lessonList.size());
+        Lesson reloadedLesson = lessonList.stream()
+                .filter(lesson -> lesson.getTimeslot() != null)
+                .findFirst().orElseThrow();
+        assertNotNull(reloadedLesson.getId());
+        assertEquals(assignedLesson.getTimeslot().getStartTime(), reloadedLesson.getTimeslot().getStartTime());
+        assertEquals(assignedLesson.getTimeslot().getDayOfWeek(), reloadedLesson.getTimeslot().getDayOfWeek());
+        assertEquals(assignedLesson.getRoom().getName(), reloadedLesson.getRoom().getName());
+        assertEquals(assignedLesson.getTeacher().getName(), reloadedLesson.getTeacher().getName());
+    }
+
+}
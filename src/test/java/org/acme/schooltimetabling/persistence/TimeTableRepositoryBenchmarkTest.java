@@ -0,0 +1,85 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.acme.schooltimetabling.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+
+import javax.inject.Inject;
+
+import org.acme.schooltimetabling.bootstrap.SyntheticDataGenerator;
+import org.acme.schooltimetabling.domain.TimeTable;
+import org.jboss.logging.Logger;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import io.quarkus.test.junit.QuarkusTest;
+
+/**
+ * The latency of loading a tenant's time table, at 100, 1k, 10k and 100k lessons.
+ * Inserting the 100k lesson tenant takes a while, so run it explicitly:
+ * {@code mvn test -Dtest=TimeTableRepositoryBenchmarkTest -DtimeTable.benchmark=true}.
+ */
+@QuarkusTest
+@EnabledIfSystemProperty(named = "timeTable.benchmark", matches = "true")
+public class TimeTableRepositoryBenchmarkTest {
+
+    private static final Logger LOGGER = Logger.getLogger(TimeTableRepositoryBenchmarkTest.class);
+    private static final long FIRST_TENANT_ID = 600L;
+    private static final int WARMUP_COUNT = 5;
+    private static final int MEASUREMENT_COUNT = 50;
+
+    @Inject
+    TimeTableBulkInserter bulkInserter;
+    @Inject
+    TimeTableRepository timeTableRepository;
+
+    @Test
+    public void findByTenantIdLatency() {
+        long tenantId = FIRST_TENANT_ID;
+        // Student groups of 40 lessons, with a room and 2 teachers per 50 lessons
+        for (int lessonCount : new int[] { 100, 1_000, 10_000, 100_000 }) {
+            int studentGroupCount = Math.max(1, lessonCount / 40);
+            bulkInserter.insert(SyntheticDataGenerator.createTimeTable(tenantId, new SyntheticDataGenerator.Parameters()
+                    .withRoomCount(Math.max(2, lessonCount / 50))
+                    .withTeacherCount(Math.max(4, lessonCount / 25))
+                    .withStudentGroupCount(studentGroupCount)
+                    .withLessonsPerGroup(lessonCount / studentGroupCount)));
+            for (int i = 0; i < WARMUP_COUNT; i++) {
+                timeTableRepository.findByTenantId(tenantId);
+            }
+            long[] nanos = new long[MEASUREMENT_COUNT];
+            for (int i = 0; i < MEASUREMENT_COUNT; i++) {
+                long startNanos = System.nanoTime();
+                TimeTable timeTable = timeTableRepository.findByTenantId(tenantId);
+                nanos[i] = System.nanoTime() - startNanos;
+                assertEquals(lessonCount, timeTable.getLessonList().size());
+            }
+            Arrays.sort(nanos);
+            LOGGER.infof("Loading %d lessons: p50 %.2f ms, p99 %.2f ms, max %.2f ms.", lessonCount,
+                    percentile(nanos, 0.50), percentile(nanos, 0.99), nanos[nanos.length - 1] / 1_000_000.0);
+            tenantId++;
+        }
+    }
+
+    private static double percentile(long[] sortedNanos, double percentile) {
+        int index = (int) Math.ceil(percentile * sortedNanos.length) - 1;
+        return sortedNanos[Math.max(0, index)] / 1_000_000.0;
+    }
+
+}
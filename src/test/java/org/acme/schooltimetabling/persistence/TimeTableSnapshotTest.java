@@ -0,0 +1,142 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.acme.schooltimetabling.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.List;
+
+import org.acme.schooltimetabling.domain.Lesson;
+import org.acme.schooltimetabling.domain.Room;
+import org.acme.schooltimetabling.domain.TeacherUnavailability;
+import org.acme.schooltimetabling.domain.TimeTable;
+import org.acme.schooltimetabling.domain.Timeslot;
+import org.junit.jupiter.api.Test;
+import org.optaplanner.core.api.score.buildin.hardsoft.HardSoftScore;
+
+class TimeTableSnapshotTest {
+
+    @Test
+    void encodeAndDecode() {
+        Timeslot timeslot1 = new Timeslot(1L, 7L, DayOfWeek.MONDAY, LocalTime.of(8, 30), LocalTime.of(9, 30));
+        Timeslot timeslot2 = new Timeslot(2L, 7L, DayOfWeek.TUESDAY, LocalTime.NOON);
+        Room room1 = new Room(3L, 7L, "Room A");
+        Room room2 = new Room(4L, 7L, "Room \u00c9");
+        room2.setAvailable(false);
+        room2.setRoomType("Lab");
+        room2.setCapacity(30);
+        Lesson assignedLesson = new Lesson(5L, 7L, "Math", "A. Turing", "9th grade", timeslot2, room2);
+        assignedLesson.setPinned(true);
+        assignedLesson.setRequiredRoomType("Lab");
+        assignedLesson.setStudentCount(25);
+        Lesson unassignedLesson = new Lesson(6L, 7L, "Physics", "M. Curie", "9th grade", null, null);
+        TeacherUnavailability teacherUnavailability = new TeacherUnavailability(8L, 7L, "M. Curie",
+                DayOfWeek.MONDAY);
+        TimeTable timeTable = new TimeTable(7L, Arrays.asList(timeslot1, timeslot2), Arrays.asList(room1, room2),
+                Arrays.asList(teacherUnavailability), Arrays.asList(assignedLesson, unassignedLesson));
+        timeTable.setScore(HardSoftScore.of(-1, -20));
+
+        TimeTable decoded = TimeTableSnapshot.decode(TimeTableSnapshot.encode(timeTable));
+        assertEquals(7L, decoded.getTenantId());
+        assertEquals(HardSoftScore.of(-1, -20), decoded.getScore());
+        assertEquals(LocalTime.of(9, 30), decoded.getTimeslotList().get(0).getEndTime());
+        assertEquals(DayOfWeek.TUESDAY, decoded.getTimeslotList().get(1).getDayOfWeek());
+        assertEquals("Room \u00c9", decoded.getRoomList().get(1).getName());
+        assertFalse(decoded.getRoomList().get(1).isAvailable());
+        assertNull(decoded.getRoomList().get(0).getRoomType());
+        assertNull(decoded.getRoomList().get(0).getCapacity());
+        assertEquals("Lab", decoded.getRoomList().get(1).getRoomType());
+        assertEquals(30, decoded.getRoomList().get(1).getCapacity());
+        TeacherUnavailability decodedUnavailability = decoded.getTeacherUnavailabilityList().get(0);
+        assertEquals(8L, decodedUnavailability.getId());
+        assertEquals(DayOfWeek.MONDAY, decodedUnavailability.getDayOfWeek());
+        List<Lesson> lessonList = decoded.getLessonList();
+        assertEquals(5L, lessonList.get(0).getId());
+        assertEquals("A. Turing", lessonList.get(0).getTeacher().getName());
+        assertTrue(lessonList.get(0).isPinned());
+        assertEquals("Lab", lessonList.get(0).getRequiredRoomType());
+        assertEquals(25, lessonList.get(0).getStudentCount());
+        assertNull(lessonList.get(1).getRequiredRoomType());
+        assertNull(lessonList.get(1).getStudentCount());
+        // Interned, so the "Teacher unavailability" constraint matches the lesson's teacher
+        assertSame(lessonList.get(1).getTeacher(), decodedUnavailability.getTeacher());
+        // The lessons reference the decoded facts, like a time table loaded in a single transaction
+        assertSame(decoded.getTimeslotList().get(1), lessonList.get(0).getTimeslot());
+        assertSame(decoded.getRoomList().get(1), lessonList.get(0).getRoom());
+        assertSame(lessonList.get(0).getStudentGroup(), lessonList.get(1).getStudentGroup());
+        assertNull(lessonList.get(1).getTimeslot());
+        assertNull(lessonList.get(1).getRoom());
+    }
+
+    @Test
+    void decodeTruncated() {
+        ByteBuffer buffer = encodeSingleLesson();
+        buffer.limit(buffer.limit() - 1);
+        assertThrows(IllegalArgumentException.class, () -> TimeTableSnapshot.decode(buffer));
+    }
+
+    @Test
+    void decodeCorruptCount() {
+        // The name count follows the magic, the tenant id and the score
+        ByteBuffer buffer = encodeSingleLesson();
+        buffer.putInt(25, Integer.MAX_VALUE);
+        assertThrows(IllegalArgumentException.class, () -> TimeTableSnapshot.decode(buffer));
+        buffer.putInt(25, -1);
+        assertThrows(IllegalArgumentException.class, () -> TimeTableSnapshot.decode(buffer));
+    }
+
+    @Test
+    void decodeCorruptStringLength() {
+        // The length of the first name follows the name count
+        ByteBuffer buffer = encodeSingleLesson();
+        buffer.putInt(29, -5);
+        assertThrows(IllegalArgumentException.class, () -> TimeTableSnapshot.decode(buffer));
+    }
+
+    @Test
+    void decodeCorruptTime() {
+        // The start time of the timeslot follows the names "Math", "A. Turing" and "9th grade",
+        // the timeslot count, its id and its day of week
+        ByteBuffer buffer = encodeSingleLesson();
+        buffer.putInt(76, -1);
+        assertThrows(IllegalArgumentException.class, () -> TimeTableSnapshot.decode(buffer));
+    }
+
+    private static ByteBuffer encodeSingleLesson() {
+        return TimeTableSnapshot.encode(new TimeTable(7L, Arrays.asList(
+                new Timeslot(1L, 7L, DayOfWeek.MONDAY, LocalTime.NOON)), Arrays.asList(new Room(2L, 7L, "Room A")),
+                Arrays.asList(new Lesson(3L, 7L, "Math", "A. Turing", "9th grade", null, null))));
+    }
+
+    @Test
+    void decodeOlderFormatVersion() {
+        ByteBuffer buffer = TimeTableSnapshot.encode(new TimeTable(7L, Arrays.asList(), Arrays.asList(),
+                Arrays.asList()));
+        buffer.putInt(0, 0x54545331); // "TTS1", without the room requirements and the teacher unavailabilities
+        assertThrows(IllegalArgumentException.class, () -> TimeTableSnapshot.decode(buffer));
+    }
+
+}
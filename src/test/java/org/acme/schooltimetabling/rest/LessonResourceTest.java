@@ -17,6 +17,7 @@
 package org.acme.schooltimetabling.rest;
 
 import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.equalTo;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 
@@ -63,4 +64,26 @@ public class LessonResourceTest {
                 .statusCode(204);
     }
 
+    @Test
+    void teacherStudentGroupAndSubjectArePlainText() {
+        Lesson lesson = given()
+                .when()
+                .contentType(ContentType.JSON)
+                .body("{\"tenantId\": 1, \"subject\": \"Test subject\", \"teacher\": \"Test teacher\","
+                        + " \"studentGroup\": \"Test studentGroup\"}")
+                .post("/lessons")
+                .then()
+                .statusCode(201)
+                .body("subject", equalTo("Test subject"))
+                .body("teacher", equalTo("Test teacher"))
+                .body("studentGroup", equalTo("Test studentGroup"))
+                .extract().as(Lesson.class);
+
+        given()
+                .when()
+                .delete("/lessons/{id}", lesson.getId())
+                .then()
+                .statusCode(204);
+    }
+
 }
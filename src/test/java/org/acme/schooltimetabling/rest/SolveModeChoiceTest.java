@@ -0,0 +1,77 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.acme.schooltimetabling.rest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import javax.inject.Inject;
+
+import org.acme.schooltimetabling.bootstrap.SyntheticDataGenerator;
+import org.acme.schooltimetabling.domain.Lesson;
+import org.acme.schooltimetabling.domain.TimeTable;
+import org.acme.schooltimetabling.persistence.TimeTableBulkInserter;
+import org.acme.schooltimetabling.solver.SolveMode;
+import org.junit.jupiter.api.Test;
+
+import io.quarkus.test.junit.QuarkusTest;
+
+@QuarkusTest
+class SolveModeChoiceTest {
+
+    private static final Long UNASSIGNED_TENANT_ID = 120L;
+    private static final Long ASSIGNED_TENANT_ID = 121L;
+
+    @Inject
+    TimeTableResource timeTableResource;
+    @Inject
+    TimeTableBulkInserter bulkInserter;
+
+    @Test
+    void coldStartUnlessMostLessonsAreAssigned() {
+        bulkInserter.insert(createTimeTable(UNASSIGNED_TENANT_ID, 0));
+        // 7 of the 8 lessons reach the default timeTable.warm-start.min-assigned-ratio of 0.8
+        bulkInserter.insert(createTimeTable(ASSIGNED_TENANT_ID, 7));
+
+        assertEquals(SolveMode.COLD, timeTableResource.chooseSolveMode(UNASSIGNED_TENANT_ID));
+        assertEquals(SolveMode.WARM_START, timeTableResource.chooseSolveMode(ASSIGNED_TENANT_ID));
+    }
+
+    @Test
+    void coldStartWithTooFewAssignedLessons() {
+        Long tenantId = 122L;
+        // 6 of the 8 lessons is below the ratio
+        bulkInserter.insert(createTimeTable(tenantId, 6));
+
+        assertEquals(SolveMode.COLD, timeTableResource.chooseSolveMode(tenantId));
+    }
+
+    private TimeTable createTimeTable(Long tenantId, int assignedLessonCount) {
+        TimeTable timeTable = SyntheticDataGenerator.createTimeTable(tenantId, new SyntheticDataGenerator.Parameters()
+                .withTimeslotsPerDay(2)
+                .withRoomCount(2)
+                .withTeacherCount(2)
+                .withStudentGroupCount(2)
+                .withLessonsPerGroup(4));
+        for (int i = 0; i < assignedLessonCount; i++) {
+            Lesson lesson = timeTable.getLessonList().get(i);
+            lesson.setTimeslot(timeTable.getTimeslotList().get(i));
+            lesson.setRoom(timeTable.getRoomList().get(0));
+        }
+        return timeTable;
+    }
+
+}
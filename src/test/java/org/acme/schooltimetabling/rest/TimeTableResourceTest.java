@@ -16,19 +16,28 @@
 
 package org.acme.schooltimetabling.rest;
 
+import static io.restassured.RestAssured.given;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
 import javax.inject.Inject;
 
 import org.acme.schooltimetabling.domain.Lesson;
 import org.acme.schooltimetabling.domain.TimeTable;
+import org.acme.schooltimetabling.persistence.TimeTableExporter;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Timeout;
 import org.optaplanner.core.api.solver.SolverStatus;
 
 import io.quarkus.test.junit.QuarkusTest;
+import io.restassured.http.ContentType;
+import io.restassured.path.json.JsonPath;
 
 @QuarkusTest
 public class TimeTableResourceTest {
@@ -56,4 +65,161 @@ public class TimeTableResourceTest {
         assertTrue(timeTable.getScore().isFeasible());
     }
 
+    @Test
+    public void getUnchangedTimeTableIsNotModified() {
+        String entityTag = given()
+                .when().get("/timeTable/3")
+                .then()
+                .statusCode(200)
+                .extract().header("ETag");
+        assertNotNull(entityTag);
+
+        given()
+                .header("If-None-Match", entityTag)
+                .when().get("/timeTable/3")
+                .then()
+                .statusCode(304);
+    }
+
+    @Test
+    public void addPinAndRemoveLesson() {
+        Lesson lesson = given()
+                .when()
+                .contentType(ContentType.JSON)
+                .body("{\"subject\": \"Test subject\", \"teacher\": \"Test teacher\","
+                        + " \"studentGroup\": \"Test studentGroup\"}")
+                .post("/timeTable/500/lessons")
+                .then()
+                .statusCode(201)
+                .extract().as(Lesson.class);
+        assertEquals(500L, lesson.getTenantId());
+        assertFalse(lesson.isPinned());
+
+        // Not assigned yet, so there's nothing to pin it to
+        given()
+                .when().post("/timeTable/500/lessons/{id}/pin", lesson.getId())
+                .then()
+                .statusCode(400);
+        given()
+                .when().delete("/timeTable/500/lessons/{id}/pin", lesson.getId())
+                .then()
+                .statusCode(204);
+        // Another tenant's lesson
+        given()
+                .when().delete("/timeTable/501/lessons/{id}", lesson.getId())
+                .then()
+                .statusCode(404);
+        given()
+                .when().delete("/timeTable/500/lessons/{id}", lesson.getId())
+                .then()
+                .statusCode(204);
+    }
+
+    @Test
+    public void listLessonsByKeysetPages() {
+        Set<Long> lessonIdSet = new HashSet<>();
+        Long afterId = 0L;
+        do {
+            JsonPath page = given()
+                    .queryParam("after", afterId)
+                    .queryParam("limit", 7)
+                    .when().get("/timeTable/2/lessons")
+                    .then()
+                    .statusCode(200)
+                    .extract().jsonPath();
+            List<Long> pageIdList = page.getList("items.id", Long.class);
+            assertTrue(pageIdList.size() <= 7);
+            for (Long lessonId : pageIdList) {
+                assertTrue(lessonId > afterId);
+                assertTrue(lessonIdSet.add(lessonId));
+            }
+            afterId = page.getObject("nextAfterId", Long.class);
+        } while (afterId != null);
+        assertEquals(timeTableResource.getTimeTable(2L).getLessonList().size(), lessonIdSet.size());
+
+        given()
+                .queryParam("limit", 0)
+                .when().get("/timeTable/2/lessons")
+                .then()
+                .statusCode(400);
+    }
+
+    @Test
+    public void importProblem() {
+        given()
+                .contentType(ContentType.JSON)
+                .body("{\"timeslots\":[{\"dayOfWeek\":\"MONDAY\",\"startTime\":\"08:30\",\"endTime\":\"09:30\"},"
+                        + "{\"dayOfWeek\":\"MONDAY\",\"startTime\":\"09:30\",\"endTime\":\"10:30\"}],"
+                        + "\"rooms\":[{\"name\":\"Room A\"}],"
+                        + "\"lessons\":["
+                        + "{\"subject\":\"Math\",\"teacher\":\"A. Turing\",\"studentGroup\":\"9th grade\"},"
+                        + "{\"subject\":\"Physics\",\"teacher\":\"M. Curie\",\"studentGroup\":\"9th grade\"}]}")
+                .when().put("/timeTable/700/problem")
+                .then()
+                .statusCode(200);
+        TimeTable timeTable = timeTableResource.getTimeTable(700L);
+        assertEquals(2, timeTable.getTimeslotList().size());
+        assertEquals(1, timeTable.getRoomList().size());
+        assertEquals(2, timeTable.getLessonList().size());
+
+        // Replaces the previous problem
+        given()
+                .contentType("text/csv")
+                .body("# type,fields\n"
+                        + "timeslot,TUESDAY,08:30,09:30\n"
+                        + "room,Room B\n"
+                        + "room,\"Room \"\"C\"\", annex\"\n"
+                        + "lesson,Chemistry,M. Curie,\"10th grade, group 1\"\n")
+                .when().put("/timeTable/700/problem")
+                .then()
+                .statusCode(200);
+        timeTable = timeTableResource.getTimeTable(700L);
+        assertEquals(1, timeTable.getTimeslotList().size());
+        assertEquals(2, timeTable.getRoomList().size());
+        assertTrue(timeTable.getRoomList().stream().anyMatch(room -> room.getName().equals("Room \"C\", annex")));
+        assertEquals(1, timeTable.getLessonList().size());
+        assertEquals("10th grade, group 1", timeTable.getLessonList().get(0).getStudentGroup().getName());
+
+        // A malformed row rolls back the whole import
+        given()
+                .contentType("text/csv")
+                .body("room,Room D\nlesson,Math,A. Turing\n")
+                .when().put("/timeTable/700/problem")
+                .then()
+                .statusCode(400);
+        assertEquals(2, timeTableResource.getTimeTable(700L).getRoomList().size());
+    }
+
+    @Test
+    public void exportCsvAndICalendar() {
+        TimeTable timeTable = timeTableResource.getTimeTable(2L);
+        String csv = given()
+                .queryParam("by", "teacher")
+                .when().get("/timeTable/2/export.csv")
+                .then()
+                .statusCode(200)
+                .extract().asString();
+        String[] csvLines = csv.split("\n");
+        assertEquals(TimeTableExporter.CSV_HEADER, csvLines[0]);
+        assertEquals(timeTable.getLessonList().size() + 1, csvLines.length);
+
+        String iCalendar = given()
+                .queryParam("weekOf", "2021-09-08")
+                .when().get("/timeTable/2/export.ics")
+                .then()
+                .statusCode(200)
+                .extract().asString();
+        assertTrue(iCalendar.startsWith("BEGIN:VCALENDAR\r\n"));
+        long assignedLessonCount = timeTable.getLessonList().stream()
+                .filter(lesson -> lesson.getTimeslot() != null && lesson.getRoom() != null)
+                .count();
+        assertEquals(assignedLessonCount, iCalendar.split("BEGIN:VEVENT", -1).length - 1);
+
+        given()
+                .queryParam("by", "subject")
+                .when().get("/timeTable/2/export.csv")
+                .then()
+                .statusCode(400);
+    }
+
 }
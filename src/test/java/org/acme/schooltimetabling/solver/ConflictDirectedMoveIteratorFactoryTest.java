@@ -0,0 +1,104 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.acme.schooltimetabling.solver;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import org.acme.schooltimetabling.domain.Lesson;
+import org.acme.schooltimetabling.domain.Room;
+import org.acme.schooltimetabling.domain.TimeTable;
+import org.acme.schooltimetabling.domain.Timeslot;
+import org.junit.jupiter.api.Test;
+import org.optaplanner.core.api.solver.SolverFactory;
+import org.optaplanner.core.config.solver.SolverConfig;
+import org.optaplanner.core.config.solver.termination.TerminationConfig;
+import org.optaplanner.core.impl.heuristic.move.Move;
+import org.optaplanner.core.impl.score.director.InnerScoreDirector;
+import org.optaplanner.core.impl.solver.DefaultSolverFactory;
+
+class ConflictDirectedMoveIteratorFactoryTest {
+
+    @Test
+    void originalMoveIterator() {
+        DefaultSolverFactory<TimeTable> solverFactory = (DefaultSolverFactory<TimeTable>) SolverFactory
+                .<TimeTable> create(createSolverConfig());
+        InnerScoreDirector<TimeTable, ?> scoreDirector = solverFactory.getScoreDirectorFactory()
+                .buildScoreDirector(false, false);
+        scoreDirector.setWorkingSolution(createTimeTable(2, 2, 3));
+        ConflictDirectedMoveIteratorFactory moveIteratorFactory = new ConflictDirectedMoveIteratorFactory();
+        moveIteratorFactory.phaseStarted(scoreDirector);
+
+        List<Move<TimeTable>> moveList = new ArrayList<>();
+        Iterator<Move<TimeTable>> moveIterator = moveIteratorFactory.createOriginalMoveIterator(scoreDirector);
+        moveIterator.forEachRemaining(moveList::add);
+        // 3 lessons of 2 timeslots times 2 rooms each, then the swaps of the 3 pairs
+        assertEquals(3 * 4 + 3, moveList.size());
+        assertEquals(LessonChangeMove.class, moveList.get(0).getClass());
+        assertEquals(LessonSwapMove.class, moveList.get(4).getClass());
+        moveIteratorFactory.phaseEnded(scoreDirector);
+        scoreDirector.close();
+    }
+
+    @Test
+    void solveWithMoveThreads() {
+        SolverConfig solverConfig = SolverFactoryProducer.buildConflictDirectedSolverConfig(createSolverConfig(), 0.9)
+                .withMoveThreadCount("2")
+                .withTerminationConfig(new TerminationConfig().withStepCountLimit(200));
+
+        TimeTable solution = SolverFactory.<TimeTable> create(solverConfig).buildSolver()
+                .solve(createTimeTable(3, 3, 12));
+        for (Lesson lesson : solution.getLessonList()) {
+            assertNotNull(lesson.getTimeslot());
+            assertNotNull(lesson.getRoom());
+        }
+    }
+
+    private static SolverConfig createSolverConfig() {
+        return new SolverConfig()
+                .withSolutionClass(TimeTable.class)
+                .withEntityClasses(Lesson.class)
+                .withConstraintProviderClass(TimeTableConstraintProvider.class);
+    }
+
+    // Move threads look up the working lessons, timeslots and rooms by their planning id
+    private static TimeTable createTimeTable(int timeslotCount, int roomCount, int lessonCount) {
+        long id = 0L;
+        List<Timeslot> timeslotList = new ArrayList<>(timeslotCount);
+        for (int i = 0; i < timeslotCount; i++) {
+            timeslotList.add(new Timeslot(id++, 1L, DayOfWeek.MONDAY, LocalTime.of(8 + i, 30)));
+        }
+        List<Room> roomList = new ArrayList<>(roomCount);
+        for (int i = 0; i < roomCount; i++) {
+            roomList.add(new Room(id++, 1L, "Room " + i));
+        }
+        List<Lesson> lessonList = new ArrayList<>(lessonCount);
+        for (int i = 0; i < lessonCount; i++) {
+            lessonList.add(new Lesson(id++, 1L, "Subject " + i, "Teacher " + (i % 4), "Group " + (i % 3),
+                    null, null));
+        }
+        return new TimeTable(1L, timeslotList, roomList, Arrays.asList(), lessonList);
+    }
+
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.acme.schooltimetabling.solver;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class ConsistentHashRingTest {
+
+    private static final int TENANT_COUNT = 3000;
+    private static final String NODE1 = "http://node1:8080";
+    private static final String NODE2 = "http://node2:8080";
+    private static final String NODE3 = "http://node3:8080";
+    private static final String NODE4 = "http://node4:8080";
+
+    @Test
+    void spreadsTenantsEvenly() {
+        ConsistentHashRing ring = new ConsistentHashRing(Arrays.asList(NODE1, NODE2, NODE3), 100);
+        Map<String, Integer> tenantCountMap = new HashMap<>();
+        for (long tenantId = 1L; tenantId <= TENANT_COUNT; tenantId++) {
+            tenantCountMap.merge(ring.getOwner(tenantId), 1, Integer::sum);
+        }
+        assertEquals(3, tenantCountMap.size());
+        for (int tenantCount : tenantCountMap.values()) {
+            assertTrue(tenantCount > TENANT_COUNT / 5, "Unbalanced tenant counts " + tenantCountMap + ".");
+        }
+    }
+
+    @Test
+    void joinAndLeaveOnlyMoveTheTenantsOfThatNode() {
+        ConsistentHashRing ring = new ConsistentHashRing(Arrays.asList(NODE1, NODE2, NODE3), 100);
+        ConsistentHashRing joinedRing = new ConsistentHashRing(Arrays.asList(NODE1, NODE2, NODE3, NODE4), 100);
+        ConsistentHashRing leftRing = new ConsistentHashRing(Arrays.asList(NODE1, NODE3), 100);
+        int movedCount = 0;
+        for (long tenantId = 1L; tenantId <= TENANT_COUNT; tenantId++) {
+            String owner = ring.getOwner(tenantId);
+            String joinedOwner = joinedRing.getOwner(tenantId);
+            if (!joinedOwner.equals(owner)) {
+                assertEquals(NODE4, joinedOwner);
+                movedCount++;
+            }
+            if (!owner.equals(NODE2)) {
+                assertEquals(owner, leftRing.getOwner(tenantId));
+            }
+        }
+        assertTrue(movedCount > TENANT_COUNT / 8 && movedCount < TENANT_COUNT / 2,
+                "Moved (" + movedCount + ") tenants.");
+    }
+
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.acme.schooltimetabling.solver;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.Collections;
+
+import javax.inject.Inject;
+
+import org.acme.schooltimetabling.domain.Lesson;
+import org.acme.schooltimetabling.domain.Room;
+import org.acme.schooltimetabling.domain.TimeTable;
+import org.acme.schooltimetabling.domain.Timeslot;
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.test.junit.QuarkusTest;
+
+@QuarkusTest
+class ConstraintMetricsTest {
+
+    @Inject
+    ConstraintMetrics constraintMetrics;
+    @Inject
+    MeterRegistry meterRegistry;
+
+    @Test
+    void recordRoomConflict() {
+        Room room = new Room(1L, 200L, "Room1");
+        Timeslot timeslot = new Timeslot(2L, 200L, DayOfWeek.MONDAY, LocalTime.NOON);
+        TimeTable timeTable = new TimeTable(200L, Collections.singletonList(timeslot), Collections.singletonList(room),
+                Arrays.asList(new Lesson(3L, 200L, "Subject1", "Teacher1", "Group1", timeslot, room),
+                        new Lesson(4L, 200L, "Subject2", "Teacher2", "Group2", timeslot, room)));
+        constraintMetrics.record(timeTable);
+
+        assertEquals(1.0, meterRegistry.get("timetable.constraint.matches")
+                .tag("tenantId", "200").tag("constraint", "Room conflict").gauge().value());
+        assertEquals(-1.0, meterRegistry.get("timetable.constraint.score.hard")
+                .tag("tenantId", "200").tag("constraint", "Room conflict").gauge().value());
+        assertEquals(1L, meterRegistry.get("timetable.constraint.explain").tag("tenantId", "200").timer().count());
+    }
+
+}
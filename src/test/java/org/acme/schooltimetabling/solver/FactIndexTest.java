@@ -0,0 +1,51 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.acme.schooltimetabling.solver;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.acme.schooltimetabling.domain.Room;
+import org.junit.jupiter.api.Test;
+
+class FactIndexTest {
+
+    @Test
+    void indexOf() {
+        List<Room> roomList = new ArrayList<>();
+        for (long i = 0L; i < 100L; i++) {
+            roomList.add(new Room(i, 1L, "Room " + i));
+        }
+        FactIndex roomIndex = new FactIndex(roomList);
+        for (int i = 0; i < roomList.size(); i++) {
+            assertEquals(i, roomIndex.indexOf(roomList.get(i)));
+        }
+        // By identity, not by id or name
+        assertThrows(IllegalArgumentException.class, () -> roomIndex.indexOf(new Room(0L, 1L, "Room 0")));
+    }
+
+    @Test
+    void indexOfEmpty() {
+        FactIndex roomIndex = new FactIndex(Collections.emptyList());
+        assertThrows(IllegalArgumentException.class, () -> roomIndex.indexOf(new Room(0L, 1L, "Room 0")));
+    }
+
+}
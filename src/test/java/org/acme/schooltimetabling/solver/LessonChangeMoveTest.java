@@ -0,0 +1,68 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.acme.schooltimetabling.solver;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.acme.schooltimetabling.domain.Lesson;
+import org.acme.schooltimetabling.domain.Room;
+import org.acme.schooltimetabling.domain.Timeslot;
+import org.junit.jupiter.api.Test;
+
+class LessonChangeMoveTest {
+
+    private static final Timeslot MONDAY = new Timeslot(1L, 1L, DayOfWeek.MONDAY, LocalTime.of(8, 30));
+    private static final Timeslot TUESDAY = new Timeslot(2L, 1L, DayOfWeek.TUESDAY, LocalTime.of(8, 30));
+    private static final Timeslot WEDNESDAY = new Timeslot(3L, 1L, DayOfWeek.WEDNESDAY, LocalTime.of(8, 30));
+    private static final Room ROOM_A = new Room(4L, 1L, "Room A");
+    private static final Room ROOM_B = new Room(5L, 1L, "Room B");
+
+    @Test
+    void onlyMovesIntoTheValueRanges() {
+        // The teacher became unavailable on Wednesday after the lesson was assigned to it
+        Lesson lesson = new Lesson(6L, 1L, "Math", "A. Turing", "9th grade", WEDNESDAY, ROOM_A);
+        lesson.setAllowedTimeslotList(Arrays.asList(MONDAY, TUESDAY));
+        lesson.setAllowedRoomList(Collections.singletonList(ROOM_A));
+
+        assertTrue(new LessonChangeMove(lesson, MONDAY, ROOM_A, null).isMoveDoable(null));
+        assertFalse(new LessonChangeMove(lesson, WEDNESDAY, ROOM_A, null).isMoveDoable(null));
+        assertFalse(new LessonChangeMove(lesson, MONDAY, ROOM_B, null).isMoveDoable(null));
+        // It can keep its current timeslot, even though it's outside of its value range
+        lesson.setTimeslot(WEDNESDAY);
+        lesson.setRoom(null);
+        assertTrue(new LessonChangeMove(lesson, WEDNESDAY, ROOM_A, null).isMoveDoable(null));
+    }
+
+    @Test
+    void undoRestoresValuesOutsideOfTheValueRanges() {
+        Lesson lesson = new Lesson(6L, 1L, "Math", "A. Turing", "9th grade", WEDNESDAY, ROOM_B);
+        lesson.setAllowedTimeslotList(Arrays.asList(MONDAY, TUESDAY));
+        lesson.setAllowedRoomList(Collections.singletonList(ROOM_A));
+
+        LessonChangeMove undoMove = new LessonChangeMove(lesson, MONDAY, ROOM_A, null).createUndoMove(null);
+        lesson.setTimeslot(MONDAY);
+        lesson.setRoom(ROOM_A);
+        assertTrue(undoMove.isMoveDoable(null));
+    }
+
+}
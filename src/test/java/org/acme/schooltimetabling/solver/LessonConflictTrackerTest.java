@@ -0,0 +1,77 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.acme.schooltimetabling.solver;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.acme.schooltimetabling.domain.Lesson;
+import org.acme.schooltimetabling.domain.Room;
+import org.acme.schooltimetabling.domain.TimeTable;
+import org.acme.schooltimetabling.domain.Timeslot;
+import org.junit.jupiter.api.Test;
+
+class LessonConflictTrackerTest {
+
+    @Test
+    void tracksConflictsThroughMoves() {
+        Timeslot monday = new Timeslot(1L, 1L, DayOfWeek.MONDAY, LocalTime.of(8, 30));
+        Timeslot tuesday = new Timeslot(2L, 1L, DayOfWeek.TUESDAY, LocalTime.of(8, 30));
+        Room roomA = new Room(3L, 1L, "Room A");
+        Room roomB = new Room(4L, 1L, "Room B");
+        // Same teacher in the same timeslot
+        Lesson math = new Lesson(5L, 1L, "Math", "A. Turing", "9th grade", monday, roomA);
+        Lesson physics = new Lesson(6L, 1L, "Physics", "A. Turing", "10th grade", monday, roomB);
+        Lesson chemistry = new Lesson(7L, 1L, "Chemistry", "M. Curie", "11th grade", tuesday, roomA);
+        TimeTable timeTable = new TimeTable(1L, Arrays.asList(monday, tuesday), Arrays.asList(roomA, roomB),
+                Arrays.asList(math, physics, chemistry));
+        LessonConflictTracker tracker = new LessonConflictTracker(timeTable);
+
+        assertEquals(2, tracker.getConflictedLessonCount());
+        assertTrue(tracker.isConflicted(math));
+        assertFalse(tracker.isConflicted(chemistry));
+        assertTrue(tracker.isFree(physics, tuesday, roomB));
+        assertFalse(tracker.isFree(physics, tuesday, roomA));
+
+        // Resolve the conflict
+        tracker.retract(physics);
+        physics.setTimeslot(tuesday);
+        tracker.insert(physics);
+        assertFalse(tracker.isConflicted(math));
+        assertFalse(tracker.isConflicted(physics));
+        // Stale entries are dropped once picked
+        assertNull(tracker.pickConflictedLesson(new Random(37)));
+        assertEquals(0, tracker.getConflictedLessonCount());
+
+        // A room conflict, only the lesson that moved in is tracked
+        tracker.retract(math);
+        math.setTimeslot(tuesday);
+        tracker.insert(math);
+        assertTrue(tracker.isConflicted(chemistry));
+        assertSame(math, tracker.pickConflictedLesson(new Random(37)));
+        assertEquals(1, tracker.getConflictedLessonCount());
+    }
+
+}
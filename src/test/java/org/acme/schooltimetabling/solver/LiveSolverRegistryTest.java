@@ -0,0 +1,115 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.acme.schooltimetabling.solver;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
+
+import javax.inject.Inject;
+
+import org.acme.schooltimetabling.domain.Lesson;
+import org.acme.schooltimetabling.domain.Room;
+import org.acme.schooltimetabling.domain.TimeTable;
+import org.acme.schooltimetabling.domain.Timeslot;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.optaplanner.core.api.solver.Solver;
+import org.optaplanner.core.api.solver.SolverFactory;
+
+import io.quarkus.test.junit.QuarkusTest;
+
+@QuarkusTest
+class LiveSolverRegistryTest {
+
+    private static final Long TENANT_ID = 510L;
+
+    @Inject
+    SolverFactory<TimeTable> solverFactory;
+    @Inject
+    LiveSolverRegistry liveSolverRegistry;
+
+    @Test
+    @Timeout(60)
+    void runningSolverReceivesProblemChanges() throws Exception {
+        Room room = new Room(1L, TENANT_ID, "Room1");
+        Room otherRoom = new Room(2L, TENANT_ID, "Room2");
+        List<Lesson> lessonList = new ArrayList<>();
+        // Three lessons of one teacher in two timeslots never become feasible, so the solve runs until terminated
+        for (long id = 10L; id < 13L; id++) {
+            lessonList.add(new Lesson(id, TENANT_ID, "Math", "A. Turing", "Group" + id, null, null));
+        }
+        lessonList.add(new Lesson(13L, TENANT_ID, "Physics", "M. Curie", "Group10", null, null));
+        TimeTable timeTable = new TimeTable(TENANT_ID,
+                Arrays.asList(new Timeslot(3L, TENANT_ID, DayOfWeek.MONDAY, LocalTime.of(8, 30)),
+                        new Timeslot(4L, TENANT_ID, DayOfWeek.MONDAY, LocalTime.of(9, 30))),
+                Arrays.asList(room, otherRoom), lessonList);
+
+        AtomicReference<TimeTable> bestSolution = new AtomicReference<>();
+        Solver<TimeTable> solver = solverFactory.buildSolver();
+        solver.addEventListener(event -> bestSolution.set(event.getNewBestSolution()));
+        liveSolverRegistry.expect(TENANT_ID);
+        CompletableFuture<TimeTable> solveFuture = CompletableFuture.supplyAsync(() -> solver.solve(timeTable));
+        try {
+            // Buffered until the solver registers, or applied right away
+            Lesson addedLesson = new Lesson(14L, TENANT_ID, "Chemistry", "M. Curie", "Group11", null, null);
+            assertTrue(liveSolverRegistry.addProblemFactChange(TENANT_ID, new AddLessonChange(addedLesson)));
+            assertTrue(liveSolverRegistry.addProblemFactChange(TENANT_ID, new RemoveLessonChange(13L)));
+            awaitBestSolution(bestSolution, solution -> solution.getScore().isSolutionInitialized()
+                    && findLesson(solution, 14L) != null && findLesson(solution, 13L) == null);
+
+            // A lesson can only be pinned once it's assigned
+            assertTrue(liveSolverRegistry.addProblemFactChange(TENANT_ID, new PinLessonChange(10L, true)));
+            assertTrue(liveSolverRegistry.addProblemFactChange(TENANT_ID,
+                    new RoomAvailabilityChange(otherRoom, false)));
+            awaitBestSolution(bestSolution, solution -> findLesson(solution, 10L).isPinned()
+                    && !findRoom(solution, otherRoom.getId()).isAvailable());
+        } finally {
+            solver.terminateEarly();
+            solveFuture.get(10, TimeUnit.SECONDS);
+            liveSolverRegistry.forget(TENANT_ID);
+        }
+        assertFalse(liveSolverRegistry.addProblemFactChange(TENANT_ID, new RemoveLessonChange(14L)));
+    }
+
+    private static void awaitBestSolution(AtomicReference<TimeTable> bestSolution, Predicate<TimeTable> condition)
+            throws InterruptedException {
+        while (bestSolution.get() == null || !condition.test(bestSolution.get())) {
+            Thread.sleep(10L);
+        }
+    }
+
+    private static Lesson findLesson(TimeTable timeTable, Long lessonId) {
+        return RemoveLessonChange.findLesson(timeTable, lessonId);
+    }
+
+    private static Room findRoom(TimeTable timeTable, Long roomId) {
+        return timeTable.getRoomList().stream()
+                .filter(room -> room.getId().equals(roomId))
+                .findFirst().orElseThrow();
+    }
+
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.acme.schooltimetabling.solver;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.inject.Inject;
+
+import org.acme.schooltimetabling.domain.Lesson;
+import org.acme.schooltimetabling.domain.Room;
+import org.acme.schooltimetabling.domain.TimeTable;
+import org.acme.schooltimetabling.domain.Timeslot;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.optaplanner.core.api.solver.Solver;
+import org.optaplanner.core.config.solver.SolverConfig;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.test.junit.QuarkusTest;
+
+@QuarkusTest
+class PartitionedSolveTest {
+
+    private static final Long TENANT_ID = 520L;
+
+    @Inject
+    SolverConfig solverConfig;
+    @Inject
+    MeterRegistry meterRegistry;
+    @Inject
+    LiveSolverRegistry liveSolverRegistry;
+    @Inject
+    PartitionMetrics partitionMetrics;
+
+    @Test
+    @Timeout(120)
+    void solvePartitioned() {
+        SolverConfig partitionedSolverConfig = SolverFactoryProducer.buildPartitionedSolverConfig(solverConfig, 2,
+                "2", Duration.ofSeconds(1), Duration.ofSeconds(1));
+        Solver<TimeTable> solver = new InstrumentedSolverFactory(partitionedSolverConfig, meterRegistry,
+                liveSolverRegistry, partitionMetrics).buildSolver();
+        TimeTable solution = solver.solve(createTimeTable());
+
+        assertTrue(solution.getScore().isSolutionInitialized());
+        assertEquals(200, solution.getLessonList().size());
+        assertEquals(2.0, meterRegistry.get("timetable.partition.count")
+                .tag("tenantId", TENANT_ID.toString()).gauge().value());
+        double improvementCount = meterRegistry.find("timetable.partition.improvements")
+                .tag("tenantId", TENANT_ID.toString()).counters().stream()
+                .mapToDouble(Counter::count).sum();
+        assertTrue(improvementCount > 0.0);
+    }
+
+    // 10 student groups of 20 lessons, each group with its own 2 teachers, so the partitioner makes 2 parts of 100
+    private static TimeTable createTimeTable() {
+        long id = 0L;
+        List<Timeslot> timeslotList = new ArrayList<>();
+        for (DayOfWeek dayOfWeek : new DayOfWeek[] { DayOfWeek.MONDAY, DayOfWeek.TUESDAY, DayOfWeek.WEDNESDAY,
+                DayOfWeek.THURSDAY, DayOfWeek.FRIDAY }) {
+            for (int i = 0; i < 6; i++) {
+                timeslotList.add(new Timeslot(id++, TENANT_ID, dayOfWeek, LocalTime.of(8, 0).plusHours(i)));
+            }
+        }
+        List<Room> roomList = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            roomList.add(new Room(id++, TENANT_ID, "Room " + i));
+        }
+        List<Lesson> lessonList = new ArrayList<>();
+        for (int group = 0; group < 10; group++) {
+            for (int i = 0; i < 20; i++) {
+                lessonList.add(new Lesson(id++, TENANT_ID, "Subject " + (i % 5),
+                        "Teacher " + (group * 2 + i % 2), "Group " + group, null, null));
+            }
+        }
+        return new TimeTable(TENANT_ID, timeslotList, roomList, lessonList);
+    }
+
+}
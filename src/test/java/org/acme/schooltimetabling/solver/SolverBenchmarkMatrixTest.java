@@ -0,0 +1,145 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.acme.schooltimetabling.solver;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.acme.schooltimetabling.bootstrap.DemoDataGenerator;
+import org.acme.schooltimetabling.bootstrap.SyntheticDataGenerator;
+import org.acme.schooltimetabling.domain.Lesson;
+import org.acme.schooltimetabling.domain.Room;
+import org.acme.schooltimetabling.domain.TeacherUnavailability;
+import org.acme.schooltimetabling.domain.TimeTable;
+import org.acme.schooltimetabling.domain.Timeslot;
+import org.jboss.logging.Logger;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.optaplanner.benchmark.api.PlannerBenchmarkFactory;
+import org.optaplanner.benchmark.impl.result.BenchmarkResultIO;
+import org.optaplanner.benchmark.impl.result.PlannerBenchmarkResult;
+import org.optaplanner.benchmark.impl.result.SingleBenchmarkResult;
+import org.optaplanner.benchmark.impl.result.SolverBenchmarkResult;
+
+/**
+ * Compares Drools and Bavet constraint streams, move thread counts and acceptors, see solverBenchmarkMatrixConfig.xml,
+ * on the SMALL and LARGE demo data and generated 5k and 20k lesson tenants.
+ * Besides the HTML report, writes summary.csv with the time to feasible and score calculation speed of every run.
+ * It takes hours, so run it explicitly:
+ * {@code mvn test -Dtest=SolverBenchmarkMatrixTest -DtimeTable.benchmark=true}.
+ */
+@EnabledIfSystemProperty(named = "timeTable.benchmark", matches = "true")
+public class SolverBenchmarkMatrixTest {
+
+    private static final Logger LOGGER = Logger.getLogger(SolverBenchmarkMatrixTest.class);
+    private static final String SUMMARY_HEADER
+            = "solver,problem,lessonCount,feasible,timeToFeasibleMillis,scoreCalculationSpeed,score";
+
+    @Test
+    public void benchmarkMatrix() throws IOException {
+        File benchmarkDirectory = PlannerBenchmarkFactory.createFromXmlResource("solverBenchmarkMatrixConfig.xml")
+                .buildPlannerBenchmark(
+                        withIds(DemoDataGenerator.createTimeTable(1L, DemoDataGenerator.DemoData.SMALL)),
+                        withIds(DemoDataGenerator.createTimeTable(1L, DemoDataGenerator.DemoData.LARGE)),
+                        withIds(createGeneratedTimeTable(125)),
+                        withIds(createGeneratedTimeTable(500)))
+                .benchmark();
+        writeSummary(benchmarkDirectory);
+    }
+
+    // 40 lessons per student group, 50 timeslots, rooms filled to 80% and 25 lessons per teacher
+    private static TimeTable createGeneratedTimeTable(int studentGroupCount) {
+        int lessonCount = studentGroupCount * 40;
+        return SyntheticDataGenerator.createTimeTable(1L, new SyntheticDataGenerator.Parameters()
+                .withTimeslotsPerDay(10)
+                .withRoomCount(lessonCount / 40)
+                .withTeacherCount(lessonCount / 25)
+                .withStudentGroupCount(studentGroupCount)
+                .withLessonsPerGroup(40)
+                .withSeed(37L));
+    }
+
+    // Move threads look up the working timeslots and rooms by their planning id
+    private static TimeTable withIds(TimeTable timeTable) {
+        long id = 0L;
+        Map<Object, Object> copyMap = new IdentityHashMap<>();
+        List<Timeslot> timeslotList = new ArrayList<>(timeTable.getTimeslotList().size());
+        for (Timeslot timeslot : timeTable.getTimeslotList()) {
+            Timeslot copy = new Timeslot(id++, timeslot.getTenantId(), timeslot.getDayOfWeek(),
+                    timeslot.getStartTime(), timeslot.getEndTime());
+            copyMap.put(timeslot, copy);
+            timeslotList.add(copy);
+        }
+        List<Room> roomList = new ArrayList<>(timeTable.getRoomList().size());
+        for (Room room : timeTable.getRoomList()) {
+            Room copy = new Room(id++, room.getTenantId(), room.getName());
+            copy.setAvailable(room.isAvailable());
+            copy.setRoomType(room.getRoomType());
+            copy.setCapacity(room.getCapacity());
+            copyMap.put(room, copy);
+            roomList.add(copy);
+        }
+        List<TeacherUnavailability> teacherUnavailabilityList
+                = new ArrayList<>(timeTable.getTeacherUnavailabilityList().size());
+        for (TeacherUnavailability teacherUnavailability : timeTable.getTeacherUnavailabilityList()) {
+            teacherUnavailabilityList.add(new TeacherUnavailability(id++, teacherUnavailability.getTenantId(),
+                    teacherUnavailability.getTeacher().getName(), teacherUnavailability.getDayOfWeek()));
+        }
+        List<Lesson> lessonList = new ArrayList<>(timeTable.getLessonList().size());
+        for (Lesson lesson : timeTable.getLessonList()) {
+            Lesson copy = new Lesson(id++, lesson.getTenantId(), lesson.getSubject().getName(),
+                    lesson.getTeacher().getName(), lesson.getStudentGroup().getName(),
+                    (Timeslot) copyMap.get(lesson.getTimeslot()), (Room) copyMap.get(lesson.getRoom()));
+            copy.setPinned(lesson.isPinned());
+            copy.setRequiredRoomType(lesson.getRequiredRoomType());
+            copy.setStudentCount(lesson.getStudentCount());
+            lessonList.add(copy);
+        }
+        return new TimeTable(timeTable.getTenantId(), timeslotList, roomList, teacherUnavailabilityList, lessonList);
+    }
+
+    private static void writeSummary(File benchmarkDirectory) throws IOException {
+        PlannerBenchmarkResult plannerBenchmarkResult = new BenchmarkResultIO().readPlannerBenchmarkResult(
+                new File(benchmarkDirectory, "plannerBenchmarkResult.xml"));
+        File summaryFile = new File(benchmarkDirectory, "summary.csv");
+        try (PrintWriter writer = new PrintWriter(summaryFile, StandardCharsets.UTF_8)) {
+            writer.println(SUMMARY_HEADER);
+            for (SolverBenchmarkResult solverBenchmarkResult : plannerBenchmarkResult.getSolverBenchmarkResultList()) {
+                for (SingleBenchmarkResult result : solverBenchmarkResult.getSingleBenchmarkResultList()) {
+                    boolean feasible = result.hasAllSuccess() && result.getAverageScore().isFeasible();
+                    writer.println(String.join(",",
+                            "\"" + solverBenchmarkResult.getName() + "\"",
+                            result.getProblemBenchmarkResult().getName(),
+                            Long.toString(result.getProblemBenchmarkResult().getEntityCount()),
+                            Boolean.toString(feasible),
+                            // Every variant stops once feasible, unless it hits the spent limit first
+                            feasible ? Long.toString(result.getTimeMillisSpent()) : "",
+                            result.hasAllSuccess() ? Long.toString(result.getScoreCalculationSpeed()) : "",
+                            result.hasAllSuccess() ? result.getAverageScore().toString() : "failed"));
+                }
+            }
+        }
+        LOGGER.info("Wrote the benchmark summary to " + summaryFile + ".");
+    }
+
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.acme.schooltimetabling.solver;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import javax.inject.Inject;
+
+import org.acme.schooltimetabling.bootstrap.SyntheticDataGenerator;
+import org.acme.schooltimetabling.persistence.LessonRepository;
+import org.acme.schooltimetabling.persistence.SolverNodeRepository;
+import org.acme.schooltimetabling.persistence.TimeTableBulkInserter;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.optaplanner.core.api.solver.SolverStatus;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.quarkus.test.junit.QuarkusTest;
+
+/**
+ * Runs two coordinator nodes in-process against the shared test database.
+ * The joining node is this test application itself, so the handed off solve really runs.
+ */
+@QuarkusTest
+class SolverCoordinatorTest {
+
+    private static final String SECRET = "test-secret";
+    private static final String LEAVING_NODE_URL = "http://localhost:1";
+
+    @ConfigProperty(name = "quarkus.http.test-port", defaultValue = "8081")
+    int testPort;
+
+    @Inject
+    SolverNodeRepository solverNodeRepository;
+    @Inject
+    SolverScheduler solverScheduler;
+    @Inject
+    LessonRepository lessonRepository;
+    @Inject
+    TimeTableBulkInserter bulkInserter;
+
+    @Test
+    @Timeout(60)
+    void joiningNodeGetsTheTenantOnlyAfterItsSolveStopped() throws InterruptedException {
+        String joiningNodeUrl = "http://localhost:" + testPort;
+        Long tenantId = findTenantOwnedBy(joiningNodeUrl, Arrays.asList(LEAVING_NODE_URL, joiningNodeUrl));
+        bulkInserter.insert(SyntheticDataGenerator.createTimeTable(tenantId, new SyntheticDataGenerator.Parameters()
+                .withTimeslotsPerDay(2)
+                .withRoomCount(2)
+                .withTeacherCount(2)
+                .withStudentGroupCount(2)
+                .withLessonsPerGroup(4)));
+
+        CountDownLatch terminatedLatch = new CountDownLatch(1);
+        CountDownLatch finalWriteLatch = new CountDownLatch(1);
+        SolverCoordinator oldOwner = createNode(LEAVING_NODE_URL, new SolverScheduler() {
+            @Override
+            public List<Long> getActiveTenantIds() {
+                // Every heartbeat hands off the active tenants that moved, so it must stop being active
+                return finalWriteLatch.getCount() > 0L ? Collections.singletonList(tenantId)
+                        : Collections.emptyList();
+            }
+
+            @Override
+            public void terminateEarly(Long terminatedTenantId) {
+                terminatedLatch.countDown();
+            }
+
+            @Override
+            public boolean awaitStopped(Long stoppedTenantId, Duration timeout) throws InterruptedException {
+                // Its final best solution is still being written
+                return finalWriteLatch.await(timeout.toMillis(), TimeUnit.MILLISECONDS);
+            }
+        });
+        SolverCoordinator newOwner = null;
+        try {
+            await(() -> solverNodeRepository.findUrls().contains(LEAVING_NODE_URL));
+            assertNull(oldOwner.getRemoteOwnerUrl(tenantId));
+
+            newOwner = createNode(joiningNodeUrl, new SolverScheduler() {
+                @Override
+                public List<Long> getActiveTenantIds() {
+                    return Collections.emptyList();
+                }
+            });
+            assertTrue(terminatedLatch.await(10, TimeUnit.SECONDS));
+            assertEquals(joiningNodeUrl, oldOwner.getRemoteOwnerUrl(tenantId));
+            Thread.sleep(500L);
+            assertEquals(SolverStatus.NOT_SOLVING, solverScheduler.getSolverStatus(tenantId));
+
+            finalWriteLatch.countDown();
+            long lessonCount = lessonRepository.countByTenantId(tenantId);
+            await(() -> lessonRepository.countAssignedByTenantId(tenantId) == lessonCount);
+            SolverCoordinator joinedNode = newOwner;
+            await(() -> joinedNode.getRemoteOwnerUrl(tenantId) == null);
+        } finally {
+            solverScheduler.terminateEarly(tenantId);
+            oldOwner.stop();
+            if (newOwner != null) {
+                newOwner.stop();
+            }
+        }
+    }
+
+    @Test
+    void onlyTrustsTheClusterSecret() {
+        SolverCoordinator node = new SolverCoordinator();
+        node.enabled = true;
+        node.secret = Optional.of(SECRET);
+        assertTrue(node.isForwarded(SECRET));
+        assertFalse(node.isForwarded("true"));
+        assertFalse(node.isForwarded(null));
+        node.enabled = false;
+        assertFalse(node.isForwarded(SECRET));
+    }
+
+    private SolverCoordinator createNode(String nodeUrl, SolverScheduler nodeSolverScheduler) {
+        SolverCoordinator node = new SolverCoordinator();
+        node.enabled = true;
+        node.nodeUrl = nodeUrl;
+        node.heartbeatInterval = Duration.ofMillis(100L);
+        node.nodeTimeout = Duration.ofSeconds(10L);
+        node.virtualNodeCount = 100;
+        node.forwardTimeout = Duration.ofSeconds(5L);
+        node.handOffTimeout = Duration.ofSeconds(30L);
+        node.handOffAttempts = 3;
+        node.statusCacheTtl = Duration.ofSeconds(1L);
+        node.secret = Optional.of(SECRET);
+        node.solverNodeRepository = solverNodeRepository;
+        node.solverScheduler = nodeSolverScheduler;
+        node.meterRegistry = new SimpleMeterRegistry();
+        node.start(null);
+        return node;
+    }
+
+    private static Long findTenantOwnedBy(String nodeUrl, List<String> nodeUrlList) {
+        ConsistentHashRing ring = new ConsistentHashRing(nodeUrlList, 100);
+        for (long tenantId = 600L; tenantId < 700L; tenantId++) {
+            if (ring.getOwner(tenantId).equals(nodeUrl)) {
+                return tenantId;
+            }
+        }
+        throw new IllegalStateException("No tenant of node (" + nodeUrl + ").");
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        while (!condition.getAsBoolean()) {
+            Thread.sleep(20L);
+        }
+    }
+
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.acme.schooltimetabling.solver;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+import org.optaplanner.core.config.solver.SolverConfig;
+import org.optaplanner.core.config.solver.termination.TerminationConfig;
+
+class SolverFactoryProducerTest {
+
+    @Test
+    void buildWarmStartSolverConfig() {
+        SolverConfig solverConfig = new SolverConfig()
+                .withTerminationConfig(new TerminationConfig().withSpentLimit(Duration.ofMinutes(5)));
+        SolverConfig warmStartSolverConfig = SolverFactoryProducer.buildWarmStartSolverConfig(solverConfig,
+                Duration.ofSeconds(30));
+
+        TerminationConfig terminationConfig = warmStartSolverConfig.getTerminationConfig();
+        assertEquals(Duration.ofSeconds(30), terminationConfig.getUnimprovedSpentLimit());
+        // The other limits still apply and the original config is left alone
+        assertEquals(Duration.ofMinutes(5), terminationConfig.getSpentLimit());
+        assertNull(solverConfig.getTerminationConfig().getUnimprovedSpentLimit());
+    }
+
+    @Test
+    void buildWarmStartSolverConfigWithoutTermination() {
+        SolverConfig warmStartSolverConfig = SolverFactoryProducer.buildWarmStartSolverConfig(new SolverConfig(),
+                Duration.ofSeconds(30));
+
+        assertEquals(Duration.ofSeconds(30), warmStartSolverConfig.getTerminationConfig().getUnimprovedSpentLimit());
+    }
+
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.acme.schooltimetabling.solver;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+
+import org.acme.schooltimetabling.domain.Lesson;
+import org.acme.schooltimetabling.domain.Room;
+import org.acme.schooltimetabling.domain.TimeTable;
+import org.acme.schooltimetabling.domain.Timeslot;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.optaplanner.core.api.solver.Solver;
+import org.optaplanner.core.api.solver.SolverFactory;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.quarkus.test.junit.QuarkusTest;
+
+@QuarkusTest
+class SolverMetricsListenerTest {
+
+    @Inject
+    SolverFactory<TimeTable> solverFactory;
+    @Inject
+    MeterRegistry meterRegistry;
+
+    @Test
+    void recordLifecycleMetrics() {
+        Room room = new Room(1L, 300L, "Room1");
+        Timeslot timeslot1 = new Timeslot(2L, 300L, DayOfWeek.MONDAY, LocalTime.NOON);
+        Timeslot timeslot2 = new Timeslot(3L, 300L, DayOfWeek.TUESDAY, LocalTime.NOON);
+        TimeTable timeTable = new TimeTable(300L, Arrays.asList(timeslot1, timeslot2), Collections.singletonList(room),
+                Arrays.asList(new Lesson(4L, 300L, "Subject1", "Teacher1", "Group1", null, null),
+                        new Lesson(5L, 300L, "Subject2", "Teacher2", "Group2", null, null)));
+        // The timers aggregate over the tenants, so the other tests' solves count too
+        long initializedCount = timerCount("timetable.solver.time.to.initialized");
+        long feasibleCount = timerCount("timetable.solver.time.to.feasible");
+        long constructionHeuristicCount = timerCount("timetable.solver.phase.duration",
+                "phase", "constructionHeuristic");
+        long unimprovedCount = timerCount("timetable.solver.unimproved.time");
+        TimeTable solution = solverFactory.buildSolver().solve(timeTable);
+        assertTrue(solution.getScore().isFeasible());
+
+        // Feasible is also the best score limit of the test profile, so only the construction heuristic ran
+        assertEquals(initializedCount + 1L, timerCount("timetable.solver.time.to.initialized"));
+        assertEquals(feasibleCount + 1L, timerCount("timetable.solver.time.to.feasible"));
+        assertEquals(constructionHeuristicCount + 1L, timerCount("timetable.solver.phase.duration",
+                "phase", "constructionHeuristic"));
+        assertEquals(unimprovedCount + 1L, timerCount("timetable.solver.unimproved.time"));
+        assertEquals(1.0, meterRegistry.get("timetable.solver.runs")
+                .tag("tenantId", "300").tag("feasible", "true").counter().count());
+        assertTrue(meterRegistry.find("timetable.solver.time.to.feasible").tagKeys("tenantId").timers().isEmpty());
+        // Per tenant without a histogram
+        Timer tenantFeasibleTimer = meterRegistry.get("timetable.solver.time.to.feasible.by.tenant")
+                .tag("tenantId", "300").timer();
+        assertEquals(1L, tenantFeasibleTimer.count());
+        assertEquals(0, tenantFeasibleTimer.takeSnapshot().histogramCounts().length);
+        assertEquals(1L, meterRegistry.get("timetable.solver.unimproved.time.by.tenant")
+                .tag("tenantId", "300").timer().count());
+    }
+
+    @Test
+    @Timeout(60)
+    void recordOneRunPerSolveWithProblemChanges() throws Exception {
+        Long tenantId = 301L;
+        // Three lessons of one teacher in two timeslots never become feasible, so the solve runs until terminated
+        TimeTable timeTable = new TimeTable(tenantId,
+                Arrays.asList(new Timeslot(1L, tenantId, DayOfWeek.MONDAY, LocalTime.of(8, 30)),
+                        new Timeslot(2L, tenantId, DayOfWeek.MONDAY, LocalTime.of(9, 30))),
+                Collections.singletonList(new Room(3L, tenantId, "Room1")),
+                new ArrayList<>(Arrays.asList(new Lesson(4L, tenantId, "Math", "A. Turing", "Group1", null, null),
+                        new Lesson(5L, tenantId, "Math", "A. Turing", "Group2", null, null),
+                        new Lesson(6L, tenantId, "Math", "A. Turing", "Group3", null, null))));
+        Solver<TimeTable> solver = solverFactory.buildSolver();
+        CountDownLatch bestSolutionLatch = new CountDownLatch(1);
+        solver.addEventListener(event -> bestSolutionLatch.countDown());
+        CompletableFuture<TimeTable> solveFuture = CompletableFuture.supplyAsync(() -> solver.solve(timeTable));
+        try {
+            assertTrue(bestSolutionLatch.await(30, TimeUnit.SECONDS));
+            // Restarts the solver, which calls solvingEnded() and solvingStarted() again
+            solver.addProblemFactChange(new AddLessonChange(
+                    new Lesson(7L, tenantId, "Physics", "M. Curie", "Group1", null, null)));
+            while (!solver.isEveryProblemFactChangeProcessed()) {
+                Thread.sleep(10L);
+            }
+        } finally {
+            solver.terminateEarly();
+        }
+        assertEquals(4, solveFuture.get(30, TimeUnit.SECONDS).getLessonList().size());
+
+        assertEquals(1.0, meterRegistry.get("timetable.solver.runs")
+                .tag("tenantId", tenantId.toString()).tag("feasible", "false").counter().count());
+        assertTrue(meterRegistry.find("timetable.solver.runs")
+                .tag("tenantId", tenantId.toString()).tag("feasible", "true").counters().isEmpty());
+    }
+
+    private long timerCount(String name, String... tags) {
+        Timer timer = meterRegistry.find(name).tags(tags).timer();
+        return timer == null ? 0L : timer.count();
+    }
+
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.acme.schooltimetabling.solver;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+
+import org.acme.schooltimetabling.domain.Lesson;
+import org.acme.schooltimetabling.domain.Room;
+import org.acme.schooltimetabling.domain.TimeTable;
+import org.acme.schooltimetabling.domain.Timeslot;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.optaplanner.core.api.solver.SolverStatus;
+
+import io.quarkus.test.junit.QuarkusTest;
+
+@QuarkusTest
+class SolverSchedulerTest {
+
+    @Inject
+    SolverScheduler solverScheduler;
+
+    @Test
+    @Timeout(60)
+    void repeatedSolveJoinsTheQueuedOne() throws InterruptedException {
+        Long tenantId = 400L;
+        CountDownLatch problemReleaseLatch = new CountDownLatch(1);
+        CountDownLatch finalBestSolutionLatch = new CountDownLatch(1);
+        assertTrue(solverScheduler.submit(tenantId, SolveMode.COLD,
+                id -> {
+                    try {
+                        problemReleaseLatch.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IllegalStateException(e);
+                    }
+                    return createTimeTable(id);
+                },
+                timeTable -> {},
+                timeTable -> finalBestSolutionLatch.countDown(),
+                (problemId, throwable) -> {}));
+        // Still queued or loading its problem
+        assertNotEquals(SolverStatus.NOT_SOLVING, solverScheduler.getSolverStatus(tenantId));
+        assertFalse(solverScheduler.submit(tenantId, SolveMode.COLD, this::createTimeTable,
+                timeTable -> {}, timeTable -> {}, (problemId, throwable) -> {}));
+        problemReleaseLatch.countDown();
+        assertTrue(finalBestSolutionLatch.await(50, TimeUnit.SECONDS));
+    }
+
+    @Test
+    @Timeout(60)
+    void terminateEarlyFreesTheSlotOfAnUnstartedSolve() throws InterruptedException {
+        Long blockingTenantId = 401L;
+        Long tenantId = 402L;
+        CountDownLatch problemReleaseLatch = new CountDownLatch(1);
+        CountDownLatch finalBestSolutionLatch = new CountDownLatch(1);
+        // Occupies a thread of the SolverManager, which has only one on a small machine
+        assertTrue(solverScheduler.submit(blockingTenantId, SolveMode.COLD,
+                id -> {
+                    try {
+                        problemReleaseLatch.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IllegalStateException(e);
+                    }
+                    return createTimeTable(id);
+                },
+                timeTable -> {},
+                timeTable -> finalBestSolutionLatch.countDown(),
+                (problemId, throwable) -> {}));
+        assertTrue(solverScheduler.submit(tenantId, SolveMode.COLD, this::createTimeTable,
+                timeTable -> {}, timeTable -> {}, (problemId, throwable) -> {}));
+        // Queued here, waiting in the SolverManager or already solving, the tenant must be able to solve again
+        solverScheduler.terminateEarly(tenantId);
+        while (solverScheduler.getActiveTenantIds().contains(tenantId)) {
+            Thread.sleep(10L);
+        }
+        problemReleaseLatch.countDown();
+        assertTrue(finalBestSolutionLatch.await(50, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void importLockRejectsSolves() {
+        Long tenantId = 403L;
+        assertTrue(solverScheduler.tryLockForImport(tenantId));
+        assertFalse(solverScheduler.tryLockForImport(tenantId));
+        assertThrows(ProblemImportInProgressException.class, () -> solverScheduler.submit(tenantId,
+                SolveMode.COLD, this::createTimeTable, timeTable -> {}, timeTable -> {}, (problemId, throwable) -> {}));
+        solverScheduler.unlockImport(tenantId);
+        assertTrue(solverScheduler.tryLockForImport(tenantId));
+        solverScheduler.unlockImport(tenantId);
+    }
+
+    private TimeTable createTimeTable(Long tenantId) {
+        Room room = new Room(1L, tenantId, "Room1");
+        return new TimeTable(tenantId,
+                Arrays.asList(new Timeslot(2L, tenantId, DayOfWeek.MONDAY, LocalTime.of(8, 30)),
+                        new Timeslot(3L, tenantId, DayOfWeek.MONDAY, LocalTime.of(9, 30))),
+                Arrays.asList(room),
+                Arrays.asList(new Lesson(4L, tenantId, "Math", "A. Turing", "9th grade", null, null),
+                        new Lesson(5L, tenantId, "Physics", "M. Curie", "9th grade", null, null)));
+    }
+
+}
@@ -18,11 +18,16 @@ package org.acme.schooltimetabling.solver;
 
 import java.time.DayOfWeek;
 import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import javax.inject.Inject;
 
+import org.acme.schooltimetabling.domain.ConsecutiveTimeslotPair;
 import org.acme.schooltimetabling.domain.Lesson;
 import org.acme.schooltimetabling.domain.Room;
+import org.acme.schooltimetabling.domain.TeacherUnavailability;
 import org.acme.schooltimetabling.domain.TimeTable;
 import org.acme.schooltimetabling.domain.Timeslot;
 import org.junit.jupiter.api.Test;
@@ -39,6 +44,8 @@ class TimeTableConstraintProviderTest {
     private static final Timeslot TIMESLOT2 = new Timeslot(2, 1L, DayOfWeek.TUESDAY, LocalTime.NOON);
     private static final Timeslot TIMESLOT3 = new Timeslot(3, 1L, DayOfWeek.TUESDAY, LocalTime.NOON.plusHours(1));
     private static final Timeslot TIMESLOT4 = new Timeslot(4, 1L, DayOfWeek.TUESDAY, LocalTime.NOON.plusHours(3));
+    private static final List<ConsecutiveTimeslotPair> CONSECUTIVE_TIMESLOT_PAIRS =
+            ConsecutiveTimeslotPair.buildList(Arrays.asList(TIMESLOT1, TIMESLOT2, TIMESLOT3, TIMESLOT4));
 
     @Inject
     ConstraintVerifier<TimeTableConstraintProvider, TimeTable> constraintVerifier;
@@ -60,7 +67,7 @@ class TimeTableConstraintProviderTest {
         Lesson conflictingLesson = new Lesson(2, 1L, "Subject2", conflictingTeacher, "Group2", TIMESLOT1, ROOM2);
         Lesson nonConflictingLesson = new Lesson(3, 1L, "Subject3", "Teacher2", "Group3", TIMESLOT2, ROOM1);
         constraintVerifier.verifyThat(TimeTableConstraintProvider::teacherConflict)
-                .given(firstLesson, conflictingLesson, nonConflictingLesson)
+                .given(interned(firstLesson, conflictingLesson, nonConflictingLesson))
                 .penalizesBy(1);
     }
 
@@ -71,10 +78,53 @@ class TimeTableConstraintProviderTest {
         Lesson conflictingLesson = new Lesson(2, 1L, "Subject2", "Teacher2", conflictingGroup, TIMESLOT1, ROOM2);
         Lesson nonConflictingLesson = new Lesson(3, 1L, "Subject3", "Teacher3", "Group3", TIMESLOT2, ROOM1);
         constraintVerifier.verifyThat(TimeTableConstraintProvider::studentGroupConflict)
-                .given(firstLesson, conflictingLesson, nonConflictingLesson)
+                .given(interned(firstLesson, conflictingLesson, nonConflictingLesson))
                 .penalizesBy(1);
     }
 
+    @Test
+    void roomUnavailability() {
+        Room unavailableRoom = new Room(3L, "Room3");
+        unavailableRoom.setAvailable(false);
+        Lesson lessonInUnavailableRoom = new Lesson(1, 1L, "Subject1", "Teacher1", "Group1", TIMESLOT1, unavailableRoom);
+        Lesson lessonInAvailableRoom = new Lesson(2, 1L, "Subject2", "Teacher2", "Group2", TIMESLOT1, ROOM1);
+        constraintVerifier.verifyThat(TimeTableConstraintProvider::roomUnavailability)
+                .given(lessonInUnavailableRoom, lessonInAvailableRoom)
+                .penalizesBy(1);
+    }
+
+    @Test
+    void teacherUnavailability() {
+        TeacherUnavailability mondayOff = new TeacherUnavailability(1L, "Teacher1", DayOfWeek.MONDAY);
+        Lesson lessonOnDayOff = new Lesson(1, 1L, "Subject1", "Teacher1", "Group1", TIMESLOT1, ROOM1);
+        Lesson lessonOnWorkingDay = new Lesson(2, 1L, "Subject2", "Teacher1", "Group2", TIMESLOT2, ROOM1);
+        Lesson lessonOfOtherTeacher = new Lesson(3, 1L, "Subject3", "Teacher2", "Group3", TIMESLOT1, ROOM2);
+        constraintVerifier.verifyThat(TimeTableConstraintProvider::teacherUnavailability)
+                .given(interned(mondayOff, lessonOnDayOff, lessonOnWorkingDay, lessonOfOtherTeacher))
+                .penalizesBy(1);
+    }
+
+    @Test
+    void roomSuitability() {
+        Room lab = new Room(3L, "Lab");
+        lab.setRoomType("Lab");
+        lab.setCapacity(20);
+        Lesson labLessonInLab = new Lesson(1, 1L, "Chemistry", "Teacher1", "Group1", TIMESLOT1, lab);
+        labLessonInLab.setRequiredRoomType("Lab");
+        labLessonInLab.setStudentCount(20);
+        Lesson labLessonInClassroom = new Lesson(2, 1L, "Chemistry", "Teacher1", "Group2", TIMESLOT2, ROOM1);
+        labLessonInClassroom.setRequiredRoomType("Lab");
+        Lesson tooBigLabLesson = new Lesson(3, 1L, "Chemistry", "Teacher2", "Group3", TIMESLOT3, lab);
+        tooBigLabLesson.setRequiredRoomType("Lab");
+        tooBigLabLesson.setStudentCount(25);
+        Lesson ordinaryLessonInLab = new Lesson(4, 1L, "Math", "Teacher3", "Group4", TIMESLOT4, lab);
+        Lesson ordinaryLessonInClassroom = new Lesson(5, 1L, "Math", "Teacher3", "Group5", TIMESLOT1, ROOM2);
+        constraintVerifier.verifyThat(TimeTableConstraintProvider::roomSuitability)
+                .given(labLessonInLab, labLessonInClassroom, tooBigLabLesson, ordinaryLessonInLab,
+                        ordinaryLessonInClassroom)
+                .penalizesBy(3);
+    }
+
     @Test
     void teacherRoomStability() {
         String teacher = "Teacher1";
@@ -82,7 +132,7 @@ class TimeTableConstraintProviderTest {
         Lesson lessonInSameRoom = new Lesson(2, 1L, "Subject2", teacher, "Group2", TIMESLOT1, ROOM1);
         Lesson lessonInDifferentRoom = new Lesson(3, 1L, "Subject3", teacher, "Group3", TIMESLOT1, ROOM2);
         constraintVerifier.verifyThat(TimeTableConstraintProvider::teacherRoomStability)
-                .given(lessonInFirstRoom, lessonInDifferentRoom, lessonInSameRoom)
+                .given(interned(lessonInFirstRoom, lessonInDifferentRoom, lessonInSameRoom))
                 .penalizesBy(2);
     }
 
@@ -94,7 +144,8 @@ class TimeTableConstraintProviderTest {
         Lesson secondTuesdayLesson = new Lesson(3, 1L, "Subject3", teacher, "Group3", TIMESLOT3, ROOM1);
         Lesson thirdTuesdayLessonWithGap = new Lesson(4, 1L, "Subject4", teacher, "Group4", TIMESLOT4, ROOM1);
         constraintVerifier.verifyThat(TimeTableConstraintProvider::teacherTimeEfficiency)
-                .given(singleLessonOnMonday, firstTuesdayLesson, secondTuesdayLesson, thirdTuesdayLessonWithGap)
+                .given(withConsecutiveTimeslotPairs(singleLessonOnMonday, firstTuesdayLesson, secondTuesdayLesson,
+                        thirdTuesdayLessonWithGap))
                 .rewardsWith(1); // Second tuesday lesson immediately follows the first.
     }
 
@@ -108,9 +159,30 @@ class TimeTableConstraintProviderTest {
         Lesson thirdTuesdayLessonWithDifferentSubject = new Lesson(4, 1L, "Subject2", "Teacher4", studentGroup, TIMESLOT4, ROOM1);
         Lesson lessonInAnotherGroup = new Lesson(5, 1L, repeatedSubject, "Teacher5", "Group2", TIMESLOT1, ROOM1);
         constraintVerifier.verifyThat(TimeTableConstraintProvider::studentGroupSubjectVariety)
-                .given(mondayLesson, firstTuesdayLesson, secondTuesdayLesson, thirdTuesdayLessonWithDifferentSubject,
-                        lessonInAnotherGroup)
+                .given(withConsecutiveTimeslotPairs(mondayLesson, firstTuesdayLesson, secondTuesdayLesson,
+                        thirdTuesdayLessonWithDifferentSubject, lessonInAnotherGroup))
                 .penalizesBy(1); // Second tuesday lesson immediately follows the first.
     }
 
+    private static Object[] withConsecutiveTimeslotPairs(Lesson... lessons) {
+        List<Object> factList = new ArrayList<>(CONSECUTIVE_TIMESLOT_PAIRS);
+        factList.addAll(Arrays.asList(interned(lessons)));
+        return factList.toArray();
+    }
+
+    // Teachers, student groups and subjects are equal by identity, so equal names must share the interned instance
+    private static Object[] interned(Object... facts) {
+        List<TeacherUnavailability> teacherUnavailabilityList = new ArrayList<>();
+        List<Lesson> lessonList = new ArrayList<>();
+        for (Object fact : facts) {
+            if (fact instanceof TeacherUnavailability) {
+                teacherUnavailabilityList.add((TeacherUnavailability) fact);
+            } else if (fact instanceof Lesson) {
+                lessonList.add((Lesson) fact);
+            }
+        }
+        new TimeTable(1L, new ArrayList<>(), new ArrayList<>(), teacherUnavailabilityList, lessonList);
+        return facts;
+    }
+
 }
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.acme.schooltimetabling.solver;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import javax.inject.Inject;
+
+import org.acme.schooltimetabling.domain.Lesson;
+import org.acme.schooltimetabling.domain.Room;
+import org.acme.schooltimetabling.domain.TeacherUnavailability;
+import org.acme.schooltimetabling.domain.TimeTable;
+import org.acme.schooltimetabling.domain.Timeslot;
+import org.junit.jupiter.api.Test;
+import org.optaplanner.core.api.score.buildin.hardsoft.HardSoftScore;
+import org.optaplanner.test.api.score.stream.ConstraintVerifier;
+
+import io.quarkus.test.junit.QuarkusTest;
+
+@QuarkusTest
+class TimeTableIncrementalScoreCalculatorTest {
+
+    private static final Room ROOM1 = new Room(1L, 1L, "Room1");
+    private static final Room ROOM2 = new Room(2L, 1L, "Room2");
+    private static final Timeslot TIMESLOT1 = new Timeslot(1, 1L, DayOfWeek.MONDAY, LocalTime.NOON);
+    private static final Timeslot TIMESLOT2 = new Timeslot(2, 1L, DayOfWeek.TUESDAY, LocalTime.NOON);
+    private static final Timeslot TIMESLOT3 = new Timeslot(3, 1L, DayOfWeek.TUESDAY, LocalTime.NOON.plusHours(1));
+    private static final Timeslot TIMESLOT4 = new Timeslot(4, 1L, DayOfWeek.TUESDAY, LocalTime.NOON.plusHours(3));
+
+    @Inject
+    ConstraintVerifier<TimeTableConstraintProvider, TimeTable> constraintVerifier;
+
+    @Test
+    void sameScoreAsConstraintProvider() {
+        Room unavailableRoom = new Room(3L, 1L, "Room3");
+        unavailableRoom.setAvailable(false);
+        List<Lesson> lessonList = Arrays.asList(
+                new Lesson(1, 1L, "Subject1", "Teacher1", "Group1", TIMESLOT1, ROOM1),
+                new Lesson(2, 1L, "Subject2", "Teacher1", "Group2", TIMESLOT1, ROOM1),
+                new Lesson(3, 1L, "Subject1", "Teacher2", "Group1", TIMESLOT2, ROOM2),
+                new Lesson(4, 1L, "Subject1", "Teacher2", "Group1", TIMESLOT3, ROOM1),
+                new Lesson(5, 1L, "Subject3", "Teacher2", "Group1", TIMESLOT4, ROOM2),
+                new Lesson(6, 1L, "Subject3", "Teacher3", "Group3", null, null),
+                new Lesson(7, 1L, "Subject2", "Teacher3", "Group2", TIMESLOT2, unavailableRoom));
+        TimeTable timeTable = new TimeTable(1L, Arrays.asList(TIMESLOT1, TIMESLOT2, TIMESLOT3, TIMESLOT4),
+                Arrays.asList(ROOM1, ROOM2, unavailableRoom), lessonList);
+        assertSameScore(timeTable, calculateFromScratch(timeTable));
+    }
+
+    @Test
+    void sameScoreAsConstraintProviderAfterMoves() {
+        Random random = new Random(37);
+        List<Timeslot> timeslotList = new ArrayList<>();
+        long id = 0L;
+        for (DayOfWeek dayOfWeek : Arrays.asList(DayOfWeek.MONDAY, DayOfWeek.TUESDAY)) {
+            for (LocalTime startTime : Arrays.asList(LocalTime.of(8, 30), LocalTime.of(9, 30), LocalTime.of(10, 30),
+                    LocalTime.of(13, 30), LocalTime.of(14, 30))) {
+                timeslotList.add(new Timeslot(id++, 1L, dayOfWeek, startTime));
+            }
+        }
+        List<Room> roomList = Arrays.asList(new Room(id++, 1L, "Room A"), new Room(id++, 1L, "Room B"),
+                new Room(id++, 1L, "Room C"));
+        roomList.get(2).setAvailable(false);
+        List<Lesson> lessonList = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            lessonList.add(new Lesson(id++, 1L, "Subject" + random.nextInt(4), "Teacher" + random.nextInt(5),
+                    "Group" + random.nextInt(3), null, null));
+        }
+        TimeTable timeTable = new TimeTable(1L, timeslotList, roomList, lessonList);
+
+        TimeTableIncrementalScoreCalculator calculator = new TimeTableIncrementalScoreCalculator();
+        calculator.resetWorkingSolution(timeTable);
+        for (int i = 0; i < 500; i++) {
+            Lesson lesson = lessonList.get(random.nextInt(lessonList.size()));
+            if (random.nextBoolean()) {
+                calculator.beforeVariableChanged(lesson, "timeslot");
+                lesson.setTimeslot(timeslotList.get(random.nextInt(timeslotList.size())));
+                calculator.afterVariableChanged(lesson, "timeslot");
+            } else {
+                calculator.beforeVariableChanged(lesson, "room");
+                lesson.setRoom(roomList.get(random.nextInt(roomList.size())));
+                calculator.afterVariableChanged(lesson, "room");
+            }
+            assertEquals(calculateFromScratch(timeTable), calculator.calculateScore(),
+                    "Score corrupted after move (" + i + ").");
+        }
+        assertSameScore(timeTable, calculator.calculateScore());
+    }
+
+    @Test
+    void sameScoreAsConstraintProviderWithUnavailableTeachersAndRoomTypes() {
+        Room lab = new Room(3L, 1L, "Lab");
+        lab.setRoomType("Lab");
+        lab.setCapacity(20);
+        List<TeacherUnavailability> teacherUnavailabilityList = Arrays.asList(
+                new TeacherUnavailability(4L, 1L, "Teacher1", DayOfWeek.MONDAY),
+                new TeacherUnavailability(5L, 1L, "Teacher4", DayOfWeek.TUESDAY));
+        List<Lesson> lessonList = new ArrayList<>(Arrays.asList(
+                new Lesson(6, 1L, "Subject1", "Teacher1", "Group1", TIMESLOT1, ROOM1),
+                new Lesson(7, 1L, "Chemistry", "Teacher2", "Group2", TIMESLOT1, ROOM2),
+                new Lesson(8, 1L, "Chemistry", "Teacher2", "Group1", TIMESLOT2, lab),
+                new Lesson(9, 1L, "Subject2", "Teacher3", "Group3", TIMESLOT3, lab)));
+        for (Lesson lesson : lessonList) {
+            if (lesson.getSubject().getName().equals("Chemistry")) {
+                lesson.setRequiredRoomType("Lab");
+                lesson.setStudentCount(25);
+            }
+        }
+        TimeTable timeTable = new TimeTable(1L, Arrays.asList(TIMESLOT1, TIMESLOT2, TIMESLOT3, TIMESLOT4),
+                Arrays.asList(ROOM1, ROOM2, lab), teacherUnavailabilityList, lessonList);
+        TimeTableIncrementalScoreCalculator calculator = new TimeTableIncrementalScoreCalculator();
+        calculator.resetWorkingSolution(timeTable);
+        assertSameScore(timeTable, calculator.calculateScore());
+
+        // Teacher4 had no lessons yet, but was interned with its unavailability
+        Lesson addedLesson = new Lesson(10, 1L, "Subject3", "Teacher4", "Group4", TIMESLOT2, ROOM1);
+        timeTable.internLesson(addedLesson);
+        calculator.beforeEntityAdded(addedLesson);
+        timeTable.getLessonList().add(addedLesson);
+        calculator.afterEntityAdded(addedLesson);
+        calculator.beforeVariableChanged(lessonList.get(0), "timeslot");
+        lessonList.get(0).setTimeslot(TIMESLOT4);
+        calculator.afterVariableChanged(lessonList.get(0), "timeslot");
+        assertEquals(calculateFromScratch(timeTable), calculator.calculateScore());
+        assertSameScore(timeTable, calculator.calculateScore());
+    }
+
+    private HardSoftScore calculateFromScratch(TimeTable timeTable) {
+        TimeTableIncrementalScoreCalculator calculator = new TimeTableIncrementalScoreCalculator();
+        calculator.resetWorkingSolution(timeTable);
+        return calculator.calculateScore();
+    }
+
+    private void assertSameScore(TimeTable timeTable, HardSoftScore score) {
+        constraintVerifier.verifyThat()
+                .givenSolution(timeTable)
+                .scores(score);
+    }
+
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2020 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.acme.schooltimetabling.solver;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.acme.schooltimetabling.domain.Lesson;
+import org.acme.schooltimetabling.domain.Room;
+import org.acme.schooltimetabling.domain.TimeTable;
+import org.acme.schooltimetabling.domain.Timeslot;
+import org.junit.jupiter.api.Test;
+
+class TimeTablePartitionerTest {
+
+    @Test
+    void studentGroupsSharingATeacherStayTogether() {
+        List<Lesson> lessonList = new ArrayList<>();
+        long id = 0L;
+        for (int group = 0; group < 8; group++) {
+            // Group0 and Group1 share Teacher0, Group2 and Group3 share Teacher2, ...
+            String teacher = "Teacher" + (group - group % 2);
+            for (int i = 0; i < 5; i++) {
+                lessonList.add(new Lesson(id++, 1L, "Subject" + i, teacher, "Group" + group, null, null));
+            }
+        }
+        List<Room> roomList = Arrays.asList(new Room(id++, 1L, "Room A"), new Room(id++, 1L, "Room B"),
+                new Room(id++, 1L, "Room C"), new Room(id++, 1L, "Room D"), new Room(id++, 1L, "Room E"));
+        TimeTable timeTable = new TimeTable(1L,
+                Arrays.asList(new Timeslot(id, 1L, DayOfWeek.MONDAY, LocalTime.NOON)), roomList, lessonList);
+
+        List<List<Lesson>> lessonPartList = TimeTablePartitioner.partitionLessons(timeTable, 4);
+        assertEquals(4, lessonPartList.size());
+        int lessonCount = 0;
+        for (List<Lesson> lessonPart : lessonPartList) {
+            assertEquals(10, lessonPart.size());
+            assertEquals(1L, lessonPart.stream().map(Lesson::getTeacher).distinct().count());
+            lessonCount += lessonPart.size();
+        }
+        assertEquals(lessonList.size(), lessonCount);
+
+        List<List<Room>> roomPartList = TimeTablePartitioner.partitionRooms(roomList, lessonPartList);
+        assertEquals(4, roomPartList.size());
+        int roomCount = 0;
+        for (List<Room> roomPart : roomPartList) {
+            assertFalse(roomPart.isEmpty());
+            roomCount += roomPart.size();
+        }
+        assertEquals(roomList.size(), roomCount);
+    }
+
+}